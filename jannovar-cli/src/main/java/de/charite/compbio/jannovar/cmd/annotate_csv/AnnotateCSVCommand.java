@@ -64,7 +64,8 @@ public class AnnotateCSVCommand extends JannovarAnnotationCommand {
 		System.err.println("Deserializing transcripts...");
 		deserializeTranscriptDefinitionFile(options.getDatabaseFilePath());
 
-		final VariantAnnotator annotator = new VariantAnnotator(refDict, chromosomeMap, new AnnotationBuilderOptions());
+		final VariantAnnotator annotator = new VariantAnnotator(refDict, chromosomeMap, new AnnotationBuilderOptions(),
+				options.getAnnotationCacheSize());
 
 		try {
 			Reader in = new FileReader(options.getCsv());
@@ -116,6 +117,10 @@ public class AnnotateCSVCommand extends JannovarAnnotationCommand {
 			}
 			parser.close();
 			printer.close();
+
+			if (options.getAnnotationCacheSize() > 0)
+				System.err.println(String.format("Annotation cache: %d hits, %d misses",
+						annotator.getAnnotationCacheHitCount(), annotator.getAnnotationCacheMissCount()));
 		} catch (IOException e1) {
 			e1.printStackTrace();
 			throw new JannovarException(e1.getMessage());
@@ -29,6 +29,8 @@ public class JannovarAnnotateCSVOptions extends JannovarAnnotationOptions {
 	private int pos;
 	private int ref;
 	private int alt;
+	/** Number of variants to cache the annotations for, 0 to disable */
+	private int annotationCacheSize;
 
 	/**
 	 * Setup {@link ArgumentParser}
@@ -62,6 +64,8 @@ public class JannovarAnnotateCSVOptions extends JannovarAnnotationOptions {
 				.help("Type of csv file. ").setDefault(CSVFormat.Predefined.Default);
 		optionalGroup.addArgument("--header").help("Set if the file contains a header. ").setDefault(false)
 				.action(Arguments.storeTrue());
+		optionalGroup.addArgument("--annotation-cache-size").type(Integer.class)
+				.help("Number of variants to cache the annotations for, 0 to disable").setDefault(0);
 
 		subParser.epilog(
 				"Example: java -jar Jannovar.jar annotate-csv -d hg19_refseq.ser -c 1 -p 2 -r 3 -r 4 -t TDF --header -i input.csv");
@@ -80,6 +84,10 @@ public class JannovarAnnotateCSVOptions extends JannovarAnnotationOptions {
 		ref = args.getInt("ref") - 1;
 		alt = args.getInt("alt") - 1;
 		header = args.getBoolean("header");
+		annotationCacheSize = args.getInt("annotation_cache_size");
+		if (annotationCacheSize < 0)
+			throw new CommandLineParsingException(
+					"Annotation cache size must not be negative, was " + annotationCacheSize);
 		if ( header) 
 			format = format.withFirstRecordAsHeader().withSkipHeaderRecord();
 
@@ -133,12 +141,19 @@ public class JannovarAnnotateCSVOptions extends JannovarAnnotationOptions {
 	public boolean isHeader() {
 		return header;
 	}
+
+	/**
+	 * @return the number of variants to cache the annotations for, 0 if disabled
+	 */
+	public int getAnnotationCacheSize() {
+		return annotationCacheSize;
+	}
 	
 
 	@Override
 	public String toString() {
 		return "JannovarAnnotateCSVOptions [csv=" + csv + ", format=" + format + ", chr=" + chr + ", pos=" + pos
-				+ ", ref=" + ref + ", alt=" + alt + ", header?=" + header + ", toString()=" + super.toString() + "]";
+				+ ", ref=" + ref + ", alt=" + alt + ", header?=" + header + ", annotationCacheSize=" + annotationCacheSize + ", toString()=" + super.toString() + "]";
 	}
 
 }
@@ -4,6 +4,7 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import de.charite.compbio.jannovar.Jannovar;
 import de.charite.compbio.jannovar.JannovarException;
+import de.charite.compbio.jannovar.annotation.builders.SNVEffectTable;
 import de.charite.compbio.jannovar.cmd.CommandLineParsingException;
 import de.charite.compbio.jannovar.cmd.JannovarAnnotationCommand;
 import de.charite.compbio.jannovar.cmd.annotate_vcf.JannovarAnnotateVCFOptions.BedAnnotationOptions;
@@ -59,6 +60,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import net.sourceforge.argparse4j.inf.Namespace;
@@ -143,8 +145,8 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				iter = vcfReader.iterator();
 			}
 
-			// Obtain Java 8 stream from iterator
-			Stream<VariantContext> stream = iter.stream();
+			// Compose the annotation steps, applied to each record in the order of registration
+			Function<VariantContext, VariantContext> pipeline = Function.identity();
 
 			// If configured, annotate using dbSNP VCF file (extend header to
 			// use for writing out)
@@ -154,7 +156,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				DBVariantContextAnnotator dbSNPAnno = new DBVariantContextAnnotatorFactory()
 						.constructDBSNP(options.pathVCFDBSNP, options.pathFASTARef, dbSNPOptions);
 				dbSNPAnno.extendHeader(vcfHeader);
-				stream = stream.map(dbSNPAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(dbSNPAnno::annotateVariantContext);
 			}
 
 			// If configured, annotate using ExAC VCF file (extend header to use
@@ -165,7 +167,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				DBVariantContextAnnotator exacAnno = new DBVariantContextAnnotatorFactory()
 						.constructExac(options.pathVCFExac, options.pathFASTARef, exacOptions);
 				exacAnno.extendHeader(vcfHeader);
-				stream = stream.map(exacAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(exacAnno::annotateVariantContext);
 			}
 
 			// If configured, annotate using gnomAD exomes VCF file (extend
@@ -177,7 +179,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				DBVariantContextAnnotator gnomadExomesAnno = new DBVariantContextAnnotatorFactory()
 						.constructGnomad(options.pathVCFGnomadExomes, options.pathFASTARef, gnomadOptions);
 				gnomadExomesAnno.extendHeader(vcfHeader);
-				stream = stream.map(gnomadExomesAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(gnomadExomesAnno::annotateVariantContext);
 			}
 
 			// If configured, annotate using gnomAD genomes VCF file (extend
@@ -189,7 +191,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				DBVariantContextAnnotator gnomadGenomesAnno = new DBVariantContextAnnotatorFactory()
 						.constructGnomad(options.pathVCFGnomadGenomes, options.pathFASTARef, gnomadOptions);
 				gnomadGenomesAnno.extendHeader(vcfHeader);
-				stream = stream.map(gnomadGenomesAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(gnomadGenomesAnno::annotateVariantContext);
 			}
 
 			// If configured, annotate using UK10K VCF file (extend header to
@@ -200,7 +202,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				DBVariantContextAnnotator uk10kAnno = new DBVariantContextAnnotatorFactory()
 						.constructUK10K(options.pathVCFUK10K, options.pathFASTARef, exacOptions);
 				uk10kAnno.extendHeader(vcfHeader);
-				stream = stream.map(uk10kAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(uk10kAnno::annotateVariantContext);
 			}
 
 			// If configured, annotate using ClinVar VCF file (extend header to
@@ -211,7 +213,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				DBVariantContextAnnotator clinvarAnno = new DBVariantContextAnnotatorFactory()
 						.constructClinVar(options.pathClinVar, options.pathFASTARef, clinVarOptions);
 				clinvarAnno.extendHeader(vcfHeader);
-				stream = stream.map(clinvarAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(clinvarAnno::annotateVariantContext);
 			}
 
 			// If configured, annotate using COSMIC VCF file (extend header to
@@ -222,20 +224,26 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				DBVariantContextAnnotator cosmicAnno = new DBVariantContextAnnotatorFactory()
 						.constructCosmic(options.pathCosmic, options.pathFASTARef, cosmicOptions);
 				cosmicAnno.extendHeader(vcfHeader);
-				stream = stream.map(cosmicAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(cosmicAnno::annotateVariantContext);
 			}
 
 			// Add step for annotating with variant effect
 			VariantEffectHeaderExtender extender = new VariantEffectHeaderExtender();
 			extender.addHeaders(vcfHeader);
+			SNVEffectTable snvEffectTable = null;
+			if (options.getPathSNVEffectTable() != null) {
+				System.err.println("Opening SNV effect table " + options.getPathSNVEffectTable() + "...");
+				snvEffectTable = new SNVEffectTable(options.getPathSNVEffectTable());
+			}
 			VariantContextAnnotator variantEffectAnnotator =
 					new VariantContextAnnotator(refDict, chromosomeMap,
 							new VariantContextAnnotator.Options(!options.isShowAll(),
 									options.isEscapeAnnField(), options.isNt3PrimeShifting(),
 									options.isOffTargetFilterEnabled(),
 									options.isOffTargetFilterUtrIsOffTarget(),
-									options.isOffTargetFilterIntronicSpliceIsOffTarget()));
-			stream = stream.map(variantEffectAnnotator::annotateVariantContext);
+									options.isOffTargetFilterIntronicSpliceIsOffTarget(),
+									options.getAnnotationCacheSize(), options.isEffectsOnly(), snvEffectTable));
+			pipeline = pipeline.andThen(variantEffectAnnotator::annotateVariantContext);
 
 			// If configured, use threshold-based annotation (extend header to
 			// use for writing out)
@@ -286,7 +294,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				}
 				GenotypeThresholdFilterAnnotator gtThresholdFilterAnno =
 						new GenotypeThresholdFilterAnnotator(thresholdFilterOptions);
-				stream = stream.map(gtThresholdFilterAnno::annotateVariantContext);
+				pipeline = pipeline.andThen(gtThresholdFilterAnno::annotateVariantContext);
 
 				// When configured to use advanced pedigree filters (must come
 				// after threshold-based filtration)
@@ -311,13 +319,13 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 					// Construct annotator and register with pipeline
 					PedigreeFilterAnnotator pedFilterAnnotator = new PedigreeFilterAnnotator(pedFilterOptions,
 							pedigree);
-					stream = stream.map(pedFilterAnnotator::annotateVariantContext);
+					pipeline = pipeline.andThen(pedFilterAnnotator::annotateVariantContext);
 				}
 
 				if (options.useThresholdFilters) {
 					VariantThresholdFilterAnnotator varThresholdFilterAnno =
 							new VariantThresholdFilterAnnotator(thresholdFilterOptions, affecteds);
-					stream = stream.map(varThresholdFilterAnno::annotateVariantContext);
+					pipeline = pipeline.andThen(varThresholdFilterAnno::annotateVariantContext);
 				}
 			}
 
@@ -327,7 +335,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 				BedFileAnnotator annotator = new BedFileAnnotator(bedAnnotationOptions);
 				bedFileAnnotators.add(annotator);
 				annotator.extendHeader(vcfHeader);
-				stream = stream.map(annotator::annotateVariantContext);
+				pipeline = pipeline.andThen(annotator::annotateVariantContext);
 			}
 
 			// Annotate using dbNSFP
@@ -344,7 +352,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 						options.getColumnsDbNsfp(), descriptions);
 				dbNsfpAnnotator = new GenericTSVAnnotationDriver(options.getPathFASTARef(), dbNsfpAnnotationOptions);
 				dbNsfpAnnotator.constructVCFHeaderExtender().addHeaders(vcfHeader);
-				stream = stream.map(dbNsfpAnnotator::annotateVariantContext);
+				pipeline = pipeline.andThen(dbNsfpAnnotator::annotateVariantContext);
 			}
 
 			// Annotate from generic TSV files
@@ -354,7 +362,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 						tsvAnnotationOptions);
 				tsvAnnotators.add(annotator);
 				annotator.constructVCFHeaderExtender().addHeaders(vcfHeader);
-				stream = stream.map(annotator::annotateVariantContext);
+				pipeline = pipeline.andThen(annotator::annotateVariantContext);
 			}
 
 			// Annotate from generic VCF files
@@ -364,7 +372,7 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 						vcfAnnotationOptions.getPathVcfFile(), options.getPathFASTARef(), vcfAnnotationOptions);
 				vcfAnnotators.add(annotator);
 				annotator.constructVCFHeaderExtender().addHeaders(vcfHeader);
-				stream = stream.map(annotator::annotateVariantContext);
+				pipeline = pipeline.andThen(annotator::annotateVariantContext);
 			}
 
 			// Extend header with INHERITANCE filter
@@ -382,16 +390,32 @@ public class AnnotateVCFCommand extends JannovarAnnotationCommand {
 			try (VariantContextWriter vcfWriter = VariantContextWriterConstructionHelper
 					.openVariantContextWriter(vcfHeader, options.getPathOutputVCF(), jvHeaderLines);
 					VariantContextProcessor sink = buildMendelianProcessors(vcfWriter, vcfHeader)) {
-				// Make current VC available to progress printer
-				if (this.progressReporter != null)
-					stream = stream.peek(vc -> this.progressReporter.setCurrentVC(vc));
+				if (options.getNumThreads() == 1) {
+					Stream<VariantContext> stream = iter.stream().map(pipeline);
+					// Make current VC available to progress printer
+					if (this.progressReporter != null)
+						stream = stream.peek(vc -> this.progressReporter.setCurrentVC(vc));
 
-				stream.forEachOrdered(sink::put);
+					stream.forEachOrdered(sink::put);
+				} else {
+					System.err.println("Annotating using " + options.getNumThreads() + " threads");
+					new OrderedParallelPipeline(pipeline, options.getNumThreads(),
+							OrderedParallelPipeline.DEFAULT_BATCH_SIZE).run(iter, vc -> {
+								// Make current VC available to progress printer
+								if (this.progressReporter != null)
+									this.progressReporter.setCurrentVC(vc);
+								sink.put(vc);
+							});
+				}
 			} catch (IOException e) {
 				throw new JannovarException("Problem opening file", e);
 			}
 
 			System.err.println("Wrote annotations to \"" + options.getPathOutputVCF() + "\"");
+			if (options.getAnnotationCacheSize() > 0)
+				System.err.println(String.format("Annotation cache: %d hits, %d misses",
+						variantEffectAnnotator.getAnnotator().getAnnotationCacheHitCount(),
+						variantEffectAnnotator.getAnnotator().getAnnotationCacheMissCount()));
 			final long endTime = System.nanoTime();
 			System.err.println(String.format("Annotation and writing took %.2f sec.",
 					(endTime - startTime) / 1000.0 / 1000.0 / 1000.0));
@@ -8,6 +8,7 @@ import java.util.List;
 
 import de.charite.compbio.jannovar.cmd.annotate_vcf.JannovarAnnotateVCFOptions.BedAnnotationOptions;
 import htsjdk.samtools.util.Interval;
+import htsjdk.tribble.CloseableTribbleIterator;
 import htsjdk.tribble.TabixFeatureReader;
 import htsjdk.tribble.bed.BEDCodec;
 import htsjdk.tribble.bed.BEDFeature;
@@ -73,26 +74,33 @@ public class BedFileAnnotator implements Closeable {
 	 * @return annotated {@link VariantContext}
 	 */
 	public VariantContext annotateVariantContext(VariantContext vc) {
+		// The TabixFeatureReader does not support concurrent queries, collect the features while holding its lock.
+		List<BEDFeature> features = new ArrayList<>();
+		synchronized (this) {
+			try (CloseableTribbleIterator<BEDFeature> iter = reader.query(vc.getContig(),
+					vc.getStart() - 1, vc.getEnd() + 1)) {
+				for (BEDFeature bedFeature : iter)
+					features.add(bedFeature);
+			} catch (IOException e) {
+				throw new RuntimeException(
+						"Could not query " + vc.getContig() + ":" + vc.getStart() + "-" + vc.getEnd(),
+						e);
+			}
+		}
+
 		List<String> overlaps = new ArrayList<>();
-		try {
-			final Interval vcInterval = new Interval(vc.getContig(), vc.getStart(), vc.getEnd());
-			for (BEDFeature bedFeature : reader.query(vc.getContig(), vc.getStart() - 1,
-					vc.getEnd() + 1)) {
-				final Interval bedItv = new Interval(bedFeature.getContig(), bedFeature.getStart(),
-						bedFeature.getEnd());
-				if (vcInterval.intersects(bedItv)) {
-					if (options.getColNo() == -1) {
-						overlaps.add("true"); // marker is enough
-						break;
-					} else {
-						overlaps.add(bedFeature.getName());
-					}
+		final Interval vcInterval = new Interval(vc.getContig(), vc.getStart(), vc.getEnd());
+		for (BEDFeature bedFeature : features) {
+			final Interval bedItv = new Interval(bedFeature.getContig(), bedFeature.getStart(),
+					bedFeature.getEnd());
+			if (vcInterval.intersects(bedItv)) {
+				if (options.getColNo() == -1) {
+					overlaps.add("true"); // marker is enough
+					break;
+				} else {
+					overlaps.add(bedFeature.getName());
 				}
 			}
-		} catch (IOException e) {
-			throw new RuntimeException(
-					"Could not query " + vc.getContig() + ":" + vc.getStart() + "-" + vc.getEnd(),
-					e);
 		}
 
 		if (overlaps.isEmpty()) {
@@ -189,6 +189,18 @@ public class JannovarAnnotateVCFOptions extends JannovarAnnotationOptions {
 	/** Configuration for annotation with VCF files. */
 	private List<GenericVCFAnnotationOptions> vcfAnnotationOptions = new ArrayList<>();
 
+	/** Number of threads to use for annotation. */
+	private int numThreads = 1;
+
+	/** Number of variants to cache the annotations for, 0 to disable. */
+	private int annotationCacheSize = 0;
+
+	/** Whether or not to only compute the variant effects, leaving out the HGVS descriptions. */
+	private boolean effectsOnly = false;
+
+	/** Path to precomputed SNV effect table from <code>db-precompute</code>, <code>null</code> if not used. */
+	private String pathSNVEffectTable = null;
+
 	/**
 	 * Setup {@link ArgumentParser}
 	 * 
@@ -366,6 +378,20 @@ public class JannovarAnnotateVCFOptions extends JannovarAnnotationOptions {
 				.action(Arguments.storeTrue());
 		optionalGroup.addArgument("--disable-parent-gt-is-filtered").setDefault(true)
 				.dest("use_parent_gt_is_filtered").action(Arguments.storeFalse());
+		optionalGroup.addArgument("--threads")
+				.help("Number of threads to use for annotation, output is written in input order")
+				.type(Integer.class).setDefault(1);
+		optionalGroup.addArgument("--annotation-cache-size")
+				.help("Number of variants to cache the functional annotations for, e.g., for cohort VCF files "
+						+ "with many recurrent variants, 0 to disable")
+				.type(Integer.class).setDefault(0);
+		optionalGroup.addArgument("--effects-only")
+				.help("Only compute the variant effects and leave the HGVS descriptions in the ANN field empty, "
+						+ "e.g., for effect-based filtration")
+				.setDefault(false).action(Arguments.storeTrue());
+		optionalGroup.addArgument("--snv-effect-table")
+				.help("Path to SNV effect table for the database from db-precompute, for looking up the effects "
+						+ "of coding SNVs instead of computing them");
 
 		JannovarBaseOptions.setupParser(subParser);
 	}
@@ -456,6 +482,16 @@ public class JannovarAnnotateVCFOptions extends JannovarAnnotationOptions {
 		offTargetFilterUtrIsOffTarget = args.getBoolean("utr_is_off_target");
 		offTargetFilterIntronicSpliceIsOffTarget = args.getBoolean("intronic_splice_is_off_target");
 
+		numThreads = args.getInt("threads");
+		if (numThreads < 1)
+			throw new CommandLineParsingException("Number of threads must be at least 1, was " + numThreads);
+		annotationCacheSize = args.getInt("annotation_cache_size");
+		if (annotationCacheSize < 0)
+			throw new CommandLineParsingException(
+					"Annotation cache size must not be negative, was " + annotationCacheSize);
+		effectsOnly = args.getBoolean("effects_only");
+		pathSNVEffectTable = args.getString("snv_effect_table");
+
 		if (pathFASTARef == null && (pathVCFDBSNP != null || pathVCFExac != null
 				|| pathVCFUK10K != null || pathClinVar != null || pathCosmic != null
 				|| pathVCFGnomadExomes != null || pathVCFGnomadGenomes != null || pathDbNsfp != null
@@ -468,6 +504,38 @@ public class JannovarAnnotateVCFOptions extends JannovarAnnotationOptions {
 		return interval;
 	}
 
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
+	public int getAnnotationCacheSize() {
+		return annotationCacheSize;
+	}
+
+	public void setAnnotationCacheSize(int annotationCacheSize) {
+		this.annotationCacheSize = annotationCacheSize;
+	}
+
+	public boolean isEffectsOnly() {
+		return effectsOnly;
+	}
+
+	public void setEffectsOnly(boolean effectsOnly) {
+		this.effectsOnly = effectsOnly;
+	}
+
+	public String getPathSNVEffectTable() {
+		return pathSNVEffectTable;
+	}
+
+	public void setPathSNVEffectTable(String pathSNVEffectTable) {
+		this.pathSNVEffectTable = pathSNVEffectTable;
+	}
+
 	public void setInterval(String interval) {
 		this.interval = interval;
 	}
@@ -881,7 +949,9 @@ public class JannovarAnnotateVCFOptions extends JannovarAnnotationOptions {
 				+ ", dbNsfpColPosition=" + dbNsfpColPosition + ", prefixDbNsfp=" + prefixDbNsfp
 				+ ", pathDbNsfp=" + pathDbNsfp + ", columnsDbNsfp=" + columnsDbNsfp
 				+ ", tsvAnnotationOptions=" + tsvAnnotationOptions + ", vcfAnnotationOptions="
-				+ vcfAnnotationOptions + "]";
+				+ vcfAnnotationOptions + ", numThreads=" + numThreads + ", annotationCacheSize="
+				+ annotationCacheSize + ", effectsOnly=" + effectsOnly + ", pathSNVEffectTable="
+				+ pathSNVEffectTable + "]";
 	}
 
 	/**
@@ -0,0 +1,118 @@
+package de.charite.compbio.jannovar.cmd.annotate_vcf;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import de.charite.compbio.jannovar.UncheckedJannovarException;
+import htsjdk.variant.variantcontext.VariantContext;
+
+/**
+ * Apply the annotation steps to {@link VariantContext}s using a pool of worker threads.
+ *
+ * The records are read from the input on the calling thread and processed in batches by the workers. The results are
+ * passed to the consumer on the calling thread in input order, such that order-dependent sinks (e.g., the Mendelian
+ * inheritance annotation) keep working. At most two batches per thread are in flight at any time.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
+ */
+public final class OrderedParallelPipeline {
+
+	/** Default number of records in one batch */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+
+	/** The annotation steps to apply to each record */
+	private final Function<VariantContext, VariantContext> pipeline;
+
+	/** Number of worker threads */
+	private final int numThreads;
+
+	/** Number of records in one batch */
+	private final int batchSize;
+
+	/**
+	 * Construct pipeline.
+	 *
+	 * @param pipeline
+	 *            the annotation steps to apply, must be safe for concurrent use
+	 * @param numThreads
+	 *            number of worker threads to use
+	 * @param batchSize
+	 *            number of records to process in one batch
+	 */
+	public OrderedParallelPipeline(Function<VariantContext, VariantContext> pipeline, int numThreads,
+			int batchSize) {
+		if (numThreads < 1 || batchSize < 1)
+			throw new IllegalArgumentException("Number of threads and batch size must be positive");
+		this.pipeline = pipeline;
+		this.numThreads = numThreads;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Process all records from <code>iter</code> and pass the results to <code>consumer</code> in input order.
+	 *
+	 * Exceptions thrown by the annotation steps are rethrown on the calling thread.
+	 *
+	 * @param iter
+	 *            {@link Iterator} to read the records from
+	 * @param consumer
+	 *            {@link Consumer} to pass the annotated records to, called on the calling thread
+	 */
+	public void run(Iterator<VariantContext> iter, Consumer<VariantContext> consumer) {
+		final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		final ArrayDeque<Future<List<VariantContext>>> pending = new ArrayDeque<>();
+		try {
+			while (iter.hasNext()) {
+				final List<VariantContext> batch = new ArrayList<>(batchSize);
+				while (iter.hasNext() && batch.size() < batchSize)
+					batch.add(iter.next());
+				pending.add(executor.submit(() -> processBatch(batch)));
+
+				if (pending.size() >= 2 * numThreads)
+					waitFor(pending.poll()).forEach(consumer);
+			}
+			while (!pending.isEmpty())
+				waitFor(pending.poll()).forEach(consumer);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Apply {@link #pipeline} to all records of <code>batch</code>.
+	 */
+	private List<VariantContext> processBatch(List<VariantContext> batch) {
+		final List<VariantContext> result = new ArrayList<>(batch.size());
+		for (VariantContext vc : batch)
+			result.add(pipeline.apply(vc));
+		return result;
+	}
+
+	/**
+	 * Wait for <code>future</code> and return its result, rethrowing exceptions from the worker.
+	 */
+	private static List<VariantContext> waitFor(Future<List<VariantContext>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedJannovarException("Interrupted while waiting for annotation", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			else if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			else
+				throw new UncheckedJannovarException("Problem during annotation", e.getCause());
+		}
+	}
+
+}
@@ -0,0 +1,43 @@
+package de.charite.compbio.jannovar.cmd.db_convert;
+
+import de.charite.compbio.jannovar.JannovarException;
+import de.charite.compbio.jannovar.cmd.CommandLineParsingException;
+import de.charite.compbio.jannovar.cmd.JannovarCommand;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.data.JannovarDataBinarySerializer;
+import de.charite.compbio.jannovar.data.JannovarDataSerializer;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Convert a serialized Jannovar database into the memory-mappable binary format.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
+ */
+public class DatabaseConvertCommand extends JannovarCommand {
+
+	/** Configuration */
+	private JannovarDBConvertOptions options;
+
+	public DatabaseConvertCommand(String argv[], Namespace args) throws CommandLineParsingException {
+		this.options = new JannovarDBConvertOptions();
+		this.options.setFromArgs(args);
+	}
+
+	/**
+	 * Perform the conversion.
+	 */
+	@Override
+	public void run() throws JannovarException {
+		if (options.getVerbosity() >= 1) {
+			System.err.println("Options");
+			System.err.println(options.toString());
+		}
+
+		System.err.println("Loading " + options.getPathInputDatabase() + " ...");
+		JannovarData data = new JannovarDataSerializer(options.getPathInputDatabase()).load();
+		System.err.println("Writing " + options.getPathOutputDatabase() + " ...");
+		new JannovarDataBinarySerializer(options.getPathOutputDatabase()).save(data);
+		System.err.println("Done converting database.");
+	}
+
+}
@@ -0,0 +1,85 @@
+package de.charite.compbio.jannovar.cmd.db_convert;
+
+import java.util.function.BiFunction;
+
+import de.charite.compbio.jannovar.UncheckedJannovarException;
+import de.charite.compbio.jannovar.cmd.CommandLineParsingException;
+import de.charite.compbio.jannovar.cmd.JannovarBaseOptions;
+import net.sourceforge.argparse4j.inf.ArgumentGroup;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import net.sourceforge.argparse4j.inf.Subparsers;
+
+/**
+ * Configuration for the <code>db-convert</code> command
+ * 
+ * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
+ */
+public class JannovarDBConvertOptions extends JannovarBaseOptions {
+
+	/** Path to input database file */
+	private String pathInputDatabase = null;
+
+	/** Path to output binary database file */
+	private String pathOutputDatabase = null;
+
+	/**
+	 * Setup {@link ArgumentParser}
+	 * 
+	 * @param subParsers
+	 *            {@link Subparsers} to setup
+	 */
+	public static void setupParser(Subparsers subParsers) {
+		BiFunction<String[], Namespace, DatabaseConvertCommand> handler = (argv, args) -> {
+			try {
+				return new DatabaseConvertCommand(argv, args);
+			} catch (CommandLineParsingException e) {
+				throw new UncheckedJannovarException("Could not parse command line", e);
+			}
+		};
+
+		Subparser subParser = subParsers.addParser("db-convert", true)
+				.help("convert database to memory-mappable binary format").setDefault("cmd", handler);
+		subParser.description("Convert a serialized Jannovar database (.ser file) into the memory-mappable binary "
+				+ "format that can be used in place of the .ser file by all other commands");
+
+		ArgumentGroup requiredGroup = subParser.addArgumentGroup("Required arguments");
+		requiredGroup.addArgument("-i", "--input-database").help("Path to input database .ser file").required(true);
+		requiredGroup.addArgument("-o", "--output-database").help("Path to output binary database file")
+				.required(true);
+
+		JannovarBaseOptions.setupParser(subParser);
+	}
+
+	@Override
+	public void setFromArgs(Namespace args) throws CommandLineParsingException {
+		super.setFromArgs(args);
+
+		pathInputDatabase = args.getString("input_database");
+		pathOutputDatabase = args.getString("output_database");
+	}
+
+	public String getPathInputDatabase() {
+		return pathInputDatabase;
+	}
+
+	public void setPathInputDatabase(String pathInputDatabase) {
+		this.pathInputDatabase = pathInputDatabase;
+	}
+
+	public String getPathOutputDatabase() {
+		return pathOutputDatabase;
+	}
+
+	public void setPathOutputDatabase(String pathOutputDatabase) {
+		this.pathOutputDatabase = pathOutputDatabase;
+	}
+
+	@Override
+	public String toString() {
+		return "JannovarDBConvertOptions [pathInputDatabase=" + pathInputDatabase + ", pathOutputDatabase="
+				+ pathOutputDatabase + "]";
+	}
+
+}
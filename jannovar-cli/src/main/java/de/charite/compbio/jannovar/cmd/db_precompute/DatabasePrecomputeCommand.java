@@ -0,0 +1,41 @@
+package de.charite.compbio.jannovar.cmd.db_precompute;
+
+import de.charite.compbio.jannovar.JannovarException;
+import de.charite.compbio.jannovar.annotation.builders.SNVEffectTableBuilder;
+import de.charite.compbio.jannovar.cmd.CommandLineParsingException;
+import de.charite.compbio.jannovar.cmd.JannovarAnnotationCommand;
+import net.sourceforge.argparse4j.inf.Namespace;
+
+/**
+ * Precompute the effects of all SNVs in the CDS of the transcripts in a Jannovar database.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
+ */
+public class DatabasePrecomputeCommand extends JannovarAnnotationCommand {
+
+	/** Configuration */
+	private JannovarDBPrecomputeOptions options;
+
+	public DatabasePrecomputeCommand(String argv[], Namespace args) throws CommandLineParsingException {
+		this.options = new JannovarDBPrecomputeOptions();
+		this.options.setFromArgs(args);
+	}
+
+	/**
+	 * Perform the precomputation.
+	 */
+	@Override
+	public void run() throws JannovarException {
+		if (options.getVerbosity() >= 1) {
+			System.err.println("Options");
+			System.err.println(options.toString());
+		}
+
+		System.err.println("Loading " + options.getDatabaseFilePath() + " ...");
+		deserializeTranscriptDefinitionFile(options.getDatabaseFilePath());
+		System.err.println("Writing " + options.getPathOutputFile() + " ...");
+		new SNVEffectTableBuilder(jannovarData).save(options.getPathOutputFile());
+		System.err.println("Done precomputing SNV effects.");
+	}
+
+}
@@ -0,0 +1,94 @@
+package de.charite.compbio.jannovar.cmd.db_precompute;
+
+import java.util.function.BiFunction;
+
+import de.charite.compbio.jannovar.UncheckedJannovarException;
+import de.charite.compbio.jannovar.cmd.CommandLineParsingException;
+import de.charite.compbio.jannovar.cmd.JannovarBaseOptions;
+import net.sourceforge.argparse4j.inf.ArgumentGroup;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import net.sourceforge.argparse4j.inf.Subparsers;
+
+/**
+ * Configuration for the <code>db-precompute</code> command
+ * 
+ * @author <a href="mailto:manuel.holtgrewe@bihealth.de">Manuel Holtgrewe</a>
+ */
+public class JannovarDBPrecomputeOptions extends JannovarBaseOptions {
+
+	/** suffix appended to the database path for the default output path */
+	public static final String DEFAULT_SUFFIX = ".snv-effects";
+
+	/** Path to database file */
+	private String databaseFilePath = null;
+
+	/** Path to output SNV effect table file */
+	private String pathOutputFile = null;
+
+	/**
+	 * Setup {@link ArgumentParser}
+	 * 
+	 * @param subParsers
+	 *            {@link Subparsers} to setup
+	 */
+	public static void setupParser(Subparsers subParsers) {
+		BiFunction<String[], Namespace, DatabasePrecomputeCommand> handler = (argv, args) -> {
+			try {
+				return new DatabasePrecomputeCommand(argv, args);
+			} catch (CommandLineParsingException e) {
+				throw new UncheckedJannovarException("Could not parse command line", e);
+			}
+		};
+
+		Subparser subParser = subParsers.addParser("db-precompute", true)
+				.help("precompute effects of all coding SNVs in a database").setDefault("cmd", handler);
+		subParser.description("Precompute the effects and protein changes of all SNVs in the CDS of the transcripts "
+				+ "in a database, the resulting file can be passed to annotate-vcf via --snv-effect-table");
+
+		ArgumentGroup requiredGroup = subParser.addArgumentGroup("Required arguments");
+		requiredGroup.addArgument("-d", "--database").help("Path to database .ser file").required(true);
+
+		ArgumentGroup optionalGroup = subParser.addArgumentGroup("Optional arguments");
+		optionalGroup.addArgument("-o", "--output-file")
+				.help("Path to output SNV effect table file, defaults to the database path with suffix "
+						+ DEFAULT_SUFFIX)
+				.required(false);
+
+		JannovarBaseOptions.setupParser(subParser);
+	}
+
+	@Override
+	public void setFromArgs(Namespace args) throws CommandLineParsingException {
+		super.setFromArgs(args);
+
+		databaseFilePath = args.getString("database");
+		pathOutputFile = args.getString("output_file");
+		if (pathOutputFile == null)
+			pathOutputFile = databaseFilePath + DEFAULT_SUFFIX;
+	}
+
+	public String getDatabaseFilePath() {
+		return databaseFilePath;
+	}
+
+	public void setDatabaseFilePath(String databaseFilePath) {
+		this.databaseFilePath = databaseFilePath;
+	}
+
+	public String getPathOutputFile() {
+		return pathOutputFile;
+	}
+
+	public void setPathOutputFile(String pathOutputFile) {
+		this.pathOutputFile = pathOutputFile;
+	}
+
+	@Override
+	public String toString() {
+		return "JannovarDBPrecomputeOptions [databaseFilePath=" + databaseFilePath + ", pathOutputFile="
+				+ pathOutputFile + "]";
+	}
+
+}
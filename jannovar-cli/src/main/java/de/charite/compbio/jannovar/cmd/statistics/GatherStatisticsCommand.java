@@ -44,9 +44,11 @@ public class GatherStatisticsCommand extends JannovarAnnotationCommand {
 		deserializeTranscriptDefinitionFile(options.getDatabaseFilePath());
 		final boolean isUtrOffTarget = false;
 		final boolean isIntronicSpliceOffTarget = false;
+		// The statistics are computed from the variant effects only, no HGVS descriptions are needed.
+		final boolean effectsOnly = true;
 		VariantContextAnnotator annotator = new VariantContextAnnotator(refDict, chromosomeMap,
 				new VariantContextAnnotator.Options(false, false, false, false, isUtrOffTarget,
-						isIntronicSpliceOffTarget));
+						isIntronicSpliceOffTarget, 0, effectsOnly));
 
 		Map<String, Integer> errorMsgs = new TreeMap<>();
 
@@ -0,0 +1,45 @@
+package de.charite.compbio.jannovar.cmd.annotate_vcf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+
+public class OrderedParallelPipelineTest {
+
+	private List<VariantContext> buildRecords(int count) {
+		List<VariantContext> result = new ArrayList<>();
+		for (int i = 0; i < count; ++i)
+			result.add(new VariantContextBuilder().chr("1").start(i + 1).stop(i + 1).alleles("A", "C").make());
+		return result;
+	}
+
+	@Test
+	public void testOrderIsKept() {
+		final List<VariantContext> input = buildRecords(1003);
+		final List<VariantContext> output = new ArrayList<>();
+		new OrderedParallelPipeline(vc -> new VariantContextBuilder(vc).attribute("X", vc.getStart()).make(), 4, 7)
+				.run(input.iterator(), output::add);
+
+		Assert.assertEquals(input.size(), output.size());
+		for (int i = 0; i < input.size(); ++i) {
+			Assert.assertEquals(i + 1, output.get(i).getStart());
+			Assert.assertEquals(i + 1, output.get(i).getAttributeAsInt("X", -1));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testExceptionIsRethrown() {
+		new OrderedParallelPipeline(vc -> {
+			if (vc.getStart() == 500)
+				throw new IllegalStateException("expected");
+			return vc;
+		}, 2, 10).run(buildRecords(1000).iterator(), vc -> {
+		});
+	}
+
+}
@@ -0,0 +1,68 @@
+package de.charite.compbio.jannovar.cmd.db_precompute;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+import de.charite.compbio.jannovar.Jannovar;
+import de.charite.compbio.jannovar.JannovarException;
+import de.charite.compbio.jannovar.annotation.builders.SNVEffectTable;
+
+/**
+ * This test runs the SNV effect precomputation command and annotates with the result.
+ */
+public class JannovarDBPrecomputeTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	// path to file with the first 93 lines of hg19 RefSeq (up to "Gnomon exon 459822 459929").
+	private String pathToSmallSer = null;
+
+	@Before
+	public void setUp() throws URISyntaxException {
+		this.pathToSmallSer = this.getClass().getResource("/hg19_small.ser").toURI().getPath();
+	}
+
+	// Precompute for hg19_small.ser, annotate small.vcf with the result and compare with the gold-standard
+	// small.jv.vcf
+	@Test
+	public void testPrecomputeAndAnnotate() throws JannovarException, URISyntaxException, IOException {
+		final File outFolder = tmpFolder.newFolder();
+		final String pathToTable = outFolder.toString() + "/hg19_small.ser.snv-effects";
+		String[] argvPrecompute = new String[] { "db-precompute", "-d", pathToSmallSer, "-o", pathToTable };
+		System.err.println(Joiner.on(" ").join(argvPrecompute));
+
+		Jannovar.main(argvPrecompute);
+
+		Assert.assertTrue(new SNVEffectTable(pathToTable).getTranscriptCount() > 0);
+
+		final String inputFilePath = this.getClass().getResource("/small.vcf").toURI().getPath();
+		String[] argv = new String[] { "annotate-vcf", "-o", outFolder.toString() + "/small.jv.vcf", "-d",
+				pathToSmallSer, "-i", inputFilePath, "--snv-effect-table", pathToTable };
+		System.err.println(Joiner.on(" ").join(argv));
+
+		Jannovar.main(argv);
+
+		File f = new File(outFolder.getAbsolutePath() + File.separator + "small.jv.vcf");
+		Assert.assertTrue(f.exists());
+
+		final File expectedFile = new File(this.getClass().getResource("/small.jv.vcf").toURI().getPath());
+		final String expected = Files.asCharSource(expectedFile, Charsets.UTF_8).read();
+		final String actual = Files.asCharSource(f, Charsets.UTF_8).read()
+				.replaceAll("##jannovarCommand.*", "##jannovarCommand")
+				.replaceAll("##jannovarVersion.*", "##jannovarVersion");
+		Assert.assertEquals(expected, actual);
+	}
+
+}
@@ -51,8 +51,8 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 	/** the annotated {@link GenomeVariant} */
 	private final GenomeVariant change;
 
-	/** variant types, sorted by internal pathogenicity score */
-	private final ImmutableSortedSet<VariantEffect> effects;
+	/** variant types, iterated in the order of the internal pathogenicity score */
+	private final VariantEffectSet effects;
 
 	/** errors and warnings */
 	private final ImmutableSortedSet<AnnotationMessage> messages;
@@ -88,7 +88,7 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 	/**
 	 * Initialize the {@link Annotation} with the given values.
 	 *
-	 * The constructor will sort <code>effects</code> by pathogenicity before storing.
+	 * The constructor will store <code>effects</code> as {@link VariantEffectSet}, sorted by pathogenicity.
 	 *
 	 * @param change
 	 *            the annotated {@link GenomeVariant}
@@ -115,7 +115,7 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 	/**
 	 * Initialize the {@link Annotation} with the given values.
 	 *
-	 * The constructor will sort <code>effects</code> by pathogenicity before storing.
+	 * The constructor will store <code>varTypes</code> as {@link VariantEffectSet}, sorted by pathogenicity.
 	 *
 	 * @param transcript
 	 *            transcript for this annotation
@@ -140,10 +140,7 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 		if (change != null)
 			change = change.withStrand(Strand.FWD); // enforce forward strand
 		this.change = change;
-		if (varTypes == null)
-			this.effects = ImmutableSortedSet.<VariantEffect> of();
-		else
-			this.effects = ImmutableSortedSet.copyOf(varTypes);
+		this.effects = VariantEffectSet.copyOf(varTypes);
 		this.annoLoc = annoLoc;
 		this.genomicNTChange = genomicNTChange;
 		this.cdsNTChange = cdsNTChange;
@@ -159,6 +156,11 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 
 	/** @return variant types, sorted by internal pathogenicity score */
 	public ImmutableSortedSet<VariantEffect> getEffects() {
+		return effects.asSortedSet();
+	}
+
+	/** @return variant types as {@link VariantEffectSet} for bit mask-based queries */
+	public VariantEffectSet getEffectSet() {
 		return effects;
 	}
 
@@ -172,6 +174,20 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 		return annoLoc;
 	}
 
+	/**
+	 * Relabel this annotation for a transcript that yields the same annotation, e.g., one from the same
+	 * {@link de.charite.compbio.jannovar.data.TranscriptEquivalenceClasses TranscriptEquivalenceClasses} class.
+	 *
+	 * @param other
+	 *            the {@link TranscriptModel} to use instead of {@link #getTranscript()}
+	 * @return copy of this annotation for <code>other</code>
+	 */
+	public Annotation withTranscript(TranscriptModel other) {
+		final AnnotationLocation otherAnnoLoc = (annoLoc == null) ? null : annoLoc.withTranscript(other);
+		return new Annotation(other, change, effects.asSortedSet(), otherAnnoLoc, genomicNTChange, cdsNTChange,
+				proteinChange, messages);
+	}
+
 	/**
 	 * @return {@link NucleotideChange} with genomic changes
 	 */
@@ -243,13 +259,7 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 	 * @return highest {@link PutativeImpact} of all {@link #getEffects}.
 	 */
 	public PutativeImpact getPutativeImpact() {
-		if (effects.isEmpty())
-			return null;
-		VariantEffect worst = effects.first();
-		for (VariantEffect vt : effects)
-			if (worst.getImpact().compareTo(vt.getImpact()) > 0)
-				worst = vt;
-		return worst.getImpact();
+		return effects.getPutativeImpact();
 	}
 
 	/**
@@ -265,8 +275,27 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 	 * @return VCF annotation string
 	 */
 	public String toVCFAnnoString(String alt, boolean escape) {
+		StringBuilder builder = new StringBuilder();
+		appendVCFAnnoString(builder, alt, escape);
+		return builder.toString();
+	}
+
+	/**
+	 * Append the standardized VCF variant string for the given <code>ALT</code> allele to <code>builder</code>.
+	 *
+	 * Writes the same string as {@link #toVCFAnnoString(String, boolean)} but allows to collect the annotation strings
+	 * for a whole record in one {@link StringBuilder}.
+	 *
+	 * @param builder
+	 *            {@link StringBuilder} to append to
+	 * @param alt
+	 *            alt allele
+	 * @param escape
+	 *            whether or not to escape the invalid VCF characters, e.g. <code>'='</code>.
+	 */
+	public void appendVCFAnnoString(StringBuilder builder, String alt, boolean escape) {
 		VCFAnnotationData data = new VCFAnnotationData();
-		data.effects = effects;
+		data.effects = effects.asSortedSet();
 		data.impact = getPutativeImpact();
 		data.setTranscriptAndChange(transcript, change);
 		data.setAnnoLoc(annoLoc);
@@ -274,10 +303,7 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 		data.cdsNTChange = cdsNTChange;
 		data.proteinChange = proteinChange;
 		data.messages = messages;
-		if (escape)
-			return data.toString(alt);
-		else
-			return data.toUnescapedString(alt);
+		data.appendTo(builder, alt, escape);
 	}
 
 	/**
@@ -326,9 +352,7 @@ public final class Annotation implements VariantDescription, Comparable<Annotati
 	 */
 	// TODO: rename to getMostPathogenicVariantEffect
 	public VariantEffect getMostPathogenicVarType() {
-		if (effects.isEmpty())
-			return null;
-		return effects.first();
+		return effects.getMostPathogenic();
 	}
 
 	@Override
@@ -71,6 +71,17 @@ public class AnnotationLocation {
 		return txLocation;
 	}
 
+	/**
+	 * @param other
+	 *            the {@link TranscriptModel} to use instead of {@link #getTranscript()}, with the same structure
+	 * @return copy of this location on <code>other</code>
+	 */
+	public AnnotationLocation withTranscript(TranscriptModel other) {
+		final TranscriptInterval otherTxLocation = (txLocation == null) ? null
+				: new TranscriptInterval(other, txLocation.getBeginPos(), txLocation.getEndPos());
+		return new AnnotationLocation(other, rankType, rank, totalRank, otherTxLocation);
+	}
+
 	/**
 	 * @return location to be used in a HGVS String
 	 */
@@ -1,6 +1,5 @@
 package de.charite.compbio.jannovar.annotation;
 
-import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSortedSet;
@@ -121,20 +120,122 @@ class VCFAnnotationData {
 	}
 
 	public String toUnescapedString(String allele) {
-		return Joiner.on('|').useForNull("").join(toArray(allele));
+		StringBuilder builder = new StringBuilder();
+		appendTo(builder, allele, false);
+		return builder.toString();
 	}
 
-	private String escape(String str) {
+	/**
+	 * Write the VCF annotation string to <code>builder</code>.
+	 *
+	 * The fields are written in the same order as by {@link #toArray}, without building intermediate strings or
+	 * arrays.
+	 *
+	 * @param builder
+	 *            {@link StringBuilder} to append to
+	 * @param allele
+	 *            alternative allele value to prepend
+	 * @param escape
+	 *            whether or not to escape the invalid VCF characters, e.g. <code>'='</code>
+	 */
+	public void appendTo(StringBuilder builder, String allele, boolean escape) {
+		appendEscaped(builder, allele, escape);
+		builder.append('|');
+		boolean first = true;
+		for (VariantEffect effect : effects) {
+			if (!first)
+				builder.append('&');
+			first = false;
+			appendEscaped(builder, effect.getSequenceOntologyTerm(), escape);
+		}
+		builder.append('|');
+		if (impact != null)
+			builder.append(impact.toString());
+		builder.append('|');
+		appendEscaped(builder, geneSymbol, escape);
+		builder.append('|');
+		appendEscaped(builder, geneID, escape);
+		builder.append('|');
+		appendEscaped(builder, featureType, escape);
+		builder.append('|');
+		appendEscaped(builder, featureID, escape);
+		builder.append('|');
+		appendEscaped(builder, featureBioType, escape);
+		builder.append('|');
+		if (rank != -1)
+			builder.append(rank + 1).append('/').append(totalRank);
+		builder.append('|');
+		if (cdsNTChange != null) {
+			builder.append(isCoding ? "c." : "n.");
+			appendEscaped(builder, cdsNTChange.toHGVSString(), escape);
+		}
+		builder.append('|');
+		if (proteinChange != null) {
+			builder.append("p.");
+			appendEscaped(builder, proteinChange.toHGVSString(), escape);
+		}
+		builder.append('|');
+		if (txPos != -1)
+			builder.append(txPos + 1).append('/').append(txLength);
+		builder.append('|');
+		final boolean withCDSPos = (cdsPos != -1 && "Coding".equals(featureBioType));
+		if (withCDSPos)
+			builder.append(cdsPos + 1).append('/').append(cdsLength);
+		builder.append('|');
+		if (withCDSPos)
+			builder.append(cdsPos / 3 + 1).append('/').append(cdsLength / 3);
+		builder.append('|');
+		if (distance != -1)
+			builder.append(distance);
+		builder.append('|');
+		first = true;
+		for (AnnotationMessage message : messages) {
+			if (!first)
+				builder.append('&');
+			first = false;
+			appendEscaped(builder, message.toString(), escape);
+		}
+	}
+
+	/**
+	 * Append <code>str</code> to <code>builder</code>, escaping if <code>escape</code> is set; <code>null</code> is
+	 * written as the empty string.
+	 */
+	private static void appendEscaped(StringBuilder builder, String str, boolean escape) {
+		if (str == null)
+			return;
+		if (!escape) {
+			builder.append(str);
+			return;
+		}
 		// Escaping follows the requirements of (1) VCF 4.2 and (2) the "Variant annotations in VCF format document.
 		// We use the strategy of keeping as much as possible reconstructable (bijective mappings, for the
 		// mathematically inclined).
-		String result = CharMatcher.is('%').replaceFrom(str, "%25");
-		result = CharMatcher.is(',').replaceFrom(result, "%2C");
-		result = CharMatcher.is(';').replaceFrom(result, "%3B");
-		result = CharMatcher.is('=').replaceFrom(result, "%3D");
-		result = CharMatcher.is(' ').replaceFrom(result, "%20");
-		result = CharMatcher.is('\t').replaceFrom(result, "%09");
-		return result;
+		for (int i = 0; i < str.length(); ++i) {
+			final char c = str.charAt(i);
+			switch (c) {
+			case '%':
+				builder.append("%25");
+				break;
+			case ',':
+				builder.append("%2C");
+				break;
+			case ';':
+				builder.append("%3B");
+				break;
+			case '=':
+				builder.append("%3D");
+				break;
+			case ' ':
+				builder.append("%20");
+				break;
+			case '\t':
+				builder.append("%09");
+				break;
+			default:
+				builder.append(c);
+			}
+		}
 	}
 
 	/**
@@ -143,7 +244,9 @@ class VCFAnnotationData {
 	 * @return String for putting into the "ANN" field of the VCF file
 	 */
 	public String toString(String allele) {
-		return escape(toUnescapedString(allele));
+		StringBuilder builder = new StringBuilder();
+		appendTo(builder, allele, true);
+		return builder.toString();
 	}
 
 	private String getRankString() {
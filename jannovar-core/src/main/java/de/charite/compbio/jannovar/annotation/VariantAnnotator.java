@@ -1,8 +1,14 @@
 package de.charite.compbio.jannovar.annotation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 import de.charite.compbio.jannovar.annotation.builders.AnnotationBuilderDispatcher;
@@ -10,12 +16,17 @@ import de.charite.compbio.jannovar.annotation.builders.AnnotationBuilderOptions;
 import de.charite.compbio.jannovar.annotation.builders.StructuralVariantAnnotationBuilder;
 import de.charite.compbio.jannovar.data.Chromosome;
 import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.data.TranscriptEquivalenceClasses;
 import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.impl.intervals.IntervalSweepCursor;
+import de.charite.compbio.jannovar.impl.intervals.IntervalVisitor;
 import de.charite.compbio.jannovar.reference.GenomeInterval;
 import de.charite.compbio.jannovar.reference.GenomePosition;
 import de.charite.compbio.jannovar.reference.GenomeVariant;
+import de.charite.compbio.jannovar.reference.GenomeVariantType;
 import de.charite.compbio.jannovar.reference.PositionType;
 import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptFeatureIndex;
 import de.charite.compbio.jannovar.reference.TranscriptModel;
 
 // TODO(holtgrem): We should directly pass in a JannovarData object after adding the interval trees to it. Then, this should be fine.
@@ -26,6 +37,11 @@ import de.charite.compbio.jannovar.reference.TranscriptModel;
  * Given, a chromosome map, objects of this class can be used to annotate variants identified by a genomic position
  * (chr, pos), a reference, and an alternative nucleotide String.
  *
+ * Optionally, the annotator keeps a bounded cache of the {@link VariantAnnotations} built for each
+ * {@link GenomeVariant}, such that recurrent variants (e.g., when annotating many samples of a cohort) are only
+ * annotated once. The cache is safe for concurrent use. As the {@link AnnotationBuilderOptions} are fixed for each
+ * annotator, the variant alone serves as the key.
+ *
  * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
  * @author <a href="mailto:marten.jaeger@charite.de">Marten Jaeger</a>
  * @author <a href="mailto:Peter.Robinson@jax.org">Peter N Robinson</a>
@@ -41,6 +57,19 @@ public final class VariantAnnotator {
 	/** {@link Chromosome}s with their {@link TranscriptModel} objects. */
 	final private ImmutableMap<Integer, Chromosome> chromosomeMap;
 
+	/**
+	 * number of bases that a variant has to keep from the exon and CDS boundaries of a transcript for the coarse
+	 * classification in {@link #buildBestAnnotation}, larger than the splice regions
+	 */
+	private static final int COARSE_CLASSIFICATION_MARGIN = 20;
+
+	/** cache of the annotations for each variant, <code>null</code> if disabled */
+	final private Cache<GenomeVariant, VariantAnnotations> annotationCache;
+
+	/** {@link TranscriptEquivalenceClasses} for each chromosome, built on first use */
+	final private ConcurrentHashMap<Integer, TranscriptEquivalenceClasses> equivalenceClasses =
+			new ConcurrentHashMap<>();
+
 	/**
 	 * Construct new VariantAnnotator, given a chromosome map.
 	 *
@@ -53,9 +82,48 @@ public final class VariantAnnotator {
 	 */
 	public VariantAnnotator(ReferenceDictionary refDict, ImmutableMap<Integer, Chromosome> chromosomeMap,
 			AnnotationBuilderOptions options) {
+		this(refDict, chromosomeMap, options, 0);
+	}
+
+	/**
+	 * Construct new VariantAnnotator with an annotation cache.
+	 *
+	 * @param refDict
+	 *            {@link ReferenceDictionary} with information about the genome.
+	 * @param chromosomeMap
+	 *            chromosome map to use for the annotator.
+	 * @param options
+	 *            configuration to use for building the annotations
+	 * @param annotationCacheSize
+	 *            maximal number of variants to keep the {@link VariantAnnotations} for, the least recently used ones
+	 *            are evicted first, <code>0</code> disables the cache
+	 */
+	public VariantAnnotator(ReferenceDictionary refDict, ImmutableMap<Integer, Chromosome> chromosomeMap,
+			AnnotationBuilderOptions options, int annotationCacheSize) {
+		if (annotationCacheSize < 0)
+			throw new IllegalArgumentException("Annotation cache size must not be negative");
 		this.refDict = refDict;
 		this.chromosomeMap = chromosomeMap;
 		this.options = options;
+		if (annotationCacheSize == 0)
+			this.annotationCache = null;
+		else
+			this.annotationCache = CacheBuilder.newBuilder().maximumSize(annotationCacheSize).recordStats().build();
+	}
+
+	/**
+	 * @return number of variants whose annotations were taken from the annotation cache, <code>0</code> if the cache
+	 *         is disabled
+	 */
+	public long getAnnotationCacheHitCount() {
+		return (annotationCache == null) ? 0 : annotationCache.stats().hitCount();
+	}
+
+	/**
+	 * @return number of variants whose annotations had to be built although the annotation cache was enabled
+	 */
+	public long getAnnotationCacheMissCount() {
+		return (annotationCache == null) ? 0 : annotationCache.stats().missCount();
 	}
 
 	// TODO(holtgrem): Remove this?
@@ -103,49 +171,440 @@ public final class VariantAnnotator {
 	 *             on problems building the annotation list
 	 */
 	public VariantAnnotations buildAnnotations(GenomeVariant change) throws AnnotationException {
+		return buildAnnotations(change, null);
+	}
+
+	/**
+	 * Variant of {@link #buildAnnotations(GenomeVariant)} that obtains the overlapping transcripts from an
+	 * {@link IntervalSweepCursor}.
+	 *
+	 * This is faster when annotating variants sorted by position, e.g., from a sorted VCF file, using one cursor for
+	 * each chromosome. The cursor is ignored if it does not belong to the chromosome of <code>change</code>.
+	 *
+	 * @param change
+	 *            the {@link GenomeVariant} to annotate
+	 * @param cursor
+	 *            {@link IntervalSweepCursor} over the interval tree of the chromosome of <code>change</code> (see
+	 *            {@link #getIntervalArray(int)}), or <code>null</code> for using the tree search
+	 * @return {@link VariantAnnotations} for the genome change
+	 * @throws AnnotationException
+	 *             on problems building the annotation list
+	 */
+	public VariantAnnotations buildAnnotations(GenomeVariant change, IntervalSweepCursor<TranscriptModel> cursor)
+			throws AnnotationException {
 		// Short-circuit in the case of symbolic changes/alleles. These could be SVs, large duplications, etc., that are
 		// described as shortcuts in the VCF file. We cannot annotate these yet.
 		if (change.isSymbolic())
 			return VariantAnnotations.buildEmptyList(change);
 
-		// Get genomic change interval and reset the factory.
-		final GenomeInterval changeInterval = change.getGenomeInterval();
+		if (annotationCache != null) {
+			VariantAnnotations cached = annotationCache.getIfPresent(change);
+			if (cached == null) {
+				cached = buildAnnotationsImpl(change, cursor);
+				annotationCache.put(change, cached);
+			}
+			return cached;
+		}
+		return buildAnnotationsImpl(change, cursor);
+	}
 
-		// Get the TranscriptModel objects that overlap with changeInterval.
+	/**
+	 * Implementation of {@link #buildAnnotations(GenomeVariant, IntervalSweepCursor)} without the cache.
+	 */
+	private VariantAnnotations buildAnnotationsImpl(GenomeVariant change,
+			IntervalSweepCursor<TranscriptModel> cursor) throws AnnotationException {
+		// Get the TranscriptModel objects that overlap with the change interval.
 		final Chromosome chr = chromosomeMap.get(change.getChr());
-		IntervalArray<TranscriptModel>.QueryResult qr;
-		if (changeInterval.length() == 0)
-			qr = chr.getTMIntervalTree().findOverlappingWithPoint(changeInterval.getBeginPos());
-		else
-			qr = chr.getTMIntervalTree().findOverlappingWithInterval(changeInterval.getBeginPos(),
-					changeInterval.getEndPos());
-		ArrayList<TranscriptModel> candidateTranscripts = new ArrayList<TranscriptModel>(qr.getEntries());
+		final IntervalArray<TranscriptModel> iTree = chr.getTMIntervalTree();
+		return buildAnnotationsImpl(change, iTree,
+				collectCandidateTranscripts(change.getGenomeInterval(), iTree, cursor));
+	}
+
+	/**
+	 * Implementation of {@link #buildAnnotations(GenomeVariant, IntervalSweepCursor)} without the cache, given the
+	 * {@link TranscriptModel}s from <code>iTree</code> that overlap with <code>change</code>.
+	 */
+	private VariantAnnotations buildAnnotationsImpl(GenomeVariant change, IntervalArray<TranscriptModel> iTree,
+			ArrayList<TranscriptModel> candidateTranscripts) throws AnnotationException {
+		final GenomeInterval changeInterval = change.getGenomeInterval();
 
 		// The annotations collected so far for GenomeVariant.
 		ArrayList<Annotation> annotations = new ArrayList<>();
 
 		// Handle the case of no overlapping transcript. Then, create intergenic, upstream, or downstream annotations
 		// and return the result.
-		boolean isStructuralVariant = (change.getRef().length() >= 1000 || change.getAlt().length() >= 1000);
+		boolean isStructuralVariant = isStructuralVariant(change);
 		if (candidateTranscripts.isEmpty()) {
 			if (isStructuralVariant)
 				buildSVAnnotation(annotations, change, null);
 			else
-				buildNonSVAnnotation(annotations, change, qr.getLeft(), qr.getRight());
+				buildNonSVAnnotation(annotations, change, iTree.findLeftNeighbor(changeInterval.getBeginPos()),
+						iTree.findRightNeighbor(changeInterval.getBeginPos()));
 			return new VariantAnnotations(change, annotations);
 		}
 
 		// If we reach here, then there is at least one transcript that overlaps with the query. Iterate over these
-		// transcripts and collect annotations for each (they are collected in annovarFactory).
+		// transcripts and collect annotations for each (they are collected in annovarFactory). The annotations of
+		// equivalent transcripts are only built once.
+		final TranscriptEquivalenceClasses classes = getEquivalenceClasses(change.getChr(), iTree);
+		final IdentityHashMap<TranscriptModel, Annotation> builtForClass = (candidateTranscripts.size() > 1)
+				? new IdentityHashMap<>() : null;
 		for (TranscriptModel tm : candidateTranscripts)
 			if (isStructuralVariant)
 				buildSVAnnotation(annotations, change, tm);
 			else
-				buildNonSVAnnotation(annotations, change, tm);
+				annotations.add(buildAnnotation(tm, change, classes, builtForClass));
 
 		return new VariantAnnotations(change, annotations);
 	}
 
+	/**
+	 * Build only the first {@link Annotation} of the result of
+	 * {@link #buildAnnotations(GenomeVariant, IntervalSweepCursor)}, i.e., the one with the highest impact.
+	 *
+	 * Each overlapping transcript is first classified coarsely by the location of <code>change</code>, giving a bound
+	 * for the most pathogenic {@link VariantEffect} that its annotation can have. The transcripts are then annotated in
+	 * the order of this bound until no remaining transcript can yield a higher-ranking annotation than the best one
+	 * found so far. In gene-dense regions, this saves building the annotations for most of the overlapping
+	 * transcripts. The annotation cache is not used.
+	 *
+	 * @param change
+	 *            the {@link GenomeVariant} to annotate
+	 * @param cursor
+	 *            {@link IntervalSweepCursor} over the interval tree of the chromosome of <code>change</code>, or
+	 *            <code>null</code> for using the tree search
+	 * @return {@link VariantAnnotations} with the highest-impact {@link Annotation} only, empty if the full result is
+	 *         empty
+	 * @throws AnnotationException
+	 *             on problems building the annotation list
+	 */
+	public VariantAnnotations buildBestAnnotation(GenomeVariant change, IntervalSweepCursor<TranscriptModel> cursor)
+			throws AnnotationException {
+		if (change.isSymbolic())
+			return VariantAnnotations.buildEmptyList(change);
+
+		final Chromosome chr = chromosomeMap.get(change.getChr());
+		final IntervalArray<TranscriptModel> iTree = chr.getTMIntervalTree();
+		return buildBestAnnotationImpl(change, iTree,
+				collectCandidateTranscripts(change.getGenomeInterval(), iTree, cursor));
+	}
+
+	/**
+	 * Implementation of {@link #buildBestAnnotation}, given the {@link TranscriptModel}s from <code>iTree</code> that
+	 * overlap with <code>change</code>.
+	 */
+	private VariantAnnotations buildBestAnnotationImpl(GenomeVariant change, IntervalArray<TranscriptModel> iTree,
+			ArrayList<TranscriptModel> candidateTranscripts) throws AnnotationException {
+		// There are at most two annotations in the case of no overlapping transcripts, and SVs are annotated quickly.
+		if (candidateTranscripts.isEmpty() || isStructuralVariant(change))
+			return firstAnnotationOnly(buildAnnotationsImpl(change, iTree, candidateTranscripts));
+
+		// Sort the candidates by the bound of their most pathogenic effect, keeping the input order for ties.
+		final int numCandidates = candidateTranscripts.size();
+		final int[] bounds = new int[numCandidates];
+		final Integer[] order = new Integer[numCandidates];
+		for (int i = 0; i < numCandidates; ++i) {
+			bounds[i] = getMostPathogenicEffectBound(candidateTranscripts.get(i), change);
+			order[i] = i;
+		}
+		Arrays.sort(order, (lhs, rhs) -> Integer.compare(bounds[lhs], bounds[rhs]));
+
+		// Build the annotations in this order, the result is the minimum in the order of VariantAnnotations, i.e., the
+		// first one in case of ties.
+		final TranscriptEquivalenceClasses classes = getEquivalenceClasses(change.getChr(), iTree);
+		final IdentityHashMap<TranscriptModel, Annotation> builtForClass = (numCandidates > 1)
+				? new IdentityHashMap<>() : null;
+		Annotation best = null;
+		int bestIdx = -1;
+		int bestRank = Integer.MAX_VALUE;
+		for (int idx : order) {
+			final TranscriptModel tm = candidateTranscripts.get(idx);
+			if (bounds[idx] > bestRank)
+				break; // no remaining transcript can give a better annotation
+			if (bounds[idx] == bestRank && tm.compareTo(best.getTranscript()) > 0)
+				continue; // can at most tie with best in the effect but not in the transcript
+
+			final Annotation anno = buildAnnotation(tm, change, classes, builtForClass);
+			final int cmp = (best == null) ? -1 : anno.compareTo(best);
+			if (cmp < 0 || (cmp == 0 && idx < bestIdx)) {
+				best = anno;
+				bestIdx = idx;
+				bestRank = (anno.getMostPathogenicVarType() == null) ? Integer.MAX_VALUE
+						: anno.getMostPathogenicVarType().ordinal();
+			}
+		}
+		return new VariantAnnotations(change, ImmutableList.of(best));
+	}
+
+	/**
+	 * Build the {@link VariantAnnotations} for all alleles of a multi-allelic site.
+	 *
+	 * The result is the same as calling {@link #buildAnnotations(GenomeVariant, IntervalSweepCursor)} for each
+	 * allele, but the interval tree (or <code>cursor</code>) is only queried once for the union of the alleles' spans.
+	 *
+	 * @param changes
+	 *            the {@link GenomeVariant}s to annotate, e.g., the alternative alleles of one VCF record
+	 * @param cursor
+	 *            {@link IntervalSweepCursor} over the interval tree of the chromosome of <code>changes</code>, or
+	 *            <code>null</code> for using the tree search
+	 * @return one {@link VariantAnnotations} for each of <code>changes</code>, in the same order
+	 * @throws AnnotationException
+	 *             on problems building the annotation lists
+	 */
+	public ImmutableList<VariantAnnotations> buildAnnotations(List<GenomeVariant> changes,
+			IntervalSweepCursor<TranscriptModel> cursor) throws AnnotationException {
+		return buildAnnotationsForAlleles(changes, cursor, false);
+	}
+
+	/**
+	 * Build the highest-impact {@link Annotation} for all alleles of a multi-allelic site.
+	 *
+	 * The result is the same as calling {@link #buildBestAnnotation} for each allele, but the interval tree (or
+	 * <code>cursor</code>) is only queried once for the union of the alleles' spans.
+	 *
+	 * @param changes
+	 *            the {@link GenomeVariant}s to annotate, e.g., the alternative alleles of one VCF record
+	 * @param cursor
+	 *            {@link IntervalSweepCursor} over the interval tree of the chromosome of <code>changes</code>, or
+	 *            <code>null</code> for using the tree search
+	 * @return one {@link VariantAnnotations} for each of <code>changes</code>, in the same order, with the
+	 *         highest-impact {@link Annotation} only
+	 * @throws AnnotationException
+	 *             on problems building the annotation lists
+	 */
+	public ImmutableList<VariantAnnotations> buildBestAnnotations(List<GenomeVariant> changes,
+			IntervalSweepCursor<TranscriptModel> cursor) throws AnnotationException {
+		return buildAnnotationsForAlleles(changes, cursor, true);
+	}
+
+	/**
+	 * Implementation of {@link #buildAnnotations(List, IntervalSweepCursor)} and {@link #buildBestAnnotations}.
+	 */
+	private ImmutableList<VariantAnnotations> buildAnnotationsForAlleles(List<GenomeVariant> changes,
+			IntervalSweepCursor<TranscriptModel> cursor, boolean bestOnly) throws AnnotationException {
+		// Compute the union of the query intervals of the non-symbolic alleles.
+		int chrID = -1;
+		int unionBegin = Integer.MAX_VALUE;
+		int unionEnd = Integer.MIN_VALUE;
+		for (GenomeVariant change : changes) {
+			if (change.isSymbolic())
+				continue;
+			if (chrID != -1 && chrID != change.getChr())
+				return buildAnnotationsForEachAllele(changes, cursor, bestOnly);
+			chrID = change.getChr();
+			final GenomeInterval changeInterval = change.getGenomeInterval();
+			unionBegin = Math.min(unionBegin, changeInterval.getBeginPos());
+			unionEnd = Math.max(unionEnd, getQueryEnd(changeInterval));
+		}
+		if (chrID == -1)
+			return buildAnnotationsForEachAllele(changes, cursor, bestOnly);
+
+		// Query the overlapping transcripts once and pick the ones overlapping with each allele.
+		final Chromosome chr = chromosomeMap.get(chrID);
+		final IntervalArray<TranscriptModel> iTree = chr.getTMIntervalTree();
+		final CandidateTranscripts candidates = new CandidateTranscripts();
+		if (cursor != null && cursor.getIntervalArray() == iTree)
+			cursor.visitOverlappingWithInterval(unionBegin, unionEnd, candidates);
+		else
+			iTree.visitOverlappingWithInterval(unionBegin, unionEnd, candidates);
+
+		ImmutableList.Builder<VariantAnnotations> builder = new ImmutableList.Builder<>();
+		for (GenomeVariant change : changes) {
+			if (change.isSymbolic()) {
+				builder.add(VariantAnnotations.buildEmptyList(change));
+				continue;
+			}
+			final ArrayList<TranscriptModel> candidateTranscripts = candidates
+					.getOverlapping(change.getGenomeInterval());
+			if (bestOnly) {
+				builder.add(buildBestAnnotationImpl(change, iTree, candidateTranscripts));
+			} else if (annotationCache != null) {
+				VariantAnnotations cached = annotationCache.getIfPresent(change);
+				if (cached == null) {
+					cached = buildAnnotationsImpl(change, iTree, candidateTranscripts);
+					annotationCache.put(change, cached);
+				}
+				builder.add(cached);
+			} else {
+				builder.add(buildAnnotationsImpl(change, iTree, candidateTranscripts));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Fallback of {@link #buildAnnotationsForAlleles} that queries the transcripts for each allele separately.
+	 */
+	private ImmutableList<VariantAnnotations> buildAnnotationsForEachAllele(List<GenomeVariant> changes,
+			IntervalSweepCursor<TranscriptModel> cursor, boolean bestOnly) throws AnnotationException {
+		ImmutableList.Builder<VariantAnnotations> builder = new ImmutableList.Builder<>();
+		for (GenomeVariant change : changes)
+			builder.add(bestOnly ? buildBestAnnotation(change, cursor) : buildAnnotations(change, cursor));
+		return builder.build();
+	}
+
+	/**
+	 * @return end of the interval used for querying the transcripts overlapping with <code>changeInterval</code>,
+	 *         empty intervals are queried as the point at their begin position
+	 */
+	private static int getQueryEnd(GenomeInterval changeInterval) {
+		return Math.max(changeInterval.getEndPos(), changeInterval.getBeginPos() + 1);
+	}
+
+	/**
+	 * Coarsely classify <code>change</code> with respect to the overlapping transcript <code>tm</code>.
+	 *
+	 * @return lower bound for the ordinal of the most pathogenic {@link VariantEffect} of the {@link Annotation} of
+	 *         <code>change</code> for <code>tm</code>
+	 */
+	private static int getMostPathogenicEffectBound(TranscriptModel tm, GenomeVariant change) {
+		final TranscriptFeatureIndex index = tm.getFeatureIndex();
+		final GenomeInterval changeInterval = change.getGenomeInterval();
+		// Variants close to exon or CDS boundaries can have any effect.
+		if (!index.liesInFeatureInterior(changeInterval, COARSE_CLASSIFICATION_MARGIN))
+			return 0;
+		// Variants deep in introns are intronic variants, in coding, non-coding, or UTR introns.
+		if (!index.liesInExon(changeInterval.getGenomeBeginPos()))
+			return VariantEffect.CODING_TRANSCRIPT_INTRON_VARIANT.ordinal();
+		// Exonic SNVs outside of the CDS are UTR or non-coding exon variants. Indels are shifted towards the 3' end of
+		// the transcript and can reach the CDS.
+		if (change.getType() == GenomeVariantType.SNV && !index.overlapsWithCDSExon(changeInterval))
+			return VariantEffect.NON_CODING_TRANSCRIPT_EXON_VARIANT.ordinal();
+		return 0;
+	}
+
+	/**
+	 * @return <code>annos</code> trimmed to its first {@link Annotation}
+	 */
+	private static VariantAnnotations firstAnnotationOnly(VariantAnnotations annos) {
+		if (annos.getAnnotations().size() <= 1)
+			return annos;
+		return new VariantAnnotations(annos.getGenomeVariant(), ImmutableList.of(annos.getAnnotations().get(0)));
+	}
+
+	/**
+	 * @return whether or not <code>change</code> is annotated as a structural variant
+	 */
+	private static boolean isStructuralVariant(GenomeVariant change) {
+		return (change.getRef().length() >= 1000 || change.getAlt().length() >= 1000);
+	}
+
+	/**
+	 * @return the {@link TranscriptModel}s from <code>iTree</code> overlapping with <code>changeInterval</code>,
+	 *         obtained from <code>cursor</code> if it belongs to <code>iTree</code>
+	 */
+	private static ArrayList<TranscriptModel> collectCandidateTranscripts(GenomeInterval changeInterval,
+			IntervalArray<TranscriptModel> iTree, IntervalSweepCursor<TranscriptModel> cursor) {
+		final ArrayList<TranscriptModel> candidateTranscripts = new ArrayList<TranscriptModel>();
+		final IntervalVisitor<TranscriptModel> collector = (begin, end, tm) -> candidateTranscripts.add(tm);
+		if (cursor != null && cursor.getIntervalArray() == iTree) {
+			if (changeInterval.length() == 0)
+				cursor.visitOverlappingWithPoint(changeInterval.getBeginPos(), collector);
+			else
+				cursor.visitOverlappingWithInterval(changeInterval.getBeginPos(), changeInterval.getEndPos(),
+						collector);
+		} else {
+			if (changeInterval.length() == 0)
+				iTree.visitOverlappingWithPoint(changeInterval.getBeginPos(), collector);
+			else
+				iTree.visitOverlappingWithInterval(changeInterval.getBeginPos(), changeInterval.getEndPos(),
+						collector);
+		}
+		return candidateTranscripts;
+	}
+
+	/**
+	 * Build the {@link Annotation} of <code>change</code> for <code>tm</code>, relabeling the annotation of an
+	 * equivalent transcript if already built.
+	 *
+	 * @param tm
+	 *            the {@link TranscriptModel} to build the annotation for
+	 * @param change
+	 *            the {@link GenomeVariant} to annotate
+	 * @param classes
+	 *            the {@link TranscriptEquivalenceClasses} of the chromosome of <code>tm</code>
+	 * @param builtForClass
+	 *            the annotations built so far for <code>change</code>, by representative transcript, updated by this
+	 *            function, or <code>null</code> for always building the annotation
+	 * @return the {@link Annotation} for <code>tm</code>
+	 * @throws InvalidGenomeVariant
+	 *             on problems building the annotation
+	 */
+	private Annotation buildAnnotation(TranscriptModel tm, GenomeVariant change, TranscriptEquivalenceClasses classes,
+			IdentityHashMap<TranscriptModel, Annotation> builtForClass) throws InvalidGenomeVariant {
+		if (builtForClass == null || !classes.hasEquivalents(tm))
+			return new AnnotationBuilderDispatcher(tm, change, options).build();
+
+		final TranscriptModel representative = classes.getRepresentative(tm);
+		final Annotation built = builtForClass.get(representative);
+		if (built != null)
+			return built.withTranscript(tm);
+		final Annotation result = new AnnotationBuilderDispatcher(tm, change, options).build();
+		builtForClass.put(representative, result);
+		return result;
+	}
+
+	/**
+	 * @return the {@link TranscriptEquivalenceClasses} of chromosome <code>chr</code> with interval tree
+	 *         <code>iTree</code>, built on first use
+	 */
+	private TranscriptEquivalenceClasses getEquivalenceClasses(int chr, IntervalArray<TranscriptModel> iTree) {
+		return equivalenceClasses.computeIfAbsent(chr, key -> new TranscriptEquivalenceClasses(iTree));
+	}
+
+	/**
+	 * @param chr
+	 *            numeric chromosome ID
+	 * @return interval tree of the {@link TranscriptModel}s on chromosome <code>chr</code>, for constructing an
+	 *         {@link IntervalSweepCursor}, or <code>null</code> if the chromosome is unknown
+	 */
+	public IntervalArray<TranscriptModel> getIntervalArray(int chr) {
+		final Chromosome chrom = chromosomeMap.get(chr);
+		if (chrom == null)
+			return null;
+		return chrom.getTMIntervalTree();
+	}
+
+	/**
+	 * Collects the {@link TranscriptModel}s overlapping with the union span of several alleles together with their
+	 * intervals, for picking the ones overlapping with each allele.
+	 */
+	private static final class CandidateTranscripts implements IntervalVisitor<TranscriptModel> {
+		/** begin positions of the transcripts */
+		private int[] begins = new int[16];
+		/** end positions of the transcripts */
+		private int[] ends = new int[16];
+		/** the transcripts, in the order of the query result */
+		private final ArrayList<TranscriptModel> transcripts = new ArrayList<>();
+
+		@Override
+		public boolean visit(int begin, int end, TranscriptModel tm) {
+			final int idx = transcripts.size();
+			if (idx == begins.length) {
+				begins = Arrays.copyOf(begins, 2 * idx);
+				ends = Arrays.copyOf(ends, 2 * idx);
+			}
+			begins[idx] = begin;
+			ends[idx] = end;
+			transcripts.add(tm);
+			return true;
+		}
+
+		/**
+		 * @return the collected {@link TranscriptModel}s overlapping with <code>changeInterval</code>, in the same order
+		 *         as returned by a query for <code>changeInterval</code> alone
+		 */
+		ArrayList<TranscriptModel> getOverlapping(GenomeInterval changeInterval) {
+			final int queryBegin = changeInterval.getBeginPos();
+			final int queryEnd = getQueryEnd(changeInterval);
+			final ArrayList<TranscriptModel> result = new ArrayList<>();
+			for (int i = 0; i < transcripts.size(); ++i)
+				if (begins[i] < queryEnd && ends[i] > queryBegin)
+					result.add(transcripts.get(i));
+			return result;
+		}
+	}
+
 	private void buildSVAnnotation(List<Annotation> annotations, GenomeVariant change, TranscriptModel transcript)
 			throws AnnotationException {
 		annotations.add(new StructuralVariantAnnotationBuilder(transcript, change).build());
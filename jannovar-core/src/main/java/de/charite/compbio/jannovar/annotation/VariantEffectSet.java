@@ -0,0 +1,241 @@
+package de.charite.compbio.jannovar.annotation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.charite.compbio.jannovar.Immutable;
+
+/**
+ * Set of {@link VariantEffect}s, stored as a bit mask indexed by the ordinal of the effects.
+ *
+ * As {@link VariantEffect}s are ordered by decreasing putative impact, the most pathogenic effect is the one with the
+ * lowest set bit and iteration is in the order of pathogenicity, as for the sorted sets used before. Membership,
+ * classification, and off-exome checks are answered with bit operations on precomputed masks.
+ *
+ * Instances are interned, there is only one object for each set of effects and {@link #asSortedSet()} returns the
+ * same {@link ImmutableSortedSet} each time. Thus, building {@link Annotation}s with the same effects does not
+ * allocate the effect sets again.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+@Immutable
+public final class VariantEffectSet implements Iterable<VariantEffect> {
+
+	/** all {@link VariantEffect} values, indexed by ordinal */
+	private static final VariantEffect[] VALUES = VariantEffect.values();
+
+	static {
+		if (VALUES.length > Long.SIZE)
+			throw new Error("Too many VariantEffect values for bit mask");
+	}
+
+	/** masks of the effects that are off-exome, indexed by <code>2 * isUtrOffExome + isIntronicSpliceOffExome</code> */
+	private static final long[] OFF_EXOME_MASKS = new long[4];
+
+	static {
+		for (int i = 0; i < OFF_EXOME_MASKS.length; ++i)
+			for (VariantEffect effect : VALUES)
+				if (effect.isOffExome(i / 2 == 1, i % 2 == 1))
+					OFF_EXOME_MASKS[i] |= bit(effect);
+	}
+
+	/** the interned sets, by mask */
+	private static final ConcurrentHashMap<Long, VariantEffectSet> INTERNED = new ConcurrentHashMap<>();
+
+	/** the empty set */
+	private static final VariantEffectSet EMPTY = ofMask(0);
+
+	/** the bit mask, bit <code>i</code> is set if the effect with ordinal <code>i</code> is in the set */
+	private final long mask;
+
+	/** the set as {@link ImmutableSortedSet} */
+	private final ImmutableSortedSet<VariantEffect> sortedSet;
+
+	/** highest {@link PutativeImpact} of the effects, <code>null</code> if empty */
+	private final PutativeImpact putativeImpact;
+
+	private VariantEffectSet(long mask) {
+		this.mask = mask;
+		ArrayList<VariantEffect> effects = new ArrayList<>(Long.bitCount(mask));
+		PutativeImpact impact = null;
+		for (long m = mask; m != 0; m &= m - 1) {
+			final VariantEffect effect = VALUES[Long.numberOfTrailingZeros(m)];
+			effects.add(effect);
+			if (impact == null || effect.getImpact().compareTo(impact) < 0)
+				impact = effect.getImpact();
+		}
+		this.sortedSet = ImmutableSortedSet.copyOf(effects);
+		this.putativeImpact = impact;
+	}
+
+	/** @return the empty set */
+	public static VariantEffectSet of() {
+		return EMPTY;
+	}
+
+	/**
+	 * @param effects
+	 *            the effects to put into the set, may be <code>null</code> for the empty set
+	 * @return the set of <code>effects</code>
+	 */
+	public static VariantEffectSet copyOf(Collection<VariantEffect> effects) {
+		if (effects == null)
+			return EMPTY;
+		long mask = 0;
+		for (VariantEffect effect : effects)
+			mask |= bit(effect);
+		return ofMask(mask);
+	}
+
+	/**
+	 * @param mask
+	 *            bit mask as returned by {@link #getMask()}
+	 * @return the set with the given <code>mask</code>
+	 */
+	public static VariantEffectSet ofMask(long mask) {
+		VariantEffectSet result = INTERNED.get(mask);
+		if (result == null) {
+			final VariantEffectSet newSet = new VariantEffectSet(mask);
+			result = INTERNED.putIfAbsent(mask, newSet);
+			if (result == null)
+				result = newSet;
+		}
+		return result;
+	}
+
+	/**
+	 * @param effects
+	 *            the effects to set bits for
+	 * @return bit mask with the bits of <code>effects</code>
+	 */
+	public static long maskOf(VariantEffect... effects) {
+		long mask = 0;
+		for (VariantEffect effect : effects)
+			mask |= bit(effect);
+		return mask;
+	}
+
+	/** @return bit of <code>effect</code> */
+	private static long bit(VariantEffect effect) {
+		return 1L << effect.ordinal();
+	}
+
+	/** @return the bit mask, bit <code>i</code> is set if the effect with ordinal <code>i</code> is in the set */
+	public long getMask() {
+		return mask;
+	}
+
+	/** @return whether or not the set is empty */
+	public boolean isEmpty() {
+		return mask == 0;
+	}
+
+	/** @return number of effects in the set */
+	public int size() {
+		return Long.bitCount(mask);
+	}
+
+	/**
+	 * @param effect
+	 *            the {@link VariantEffect} to query for
+	 * @return whether or not <code>effect</code> is in the set
+	 */
+	public boolean contains(VariantEffect effect) {
+		return (mask & bit(effect)) != 0;
+	}
+
+	/**
+	 * @param otherMask
+	 *            bit mask, e.g., from {@link #maskOf}
+	 * @return whether or not any of the effects in <code>otherMask</code> is in the set
+	 */
+	public boolean containsAny(long otherMask) {
+		return (mask & otherMask) != 0;
+	}
+
+	/** @return the most pathogenic {@link VariantEffect}, <code>null</code> if empty */
+	public VariantEffect getMostPathogenic() {
+		return (mask == 0) ? null : VALUES[Long.numberOfTrailingZeros(mask)];
+	}
+
+	/**
+	 * @param otherMask
+	 *            bit mask, e.g., from {@link #maskOf}
+	 * @return the most pathogenic {@link VariantEffect} of the set that is in <code>otherMask</code>, <code>null</code>
+	 *         if there is none
+	 */
+	public VariantEffect getMostPathogenic(long otherMask) {
+		final long both = mask & otherMask;
+		return (both == 0) ? null : VALUES[Long.numberOfTrailingZeros(both)];
+	}
+
+	/** @return highest {@link PutativeImpact} of the effects, <code>null</code> if empty */
+	public PutativeImpact getPutativeImpact() {
+		return putativeImpact;
+	}
+
+	/**
+	 * @param isUtrOffExome
+	 *            whether or not UTR exons are considered off-exome
+	 * @param isIntronicSpliceNonConsensusOffExome
+	 *            whether or not intronic splice (non consensus) is considered off-exome
+	 * @return whether or not all effects are off-exome, see {@link VariantEffect#isOffExome(boolean, boolean)},
+	 *         <code>true</code> if empty
+	 */
+	public boolean isOffExome(boolean isUtrOffExome, boolean isIntronicSpliceNonConsensusOffExome) {
+		final long offExomeMask = OFF_EXOME_MASKS[(isUtrOffExome ? 2 : 0)
+				+ (isIntronicSpliceNonConsensusOffExome ? 1 : 0)];
+		return (mask & ~offExomeMask) == 0;
+	}
+
+	/** @return the set as {@link ImmutableSortedSet}, the same object on each call */
+	public ImmutableSortedSet<VariantEffect> asSortedSet() {
+		return sortedSet;
+	}
+
+	@Override
+	public Iterator<VariantEffect> iterator() {
+		return new Iterator<VariantEffect>() {
+			private long remaining = mask;
+
+			@Override
+			public boolean hasNext() {
+				return remaining != 0;
+			}
+
+			@Override
+			public VariantEffect next() {
+				if (remaining == 0)
+					throw new NoSuchElementException();
+				final VariantEffect result = VALUES[Long.numberOfTrailingZeros(remaining)];
+				remaining &= remaining - 1;
+				return result;
+			}
+		};
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(mask);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof VariantEffectSet))
+			return false;
+		return mask == ((VariantEffectSet) obj).mask;
+	}
+
+	@Override
+	public String toString() {
+		return sortedSet.toString();
+	}
+
+}
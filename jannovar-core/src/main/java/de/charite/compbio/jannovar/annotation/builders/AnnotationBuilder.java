@@ -1,6 +1,7 @@
 package de.charite.compbio.jannovar.annotation.builders;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -67,7 +68,7 @@ abstract class AnnotationBuilder {
 
 	/** location annotation string */
 	protected final AnnotationLocation locAnno;
-	/** locus of the change, length() == 1 in case of point changes */
+	/** locus of the change, length() == 1 in case of point changes, <code>null</code> in effect-only mode */
 	protected NucleotideRange ntChangeRange;
 	/** warnings and messages occuring during annotation process */
 	protected SortedSet<AnnotationMessage> messages = new TreeSet<AnnotationMessage>();
@@ -112,7 +113,8 @@ abstract class AnnotationBuilder {
 		}
 
 		this.locAnno = buildLocAnno(transcript, this.change);
-		this.ntChangeRange = buildNTChangeRange(transcript, this.change);
+		if (!options.isEffectsOnly())
+			this.ntChangeRange = buildNTChangeRange(transcript, this.change);
 	}
 
 	/**
@@ -122,6 +124,29 @@ abstract class AnnotationBuilder {
 	 */
 	public abstract Annotation build();
 
+	/**
+	 * Build {@link Annotation} for {@link #transcript} and {@link #change} at {@link #locAnno}.
+	 *
+	 * The genomic and CDS-level {@link NucleotideChange}s are only built here, such that they and
+	 * <code>proteinChange</code> can be omitted in effect-only mode.
+	 *
+	 * @param varTypes
+	 *            the predicted {@link VariantEffect}s
+	 * @param proteinChange
+	 *            the predicted {@link ProteinChange}
+	 * @param messages
+	 *            the {@link AnnotationMessage}s to use
+	 * @return {@link Annotation} with the given values
+	 */
+	protected Annotation buildAnnotation(Collection<VariantEffect> varTypes, ProteinChange proteinChange,
+			Collection<AnnotationMessage> messages) {
+		if (options.isEffectsOnly())
+			return new Annotation(transcript, change, varTypes, locAnno, null, null, null, messages);
+		else
+			return new Annotation(transcript, change, varTypes, locAnno, getGenomicNTChange(), getCDSNTChange(),
+					proteinChange, messages);
+	}
+
 	/**
 	 * @return chromosome/genome-level {@link NucleotideChange}
 	 */
@@ -182,8 +207,7 @@ abstract class AnnotationBuilder {
 			else
 				varTypes.add(VariantEffect.NON_CODING_TRANSCRIPT_INTRON_VARIANT);
 		}
-		return new Annotation(transcript, change, varTypes, locAnno, getGenomicNTChange(), getCDSNTChange(), null,
-				messages);
+		return buildAnnotation(varTypes, null, messages);
 	}
 
 	/** @return intronic anotation */
@@ -220,8 +244,7 @@ abstract class AnnotationBuilder {
 		if (!Sets.intersection(ImmutableSet.copyOf(varTypes), ImmutableSet.of(VariantEffect.SPLICE_DONOR_VARIANT,
 				VariantEffect.SPLICE_ACCEPTOR_VARIANT, VariantEffect.SPLICE_REGION_VARIANT)).isEmpty())
 			proteinChange = ProteinMiscChange.build(true, ProteinMiscChangeType.DIFFICULT_TO_PREDICT);
-		return new Annotation(transcript, change, varTypes, locAnno, getGenomicNTChange(), getCDSNTChange(),
-				proteinChange, messages);
+		return buildAnnotation(varTypes, proteinChange, messages);
 	}
 
 	/**
@@ -298,8 +321,8 @@ abstract class AnnotationBuilder {
 				}
 			}
 		}
-		return new Annotation(transcript, change, varTypes, locAnno, getGenomicNTChange(), getCDSNTChange(),
-				ProteinMiscChange.build(true, ProteinMiscChangeType.NO_CHANGE));
+		return buildAnnotation(varTypes, ProteinMiscChange.build(true, ProteinMiscChangeType.NO_CHANGE),
+				ImmutableList.<AnnotationMessage> of());
 	}
 
 	/** @return upstream/downstream annotation */
@@ -43,7 +43,7 @@ public final class AnnotationBuilderDispatcher {
 	public Annotation build() throws InvalidGenomeVariant {
 		if (transcript == null)
 			return new Annotation(null, change, ImmutableList.of(VariantEffect.INTERGENIC_VARIANT), null,
-					new GenomicNucleotideChangeBuilder(change).build(), null, null);
+					options.isEffectsOnly() ? null : new GenomicNucleotideChangeBuilder(change).build(), null, null);
 
 		switch (change.getType()) {
 		case SNV:
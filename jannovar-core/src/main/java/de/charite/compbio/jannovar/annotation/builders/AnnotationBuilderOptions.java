@@ -21,14 +21,38 @@ public class AnnotationBuilderOptions {
 	 */
 	private final boolean overrideTxSeqWithGenomeVariantRef;
 
+	/**
+	 * whether or not to only compute the variant effects and the location,
+	 * omitting the HGVS nucleotide and protein changes (default is
+	 * <code>false</code>).
+	 */
+	private final boolean effectsOnly;
+
+	/**
+	 * precomputed effects of SNVs in the CDS to use instead of translating the
+	 * codons, or <code>null</code> (default is <code>null</code>).
+	 */
+	private final SNVEffectTable snvEffectTable;
+
 	public AnnotationBuilderOptions() {
-		this.nt3PrimeShifting = true;
-		this.overrideTxSeqWithGenomeVariantRef = false;
+		this(true, false, false, null);
 	}
 
 	public AnnotationBuilderOptions(boolean nt3PrimeShifting, boolean overrideTxSeqWithGenomeVariantRef) {
+		this(nt3PrimeShifting, overrideTxSeqWithGenomeVariantRef, false);
+	}
+
+	public AnnotationBuilderOptions(boolean nt3PrimeShifting, boolean overrideTxSeqWithGenomeVariantRef,
+			boolean effectsOnly) {
+		this(nt3PrimeShifting, overrideTxSeqWithGenomeVariantRef, effectsOnly, null);
+	}
+
+	public AnnotationBuilderOptions(boolean nt3PrimeShifting, boolean overrideTxSeqWithGenomeVariantRef,
+			boolean effectsOnly, SNVEffectTable snvEffectTable) {
 		this.nt3PrimeShifting = nt3PrimeShifting;
 		this.overrideTxSeqWithGenomeVariantRef = overrideTxSeqWithGenomeVariantRef;
+		this.effectsOnly = effectsOnly;
+		this.snvEffectTable = snvEffectTable;
 	}
 
 	/**
@@ -47,4 +71,20 @@ public class AnnotationBuilderOptions {
 		return overrideTxSeqWithGenomeVariantRef;
 	}
 
-}
\ No newline at end of file
+	/**
+	 * @return whether or not to only compute the variant effects and the
+	 *         location, omitting the HGVS nucleotide and protein changes
+	 */
+	public boolean isEffectsOnly() {
+		return effectsOnly;
+	}
+
+	/**
+	 * @return precomputed effects of SNVs in the CDS to use instead of
+	 *         translating the codons, or <code>null</code>
+	 */
+	public SNVEffectTable getSNVEffectTable() {
+		return snvEffectTable;
+	}
+
+}
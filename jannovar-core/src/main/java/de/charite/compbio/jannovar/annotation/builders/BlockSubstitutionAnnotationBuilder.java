@@ -89,14 +89,12 @@ public final class BlockSubstitutionAnnotationBuilder extends AnnotationBuilder
 	}
 
 	private Annotation buildFeatureAblationAnnotation() {
-		return new Annotation(transcript, change, ImmutableList.of(VariantEffect.TRANSCRIPT_ABLATION), locAnno,
-				getGenomicNTChange(), getCDSNTChange(), null, messages);
+		return buildAnnotation(ImmutableList.of(VariantEffect.TRANSCRIPT_ABLATION), null, messages);
 	}
 
 	private Annotation buildStartLossAnnotation() {
-		return new Annotation(transcript, change, ImmutableList.of(VariantEffect.START_LOST), locAnno,
-				getGenomicNTChange(), getCDSNTChange(), ProteinMiscChange.build(true, ProteinMiscChangeType.NO_PROTEIN),
-				messages);
+		return buildAnnotation(ImmutableList.of(VariantEffect.START_LOST),
+				ProteinMiscChange.build(true, ProteinMiscChangeType.NO_PROTEIN), messages);
 	}
 
 	/**
@@ -176,8 +174,7 @@ public final class BlockSubstitutionAnnotationBuilder extends AnnotationBuilder
 			else
 				handleFrameShiftCase();
 
-			return new Annotation(transcript, change, varTypes, locAnno, getGenomicNTChange(), getCDSNTChange(),
-					proteinChange, messages);
+			return buildAnnotation(varTypes, proteinChange, messages);
 		}
 
 		private void handleNonFrameShiftCase() {
@@ -93,10 +93,19 @@ public final class SNVAnnotationBuilder extends AnnotationBuilder {
 
 		// Check that the WT nucleotide from the transcript is consistent with change.ref and generate a warning message
 		// if this is not the case.
-		if (txPos.getPos() >= transcript.getSequence().length()
-				|| !transcript.getSequence().substring(txPos.getPos(), txPos.getPos() + 1).equals(change.getRef()))
+		if (txPos.getPos() >= transcript.getPackedSequence().length()
+				|| !transcript.getPackedSequence().substring(txPos.getPos(), txPos.getPos() + 1).equals(change.getRef()))
 			messages.add(AnnotationMessage.WARNING_REF_DOES_NOT_MATCH_TRANSCRIPT);
 
+		// Use the precomputed effects and protein change if available for the transcript base and the alternative.
+		final SNVEffectTable snvEffectTable = options.getSNVEffectTable();
+		if (snvEffectTable != null && txPos.getPos() < transcript.getPackedSequence().length()) {
+			final char wtNT = transcript.getPackedSequence().charAt(txPos.getPos());
+			final int entry = snvEffectTable.lookup(transcript, cdsPos.getPos(), wtNT, change.getAlt().charAt(0));
+			if (entry != SNVEffectTable.NOT_AVAILABLE)
+				return buildCDSExonicAnnotationFromTable(snvEffectTable, entry, cdsPos, wtNT);
+		}
+
 		// Compute the frame shift and codon start position.
 		int frameShift = cdsPos.getPos() % 3;
 		// Get the transcript codon. From this, we generate the WT and the variant codon. This is important in the case
@@ -108,8 +117,8 @@ public final class SNVAnnotationBuilder extends AnnotationBuilder {
 			transcriptCodon = seqDecorator.getCodonAt(txPos, cdsPos);
 		} catch (InvalidCodonException e) {
 			// Bail out in the case of invalid codon from sequence
-			return new Annotation(transcript, change, new ArrayList<VariantEffect>(), locAnno, getGenomicNTChange(),
-					getCDSNTChange(), ProteinMiscChange.build(true, ProteinMiscChangeType.DIFFICULT_TO_PREDICT),
+			return buildAnnotation(new ArrayList<VariantEffect>(),
+					ProteinMiscChange.build(true, ProteinMiscChangeType.DIFFICULT_TO_PREDICT),
 					ImmutableList.of(AnnotationMessage.ERROR_PROBLEM_DURING_ANNOTATION));
 		}
 		String wtCodon = transcriptCodon;
@@ -122,8 +131,9 @@ public final class SNVAnnotationBuilder extends AnnotationBuilder {
 		// positions).
 		char wtNT = wtCodon.charAt(frameShift); // wild type nucleotide
 		char varNT = varCodon.charAt(frameShift); // wild type amino acid
-		ntSubstitutionOverride = new NucleotideSubstitution(false, ntChangeRange.getFirstPos(),
-				Character.toString(wtNT), Character.toString(varNT));
+		if (!options.isEffectsOnly())
+			ntSubstitutionOverride = new NucleotideSubstitution(false, ntChangeRange.getFirstPos(),
+					Character.toString(wtNT), Character.toString(varNT));
 
 		// Construct annotation part for the protein.
 		String wtAA = Translator.getTranslator().translateDNA(wtCodon);
@@ -143,11 +153,14 @@ public final class SNVAnnotationBuilder extends AnnotationBuilder {
 				varTypes.add(VariantEffect.STOP_RETAINED_VARIANT);
 			} else { // change in stop codon, AA change
 				varTypes.add(VariantEffect.STOP_LOST);
-				String varNTString = seqChangeHelper.getCDSWithGenomeVariant(change);
-				String varAAString = Translator.getTranslator().translateDNA(varNTString);
-				int stopCodonPos = varAAString.indexOf('*', cdsPos.getPos() / 3);
-				int shift = stopCodonPos - cdsPos.getPos() / 3;
-				proteinChange = ProteinExtension.build(true, wtAA, cdsPos.getPos() / 3, varAA, shift);
+				// The protein change is omitted in effect-only mode, skip translating the whole CDS.
+				if (!options.isEffectsOnly()) {
+					String varNTString = seqChangeHelper.getCDSWithGenomeVariant(change);
+					String varAAString = Translator.getTranslator().translateDNA(varNTString);
+					int stopCodonPos = varAAString.indexOf('*', cdsPos.getPos() / 3);
+					int shift = stopCodonPos - cdsPos.getPos() / 3;
+					proteinChange = ProteinExtension.build(true, wtAA, cdsPos.getPos() / 3, varAA, shift);
+				}
 			}
 		}
 		// Check for being a splice site variant. The splice donor, acceptor, and region intervals are disjoint.
@@ -159,8 +172,34 @@ public final class SNVAnnotationBuilder extends AnnotationBuilder {
 			varTypes.addAll(ImmutableList.of(VariantEffect.SPLICE_REGION_VARIANT));
 
 		// Build the resulting Annotation.
-		return new Annotation(transcript, change, varTypes, locAnno, getGenomicNTChange(), getCDSNTChange(),
-				proteinChange, messages);
+		return buildAnnotation(varTypes, proteinChange, messages);
+	}
+
+	/**
+	 * Build the annotation for a CDS exonic SNV from an entry of {@link SNVEffectTable}.
+	 *
+	 * @param snvEffectTable
+	 *            the table that <code>entry</code> was looked up in
+	 * @param entry
+	 *            the entry for {@link #change}
+	 * @param cdsPos
+	 *            the CDS position of {@link #change}
+	 * @param wtNT
+	 *            the base of the transcript at <code>cdsPos</code>
+	 * @return the resulting {@link Annotation}, the same as computed by {@link #buildCDSExonicAnnotation}
+	 */
+	private Annotation buildCDSExonicAnnotationFromTable(SNVEffectTable snvEffectTable, int entry,
+			CDSPosition cdsPos, char wtNT) {
+		if (SNVEffectTable.isDifficultToPredict(entry))
+			return buildAnnotation(new ArrayList<VariantEffect>(),
+					ProteinMiscChange.build(true, ProteinMiscChangeType.DIFFICULT_TO_PREDICT),
+					ImmutableList.of(AnnotationMessage.ERROR_PROBLEM_DURING_ANNOTATION));
+
+		if (!options.isEffectsOnly())
+			ntSubstitutionOverride = new NucleotideSubstitution(false, ntChangeRange.getFirstPos(),
+					Character.toString(wtNT), change.getAlt());
+		return buildAnnotation(snvEffectTable.getEffects(entry),
+				SNVEffectTable.getProteinChange(entry, cdsPos.getPos()), messages);
 	}
 
 	@Override
@@ -0,0 +1,334 @@
+package de.charite.compbio.jannovar.annotation.builders;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.charite.compbio.jannovar.annotation.VariantEffect;
+import de.charite.compbio.jannovar.data.SerializationException;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinChange;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinExtension;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinMiscChange;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinMiscChangeType;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinSubstitution;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+// NOTE(holtgrem): Part of the public interface of the Jannovar library.
+
+/**
+ * Read-only access to precomputed effects and protein changes of the SNVs in the CDS of each coding transcript.
+ *
+ * For each CDS position and each of the three alternative bases, the table stores one <code>int</code> that encodes
+ * the {@link VariantEffect}s (as an index into a pool of effect sets), the kind of the protein change, the wild type
+ * and variant amino acids, and the shift of protein extensions. Entries whose annotation cannot be encoded this way
+ * are marked as {@link #NOT_AVAILABLE}, {@link SNVAnnotationBuilder} builds these as usual.
+ *
+ * The values are only valid for the transcript database that the table was built from, the table is identified by
+ * the transcript accessions and checked against the CDS and transcript lengths only.
+ *
+ * The layout of the file is as follows (all numbers are big endian):
+ *
+ * <ul>
+ * <li><b>header</b> ({@link #HEADER_SIZE} bytes): magic bytes, format version, number of transcripts, and the absolute
+ * offsets of the following sections</li>
+ * <li><b>transcript directory</b>: for each transcript the length and UTF-8 encoded accession, the CDS and transcript
+ * lengths, and the absolute offset of its entries</li>
+ * <li><b>entries</b>: {@link #ALTS_PER_POSITION} <code>int</code> entries for each CDS position of each transcript,
+ * ordered by the alternative base</li>
+ * <li><b>effect sets</b>: the number of sets, followed by the number of effects and the effect names of each set</li>
+ * </ul>
+ *
+ * Use {@link SNVEffectTableBuilder} for writing files in this format.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public final class SNVEffectTable {
+
+	/** magic bytes at the beginning of the file */
+	static final byte[] MAGIC_BYTES = { 'J', 'V', 'S', 'E' };
+
+	/** version of the format, incremented on incompatible changes */
+	static final int FORMAT_VERSION = 1;
+
+	/** size of the header in bytes */
+	static final int HEADER_SIZE = 24;
+
+	// offsets of the fields in the header
+	static final int HEADER_OFFSET_VERSION = 4;
+	static final int HEADER_OFFSET_NUM_TRANSCRIPTS = 8;
+	static final int HEADER_OFFSET_DIRECTORY = 12;
+	static final int HEADER_OFFSET_ENTRIES = 16;
+	static final int HEADER_OFFSET_EFFECT_SETS = 20;
+
+	/** number of entries for each CDS position */
+	static final int ALTS_PER_POSITION = 3;
+
+	/** value of entries that are not available from the table */
+	public static final int NOT_AVAILABLE = -1;
+
+	/** the nucleotides that entries are stored for, in the order of their index */
+	static final String NUCLEOTIDES = "ACGT";
+
+	/** the amino acids that can be encoded, in the order of their index */
+	static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY*XUOBZJ";
+
+	/** maximal number of effect sets */
+	static final int MAX_EFFECT_SETS = 0xFF;
+
+	// kinds of protein changes
+	static final int KIND_SUBSTITUTION = 0;
+	static final int KIND_NO_CHANGE = 1;
+	static final int KIND_NO_PROTEIN = 2;
+	static final int KIND_EXTENSION = 3;
+	static final int KIND_DIFFICULT_TO_PREDICT = 4;
+
+	/** bias for storing the signed shift of protein extensions in 11 bits */
+	static final int SHIFT_BIAS = 1024;
+
+	/** path to the mapped file */
+	private final String filename;
+
+	/** the mapped file contents */
+	private final ByteBuffer buffer;
+
+	/** the pool of effect sets */
+	private final ImmutableList<ImmutableSortedSet<VariantEffect>> effectSets;
+
+	/** the directory entries by transcript accession */
+	private final ImmutableMap<String, TranscriptEntry> transcripts;
+
+	/**
+	 * Open and map the given file.
+	 *
+	 * @param filename
+	 *            path to the SNV effect table file
+	 * @throws SerializationException
+	 *             if the file could not be opened or is not an SNV effect table
+	 */
+	public SNVEffectTable(String filename) throws SerializationException {
+		this.filename = filename;
+		this.buffer = map(filename);
+
+		byte[] word = new byte[MAGIC_BYTES.length];
+		for (int i = 0; i < word.length; ++i)
+			word[i] = buffer.get(i);
+		if (!Arrays.equals(word, MAGIC_BYTES))
+			throw new SerializationException(filename + " does not look like an SNV effect table, magic number incorrect!");
+		final int version = buffer.getInt(HEADER_OFFSET_VERSION);
+		if (version != FORMAT_VERSION)
+			throw new SerializationException(
+					filename + " has SNV effect table version " + version + " but we need " + FORMAT_VERSION);
+
+		this.effectSets = readEffectSets(buffer.getInt(HEADER_OFFSET_EFFECT_SETS));
+		this.transcripts = readDirectory(buffer.getInt(HEADER_OFFSET_DIRECTORY),
+				buffer.getInt(HEADER_OFFSET_NUM_TRANSCRIPTS));
+	}
+
+	/** @return path to the mapped file */
+	public String getFilename() {
+		return filename;
+	}
+
+	/** @return number of transcripts in the table */
+	public int getTranscriptCount() {
+		return transcripts.size();
+	}
+
+	/**
+	 * @param transcript
+	 *            the {@link TranscriptModel} to query for
+	 * @return whether or not the table has entries for <code>transcript</code>
+	 */
+	public boolean hasTranscript(TranscriptModel transcript) {
+		return getTranscriptEntry(transcript) != null;
+	}
+
+	/**
+	 * Look up the entry of an SNV in the CDS of <code>transcript</code>.
+	 *
+	 * @param transcript
+	 *            the {@link TranscriptModel} of the SNV
+	 * @param cdsPos
+	 *            0-based CDS position of the SNV
+	 * @param wtNT
+	 *            the base of the transcript at <code>cdsPos</code>
+	 * @param varNT
+	 *            the alternative base, on the strand of the transcript
+	 * @return the encoded entry or {@link #NOT_AVAILABLE}
+	 */
+	public int lookup(TranscriptModel transcript, int cdsPos, char wtNT, char varNT) {
+		final TranscriptEntry entry = getTranscriptEntry(transcript);
+		final int slot = getSlot(wtNT, varNT);
+		if (entry == null || slot == NOT_AVAILABLE || cdsPos < 0 || cdsPos >= entry.cdsLength)
+			return NOT_AVAILABLE;
+		return buffer.getInt(entry.entriesOffset + 4 * (ALTS_PER_POSITION * cdsPos + slot));
+	}
+
+	/**
+	 * @param entry
+	 *            an entry returned by {@link #lookup}, not {@link #NOT_AVAILABLE}
+	 * @return the {@link VariantEffect}s of the entry
+	 */
+	public ImmutableSortedSet<VariantEffect> getEffects(int entry) {
+		return effectSets.get(entry & MAX_EFFECT_SETS);
+	}
+
+	/**
+	 * @param entry
+	 *            an entry returned by {@link #lookup}, not {@link #NOT_AVAILABLE}
+	 * @return whether or not the annotation failed because of an invalid codon
+	 */
+	public static boolean isDifficultToPredict(int entry) {
+		return getKind(entry) == KIND_DIFFICULT_TO_PREDICT;
+	}
+
+	/**
+	 * @param entry
+	 *            an entry returned by {@link #lookup}, not {@link #NOT_AVAILABLE}
+	 * @param cdsPos
+	 *            0-based CDS position that the entry was looked up for
+	 * @return the {@link ProteinChange} of the entry
+	 */
+	public static ProteinChange getProteinChange(int entry, int cdsPos) {
+		final String wtAA = Character.toString(AMINO_ACIDS.charAt((entry >>> 11) & 0x1F));
+		final String varAA = Character.toString(AMINO_ACIDS.charAt((entry >>> 16) & 0x1F));
+		switch (getKind(entry)) {
+		case KIND_SUBSTITUTION:
+			return ProteinSubstitution.build(true, wtAA, cdsPos / 3, varAA);
+		case KIND_NO_CHANGE:
+			return ProteinMiscChange.build(true, ProteinMiscChangeType.NO_CHANGE);
+		case KIND_NO_PROTEIN:
+			return ProteinMiscChange.build(true, ProteinMiscChangeType.NO_PROTEIN);
+		case KIND_EXTENSION:
+			return ProteinExtension.build(true, wtAA, cdsPos / 3, varAA, (entry >>> 21) - SHIFT_BIAS);
+		default:
+			return ProteinMiscChange.build(true, ProteinMiscChangeType.DIFFICULT_TO_PREDICT);
+		}
+	}
+
+	/**
+	 * Encode an entry from its parts.
+	 *
+	 * @return the entry, or {@link #NOT_AVAILABLE} if the values cannot be represented
+	 */
+	static int encode(int effectSet, int kind, String wtAA, String varAA, int shift) {
+		final int wtIdx = (wtAA.length() == 1) ? AMINO_ACIDS.indexOf(wtAA.charAt(0)) : -1;
+		final int varIdx = (varAA.length() == 1) ? AMINO_ACIDS.indexOf(varAA.charAt(0)) : -1;
+		if (effectSet < 0 || effectSet >= MAX_EFFECT_SETS || wtIdx < 0 || varIdx < 0 || shift < -SHIFT_BIAS
+				|| shift >= SHIFT_BIAS)
+			return NOT_AVAILABLE;
+		return effectSet | (kind << 8) | (wtIdx << 11) | (varIdx << 16) | ((shift + SHIFT_BIAS) << 21);
+	}
+
+	/**
+	 * @return index of the entry of <code>varNT</code> among the alternatives to <code>wtNT</code>, or
+	 *         {@link #NOT_AVAILABLE}
+	 */
+	static int getSlot(char wtNT, char varNT) {
+		final int wtIdx = NUCLEOTIDES.indexOf(wtNT);
+		final int varIdx = NUCLEOTIDES.indexOf(varNT);
+		if (wtIdx < 0 || varIdx < 0 || wtIdx == varIdx)
+			return NOT_AVAILABLE;
+		return (varIdx < wtIdx) ? varIdx : varIdx - 1;
+	}
+
+	/** @return kind of the protein change of <code>entry</code> */
+	private static int getKind(int entry) {
+		return (entry >>> 8) & 0x7;
+	}
+
+	/** @return the directory entry for <code>transcript</code> if it matches the transcript, <code>null</code> else */
+	private TranscriptEntry getTranscriptEntry(TranscriptModel transcript) {
+		final TranscriptEntry entry = transcripts.get(transcript.getAccession());
+		if (entry == null || entry.cdsLength != transcript.cdsTranscriptLength()
+				|| entry.txLength != transcript.transcriptLength())
+			return null;
+		return entry;
+	}
+
+	/** @return the effect sets stored at <code>offset</code> */
+	private ImmutableList<ImmutableSortedSet<VariantEffect>> readEffectSets(int offset) {
+		ImmutableList.Builder<ImmutableSortedSet<VariantEffect>> builder = new ImmutableList.Builder<>();
+		final int numSets = buffer.getInt(offset);
+		offset += 4;
+		for (int i = 0; i < numSets; ++i) {
+			final int numEffects = buffer.getInt(offset);
+			offset += 4;
+			List<VariantEffect> effects = new ArrayList<>();
+			for (int j = 0; j < numEffects; ++j) {
+				final String name = readString(offset);
+				offset += 2 + name.getBytes(StandardCharsets.UTF_8).length;
+				effects.add(VariantEffect.valueOf(name));
+			}
+			builder.add(ImmutableSortedSet.copyOf(effects));
+		}
+		return builder.build();
+	}
+
+	/** @return the transcript directory stored at <code>offset</code> */
+	private ImmutableMap<String, TranscriptEntry> readDirectory(int offset, int numTranscripts) {
+		HashMap<String, TranscriptEntry> map = new HashMap<>();
+		for (int i = 0; i < numTranscripts; ++i) {
+			final String accession = readString(offset);
+			offset += 2 + accession.getBytes(StandardCharsets.UTF_8).length;
+			map.put(accession, new TranscriptEntry(buffer.getInt(offset), buffer.getInt(offset + 4),
+					buffer.getInt(offset + 8)));
+			offset += 12;
+		}
+		return ImmutableMap.copyOf(map);
+	}
+
+	/** @return string with <code>short</code> length prefix at <code>offset</code> */
+	private String readString(int offset) {
+		final int len = buffer.getShort(offset) & 0xFFFF;
+		byte[] bytes = new byte[len];
+		for (int i = 0; i < len; ++i)
+			bytes[i] = buffer.get(offset + 2 + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/** Map the file at <code>filename</code> read-only */
+	private static ByteBuffer map(String filename) throws SerializationException {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new SerializationException(filename + " is too large for mapping into memory");
+			if (channel.size() < HEADER_SIZE)
+				throw new SerializationException(filename + " is too small for an SNV effect table");
+			// the mapping stays valid after closing the channel
+			final MappedByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return result;
+		} catch (IOException e) {
+			throw new SerializationException("Could not map file " + filename + ": " + e.toString());
+		}
+	}
+
+	/**
+	 * Directory entry of one transcript.
+	 */
+	private static final class TranscriptEntry {
+		/** length of the CDS */
+		final int cdsLength;
+		/** length of the transcript */
+		final int txLength;
+		/** absolute offset of the entries in the file */
+		final int entriesOffset;
+
+		TranscriptEntry(int cdsLength, int txLength, int entriesOffset) {
+			this.cdsLength = cdsLength;
+			this.txLength = txLength;
+			this.entriesOffset = entriesOffset;
+		}
+	}
+
+}
@@ -0,0 +1,294 @@
+package de.charite.compbio.jannovar.annotation.builders;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableSortedSet;
+
+import de.charite.compbio.jannovar.annotation.Annotation;
+import de.charite.compbio.jannovar.annotation.AnnotationMessage;
+import de.charite.compbio.jannovar.annotation.InvalidGenomeVariant;
+import de.charite.compbio.jannovar.annotation.VariantEffect;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.data.SerializationException;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinChange;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinExtension;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinMiscChange;
+import de.charite.compbio.jannovar.hgvs.protein.change.ProteinSubstitution;
+import de.charite.compbio.jannovar.reference.CDSPosition;
+import de.charite.compbio.jannovar.reference.GenomePosition;
+import de.charite.compbio.jannovar.reference.GenomeVariant;
+import de.charite.compbio.jannovar.reference.ProjectionException;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptProjectionDecorator;
+
+// NOTE(holtgrem): Part of the public interface of the Jannovar library.
+
+/**
+ * Precompute the effects and protein changes of all SNVs in the CDS of the coding transcripts of a {@link JannovarData}
+ * and write them to a file that can be opened as {@link SNVEffectTable}.
+ *
+ * The values are computed through {@link SNVAnnotationBuilder} and each entry is decoded again and compared to the
+ * annotation, entries that cannot be represented faithfully are stored as {@link SNVEffectTable#NOT_AVAILABLE}.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public final class SNVEffectTableBuilder {
+
+	/** the logger object to use */
+	private static final Logger LOGGER = LoggerFactory.getLogger(SNVEffectTableBuilder.class);
+
+	/** number of transcripts that are processed in parallel before writing out their entries */
+	private static final int CHUNK_SIZE = 1024;
+
+	/** the options for building the annotations, with 3' shifting which does not affect SNVs */
+	private static final AnnotationBuilderOptions OPTIONS = new AnnotationBuilderOptions(true, false);
+
+	/** the coding transcripts to precompute the SNVs for, sorted by accession */
+	private final List<TranscriptModel> transcripts;
+
+	/** the effect sets seen so far */
+	private final List<ImmutableSortedSet<VariantEffect>> effectSets = new ArrayList<>();
+
+	/** index of each effect set in {@link #effectSets} */
+	private final HashMap<ImmutableSortedSet<VariantEffect>, Integer> effectSetIndices = new HashMap<>();
+
+	/** number of entries that could not be represented */
+	private long numNotAvailable = 0;
+
+	/**
+	 * @param data
+	 *            the {@link JannovarData} with the transcripts to precompute the SNVs for
+	 */
+	public SNVEffectTableBuilder(JannovarData data) {
+		this.transcripts = data.getTmByAccession().values().stream().filter(tm -> tm.isCoding())
+				.sorted((lhs, rhs) -> lhs.getAccession().compareTo(rhs.getAccession())).collect(Collectors.toList());
+	}
+
+	/**
+	 * Compute the entries and write them to <code>filename</code>.
+	 *
+	 * @param filename
+	 *            path to the output file
+	 * @throws SerializationException
+	 *             on problems with writing the file
+	 */
+	public void save(String filename) throws SerializationException {
+		// compute section offsets up front, all transcripts are written
+		long directorySize = 0;
+		long numEntries = 0;
+		for (TranscriptModel tm : transcripts) {
+			directorySize += 2 + tm.getAccession().getBytes(StandardCharsets.UTF_8).length + 12;
+			numEntries += SNVEffectTable.ALTS_PER_POSITION * (long) tm.cdsTranscriptLength();
+		}
+		final long directoryOffset = SNVEffectTable.HEADER_SIZE;
+		final long entriesOffset = directoryOffset + directorySize;
+		final long effectSetsOffset = entriesOffset + 4 * numEntries;
+		if (effectSetsOffset > Integer.MAX_VALUE)
+			throw new SerializationException("Too many CDS positions for SNV effect table");
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(filename), 1024 * 1024))) {
+			out.write(SNVEffectTable.MAGIC_BYTES);
+			out.writeInt(SNVEffectTable.FORMAT_VERSION);
+			out.writeInt(transcripts.size());
+			out.writeInt((int) directoryOffset);
+			out.writeInt((int) entriesOffset);
+			out.writeInt((int) effectSetsOffset);
+
+			long offset = entriesOffset;
+			for (TranscriptModel tm : transcripts) {
+				writeString(out, tm.getAccession());
+				out.writeInt(tm.cdsTranscriptLength());
+				out.writeInt(tm.transcriptLength());
+				out.writeInt((int) offset);
+				offset += 4L * SNVEffectTable.ALTS_PER_POSITION * tm.cdsTranscriptLength();
+			}
+
+			for (int i = 0; i < transcripts.size(); i += CHUNK_SIZE) {
+				List<TranscriptEntries> chunk = transcripts.subList(i, Math.min(i + CHUNK_SIZE, transcripts.size()))
+						.parallelStream().map(tm -> annotateTranscript(tm)).collect(Collectors.toList());
+				for (TranscriptEntries entries : chunk)
+					for (int entry : toGlobalEntries(entries))
+						out.writeInt(entry);
+			}
+
+			out.writeInt(effectSets.size());
+			for (ImmutableSortedSet<VariantEffect> effects : effectSets) {
+				out.writeInt(effects.size());
+				for (VariantEffect effect : effects)
+					writeString(out, effect.name());
+			}
+		} catch (IOException e) {
+			throw new SerializationException(String.format("Could not write SNV effect table: %s", e.toString()));
+		}
+
+		LOGGER.info("Wrote {} entries for {} transcripts with {} effect sets, {} entries not available", numEntries,
+				transcripts.size(), effectSets.size(), numNotAvailable);
+	}
+
+	/**
+	 * Annotate and encode all SNVs in the CDS of <code>tm</code>.
+	 *
+	 * @return the entries of the transcript, using effect set indices local to the transcript
+	 */
+	private static TranscriptEntries annotateTranscript(TranscriptModel tm) {
+		final TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(tm);
+		final int cdsLength = tm.cdsTranscriptLength();
+		TranscriptEntries result = new TranscriptEntries(cdsLength);
+		for (int cdsPos = 0; cdsPos < cdsLength; ++cdsPos) {
+			final CDSPosition pos = new CDSPosition(tm, cdsPos);
+			final int txPos = projector.cdsToTranscriptPos(pos).getPos();
+			if (txPos >= tm.getPackedSequence().length())
+				continue;
+			final char wtNT = tm.getPackedSequence().charAt(txPos);
+			if (SNVEffectTable.NUCLEOTIDES.indexOf(wtNT) < 0)
+				continue;
+
+			final GenomePosition genomePos;
+			try {
+				genomePos = projector.cdsToGenomePos(pos);
+			} catch (ProjectionException e) {
+				continue;
+			}
+			for (char varNT : SNVEffectTable.NUCLEOTIDES.toCharArray()) {
+				if (varNT == wtNT)
+					continue;
+				final GenomeVariant variant = new GenomeVariant(genomePos, Character.toString(wtNT),
+						Character.toString(varNT));
+				try {
+					result.set(cdsPos, SNVEffectTable.getSlot(wtNT, varNT),
+							new SNVAnnotationBuilder(tm, variant, OPTIONS).build());
+				} catch (InvalidGenomeVariant e) {
+					// leave entry as not available
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Replace the transcript-local effect set indices in <code>entries</code> by indices into {@link #effectSets}.
+	 *
+	 * @return the entries with global effect set indices
+	 */
+	private int[] toGlobalEntries(TranscriptEntries entries) {
+		for (int i = 0; i < entries.entries.length; ++i) {
+			final int entry = entries.entries[i];
+			if (entry == SNVEffectTable.NOT_AVAILABLE) {
+				++numNotAvailable;
+				continue;
+			}
+			final int idx = getEffectSetIndex(entries.effectSets.get(entry & SNVEffectTable.MAX_EFFECT_SETS));
+			if (idx < 0) {
+				++numNotAvailable;
+				entries.entries[i] = SNVEffectTable.NOT_AVAILABLE;
+			} else {
+				entries.entries[i] = (entry & ~SNVEffectTable.MAX_EFFECT_SETS) | idx;
+			}
+		}
+		return entries.entries;
+	}
+
+	/** @return index of <code>effects</code> in {@link #effectSets}, -1 if the pool is full */
+	private int getEffectSetIndex(ImmutableSortedSet<VariantEffect> effects) {
+		Integer idx = effectSetIndices.get(effects);
+		if (idx == null) {
+			if (effectSets.size() == SNVEffectTable.MAX_EFFECT_SETS)
+				return -1;
+			idx = effectSets.size();
+			effectSets.add(effects);
+			effectSetIndices.put(effects, idx);
+		}
+		return idx;
+	}
+
+	/** Write <code>str</code> with <code>short</code> length prefix */
+	private static void writeString(DataOutputStream out, String str) throws IOException {
+		final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * The entries of one transcript together with the effect sets that they refer to.
+	 */
+	private static final class TranscriptEntries {
+		/** the entries, using indices into {@link #effectSets} */
+		final int[] entries;
+		/** the effect sets used in {@link #entries} */
+		final List<ImmutableSortedSet<VariantEffect>> effectSets = new ArrayList<>();
+
+		TranscriptEntries(int cdsLength) {
+			this.entries = new int[SNVEffectTable.ALTS_PER_POSITION * cdsLength];
+			Arrays.fill(entries, SNVEffectTable.NOT_AVAILABLE);
+		}
+
+		/** Encode <code>anno</code> and store it if it can be decoded again */
+		void set(int cdsPos, int slot, Annotation anno) {
+			final int entry = encode(anno, cdsPos);
+			if (entry != SNVEffectTable.NOT_AVAILABLE && isFaithful(anno, entry, cdsPos))
+				entries[SNVEffectTable.ALTS_PER_POSITION * cdsPos + slot] = entry;
+		}
+
+		/** @return the entry for <code>anno</code> or {@link SNVEffectTable#NOT_AVAILABLE} */
+		private int encode(Annotation anno, int cdsPos) {
+			final int effectSet = getEffectSetIndex(anno.getEffects());
+			final ProteinChange proteinChange = anno.getProteinChange();
+			if (proteinChange instanceof ProteinSubstitution) {
+				final ProteinSubstitution subst = (ProteinSubstitution) proteinChange;
+				return SNVEffectTable.encode(effectSet, SNVEffectTable.KIND_SUBSTITUTION, subst.getLocation().getAA(),
+						subst.getTargetAA(), 0);
+			} else if (proteinChange instanceof ProteinExtension) {
+				final ProteinExtension ext = (ProteinExtension) proteinChange;
+				return SNVEffectTable.encode(effectSet, SNVEffectTable.KIND_EXTENSION, ext.getPosition().getAA(),
+						ext.getTargetAA(), ext.getShift());
+			} else if (proteinChange instanceof ProteinMiscChange) {
+				switch (((ProteinMiscChange) proteinChange).getChangeType()) {
+				case NO_CHANGE:
+					return SNVEffectTable.encode(effectSet, SNVEffectTable.KIND_NO_CHANGE, "X", "X", 0);
+				case NO_PROTEIN:
+					return SNVEffectTable.encode(effectSet, SNVEffectTable.KIND_NO_PROTEIN, "X", "X", 0);
+				case DIFFICULT_TO_PREDICT:
+					return SNVEffectTable.encode(effectSet, SNVEffectTable.KIND_DIFFICULT_TO_PREDICT, "X", "X", 0);
+				default:
+					return SNVEffectTable.NOT_AVAILABLE;
+				}
+			}
+			return SNVEffectTable.NOT_AVAILABLE;
+		}
+
+		/** @return whether or not decoding <code>entry</code> yields the values of <code>anno</code> */
+		private boolean isFaithful(Annotation anno, int entry, int cdsPos) {
+			if (!effectSets.get(entry & SNVEffectTable.MAX_EFFECT_SETS).equals(anno.getEffects()))
+				return false;
+			if (SNVEffectTable.isDifficultToPredict(entry))
+				return anno.getMessages()
+						.equals(ImmutableSortedSet.of(AnnotationMessage.ERROR_PROBLEM_DURING_ANNOTATION));
+			return anno.getMessages().isEmpty()
+					&& SNVEffectTable.getProteinChange(entry, cdsPos).equals(anno.getProteinChange());
+		}
+
+		/** @return index of <code>effects</code> in {@link #effectSets}, -1 if there are too many sets */
+		private int getEffectSetIndex(ImmutableSortedSet<VariantEffect> effects) {
+			int idx = effectSets.indexOf(effects);
+			if (idx < 0 && effectSets.size() < SNVEffectTable.MAX_EFFECT_SETS) {
+				idx = effectSets.size();
+				effectSets.add(effects);
+			}
+			return idx;
+		}
+	}
+
+}
@@ -1,6 +1,9 @@
 package de.charite.compbio.jannovar.data;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.function.Supplier;
 
 import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
 import de.charite.compbio.jannovar.reference.GenomeInterval;
@@ -18,6 +21,9 @@ import de.charite.compbio.jannovar.reference.TranscriptModel;
  * Note that the {@link GenomeInterval} objects in the interval tree are defined by the transcription start and stop
  * sites of the isoform.
  *
+ * The {@link IntervalArray} can also be built on first access using a loader function, e.g., when the transcripts are
+ * decoded from a {@link JannovarDataMappedFile}.
+ *
  * @author <a href="mailto:Peter.Robinson@jax.org">Peter N Robinson</a>
  * @author <a href="mailto:marten.jaeger@charite.de">Marten Jaeger</a>
  * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
@@ -35,9 +41,12 @@ public final class Chromosome implements Serializable {
 
 	/**
 	 * An {@link IntervalArray} that contains all of the {@link TranscriptModel} objects for transcripts located on this
-	 * chromosome.
+	 * chromosome, <code>null</code> until loaded through {@link #loader}.
 	 */
-	private final IntervalArray<TranscriptModel> tmIntervalTree;
+	private volatile IntervalArray<TranscriptModel> tmIntervalTree;
+
+	/** function for building {@link #tmIntervalTree} on first access, <code>null</code> if eagerly built */
+	private final transient Supplier<IntervalArray<TranscriptModel>> loader;
 
 	/**
 	 * Initialize object.
@@ -53,6 +62,25 @@ public final class Chromosome implements Serializable {
 		this.refDict = refDict;
 		this.chrID = chrID;
 		this.tmIntervalTree = tmIntervalTree;
+		this.loader = null;
+	}
+
+	/**
+	 * Initialize object with lazy loading of the transcripts.
+	 *
+	 * @param refDict
+	 *            the {@link ReferenceDictionary} to use
+	 * @param chrID
+	 *            the chromosome
+	 * @param loader
+	 *            function for building the interval tree with all transcripts on this chromosome, called at most once
+	 *            on first access
+	 */
+	public Chromosome(ReferenceDictionary refDict, int chrID, Supplier<IntervalArray<TranscriptModel>> loader) {
+		this.refDict = refDict;
+		this.chrID = chrID;
+		this.tmIntervalTree = null;
+		this.loader = loader;
 	}
 
 	/** @return reference dictionary to use */
@@ -76,14 +104,35 @@ public final class Chromosome implements Serializable {
 	 * @return Number of genes contained in this chromosome.
 	 */
 	public int getNumberOfGenes() {
-		return this.tmIntervalTree.size();
+		return getTMIntervalTree().size();
 	}
 
 	/**
 	 * @return the {@link IntervalArray} of the chromosome.
 	 */
 	public IntervalArray<TranscriptModel> getTMIntervalTree() {
-		return tmIntervalTree;
+		IntervalArray<TranscriptModel> result = tmIntervalTree;
+		if (result == null) {
+			synchronized (this) {
+				result = tmIntervalTree;
+				if (result == null)
+					tmIntervalTree = result = loader.get();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return whether the {@link IntervalArray} of the chromosome has been built already
+	 */
+	public boolean isLoaded() {
+		return tmIntervalTree != null;
+	}
+
+	/** Make sure that the transcripts are loaded before writing. */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getTMIntervalTree();
+		out.defaultWriteObject();
 	}
 
 }
@@ -0,0 +1,39 @@
+package de.charite.compbio.jannovar.data;
+
+/**
+ * Coarse classification of a genomic base with respect to all transcripts, as stored in
+ * {@link GenomeRegionClassIndex}.
+ *
+ * The classes are ordered by decreasing priority, a base that has different classes for different transcripts gets the
+ * one with the highest priority, i.e., the smallest ordinal.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public enum GenomeRegionClass {
+	/** exonic base in the CDS of a coding transcript */
+	CODING_EXON,
+	/** exonic base of a non-coding transcript */
+	NON_CODING_EXON,
+	/** base in a splice donor or acceptor site, i.e., the first or last two bases of an intron */
+	SPLICE_SITE,
+	/** base in a splice region, i.e., within 3 exonic or 8 intronic bases of an exon/intron boundary */
+	SPLICE_REGION,
+	/** exonic base in the 5' or 3' UTR of a coding transcript */
+	UTR,
+	/** intronic base */
+	INTRON,
+	/** base in the up to 1000 bases upstream or downstream of a transcript */
+	UPSTREAM_DOWNSTREAM,
+	/** base not overlapping with any transcript or its upstream and downstream regions */
+	INTERGENIC;
+
+	/**
+	 * @param other
+	 *            the {@link GenomeRegionClass} to compare with
+	 * @return the class with the higher priority of <code>this</code> and <code>other</code>
+	 */
+	public GenomeRegionClass max(GenomeRegionClass other) {
+		return (other.ordinal() < ordinal()) ? other : this;
+	}
+
+}
@@ -0,0 +1,296 @@
+package de.charite.compbio.jannovar.data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableMap;
+
+import de.charite.compbio.jannovar.Immutable;
+import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.GenomePosition;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+/**
+ * Run-length encoded {@link GenomeRegionClass} of each base of the genome, built once from all transcripts.
+ *
+ * For each chromosome, the index stores the begin positions of the maximal runs of bases with the same class on the
+ * forward strand, together with the class of each run. A base gets the class with the highest priority over all
+ * transcripts, using the same exon, CDS, splice site, splice region, and upstream/downstream definitions as
+ * {@link de.charite.compbio.jannovar.reference.TranscriptSequenceOntologyDecorator}. Queries are answered by binary
+ * search in <code>O(log n)</code> for <code>n</code> runs, without going through the annotation of the variant.
+ *
+ * This allows for routing the large number of intronic and intergenic variants in whole-genome data past expensive
+ * stages, e.g., in prefilters.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+@Immutable
+public final class GenomeRegionClassIndex {
+
+	/** length of the upstream and downstream regions */
+	private static final int FLANK_LENGTH = 1000;
+	/** length of the splice donor and acceptor sites */
+	private static final int SPLICE_SITE_LENGTH = 2;
+	/** number of exonic bases in the splice region */
+	private static final int SPLICE_REGION_EXONIC = 3;
+	/** number of intronic bases in the splice region */
+	private static final int SPLICE_REGION_INTRONIC = 8;
+
+	/** all {@link GenomeRegionClass} values, indexed by ordinal */
+	private static final GenomeRegionClass[] CLASSES = GenomeRegionClass.values();
+
+	/** map from chromosome ID to the runs of the chromosome */
+	private final ImmutableMap<Integer, ChromosomeRuns> runs;
+
+	/**
+	 * Build the index for all transcripts of <code>data</code>.
+	 *
+	 * @param data
+	 *            the {@link JannovarData} to build the index for
+	 */
+	public GenomeRegionClassIndex(JannovarData data) {
+		this(data.getRefDict(), data.getChromosomes());
+	}
+
+	/**
+	 * Build the index for all transcripts of the given {@link Chromosome}s.
+	 *
+	 * @param refDict
+	 *            the {@link ReferenceDictionary} to use for converting coordinates to the forward strand
+	 * @param chromosomes
+	 *            map from chromosome ID to {@link Chromosome}
+	 */
+	public GenomeRegionClassIndex(ReferenceDictionary refDict, Map<Integer, Chromosome> chromosomes) {
+		ImmutableMap.Builder<Integer, ChromosomeRuns> builder = new ImmutableMap.Builder<Integer, ChromosomeRuns>();
+		for (Map.Entry<Integer, Chromosome> entry : chromosomes.entrySet())
+			builder.put(entry.getKey(), buildRuns(refDict, entry.getValue().getTMIntervalTree()));
+		this.runs = builder.build();
+	}
+
+	/**
+	 * @param pos
+	 *            the {@link GenomePosition} to classify
+	 * @return the {@link GenomeRegionClass} of the base at <code>pos</code>
+	 */
+	public GenomeRegionClass classify(GenomePosition pos) {
+		final ChromosomeRuns chrRuns = runs.get(pos.getChr());
+		if (chrRuns == null)
+			return GenomeRegionClass.INTERGENIC;
+		return chrRuns.classify(pos.withStrand(Strand.FWD).getPos());
+	}
+
+	/**
+	 * Classify the bases overlapping with <code>interval</code>.
+	 *
+	 * An empty interval, i.e., the position of an insertion, is classified by the two bases left and right of it.
+	 *
+	 * @param interval
+	 *            the {@link GenomeInterval} to classify
+	 * @return the {@link GenomeRegionClass} with the highest priority of the bases in <code>interval</code>
+	 */
+	public GenomeRegionClass classify(GenomeInterval interval) {
+		final ChromosomeRuns chrRuns = runs.get(interval.getChr());
+		if (chrRuns == null)
+			return GenomeRegionClass.INTERGENIC;
+		final GenomeInterval fwdInterval = interval.withStrand(Strand.FWD);
+		if (fwdInterval.length() == 0)
+			return chrRuns.classify(fwdInterval.getBeginPos() - 1, fwdInterval.getEndPos() + 1);
+		else
+			return chrRuns.classify(fwdInterval.getBeginPos(), fwdInterval.getEndPos());
+	}
+
+	/**
+	 * @param chr
+	 *            numeric chromosome ID
+	 * @return number of runs stored for the chromosome, <code>0</code> if there is none
+	 */
+	public int getRunCount(int chr) {
+		final ChromosomeRuns chrRuns = runs.get(chr);
+		return (chrRuns == null) ? 0 : chrRuns.begins.length;
+	}
+
+	/**
+	 * Build the runs for the transcripts in <code>iTree</code>.
+	 *
+	 * The regions of all transcripts are collected as begin and end events, sorted by position, and swept over while
+	 * counting the open regions of each class.
+	 */
+	private static ChromosomeRuns buildRuns(ReferenceDictionary refDict, IntervalArray<TranscriptModel> iTree) {
+		final RegionCollector collector = new RegionCollector(refDict);
+		for (int i = 0; i < iTree.size(); ++i)
+			collector.addTranscript(iTree.getValue(i));
+
+		final long[] events = Arrays.copyOf(collector.events, collector.numEvents);
+		Arrays.sort(events);
+
+		final int[] counts = new int[CLASSES.length];
+		int[] begins = new int[16];
+		byte[] classes = new byte[16];
+		int numRuns = 1;
+		begins[0] = 0;
+		classes[0] = (byte) GenomeRegionClass.INTERGENIC.ordinal();
+		int i = 0;
+		while (i < events.length) {
+			final int pos = eventPos(events[i]);
+			for (; i < events.length && eventPos(events[i]) == pos; ++i)
+				counts[eventClass(events[i])] += eventIsBegin(events[i]) ? 1 : -1;
+
+			int cls = 0;
+			while (cls + 1 < counts.length && counts[cls] == 0)
+				++cls;
+			if (cls == classes[numRuns - 1])
+				continue;
+			if (begins[numRuns - 1] == pos) { // run became empty, the clamping to 0 may yield such runs
+				classes[numRuns - 1] = (byte) cls;
+				if (numRuns > 1 && classes[numRuns - 2] == cls)
+					--numRuns;
+				continue;
+			}
+			if (numRuns == begins.length) {
+				begins = Arrays.copyOf(begins, 2 * numRuns);
+				classes = Arrays.copyOf(classes, 2 * numRuns);
+			}
+			begins[numRuns] = pos;
+			classes[numRuns] = (byte) cls;
+			++numRuns;
+		}
+		return new ChromosomeRuns(Arrays.copyOf(begins, numRuns), Arrays.copyOf(classes, numRuns));
+	}
+
+	/** @return position of an event from {@link RegionCollector} */
+	private static int eventPos(long event) {
+		return (int) (event >>> 5);
+	}
+
+	/** @return ordinal of the {@link GenomeRegionClass} of an event from {@link RegionCollector} */
+	private static int eventClass(long event) {
+		return (int) ((event >>> 1) & 0xF);
+	}
+
+	/** @return whether the event from {@link RegionCollector} is the begin of a region */
+	private static boolean eventIsBegin(long event) {
+		return (event & 1) != 0;
+	}
+
+	/**
+	 * Runs of one chromosome, the run <code>i</code> ranges from <code>begins[i]</code> to <code>begins[i + 1]</code>
+	 * (or the end of the chromosome) on the forward strand.
+	 */
+	@Immutable
+	private static final class ChromosomeRuns {
+
+		/** begin positions of the runs, the first one is <code>0</code> */
+		private final int[] begins;
+		/** ordinals of the {@link GenomeRegionClass} of each run */
+		private final byte[] classes;
+
+		ChromosomeRuns(int[] begins, byte[] classes) {
+			this.begins = begins;
+			this.classes = classes;
+		}
+
+		/** @return class of the base at forward-strand position <code>pos</code> */
+		GenomeRegionClass classify(int pos) {
+			if (pos < 0)
+				return GenomeRegionClass.INTERGENIC;
+			return CLASSES[classes[runIndex(pos)]];
+		}
+
+		/** @return class with the highest priority of the bases in the forward-strand interval [begin, end) */
+		GenomeRegionClass classify(int begin, int end) {
+			begin = Math.max(begin, 0);
+			if (begin >= end)
+				return GenomeRegionClass.INTERGENIC;
+			int cls = GenomeRegionClass.INTERGENIC.ordinal();
+			for (int i = runIndex(begin); i < begins.length && begins[i] < end; ++i)
+				cls = Math.min(cls, classes[i]);
+			return CLASSES[cls];
+		}
+
+		/** @return index of the run containing the non-negative position <code>pos</code> */
+		private int runIndex(int pos) {
+			final int idx = Arrays.binarySearch(begins, pos);
+			return (idx >= 0) ? idx : -idx - 2;
+		}
+
+	}
+
+	/**
+	 * Collects the regions of the transcripts of one chromosome as begin and end events on the forward strand.
+	 *
+	 * Each event is encoded as a <code>long</code> from the position, the class ordinal, and a flag for begin events,
+	 * such that sorting the events orders them by position.
+	 */
+	private static final class RegionCollector {
+
+		/** for converting to the forward strand */
+		private final ReferenceDictionary refDict;
+		/** the encoded events, the first {@link #numEvents} entries are used */
+		private long[] events = new long[1024];
+		/** number of events */
+		private int numEvents = 0;
+
+		RegionCollector(ReferenceDictionary refDict) {
+			this.refDict = refDict;
+		}
+
+		/** Add the regions of <code>tm</code>, coordinates are on the strand of the transcript */
+		void addTranscript(TranscriptModel tm) {
+			final int txBegin = tm.getTXRegion().getBeginPos();
+			final int txEnd = tm.getTXRegion().getEndPos();
+			final int cdsBegin = tm.getCDSRegion().getBeginPos();
+			final int cdsEnd = tm.getCDSRegion().getEndPos();
+
+			add(tm, txBegin - FLANK_LENGTH, txBegin, GenomeRegionClass.UPSTREAM_DOWNSTREAM);
+			add(tm, txEnd, txEnd + FLANK_LENGTH, GenomeRegionClass.UPSTREAM_DOWNSTREAM);
+			add(tm, txBegin, txEnd, GenomeRegionClass.INTRON);
+
+			final List<GenomeInterval> exons = tm.getExonRegions();
+			for (int i = 0; i < exons.size(); ++i) {
+				final int exonBegin = exons.get(i).getBeginPos();
+				final int exonEnd = exons.get(i).getEndPos();
+				if (tm.isCoding()) {
+					add(tm, exonBegin, exonEnd, GenomeRegionClass.UTR);
+					add(tm, Math.max(exonBegin, cdsBegin), Math.min(exonEnd, cdsEnd), GenomeRegionClass.CODING_EXON);
+				} else {
+					add(tm, exonBegin, exonEnd, GenomeRegionClass.NON_CODING_EXON);
+				}
+				if (i + 1 < exons.size()) { // donor after all exons but the last
+					add(tm, exonEnd - SPLICE_REGION_EXONIC, exonEnd + SPLICE_REGION_INTRONIC,
+							GenomeRegionClass.SPLICE_REGION);
+					add(tm, exonEnd, exonEnd + SPLICE_SITE_LENGTH, GenomeRegionClass.SPLICE_SITE);
+				}
+				if (i > 0) { // acceptor before all exons but the first
+					add(tm, exonBegin - SPLICE_REGION_INTRONIC, exonBegin + SPLICE_REGION_EXONIC,
+							GenomeRegionClass.SPLICE_REGION);
+					add(tm, exonBegin - SPLICE_SITE_LENGTH, exonBegin, GenomeRegionClass.SPLICE_SITE);
+				}
+			}
+		}
+
+		/** Add region [begin, end) on the strand of <code>tm</code> with the given class, unless empty */
+		private void add(TranscriptModel tm, int begin, int end, GenomeRegionClass cls) {
+			if (begin >= end)
+				return;
+			final GenomeInterval fwd = new GenomeInterval(refDict, tm.getStrand(), tm.getChr(), begin, end)
+					.withStrand(Strand.FWD);
+			final int fwdBegin = Math.max(fwd.getBeginPos(), 0);
+			if (fwdBegin >= fwd.getEndPos())
+				return;
+			if (numEvents + 2 > events.length)
+				events = Arrays.copyOf(events, 2 * events.length);
+			events[numEvents++] = encode(fwdBegin, cls, true);
+			events[numEvents++] = encode(fwd.getEndPos(), cls, false);
+		}
+
+		/** @return event encoded from the given values */
+		private static long encode(int pos, GenomeRegionClass cls, boolean isBegin) {
+			return ((long) pos << 5) | (cls.ordinal() << 1) | (isBegin ? 1 : 0);
+		}
+
+	}
+
+}
@@ -1,5 +1,7 @@
 package de.charite.compbio.jannovar.data;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -18,6 +20,10 @@ import de.charite.compbio.jannovar.reference.TranscriptModel;
  *
  * Making this class immutable makes it a convenient serializeable read-only database.
  *
+ * The lookup maps from accession and gene symbol are built on first access. When constructed from {@link Chromosome}
+ * objects with lazy loading (see {@link JannovarDataMappedFile#toLazyJannovarData()}), the transcripts of a chromosome
+ * are only decoded when its {@link IntervalArray} is first used.
+ *
  * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
  */
 @Immutable
@@ -29,15 +35,18 @@ public final class JannovarData implements Serializable {
 	/** map from chromosome ID to {@link Chromosome} */
 	private final ImmutableMap<Integer, Chromosome> chromosomes;
 
-	/** map from transcript accession to {@link TranscriptModel} instance. */
-	private final ImmutableMap<String, TranscriptModel> tmByAccession;
+	/** map from transcript accession to {@link TranscriptModel} instance, built on first access. */
+	private volatile ImmutableMap<String, TranscriptModel> tmByAccession;
 
-	/** map from transcript accession to {@link TranscriptModel} instance. */
-	private final ImmutableMultimap<String, TranscriptModel> tmByGeneSymbol;
+	/** map from transcript accession to {@link TranscriptModel} instance, built on first access. */
+	private volatile ImmutableMultimap<String, TranscriptModel> tmByGeneSymbol;
 
 	/** information about reference lengths and identities */
 	private final ReferenceDictionary refDict;
 
+	/** transcripts passed to the constructor, <code>null</code> if they are to be taken from {@link #chromosomes} */
+	private final transient ImmutableList<TranscriptModel> transcriptModels;
+
 	/**
 	 * Initialize the object with the given values.
 	 *
@@ -49,8 +58,23 @@ public final class JannovarData implements Serializable {
 	public JannovarData(ReferenceDictionary refDict, ImmutableList<TranscriptModel> transcriptModels) {
 		this.refDict = refDict;
 		this.chromosomes = makeChromsomes(refDict, transcriptModels);
-		this.tmByAccession = makeTMByAccession(transcriptModels);
-		this.tmByGeneSymbol = makeTMByGeneSymbol(transcriptModels);
+		this.transcriptModels = transcriptModels;
+	}
+
+	/**
+	 * Initialize the object with already built {@link Chromosome} objects.
+	 *
+	 * This allows for using {@link Chromosome} objects that load their transcripts lazily.
+	 *
+	 * @param refDict
+	 *            the {@link ReferenceDictionary} to use in this object
+	 * @param chromosomes
+	 *            map from chromosome ID to {@link Chromosome}
+	 */
+	public JannovarData(ReferenceDictionary refDict, ImmutableMap<Integer, Chromosome> chromosomes) {
+		this.refDict = refDict;
+		this.chromosomes = chromosomes;
+		this.transcriptModels = null;
 	}
 
 	/** @return map from chromosome ID to {@link Chromosome} */
@@ -58,14 +82,34 @@ public final class JannovarData implements Serializable {
 		return chromosomes;
 	}
 
-	/** @return map from transcript accession to {@link TranscriptModel} instance. */
+	/**
+	 * @return map from transcript accession to {@link TranscriptModel} instance, loads all chromosomes on first call.
+	 */
 	public ImmutableMap<String, TranscriptModel> getTmByAccession() {
-		return tmByAccession;
+		ImmutableMap<String, TranscriptModel> result = tmByAccession;
+		if (result == null) {
+			synchronized (this) {
+				result = tmByAccession;
+				if (result == null)
+					tmByAccession = result = makeTMByAccession(getTranscriptModels());
+			}
+		}
+		return result;
 	}
 
-	/** @return map from transcript accession to {@link TranscriptModel} instance. */
+	/**
+	 * @return map from transcript accession to {@link TranscriptModel} instance, loads all chromosomes on first call.
+	 */
 	public ImmutableMultimap<String, TranscriptModel> getTmByGeneSymbol() {
-		return tmByGeneSymbol;
+		ImmutableMultimap<String, TranscriptModel> result = tmByGeneSymbol;
+		if (result == null) {
+			synchronized (this) {
+				result = tmByGeneSymbol;
+				if (result == null)
+					tmByGeneSymbol = result = makeTMByGeneSymbol(getTranscriptModels());
+			}
+		}
+		return result;
 	}
 
 	/** @return information about reference lengths and identities */
@@ -73,6 +117,28 @@ public final class JannovarData implements Serializable {
 		return refDict;
 	}
 
+	/**
+	 * @return all {@link TranscriptModel}s, either as passed to the constructor or collected from {@link #chromosomes}
+	 */
+	private ImmutableList<TranscriptModel> getTranscriptModels() {
+		if (transcriptModels != null)
+			return transcriptModels;
+		ImmutableList.Builder<TranscriptModel> builder = new ImmutableList.Builder<TranscriptModel>();
+		for (Chromosome chrom : chromosomes.values()) {
+			final IntervalArray<TranscriptModel> iTree = chrom.getTMIntervalTree();
+			for (int i = 0; i < iTree.size(); ++i)
+				builder.add(iTree.getValue(i));
+		}
+		return builder.build();
+	}
+
+	/** Make sure that the lookup maps are built before writing. */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		getTmByAccession();
+		getTmByGeneSymbol();
+		out.defaultWriteObject();
+	}
+
 	/**
 	 * @param transcriptModels
 	 *            set of {@link TranscriptModel}s to build multi-mapping for
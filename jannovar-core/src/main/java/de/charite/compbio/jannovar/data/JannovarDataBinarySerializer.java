@@ -0,0 +1,342 @@
+package de.charite.compbio.jannovar.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.impl.util.StringUtil;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.PackedNucleotideSequence;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+// NOTE(holtgrem): Part of the public interface of the Jannovar library.
+
+/**
+ * Manager for writing and reading {@link JannovarData} objects in the memory-mappable binary format.
+ *
+ * In contrast to {@link JannovarDataSerializer}, the resulting file is not compressed and uses fixed-width records
+ * such that it can be used in place through {@link JannovarDataMappedFile}. See there for a description of the
+ * layout.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public final class JannovarDataBinarySerializer {
+
+	/** the logger object to use */
+	private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/** path to file to serialize to or deserialize from */
+	private final String filename;
+
+	/**
+	 * Initialize the (de)serializer with the path to the file to load/save.
+	 *
+	 * @param filename
+	 *            path to the file to deserialize from or serialize to
+	 */
+	public JannovarDataBinarySerializer(String filename) {
+		this.filename = filename;
+	}
+
+	/**
+	 * Write a {@link JannovarData} object to a file in the binary format.
+	 *
+	 * @param data
+	 *            the {@link JannovarData} object to write
+	 * @throws SerializationException
+	 *             on problems with the serialization
+	 */
+	public void save(JannovarData data) throws SerializationException {
+		logger.info(StringUtil.concatenate("Writing binary JannovarData to ", filename));
+		final long startTime = System.nanoTime();
+
+		if (data == null || data.getRefDict().getContigNameToID().isEmpty())
+			throw new SerializationException("Attempting to serialize empty data set");
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(filename), 1024 * 1024))) {
+			new Writer(data).write(out);
+		} catch (IOException e) {
+			throw new SerializationException(String.format("Could not write binary data file: %s", e.toString()));
+		}
+
+		logger.info(String.format("Serialization took %.2f sec.",
+				(System.nanoTime() - startTime) / 1000.0 / 1000.0 / 1000.0));
+	}
+
+	/**
+	 * Open the file for in-place access.
+	 *
+	 * @return {@link JannovarDataMappedFile} for the file
+	 * @throws SerializationException
+	 *             on problems with opening the file
+	 */
+	public JannovarDataMappedFile open() throws SerializationException {
+		return new JannovarDataMappedFile(filename);
+	}
+
+	/**
+	 * Read the file into a {@link JannovarData} object.
+	 *
+	 * @return {@link JannovarData} object with all transcripts from the file
+	 * @throws SerializationException
+	 *             on problems with the deserialization
+	 */
+	public JannovarData load() throws SerializationException {
+		logger.info(StringUtil.concatenate("Loading binary JannovarData from ", filename));
+		final long startTime = System.nanoTime();
+
+		JannovarData result = open().toJannovarData();
+
+		logger.info(String.format("Deserialization took %.2f sec.",
+				(System.nanoTime() - startTime) / 1000.0 / 1000.0 / 1000.0));
+		return result;
+	}
+
+	/**
+	 * Open the file and return a {@link JannovarData} object that decodes the transcripts of each chromosome only on
+	 * first access.
+	 *
+	 * @return {@link JannovarData} object with lazily loaded chromosomes
+	 * @throws SerializationException
+	 *             on problems with opening the file
+	 */
+	public JannovarData loadLazily() throws SerializationException {
+		logger.info(StringUtil.concatenate("Opening binary JannovarData from ", filename, " for lazy loading"));
+		return open().toLazyJannovarData();
+	}
+
+	/**
+	 * Helper class for collecting the sections of the file and writing them out.
+	 */
+	private static class Writer {
+
+		/** the data to write */
+		private final JannovarData data;
+
+		/** string pool, strings in order of their index */
+		private final List<byte[]> strings = new ArrayList<>();
+		/** string pool, index of each string */
+		private final Map<String, Integer> stringIDs = new HashMap<>();
+		/** total length of the encoded strings */
+		private long stringDataLength = 0;
+
+		/** chromosome IDs in the order of the chromosome table */
+		private final List<Integer> chrIDs = new ArrayList<>();
+		/** transcripts, grouped by chromosome and in the order of the interval array */
+		private final List<List<TranscriptModel>> transcripts = new ArrayList<>();
+
+		Writer(JannovarData data) {
+			this.data = data;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			final ReferenceDictionary refDict = data.getRefDict();
+
+			// Collect transcripts of each chromosome, the interval array is already sorted by begin position.
+			for (Map.Entry<Integer, Chromosome> entry : data.getChromosomes().entrySet()) {
+				final IntervalArray<TranscriptModel> iTree = entry.getValue().getTMIntervalTree();
+				List<TranscriptModel> lst = new ArrayList<>();
+				for (int i = 0; i < iTree.size(); ++i)
+					lst.add(iTree.getValue(i));
+				chrIDs.add(entry.getKey());
+				transcripts.add(lst);
+			}
+
+			// Fill string pool and count records.
+			final int creatorID = stringID(JannovarDataSerializer.getVersion());
+			for (Map.Entry<String, Integer> e : refDict.getContigNameToID().entrySet())
+				stringID(e.getKey());
+			for (Map.Entry<Integer, String> e : refDict.getContigIDToName().entrySet())
+				stringID(e.getValue());
+			int numTranscripts = 0;
+			int numExons = 0;
+			int numAltGeneIDs = 0;
+			long sequenceLength = 0;
+			for (List<TranscriptModel> lst : transcripts)
+				for (TranscriptModel tm : lst) {
+					stringID(tm.getAccession());
+					stringID(tm.getGeneSymbol());
+					stringID(tm.getGeneID());
+					for (Map.Entry<String, String> e : tm.getAltGeneIDs().entrySet()) {
+						stringID(e.getKey());
+						stringID(e.getValue());
+					}
+					numTranscripts += 1;
+					numExons += tm.getExonRegions().size();
+					numAltGeneIDs += tm.getAltGeneIDs().size();
+					if (tm.getPackedSequence() != null)
+						sequenceLength += packedSize(tm.getPackedSequence());
+				}
+
+			// Compute section offsets.
+			final long stringTableOffset = JannovarDataMappedFile.HEADER_SIZE;
+			final long stringDataOffset = stringTableOffset + 8L * strings.size();
+			final long refDictOffset = stringDataOffset + stringDataLength;
+			final long chromosomesOffset = refDictOffset + 12L + 8L * refDict.getContigNameToID().size()
+					+ 8L * refDict.getContigIDToName().size() + 8L * refDict.getContigIDToLength().size();
+			final long transcriptsOffset = chromosomesOffset + 4L
+					+ (long) JannovarDataMappedFile.CHROMOSOME_RECORD_SIZE * chrIDs.size();
+			final long exonsOffset = transcriptsOffset
+					+ (long) JannovarDataMappedFile.TRANSCRIPT_RECORD_SIZE * numTranscripts;
+			final long altGeneIDsOffset = exonsOffset + (long) JannovarDataMappedFile.EXON_RECORD_SIZE * numExons;
+			final long sequencesOffset = altGeneIDsOffset
+					+ (long) JannovarDataMappedFile.ALT_GENE_ID_RECORD_SIZE * numAltGeneIDs;
+			if (sequencesOffset + sequenceLength > Integer.MAX_VALUE)
+				throw new IOException("Data too large for binary format");
+
+			// Header.
+			out.write(JannovarDataMappedFile.MAGIC_BYTES);
+			out.writeInt(JannovarDataMappedFile.FORMAT_VERSION);
+			out.writeInt(creatorID);
+			out.writeInt(strings.size());
+			out.writeLong(stringTableOffset);
+			out.writeLong(stringDataOffset);
+			out.writeLong(refDictOffset);
+			out.writeLong(chromosomesOffset);
+			out.writeLong(transcriptsOffset);
+			out.writeLong(exonsOffset);
+			out.writeLong(altGeneIDsOffset);
+			out.writeLong(sequencesOffset);
+
+			// String pool.
+			int offset = 0;
+			for (byte[] bytes : strings) {
+				out.writeInt(offset);
+				out.writeInt(bytes.length);
+				offset += bytes.length;
+			}
+			for (byte[] bytes : strings)
+				out.write(bytes);
+
+			// Reference dictionary.
+			out.writeInt(refDict.getContigNameToID().size());
+			for (Map.Entry<String, Integer> e : refDict.getContigNameToID().entrySet()) {
+				out.writeInt(stringID(e.getKey()));
+				out.writeInt(e.getValue());
+			}
+			out.writeInt(refDict.getContigIDToName().size());
+			for (Map.Entry<Integer, String> e : refDict.getContigIDToName().entrySet()) {
+				out.writeInt(e.getKey());
+				out.writeInt(stringID(e.getValue()));
+			}
+			out.writeInt(refDict.getContigIDToLength().size());
+			for (Map.Entry<Integer, Integer> e : refDict.getContigIDToLength().entrySet()) {
+				out.writeInt(e.getKey());
+				out.writeInt(e.getValue());
+			}
+
+			// Chromosome table.
+			out.writeInt(chrIDs.size());
+			int firstTranscript = 0;
+			for (int i = 0; i < chrIDs.size(); ++i) {
+				out.writeInt(chrIDs.get(i));
+				out.writeInt(firstTranscript);
+				out.writeInt(transcripts.get(i).size());
+				firstTranscript += transcripts.get(i).size();
+			}
+
+			// Transcript records.
+			int firstExon = 0;
+			int firstAltGeneID = 0;
+			long seqOffset = 0;
+			for (List<TranscriptModel> lst : transcripts) {
+				int prefixMaxEnd = Integer.MIN_VALUE;
+				for (TranscriptModel tm : lst) {
+					final GenomeInterval txRegion = tm.getTXRegion().withStrand(Strand.FWD);
+					final GenomeInterval cdsRegion = tm.getCDSRegion().withStrand(Strand.FWD);
+					prefixMaxEnd = Math.max(prefixMaxEnd, txRegion.getEndPos());
+
+					out.writeInt(stringID(tm.getAccession()));
+					out.writeInt(stringID(tm.getGeneSymbol()));
+					out.writeInt(stringID(tm.getGeneID()));
+					out.writeInt(tm.getChr());
+					out.writeInt(tm.getStrand().isForward() ? 0 : 1);
+					out.writeInt(txRegion.getBeginPos());
+					out.writeInt(txRegion.getEndPos());
+					out.writeInt(cdsRegion.getBeginPos());
+					out.writeInt(cdsRegion.getEndPos());
+					out.writeInt(firstExon);
+					out.writeInt(tm.getExonRegions().size());
+					out.writeInt(tm.getTranscriptSupportLevel());
+					out.writeInt(firstAltGeneID);
+					out.writeInt(tm.getAltGeneIDs().size());
+					out.writeLong(seqOffset);
+					if (tm.getPackedSequence() == null) {
+						out.writeInt(JannovarDataMappedFile.NULL_VALUE);
+					} else {
+						out.writeInt(tm.getPackedSequence().length());
+						seqOffset += packedSize(tm.getPackedSequence());
+					}
+					out.writeInt(prefixMaxEnd);
+
+					firstExon += tm.getExonRegions().size();
+					firstAltGeneID += tm.getAltGeneIDs().size();
+				}
+			}
+
+			// Exon records.
+			for (List<TranscriptModel> lst : transcripts)
+				for (TranscriptModel tm : lst)
+					for (GenomeInterval exon : tm.getExonRegions()) {
+						final GenomeInterval fwdExon = exon.withStrand(Strand.FWD);
+						out.writeInt(fwdExon.getBeginPos());
+						out.writeInt(fwdExon.getEndPos());
+					}
+
+			// Alternative gene ID records.
+			for (List<TranscriptModel> lst : transcripts)
+				for (TranscriptModel tm : lst)
+					for (Map.Entry<String, String> e : tm.getAltGeneIDs().entrySet()) {
+						out.writeInt(stringID(e.getKey()));
+						out.writeInt(stringID(e.getValue()));
+					}
+
+			// Sequence data.
+			for (List<TranscriptModel> lst : transcripts)
+				for (TranscriptModel tm : lst)
+					if (tm.getPackedSequence() != null) {
+						final PackedNucleotideSequence seq = tm.getPackedSequence();
+						out.writeInt(seq.getExceptionCount());
+						for (int pos : seq.getExceptionPositions())
+							out.writeInt(pos);
+						for (char c : seq.getExceptionChars())
+							out.writeChar(c);
+						out.write(seq.getPackedData());
+					}
+		}
+
+		/** @return number of bytes used for storing <code>seq</code> in the sequence section */
+		private static long packedSize(PackedNucleotideSequence seq) {
+			return 4L + 6L * seq.getExceptionCount() + PackedNucleotideSequence.packedLength(seq.length());
+		}
+
+		/** @return index of <code>s</code> in string pool, adding it if necessary */
+		private int stringID(String s) {
+			if (s == null)
+				return JannovarDataMappedFile.NULL_VALUE;
+			Integer result = stringIDs.get(s);
+			if (result == null) {
+				final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				result = strings.size();
+				strings.add(bytes);
+				stringIDs.put(s, result);
+				stringDataLength += bytes.length;
+			}
+			return result;
+		}
+
+	}
+
+}
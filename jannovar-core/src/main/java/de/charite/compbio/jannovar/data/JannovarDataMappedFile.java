@@ -0,0 +1,537 @@
+package de.charite.compbio.jannovar.data;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.PackedNucleotideSequence;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptIntervalEndExtractor;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+// NOTE(holtgrem): Part of the public interface of the Jannovar library.
+
+/**
+ * Read-only access to a Jannovar database in the memory-mappable binary format.
+ *
+ * The file is opened through a {@link MappedByteBuffer}, such that the operating system's page cache can share one copy
+ * of the database between all processes that use it. The records are decoded on access only, so it is possible to
+ * query the transcripts of a chromosome without deserializing the whole database first.
+ *
+ * The layout of the file is as follows (all numbers are big endian):
+ *
+ * <ul>
+ * <li><b>header</b> ({@link #HEADER_SIZE} bytes): magic bytes, format version, string index of the Jannovar version
+ * that wrote the file, number of strings, and the absolute offsets of the following sections</li>
+ * <li><b>string pool</b>: a table with <code>(offset, length)</code> entries followed by the UTF-8 encoded string
+ * data</li>
+ * <li><b>reference dictionary</b>: contig name to ID, contig ID to primary name, and contig ID to length entries</li>
+ * <li><b>chromosome table</b>: one <code>(chrID, first transcript, transcript count)</code> entry per chromosome</li>
+ * <li><b>transcript records</b>: fixed-width records of {@link #TRANSCRIPT_RECORD_SIZE} bytes, grouped by chromosome
+ * and sorted by <code>(begin, end)</code> on the forward strand within each chromosome</li>
+ * <li><b>exon records</b>: fixed-width <code>(begin, end)</code> records on the forward strand</li>
+ * <li><b>alternative gene ID records</b>: fixed-width <code>(key, value)</code> string index records</li>
+ * <li><b>sequence data</b>: the transcript sequences in the layout of {@link PackedNucleotideSequence}, i.e., the
+ * number of exceptions, the exception positions and characters, followed by the 2-bit packed bases</li>
+ * </ul>
+ *
+ * Use {@link JannovarDataBinarySerializer} for writing files in this format.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public final class JannovarDataMappedFile {
+
+	/** magic bytes at the beginning of the file */
+	static final byte[] MAGIC_BYTES = { 'J', 'V', 'M', 'M' };
+
+	/** version of the binary format, incremented on incompatible changes */
+	static final int FORMAT_VERSION = 2;
+
+	/** size of the header in bytes */
+	static final int HEADER_SIZE = 80;
+
+	/** size of a transcript record in bytes */
+	static final int TRANSCRIPT_RECORD_SIZE = 72;
+
+	/** size of an exon record in bytes */
+	static final int EXON_RECORD_SIZE = 8;
+
+	/** size of an alternative gene ID record in bytes */
+	static final int ALT_GENE_ID_RECORD_SIZE = 8;
+
+	/** size of a chromosome table entry in bytes */
+	static final int CHROMOSOME_RECORD_SIZE = 12;
+
+	/** value used for encoding <code>null</code> string indices and sequence lengths */
+	static final int NULL_VALUE = -1;
+
+	// offsets of the fields in the header
+	static final int HEADER_OFFSET_VERSION = 4;
+	static final int HEADER_OFFSET_CREATOR = 8;
+	static final int HEADER_OFFSET_NUM_STRINGS = 12;
+	static final int HEADER_OFFSET_STRING_TABLE = 16;
+	static final int HEADER_OFFSET_STRING_DATA = 24;
+	static final int HEADER_OFFSET_REF_DICT = 32;
+	static final int HEADER_OFFSET_CHROMOSOMES = 40;
+	static final int HEADER_OFFSET_TRANSCRIPTS = 48;
+	static final int HEADER_OFFSET_EXONS = 56;
+	static final int HEADER_OFFSET_ALT_GENE_IDS = 64;
+	static final int HEADER_OFFSET_SEQUENCES = 72;
+
+	// offsets of the fields in a transcript record
+	static final int TX_OFFSET_ACCESSION = 0;
+	static final int TX_OFFSET_GENE_SYMBOL = 4;
+	static final int TX_OFFSET_GENE_ID = 8;
+	static final int TX_OFFSET_CHR = 12;
+	static final int TX_OFFSET_STRAND = 16;
+	static final int TX_OFFSET_TX_BEGIN = 20;
+	static final int TX_OFFSET_TX_END = 24;
+	static final int TX_OFFSET_CDS_BEGIN = 28;
+	static final int TX_OFFSET_CDS_END = 32;
+	static final int TX_OFFSET_FIRST_EXON = 36;
+	static final int TX_OFFSET_NUM_EXONS = 40;
+	static final int TX_OFFSET_SUPPORT_LEVEL = 44;
+	static final int TX_OFFSET_FIRST_ALT_GENE_ID = 48;
+	static final int TX_OFFSET_NUM_ALT_GENE_IDS = 52;
+	static final int TX_OFFSET_SEQUENCE = 56;
+	static final int TX_OFFSET_SEQUENCE_LENGTH = 64;
+	static final int TX_OFFSET_PREFIX_MAX_END = 68;
+
+	/** path to the mapped file */
+	private final String filename;
+
+	/** the mapped file contents */
+	private final ByteBuffer buffer;
+
+	/** lazily decoded strings from the string pool */
+	private final String[] strings;
+
+	/** the {@link ReferenceDictionary} stored in the file */
+	private final ReferenceDictionary refDict;
+
+	/** map from chromosome ID to index in the chromosome table */
+	private final ImmutableMap<Integer, Integer> chromosomeIndex;
+
+	/** chromosome IDs in the order of the chromosome table */
+	private final ImmutableList<Integer> chromosomeIDs;
+
+	// cached section offsets
+	private final int stringTableOffset;
+	private final int stringDataOffset;
+	private final int chromosomesOffset;
+	private final int transcriptsOffset;
+	private final int exonsOffset;
+	private final int altGeneIDsOffset;
+	private final int sequencesOffset;
+
+	/**
+	 * Open and map the given file.
+	 *
+	 * @param filename
+	 *            path to the binary database file
+	 * @throws SerializationException
+	 *             if the file could not be opened or is not a binary Jannovar database
+	 */
+	public JannovarDataMappedFile(String filename) throws SerializationException {
+		this.filename = filename;
+		this.buffer = map(filename);
+
+		byte[] word = new byte[MAGIC_BYTES.length];
+		for (int i = 0; i < word.length; ++i)
+			word[i] = buffer.get(i);
+		if (!Arrays.equals(word, MAGIC_BYTES))
+			throw new SerializationException(
+					filename + " does not look like a binary Jannovar database, magic number incorrect!");
+		final int version = buffer.getInt(HEADER_OFFSET_VERSION);
+		if (version != FORMAT_VERSION)
+			throw new SerializationException(
+					filename + " has binary format version " + version + " but we need " + FORMAT_VERSION);
+
+		this.strings = new String[buffer.getInt(HEADER_OFFSET_NUM_STRINGS)];
+		this.stringTableOffset = getOffset(HEADER_OFFSET_STRING_TABLE);
+		this.stringDataOffset = getOffset(HEADER_OFFSET_STRING_DATA);
+		this.chromosomesOffset = getOffset(HEADER_OFFSET_CHROMOSOMES);
+		this.transcriptsOffset = getOffset(HEADER_OFFSET_TRANSCRIPTS);
+		this.exonsOffset = getOffset(HEADER_OFFSET_EXONS);
+		this.altGeneIDsOffset = getOffset(HEADER_OFFSET_ALT_GENE_IDS);
+		this.sequencesOffset = getOffset(HEADER_OFFSET_SEQUENCES);
+
+		this.refDict = readRefDict(getOffset(HEADER_OFFSET_REF_DICT));
+
+		ImmutableMap.Builder<Integer, Integer> indexBuilder = new ImmutableMap.Builder<>();
+		ImmutableList.Builder<Integer> idBuilder = new ImmutableList.Builder<>();
+		final int numChromosomes = buffer.getInt(chromosomesOffset);
+		for (int i = 0; i < numChromosomes; ++i) {
+			final int chrID = buffer.getInt(chromosomeRecordOffset(i));
+			indexBuilder.put(chrID, i);
+			idBuilder.add(chrID);
+		}
+		this.chromosomeIndex = indexBuilder.build();
+		this.chromosomeIDs = idBuilder.build();
+	}
+
+	/**
+	 * @return <code>true</code> if the file at <code>filename</code> starts with the magic bytes of the binary format
+	 */
+	public static boolean isMappedFile(String filename) {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			byte[] word = new byte[MAGIC_BYTES.length];
+			if (file.read(word) != word.length)
+				return false;
+			return Arrays.equals(word, MAGIC_BYTES);
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/** @return path to the mapped file */
+	public String getFilename() {
+		return filename;
+	}
+
+	/** @return version of Jannovar that wrote the file */
+	public String getCreatorVersion() {
+		return getString(buffer.getInt(HEADER_OFFSET_CREATOR));
+	}
+
+	/** @return the {@link ReferenceDictionary} stored in the file */
+	public ReferenceDictionary getRefDict() {
+		return refDict;
+	}
+
+	/** @return IDs of the chromosomes stored in the file */
+	public ImmutableList<Integer> getChromosomeIDs() {
+		return chromosomeIDs;
+	}
+
+	/** @return total number of transcripts in the file */
+	public int getTranscriptCount() {
+		int result = 0;
+		for (int i = 0; i < chromosomeIDs.size(); ++i)
+			result += buffer.getInt(chromosomeRecordOffset(i) + 8);
+		return result;
+	}
+
+	/**
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @return number of transcripts on the given chromosome, <code>0</code> for unknown chromosomes
+	 */
+	public int getTranscriptCount(int chrID) {
+		final Integer idx = chromosomeIndex.get(chrID);
+		if (idx == null)
+			return 0;
+		return buffer.getInt(chromosomeRecordOffset(idx) + 8);
+	}
+
+	/**
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @param i
+	 *            index of the transcript on the chromosome
+	 * @return 0-based begin position of the transcript on the forward strand
+	 */
+	public int getTranscriptBeginPos(int chrID, int i) {
+		return buffer.getInt(transcriptRecordOffset(chrID, i) + TX_OFFSET_TX_BEGIN);
+	}
+
+	/**
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @param i
+	 *            index of the transcript on the chromosome
+	 * @return 0-based end position of the transcript on the forward strand
+	 */
+	public int getTranscriptEndPos(int chrID, int i) {
+		return buffer.getInt(transcriptRecordOffset(chrID, i) + TX_OFFSET_TX_END);
+	}
+
+	/**
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @param i
+	 *            index of the transcript on the chromosome
+	 * @return accession of the transcript, decoded without building the {@link TranscriptModel}
+	 */
+	public String getTranscriptAccession(int chrID, int i) {
+		return getString(buffer.getInt(transcriptRecordOffset(chrID, i) + TX_OFFSET_ACCESSION));
+	}
+
+	/**
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @param i
+	 *            index of the transcript on the chromosome
+	 * @return gene symbol of the transcript, decoded without building the {@link TranscriptModel}
+	 */
+	public String getTranscriptGeneSymbol(int chrID, int i) {
+		return getString(buffer.getInt(transcriptRecordOffset(chrID, i) + TX_OFFSET_GENE_SYMBOL));
+	}
+
+	/**
+	 * Decode the <code>i</code>-th transcript of the chromosome with ID <code>chrID</code>.
+	 *
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @param i
+	 *            index of the transcript on the chromosome
+	 * @return the decoded {@link TranscriptModel}
+	 */
+	public TranscriptModel readTranscript(int chrID, int i) {
+		return decodeTranscript(transcriptRecordOffset(chrID, i));
+	}
+
+	/**
+	 * Decode all transcripts on the given chromosome.
+	 *
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @return the decoded {@link TranscriptModel}s, sorted by begin and end position
+	 */
+	public ImmutableList<TranscriptModel> readTranscripts(int chrID) {
+		ImmutableList.Builder<TranscriptModel> builder = new ImmutableList.Builder<>();
+		final int count = getTranscriptCount(chrID);
+		for (int i = 0; i < count; ++i)
+			builder.add(readTranscript(chrID, i));
+		return builder.build();
+	}
+
+	/**
+	 * Decode all transcripts overlapping with <code>[begin, end)</code> on the forward strand of the chromosome with
+	 * ID <code>chrID</code>, without decoding any other transcripts.
+	 *
+	 * This uses the records' prefix maximum of the end positions and a binary search on the begin positions, so only
+	 * candidate records are touched.
+	 *
+	 * @param chrID
+	 *            numeric chromosome ID
+	 * @param begin
+	 *            0-based begin position of the query interval
+	 * @param end
+	 *            0-based end position of the query interval
+	 * @return the overlapping {@link TranscriptModel}s, sorted by begin and end position
+	 */
+	public ImmutableList<TranscriptModel> readTranscriptsOverlapping(int chrID, int begin, int end) {
+		ImmutableList.Builder<TranscriptModel> builder = new ImmutableList.Builder<>();
+		final int count = getTranscriptCount(chrID);
+		if (end <= begin)
+			end = begin + 1;
+
+		// first record whose prefix maximum end position is right of begin, the prefix maxima are non-decreasing
+		int lo = 0;
+		int hi = count;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (buffer.getInt(transcriptRecordOffset(chrID, mid) + TX_OFFSET_PREFIX_MAX_END) <= begin)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		for (int i = lo; i < count; ++i) {
+			final int offset = transcriptRecordOffset(chrID, i);
+			if (buffer.getInt(offset + TX_OFFSET_TX_BEGIN) >= end)
+				break;
+			if (buffer.getInt(offset + TX_OFFSET_TX_END) > begin)
+				builder.add(decodeTranscript(offset));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Decode all transcripts in the file.
+	 *
+	 * @return all {@link TranscriptModel}s in the file, ordered by chromosome and position
+	 */
+	public ImmutableList<TranscriptModel> readAllTranscripts() {
+		ImmutableList.Builder<TranscriptModel> builder = new ImmutableList.Builder<>();
+		for (int chrID : chromosomeIDs)
+			builder.addAll(readTranscripts(chrID));
+		return builder.build();
+	}
+
+	/**
+	 * Decode the whole file into a {@link JannovarData} object.
+	 *
+	 * @return {@link JannovarData} with all transcripts from the file
+	 */
+	public JannovarData toJannovarData() {
+		return new JannovarData(refDict, readAllTranscripts());
+	}
+
+	/**
+	 * Create a {@link JannovarData} object that decodes the transcripts of each chromosome on first access.
+	 *
+	 * The resulting object keeps a reference to this file's mapping.
+	 *
+	 * @return {@link JannovarData} with lazily loaded {@link Chromosome}s
+	 */
+	public JannovarData toLazyJannovarData() {
+		ImmutableMap.Builder<Integer, Chromosome> builder = new ImmutableMap.Builder<>();
+		for (int chrID : chromosomeIDs)
+			builder.put(chrID, new Chromosome(refDict, chrID,
+					() -> new IntervalArray<TranscriptModel>(readTranscripts(chrID), new TranscriptIntervalEndExtractor())));
+		return new JannovarData(refDict, builder.build());
+	}
+
+	/**
+	 * @param idx
+	 *            index into the string pool, or {@link #NULL_VALUE}
+	 * @return the decoded string, <code>null</code> for {@link #NULL_VALUE}
+	 */
+	String getString(int idx) {
+		if (idx == NULL_VALUE)
+			return null;
+		// Benign race: strings are immutable and decoding is idempotent.
+		String result = strings[idx];
+		if (result == null) {
+			final int entry = stringTableOffset + 8 * idx;
+			result = decodeUTF8(stringDataOffset + buffer.getInt(entry), buffer.getInt(entry + 4));
+			strings[idx] = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Decode the transcript record at the given absolute offset.
+	 */
+	private TranscriptModel decodeTranscript(int offset) {
+		final int chr = buffer.getInt(offset + TX_OFFSET_CHR);
+		final Strand strand = (buffer.getInt(offset + TX_OFFSET_STRAND) == 0) ? Strand.FWD : Strand.REV;
+
+		final GenomeInterval txRegion = new GenomeInterval(refDict, Strand.FWD, chr,
+				buffer.getInt(offset + TX_OFFSET_TX_BEGIN), buffer.getInt(offset + TX_OFFSET_TX_END)).withStrand(strand);
+		final GenomeInterval cdsRegion = new GenomeInterval(refDict, Strand.FWD, chr,
+				buffer.getInt(offset + TX_OFFSET_CDS_BEGIN), buffer.getInt(offset + TX_OFFSET_CDS_END))
+						.withStrand(strand);
+
+		ImmutableList.Builder<GenomeInterval> exonBuilder = new ImmutableList.Builder<>();
+		final int firstExon = buffer.getInt(offset + TX_OFFSET_FIRST_EXON);
+		final int numExons = buffer.getInt(offset + TX_OFFSET_NUM_EXONS);
+		for (int i = 0; i < numExons; ++i) {
+			final int exonOffset = exonsOffset + (firstExon + i) * EXON_RECORD_SIZE;
+			exonBuilder.add(new GenomeInterval(refDict, Strand.FWD, chr, buffer.getInt(exonOffset),
+					buffer.getInt(exonOffset + 4)).withStrand(strand));
+		}
+
+		HashMap<String, String> altGeneIDs = new HashMap<>();
+		final int firstAltGeneID = buffer.getInt(offset + TX_OFFSET_FIRST_ALT_GENE_ID);
+		final int numAltGeneIDs = buffer.getInt(offset + TX_OFFSET_NUM_ALT_GENE_IDS);
+		for (int i = 0; i < numAltGeneIDs; ++i) {
+			final int altOffset = altGeneIDsOffset + (firstAltGeneID + i) * ALT_GENE_ID_RECORD_SIZE;
+			altGeneIDs.put(getString(buffer.getInt(altOffset)), getString(buffer.getInt(altOffset + 4)));
+		}
+
+		PackedNucleotideSequence sequence = null;
+		final int sequenceLength = buffer.getInt(offset + TX_OFFSET_SEQUENCE_LENGTH);
+		if (sequenceLength != NULL_VALUE)
+			sequence = decodeSequence(sequencesOffset + toInt(buffer.getLong(offset + TX_OFFSET_SEQUENCE)),
+					sequenceLength);
+
+		return new TranscriptModel(getString(buffer.getInt(offset + TX_OFFSET_ACCESSION)),
+				getString(buffer.getInt(offset + TX_OFFSET_GENE_SYMBOL)), txRegion, cdsRegion, exonBuilder.build(),
+				sequence, getString(buffer.getInt(offset + TX_OFFSET_GENE_ID)),
+				buffer.getInt(offset + TX_OFFSET_SUPPORT_LEVEL), altGeneIDs);
+	}
+
+	/**
+	 * Read {@link ReferenceDictionary} section starting at <code>offset</code>.
+	 */
+	private ReferenceDictionary readRefDict(int offset) {
+		ImmutableMap.Builder<String, Integer> contigID = new ImmutableMap.Builder<>();
+		ImmutableMap.Builder<Integer, String> contigName = new ImmutableMap.Builder<>();
+		ImmutableMap.Builder<Integer, Integer> contigLength = new ImmutableMap.Builder<>();
+
+		final int numIDs = buffer.getInt(offset);
+		offset += 4;
+		for (int i = 0; i < numIDs; ++i, offset += 8)
+			contigID.put(getString(buffer.getInt(offset)), buffer.getInt(offset + 4));
+		final int numNames = buffer.getInt(offset);
+		offset += 4;
+		for (int i = 0; i < numNames; ++i, offset += 8)
+			contigName.put(buffer.getInt(offset), getString(buffer.getInt(offset + 4)));
+		final int numLengths = buffer.getInt(offset);
+		offset += 4;
+		for (int i = 0; i < numLengths; ++i, offset += 8)
+			contigLength.put(buffer.getInt(offset), buffer.getInt(offset + 4));
+
+		return new ReferenceDictionary(contigID.build(), contigName.build(), contigLength.build());
+	}
+
+	/** @return absolute offset of the <code>i</code>-th entry in the chromosome table */
+	private int chromosomeRecordOffset(int i) {
+		return chromosomesOffset + 4 + i * CHROMOSOME_RECORD_SIZE;
+	}
+
+	/** @return absolute offset of the <code>i</code>-th transcript record of the given chromosome */
+	private int transcriptRecordOffset(int chrID, int i) {
+		final Integer idx = chromosomeIndex.get(chrID);
+		if (idx == null)
+			throw new IndexOutOfBoundsException("Unknown chromosome ID " + chrID);
+		final int entry = chromosomeRecordOffset(idx);
+		if (i < 0 || i >= buffer.getInt(entry + 8))
+			throw new IndexOutOfBoundsException("Invalid transcript index " + i + " on chromosome " + chrID);
+		return transcriptsOffset + (buffer.getInt(entry + 4) + i) * TRANSCRIPT_RECORD_SIZE;
+	}
+
+	/** @return header offset value stored at <code>pos</code>, as <code>int</code> */
+	private int getOffset(int pos) {
+		return toInt(buffer.getLong(pos));
+	}
+
+	private String decodeUTF8(int offset, int length) {
+		ByteBuffer dup = buffer.duplicate();
+		dup.position(offset);
+		byte[] bytes = new byte[length];
+		dup.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private PackedNucleotideSequence decodeSequence(int offset, int length) {
+		ByteBuffer dup = buffer.duplicate();
+		dup.position(offset);
+		final int numExceptions = dup.getInt();
+		int[] exceptionPositions = new int[numExceptions];
+		for (int i = 0; i < numExceptions; ++i)
+			exceptionPositions[i] = dup.getInt();
+		char[] exceptionChars = new char[numExceptions];
+		for (int i = 0; i < numExceptions; ++i)
+			exceptionChars[i] = dup.getChar();
+		byte[] packed = new byte[PackedNucleotideSequence.packedLength(length)];
+		dup.get(packed);
+		return new PackedNucleotideSequence(length, packed, exceptionPositions, exceptionChars);
+	}
+
+	private static int toInt(long value) {
+		if (value > Integer.MAX_VALUE)
+			throw new IndexOutOfBoundsException("Offset " + value + " is too large for a mapped buffer");
+		return (int) value;
+	}
+
+	/**
+	 * Map the file at <code>filename</code> read-only into memory.
+	 */
+	private static ByteBuffer map(String filename) throws SerializationException {
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r"); FileChannel channel = file.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new SerializationException(filename + " is too large for mapping into memory");
+			if (channel.size() < HEADER_SIZE)
+				throw new SerializationException(filename + " is too small for a binary Jannovar database");
+			// the mapping stays valid after closing the channel
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new SerializationException("Could not map file " + filename + ": " + e.toString());
+		}
+	}
+
+}
@@ -122,11 +122,18 @@ public final class JannovarDataSerializer {
 	/**
 	 * Deserialize a {@link JannovarData} object from a file.
 	 *
+	 * Files in the memory-mappable binary format (see {@link JannovarDataMappedFile}) are detected automatically and
+	 * loaded lazily through {@link JannovarDataBinarySerializer#loadLazily()}, i.e., the transcripts of a chromosome
+	 * are only decoded when first needed.
+	 *
 	 * @return {@link JannovarData} object yielded by deserialization
 	 * @throws SerializationException
 	 *             on problems with the deserialization
 	 */
 	public JannovarData load() throws SerializationException {
+		if (JannovarDataMappedFile.isMappedFile(filename))
+			return new JannovarDataBinarySerializer(filename).loadLazily();
+
 		logger.info(StringUtil.concatenate("Deserializing JannovarData from ", filename));
 		final long startTime = System.nanoTime();
 
@@ -0,0 +1,129 @@
+package de.charite.compbio.jannovar.data;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import de.charite.compbio.jannovar.Immutable;
+import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+
+/**
+ * Groups the {@link TranscriptModel}s of a chromosome into classes of transcripts that yield the same annotations.
+ *
+ * Two transcripts are equivalent if they have the same strand, transcript, CDS, and exon regions, and the same
+ * sequence, i.e., they only differ in accession, gene symbol, gene IDs, or support level. This is the case, e.g.,
+ * for curated and predicted transcripts of the same gene, or for transcripts imported from several sources. The
+ * annotation of a variant for one transcript of a class can then be relabeled for all other transcripts in the class
+ * instead of being built again.
+ *
+ * Isoforms differing only in distant exons or UTR ends are not equivalent, as the exon ranks, the HGVS positions,
+ * and effects such as stop loss depend on the whole transcript.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+@Immutable
+public final class TranscriptEquivalenceClasses {
+
+	/** representative of each transcript in a class with more than one transcript */
+	private final IdentityHashMap<TranscriptModel, TranscriptModel> representatives = new IdentityHashMap<>();
+
+	/** number of transcripts */
+	private final int transcriptCount;
+
+	/** number of classes */
+	private final int classCount;
+
+	/**
+	 * Build the classes for the transcripts of one chromosome.
+	 *
+	 * The representative of each class is its first transcript in <code>iTree</code>.
+	 *
+	 * @param iTree
+	 *            the interval tree with the {@link TranscriptModel}s of the chromosome
+	 */
+	public TranscriptEquivalenceClasses(IntervalArray<TranscriptModel> iTree) {
+		HashMap<StructureKey, TranscriptModel> firstByKey = new HashMap<>();
+		for (int i = 0; i < iTree.size(); ++i) {
+			final TranscriptModel tm = iTree.getValue(i);
+			final TranscriptModel first = firstByKey.putIfAbsent(new StructureKey(tm), tm);
+			if (first != null) {
+				representatives.put(first, first);
+				representatives.put(tm, first);
+			}
+		}
+		this.transcriptCount = iTree.size();
+		this.classCount = firstByKey.size();
+	}
+
+	/**
+	 * @param tm
+	 *            the {@link TranscriptModel} to query for
+	 * @return whether or not there are other transcripts equivalent to <code>tm</code>
+	 */
+	public boolean hasEquivalents(TranscriptModel tm) {
+		return representatives.containsKey(tm);
+	}
+
+	/**
+	 * @param tm
+	 *            the {@link TranscriptModel} to query for
+	 * @return the representative of the class of <code>tm</code>, <code>tm</code> itself if it has no equivalents
+	 */
+	public TranscriptModel getRepresentative(TranscriptModel tm) {
+		final TranscriptModel result = representatives.get(tm);
+		return (result == null) ? tm : result;
+	}
+
+	/** @return number of transcripts */
+	public int getTranscriptCount() {
+		return transcriptCount;
+	}
+
+	/** @return number of classes, at most {@link #getTranscriptCount()} */
+	public int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Key for the structure and sequence of a {@link TranscriptModel}.
+	 *
+	 * The hash code is computed from the regions only, the sequences are only compared for transcripts with the same
+	 * regions.
+	 */
+	private static final class StructureKey {
+		/** the wrapped transcript */
+		final TranscriptModel tm;
+		/** hash code of the regions */
+		final int hash;
+
+		StructureKey(TranscriptModel tm) {
+			this.tm = tm;
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + tm.getStrand().hashCode();
+			result = prime * result + tm.getTXRegion().hashCode();
+			result = prime * result + tm.getCDSRegion().hashCode();
+			result = prime * result + tm.getExonRegions().hashCode();
+			this.hash = result;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof StructureKey))
+				return false;
+			final TranscriptModel other = ((StructureKey) obj).tm;
+			return hash == ((StructureKey) obj).hash && tm.getStrand() == other.getStrand()
+					&& tm.getTXRegion().equals(other.getTXRegion()) && tm.getCDSRegion().equals(other.getCDSRegion())
+					&& tm.getExonRegions().equals(other.getExonRegions())
+					&& tm.getPackedSequence().equals(other.getPackedSequence());
+		}
+	}
+
+}
@@ -1,18 +1,24 @@
 package de.charite.compbio.jannovar.impl.intervals;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 import com.google.common.collect.ImmutableList;
 
 /**
- * Sorted array of {@link Interval} objects representing an immutable interval
- * tree.
+ * Sorted array of intervals representing an immutable interval tree.
  *
- * The query results are sorted lexicographically by <code>(begin, end)</code>.
+ * The begin, end, and maximal end positions are stored in primitive arrays that are sorted by <code>(begin, end)</code>
+ * and encode an implicit, balanced binary search tree. The query results are sorted lexicographically by
+ * <code>(begin, end)</code>.
+ *
+ * Next to the {@link QueryResult}-based queries, there are variants taking an {@link IntervalVisitor} that do not
+ * allocate any memory themselves.
  *
  * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
  */
@@ -52,154 +58,141 @@ public final class IntervalArray<T> implements Serializable {
 		}
 	}
 
-	/**
-	 * Builder for {@link QueryResult}.
-	 */
-	private class QueryResultBuilder {
-		/** the values that overlapped with the given point or interval */
-		private ImmutableList.Builder<T> values = new ImmutableList.Builder<T>();
-		/** the value to the left of the given point */
-		private T left = null;
-		/** the value to the right of the given point */
-		private T right = null;
+	// The fields are not final because of the custom deserialization in readObject().
 
-		public QueryResult build() {
-			return new QueryResult(values.build(), left, right);
-		}
-	}
+	/** begin positions, sorted by <code>(begin, end)</code> */
+	private int[] begins;
 
-	/** list of {@link Interval} objects, sorted by begin position */
-	private final ImmutableList<Interval<T>> intervals;
+	/** end positions, in the same order as {@link #begins} */
+	private int[] ends;
 
-	/** list of {@link Interval} objects, sorted by end position */
-	private final ImmutableList<Interval<T>> intervalsEnd;
+	/** maximal end position in the implicit subtree rooted at each entry */
+	private int[] maxEnds;
+
+	/** values, in the same order as {@link #begins} */
+	private Object[] values;
+
+	/** indices into the arrays above, sorted by <code>(end, begin)</code> */
+	private int[] endOrder;
 
 	/**
 	 * Construct object with the given values.
 	 */
 	public IntervalArray(Collection<T> elements, IntervalEndExtractor<T> extractor) {
-		IntervalListBuilder.TwoIntervalList pair = new IntervalListBuilder(elements, extractor).build();
-		this.intervals = pair.intervals;
-		this.intervalsEnd = pair.intervalsEnd;
-	}
+		// obtain elements sorted by (begin, end), the sort is stable
+		final int size = elements.size();
+		final int[] tmpBegins = new int[size];
+		final int[] tmpEnds = new int[size];
+		final Object[] tmpValues = new Object[size];
+		int i = 0;
+		for (T element : elements) {
+			tmpBegins[i] = extractor.getBegin(element);
+			tmpEnds[i] = extractor.getEnd(element);
+			tmpValues[i] = element;
+			++i;
+		}
+		Integer[] order = new Integer[size];
+		for (i = 0; i < size; ++i)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				final int result = (tmpBegins[o1] - tmpBegins[o2]);
+				if (result == 0)
+					return (tmpEnds[o1] - tmpEnds[o2]);
+				return result;
+			}
+		});
 
-	/** @return {@link Interval}s, sorted by begin position */
-	public ImmutableList<Interval<T>> getIntervals() {
-		return intervals;
-	}
+		this.begins = new int[size];
+		this.ends = new int[size];
+		this.values = new Object[size];
+		for (i = 0; i < size; ++i) {
+			this.begins[i] = tmpBegins[order[i]];
+			this.ends[i] = tmpEnds[order[i]];
+			this.values[i] = tmpValues[order[i]];
+		}
 
-	/** @return {@link Interval}s, sorted by end position */
-	public ImmutableList<Interval<T>> getIntervalsEnd() {
-		return intervalsEnd;
+		this.maxEnds = Arrays.copyOf(this.ends, size);
+		computeMaxEnds(0, size);
+		this.endOrder = computeEndOrder(this.begins, this.ends);
 	}
 
 	/** @return the number of elements in the tree */
 	public int size() {
-		return intervals.size();
+		return begins.length;
 	}
 
 	/**
-	 * Query the encoded interval tree for all values with intervals overlapping
-	 * with a given <code>point</code>.
-	 *
-	 * @param point
-	 *            zero-based point for the query
-	 * @return the elements from the intervals overlapping with the point
-	 *         <code>point</code>
+	 * @param i
+	 *            index of the entry, in the order of <code>(begin, end)</code>
+	 * @return begin position of the <code>i</code>-th entry
 	 */
-	public QueryResult findOverlappingWithPoint(int point) {
-		QueryResultBuilder resultBuilder = new QueryResultBuilder();
-		findOverlappingWithPoint(0, intervals.size(), intervals.size() / 2, point, resultBuilder);
-
-		// if overlapping interval was found then return this set
-		QueryResult result = resultBuilder.build();
-		if (result.entries.size() > 0)
-			return result;
-
-		// otherwise, find left and right neighbour
-		resultBuilder.left = findLeftNeighbor(point);
-		resultBuilder.right = findRightNeighbor(point);
-		return resultBuilder.build();
+	public int getBegin(int i) {
+		return begins[i];
 	}
 
 	/**
-	 * @return right neighbor of the given point if any, or <code>null</code>
+	 * @param i
+	 *            index of the entry, in the order of <code>(begin, end)</code>
+	 * @return end position of the <code>i</code>-th entry
 	 */
-	private T findRightNeighbor(int point) {
-		final Interval<T> query = new Interval<T>(point, point, null, point);
-		int idx = Collections.binarySearch(intervals, query, new Comparator<Interval<T>>() {
-			public int compare(Interval<T> o1, Interval<T> o2) {
-				return (o1.getBegin() - o2.getBegin());
-			}
-		});
-
-		if (idx >= 0)
-			throw new RuntimeException("Found element although in right neighbor search!");
-		idx = -(idx + 1); // convert to insertion point
-
-		if (idx == intervals.size())
-			return null;
-		else
-			return intervals.get(idx).getValue();
+	public int getEnd(int i) {
+		return ends[i];
 	}
 
 	/**
-	 * @return left neighbor of the given point if any, or <code>null</code>
+	 * @param i
+	 *            index of the entry, in the order of <code>(begin, end)</code>
+	 * @return value of the <code>i</code>-th entry
 	 */
-	private T findLeftNeighbor(int point) {
-		final Interval<T> query = new Interval<T>(point, point, null, point);
-		int idx = Collections.binarySearch(intervalsEnd, query, new Comparator<Interval<T>>() {
-			public int compare(Interval<T> o1, Interval<T> o2) {
-				return (o1.getEnd() - o2.getEnd());
-			}
-		});
+	@SuppressWarnings("unchecked")
+	public T getValue(int i) {
+		return (T) values[i];
+	}
 
-		if (idx >= 0)
-			idx += 1;
-		else
-			idx = -(idx + 1); // convert to insertion point
+	/**
+	 * Note that this builds the {@link Interval} objects on each call.
+	 *
+	 * @return {@link Interval}s, sorted by begin position
+	 */
+	public ImmutableList<Interval<T>> getIntervals() {
+		ImmutableList.Builder<Interval<T>> builder = new ImmutableList.Builder<Interval<T>>();
+		for (int i = 0; i < begins.length; ++i)
+			builder.add(new Interval<T>(begins[i], ends[i], getValue(i), maxEnds[i]));
+		return builder.build();
+	}
 
-		if (idx == 0)
-			return null;
-		else
-			return intervalsEnd.get(idx - 1).getValue();
+	/**
+	 * Note that this builds the {@link Interval} objects on each call.
+	 *
+	 * @return {@link Interval}s, sorted by end position
+	 */
+	public ImmutableList<Interval<T>> getIntervalsEnd() {
+		ImmutableList.Builder<Interval<T>> builder = new ImmutableList.Builder<Interval<T>>();
+		for (int i : endOrder)
+			builder.add(new Interval<T>(begins[i], ends[i], getValue(i), maxEnds[i]));
+		return builder.build();
 	}
 
 	/**
-	 * Implementation of in-order traversal of the encoded tree with pruning
-	 * using {@link Interval#maxEnd}.
+	 * Query the encoded interval tree for all values with intervals overlapping
+	 * with a given <code>point</code>.
 	 *
-	 * @param begin
-	 *            begin index of subtree to search through
-	 * @param end
-	 *            end index of subtree to search through
-	 * @param center
-	 *            root index of subtree to search through
 	 * @param point
-	 *            point to use for querying
-	 * @param result
-	 *            {@link QueryResultBuilder} to add values to
+	 *            zero-based point for the query
+	 * @return the elements from the intervals overlapping with the point
+	 *         <code>point</code>
 	 */
-	private void findOverlappingWithPoint(int begin, int end, int center, int point, QueryResultBuilder result) {
-		if (begin >= end) // handle base case of empty interval
-			return;
-
-		final Interval<T> node = intervals.get(center); // shortcut to current node
-
-		if (node.allLeftOf(point)) // point is right of the rightmost point of any interval in this node
-			return;
-
-		if (begin < center) // recurse left
-			findOverlappingWithPoint(begin, center, begin + (center - begin) / 2, point, result);
-
-		if (node.contains(point)) // check this node
-			result.values.add(node.getValue());
-
-		if (node.isRightOf(point)) // point is left of the start of the interval, can't to the right
-			return;
+	public QueryResult findOverlappingWithPoint(int point) {
+		ImmutableList.Builder<T> builder = new ImmutableList.Builder<T>();
+		if (visitOverlappingWithPoint(point, (b, e, value) -> {
+			builder.add(value);
+			return true;
+		}) > 0)
+			return new QueryResult(builder.build(), null, null);
 
-		if (center + 1 < end) // recurse right
-			findOverlappingWithPoint(center + 1, end, (center + 1) + (end - (center + 1)) / 2, point, result);
+		// otherwise, find left and right neighbour
+		return new QueryResult(ImmutableList.<T> of(), findLeftNeighbor(point), findRightNeighbor(point));
 	}
 
 	/**
@@ -214,23 +207,50 @@ public final class IntervalArray<T> implements Serializable {
 	 *         <code>[begin, end)</code>
 	 */
 	public QueryResult findOverlappingWithInterval(int begin, int end) {
-		QueryResultBuilder resultBuilder = new QueryResultBuilder();
-		findOverlappingWithInterval(0, intervals.size(), intervals.size() / 2, begin, end, resultBuilder);
-
-		// if overlapping interval was found then return this set
-		QueryResult result = resultBuilder.build();
-		if (result.entries.size() > 0)
-			return result;
+		ImmutableList.Builder<T> builder = new ImmutableList.Builder<T>();
+		if (visitOverlappingWithInterval(begin, end, (b, e, value) -> {
+			builder.add(value);
+			return true;
+		}) > 0)
+			return new QueryResult(builder.build(), null, null);
 
 		// otherwise, find left and right neighbour, can use begin for all queries, have no overlap
-		resultBuilder.left = findLeftNeighbor(begin);
-		resultBuilder.right = findRightNeighbor(begin);
-		return resultBuilder.build();
+		return new QueryResult(ImmutableList.<T> of(), findLeftNeighbor(begin), findRightNeighbor(begin));
+	}
+
+	/**
+	 * Call <code>visitor</code> for all intervals overlapping with <code>point</code>, in the order of
+	 * <code>(begin, end)</code>, without allocating memory.
+	 *
+	 * @param point
+	 *            zero-based point for the query
+	 * @param visitor
+	 *            the {@link IntervalVisitor} to call
+	 * @return number of times that <code>visitor</code> was called
+	 */
+	public int visitOverlappingWithPoint(int point, IntervalVisitor<? super T> visitor) {
+		return visitOverlappingWithInterval(point, point + 1, visitor);
+	}
+
+	/**
+	 * Call <code>visitor</code> for all intervals overlapping with <code>[begin, end)</code>, in the order of
+	 * <code>(begin, end)</code>, without allocating memory.
+	 *
+	 * @param begin
+	 *            zero-based begin position of the query interval
+	 * @param end
+	 *            zero-based end position of the query interval
+	 * @param visitor
+	 *            the {@link IntervalVisitor} to call
+	 * @return number of times that <code>visitor</code> was called
+	 */
+	public int visitOverlappingWithInterval(int begin, int end, IntervalVisitor<? super T> visitor) {
+		final int count = visitOverlapping(0, begins.length, begins.length / 2, begin, end, visitor, 0);
+		return (count < 0) ? -count : count;
 	}
 
 	/**
-	 * Implementation of in-order traversal of the encoded tree with pruning
-	 * using {@link Interval#maxEnd}.
+	 * Implementation of in-order traversal of the encoded tree with pruning using {@link #maxEnds}.
 	 *
 	 * @param begin
 	 *            begin index of subtree to search through
@@ -242,126 +262,164 @@ public final class IntervalArray<T> implements Serializable {
 	 *            interval begin to use for querying
 	 * @param iEnd
 	 *            interval end to use for querying
-	 * @param result
-	 *            {@link QueryResultBuilder} to add values to
+	 * @param visitor
+	 *            {@link IntervalVisitor} to call
+	 * @param count
+	 *            number of visited intervals so far
+	 * @return updated number of visited intervals, negated if the visitor asked to stop
 	 */
-	private void findOverlappingWithInterval(int begin, int end, int center, int iBegin, int iEnd,
-			QueryResultBuilder result) {
+	private int visitOverlapping(int begin, int end, int center, int iBegin, int iEnd,
+			IntervalVisitor<? super T> visitor, int count) {
 		if (begin >= end) // handle base case of empty interval
-			return;
+			return count;
 
-		final Interval<T> node = intervals.get(center); // shortcut to current node
+		if (maxEnds[center] <= iBegin) // iBegin is right of the rightmost point of any interval in this node
+			return count;
 
-		if (node.allLeftOf(iBegin)) // iBegin is right of the rightmost point of any interval in this node
-			return;
-
-		if (begin < center) // recurse left
-			findOverlappingWithInterval(begin, center, begin + (center - begin) / 2, iBegin, iEnd, result);
+		if (begin < center) { // recurse left
+			count = visitOverlapping(begin, center, begin + (center - begin) / 2, iBegin, iEnd, visitor, count);
+			if (count < 0)
+				return count;
+		}
 
-		if (node.overlapsWith(iBegin, iEnd)) // check this node
-			result.values.add(node.getValue());
+		if (iBegin < ends[center] && begins[center] < iEnd) { // check this node
+			++count;
+			if (!visitor.visit(begins[center], ends[center], getValue(center)))
+				return -count;
+		}
 
-		if (node.isRightOf(iEnd - 1)) // last interval entry is left of the start of the interval, can't to the right
-			return;
+		if (iEnd - 1 < begins[center]) // last interval entry is left of the start of the interval, can't to the right
+			return count;
 
 		if (center + 1 < end) // recurse right
-			findOverlappingWithInterval(center + 1, end, (center + 1) + (end - (center + 1)) / 2, iBegin, iEnd, result);
+			count = visitOverlapping(center + 1, end, (center + 1) + (end - (center + 1)) / 2, iBegin, iEnd, visitor,
+					count);
+		return count;
 	}
 
 	/**
-	 * Helper class for building the interval lists.
+	 * @param point
+	 *            zero-based point for the query
+	 * @return right neighbor of the given point if any, or <code>null</code>
 	 */
-	private class IntervalListBuilder {
-
-		class TwoIntervalList {
-			private final ImmutableList<Interval<T>> intervals;
-			private final ImmutableList<Interval<T>> intervalsEnd;
-
-			public TwoIntervalList(ImmutableList<Interval<T>> intervals, ImmutableList<Interval<T>> intervalsEnd) {
-				this.intervals = intervals;
-				this.intervalsEnd = intervalsEnd;
-			}
+	public T findRightNeighbor(int point) {
+		// binary search on begin positions, equivalent to Collections.binarySearch()
+		int low = 0;
+		int high = begins.length - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int cmp = begins[mid] - point;
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				throw new RuntimeException("Found element although in right neighbor search!");
 		}
 
-		private final Collection<T> elements;
-		private final IntervalEndExtractor<T> extractor;
-
-		private ArrayList<MutableInterval<T>> tmpList = null;
-		private ImmutableList<Interval<T>> intervals = null;
-		private ImmutableList<Interval<T>> intervalsEnd = null;
+		if (low == begins.length)
+			return null;
+		else
+			return getValue(low);
+	}
 
-		public IntervalListBuilder(Collection<T> elements, IntervalEndExtractor<T> extractor) {
-			this.elements = elements;
-			this.extractor = extractor;
+	/**
+	 * @param point
+	 *            zero-based point for the query
+	 * @return left neighbor of the given point if any, or <code>null</code>
+	 */
+	public T findLeftNeighbor(int point) {
+		// binary search on end positions, equivalent to Collections.binarySearch()
+		int low = 0;
+		int high = endOrder.length - 1;
+		int idx = -1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int cmp = ends[endOrder[mid]] - point;
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				idx = mid + 1;
+				break;
+			}
 		}
+		if (idx == -1)
+			idx = low; // insertion point
 
-		public TwoIntervalList build() {
-			buildIntervals();
-			buildIntervalsEnd();
+		if (idx == 0)
+			return null;
+		else
+			return getValue(endOrder[idx - 1]);
+	}
 
-			return new TwoIntervalList(intervals, intervalsEnd);
-		}
+	/**
+	 * Compute the {@link #maxEnds} entries for the implicit subtree of <code>[beginIdx, endIdx)</code>.
+	 */
+	private int computeMaxEnds(int beginIdx, int endIdx) {
+		if (beginIdx == endIdx)
+			return -1;
 
-		/**
-		 * Fill {@link #tmpList} and {@link #intervals}.
-		 */
-		private void buildIntervals() {
-			// obtain list of elements sorted by begin positions
-			tmpList = new ArrayList<MutableInterval<T>>();
-			for (T element : elements)
-				tmpList.add(new MutableInterval<T>(extractor.getBegin(element), extractor.getEnd(element), element,
-						extractor.getEnd(element)));
-			Collections.sort(tmpList);
-
-			// compute the maxEnd members of the lst entries
-			computeMaxEndProperties(tmpList, 0, tmpList.size());
-
-			// convert the mutable intervals into immutable ones
-			ImmutableList.Builder<Interval<T>> builder = new ImmutableList.Builder<Interval<T>>();
-			for (MutableInterval<T> i : tmpList)
-				builder.add(new Interval<T>(i));
-			intervals = builder.build();
-		}
+		int centerIdx = (endIdx + beginIdx) / 2;
 
-		private int computeMaxEndProperties(ArrayList<MutableInterval<T>> lst, int beginIdx, int endIdx) {
-			if (beginIdx == endIdx)
-				return -1;
+		if (beginIdx + 1 == endIdx)
+			return maxEnds[centerIdx];
 
-			int centerIdx = (endIdx + beginIdx) / 2;
-			MutableInterval<T> mi = lst.get(centerIdx);
+		maxEnds[centerIdx] = Math.max(maxEnds[centerIdx],
+				Math.max(computeMaxEnds(beginIdx, centerIdx), computeMaxEnds(centerIdx + 1, endIdx)));
+		return maxEnds[centerIdx];
+	}
 
-			if (beginIdx + 1 == endIdx)
-				return mi.getMaxEnd();
+	/**
+	 * @return indices into <code>begins</code> and <code>ends</code>, sorted by <code>(end, begin)</code>
+	 */
+	private static int[] computeEndOrder(int[] begins, int[] ends) {
+		Integer[] order = new Integer[begins.length];
+		for (int i = 0; i < order.length; ++i)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer o1, Integer o2) {
+				final int result = (ends[o1] - ends[o2]);
+				if (result == 0)
+					return (begins[o1] - begins[o2]);
+				else
+					return result;
+			}
+		});
 
-			mi.setMaxEnd(Math.max(
-					mi.getMaxEnd(),
-					Math.max(computeMaxEndProperties(lst, beginIdx, centerIdx),
-							computeMaxEndProperties(lst, centerIdx + 1, endIdx))));
-			return mi.getMaxEnd();
-		}
+		int[] result = new int[order.length];
+		for (int i = 0; i < order.length; ++i)
+			result[i] = order[i];
+		return result;
+	}
 
-		/**
-		 * Fill {@link #intervalsEnd}.
-		 */
-		void buildIntervalsEnd() {
-			// sort by (end, begin)
-			Collections.sort(tmpList, new Comparator<MutableInterval<T>>() {
-				public int compare(MutableInterval<T> o1, MutableInterval<T> o2) {
-					final int result = (o1.getEnd() - o2.getEnd());
-					if (result == 0)
-						return (o1.getBegin() - o2.getBegin());
-					else
-						return result;
-				}
-			});
-
-			// build list of intervals
-			ImmutableList.Builder<Interval<T>> builder = new ImmutableList.Builder<Interval<T>>();
-			for (MutableInterval<T> i : tmpList)
-				builder.add(new Interval<T>(i));
-			intervalsEnd = builder.build();
+	/**
+	 * Deserialization, also supports reading the {@link Interval} lists written by previous versions.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		if (!fields.defaulted("begins")) {
+			begins = (int[]) fields.get("begins", null);
+			ends = (int[]) fields.get("ends", null);
+			maxEnds = (int[]) fields.get("maxEnds", null);
+			values = (Object[]) fields.get("values", null);
+			endOrder = (int[]) fields.get("endOrder", null);
+		} else {
+			@SuppressWarnings("unchecked")
+			List<Interval<T>> intervals = (List<Interval<T>>) fields.get("intervals", null);
+			begins = new int[intervals.size()];
+			ends = new int[intervals.size()];
+			maxEnds = new int[intervals.size()];
+			values = new Object[intervals.size()];
+			for (int i = 0; i < intervals.size(); ++i) {
+				begins[i] = intervals.get(i).getBegin();
+				ends[i] = intervals.get(i).getEnd();
+				maxEnds[i] = intervals.get(i).getMaxEnd();
+				values[i] = intervals.get(i).getValue();
+			}
+			endOrder = computeEndOrder(begins, ends);
 		}
-
 	}
 
 }
@@ -0,0 +1,126 @@
+package de.charite.compbio.jannovar.impl.intervals;
+
+/**
+ * Forward-only cursor for overlap queries on an {@link IntervalArray} with non-decreasing begin positions.
+ *
+ * The cursor keeps the set of intervals that may still overlap with future queries ("active set") together with the
+ * index of the next interval to add. When queries come sorted by begin position, as for records from a sorted VCF file,
+ * each interval is added to and removed from the active set only once, such that a query costs amortized
+ * <code>O(1 + k)</code> for <code>k</code> active intervals instead of a descent through the implicit tree.
+ *
+ * Queries with a begin position left of the previous one are answered with the tree search of the
+ * {@link IntervalArray} and do not change the state of the cursor. The results are the same as for the queries of
+ * {@link IntervalArray}, including the order.
+ *
+ * Objects of this class are stateful, the query functions are synchronized.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ *
+ * @param <T>
+ *            the type of the values stored in the {@link IntervalArray}
+ */
+public final class IntervalSweepCursor<T> {
+
+	/** the {@link IntervalArray} to query */
+	private final IntervalArray<T> array;
+
+	/** indices of the active intervals, in increasing order, the first <code>activeCount</code> are used */
+	private int[] active = new int[16];
+
+	/** number of used entries in {@link #active} */
+	private int activeCount = 0;
+
+	/** index of the next interval that has not been added to the active set yet */
+	private int next = 0;
+
+	/** begin position of the last query answered by sweeping */
+	private int lastBegin = Integer.MIN_VALUE;
+
+	/** number of queries answered through the tree search because of backward jumps */
+	private long fallbackCount = 0;
+
+	/**
+	 * Construct cursor, positioned before the first interval.
+	 *
+	 * @param array
+	 *            the {@link IntervalArray} to query
+	 */
+	public IntervalSweepCursor(IntervalArray<T> array) {
+		this.array = array;
+	}
+
+	/** @return the {@link IntervalArray} that this cursor queries */
+	public IntervalArray<T> getIntervalArray() {
+		return array;
+	}
+
+	/** @return number of queries that had to fall back to tree search because of backward jumps */
+	public synchronized long getFallbackCount() {
+		return fallbackCount;
+	}
+
+	/**
+	 * Equivalent of {@link IntervalArray#visitOverlappingWithPoint}.
+	 *
+	 * @param point
+	 *            zero-based point for the query
+	 * @param visitor
+	 *            the {@link IntervalVisitor} to call
+	 * @return number of times that <code>visitor</code> was called
+	 */
+	public int visitOverlappingWithPoint(int point, IntervalVisitor<? super T> visitor) {
+		return visitOverlappingWithInterval(point, point + 1, visitor);
+	}
+
+	/**
+	 * Equivalent of {@link IntervalArray#visitOverlappingWithInterval}.
+	 *
+	 * @param begin
+	 *            zero-based begin position of the query interval
+	 * @param end
+	 *            zero-based end position of the query interval
+	 * @param visitor
+	 *            the {@link IntervalVisitor} to call
+	 * @return number of times that <code>visitor</code> was called
+	 */
+	public synchronized int visitOverlappingWithInterval(int begin, int end, IntervalVisitor<? super T> visitor) {
+		if (begin < lastBegin) {
+			++fallbackCount;
+			return array.visitOverlappingWithInterval(begin, end, visitor);
+		}
+		lastBegin = begin;
+
+		// remove intervals ending left of begin, these cannot overlap with this or any later query
+		int newCount = 0;
+		for (int i = 0; i < activeCount; ++i)
+			if (array.getEnd(active[i]) > begin)
+				active[newCount++] = active[i];
+		activeCount = newCount;
+
+		// add intervals starting left of end, skipping those that already ended
+		while (next < array.size() && array.getBegin(next) < end) {
+			if (array.getEnd(next) > begin) {
+				if (activeCount == active.length) {
+					int[] tmp = new int[2 * active.length];
+					System.arraycopy(active, 0, tmp, 0, activeCount);
+					active = tmp;
+				}
+				active[activeCount++] = next;
+			}
+			++next;
+		}
+
+		// visit active intervals, a previous query can have added intervals right of end
+		int count = 0;
+		for (int i = 0; i < activeCount; ++i) {
+			final int idx = active[i];
+			if (array.getBegin(idx) >= end)
+				break;
+			++count;
+			if (!visitor.visit(array.getBegin(idx), array.getEnd(idx), array.getValue(idx)))
+				break;
+		}
+		return count;
+	}
+
+}
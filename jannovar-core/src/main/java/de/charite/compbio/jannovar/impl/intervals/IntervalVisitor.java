@@ -0,0 +1,27 @@
+package de.charite.compbio.jannovar.impl.intervals;
+
+/**
+ * Callback for the allocation-free queries of {@link IntervalArray}.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ *
+ * @param <T>
+ *            the type of the values stored in the {@link IntervalArray}
+ */
+@FunctionalInterface
+public interface IntervalVisitor<T> {
+
+	/**
+	 * Called for each interval found by the query, in the order of <code>(begin, end)</code>.
+	 *
+	 * @param begin
+	 *            begin position of the interval (inclusive)
+	 * @param end
+	 *            end position of the interval (exclusive)
+	 * @param value
+	 *            the value stored for the interval
+	 * @return <code>true</code> to continue the query, <code>false</code> to stop it
+	 */
+	public boolean visit(int begin, int end, T value);
+
+}
@@ -180,7 +180,7 @@ public class UCSCParser implements TranscriptParser {
 	 * @return <code>false</code> if known problems have been found
 	 */
 	private boolean checkTranscriptModel(TranscriptModel model) {
-		if (model.transcriptLength() > model.getSequence().length()) {
+		if (model.transcriptLength() > model.getPackedSequence().length()) {
 			LOGGER.debug("Transcript {} is indicated to be longer than its sequence. Ignoring.", model.getAccession());
 			return false;
 		}
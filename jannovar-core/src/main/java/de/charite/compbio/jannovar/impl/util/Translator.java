@@ -1,5 +1,6 @@
 package de.charite.compbio.jannovar.impl.util;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableMap;
@@ -7,6 +8,9 @@ import com.google.common.collect.ImmutableMap;
 /**
  * This singleton class helps to translate DNA sequences.
  *
+ * The codons are translated using tables indexed by the 2-bit codes of their nucleotides, such that the sequence can
+ * be translated directly from any {@link CharSequence} range without building codon {@link String}s.
+ *
  * @author <a href="mailto:Peter.Robinson@jax.org">Peter N Robinson</a>
  * @author <a href="mailto:marten.jaeger@charite.de">Marten Jaeger</a>
  * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
@@ -25,7 +29,35 @@ public final class Translator {
 	/** Map of long AA codes to short ones */
 	private ImmutableMap<String, String> longToShort = null;
 
-	private static Translator translator = null;
+	/** code for nucleotide <code>N</code> in {@link #NT_CODES} */
+	private static final byte NT_N = 4;
+	/** code for characters other than <code>ACGTN</code> in {@link #NT_CODES} */
+	private static final byte NT_INVALID = -1;
+	/** 2-bit codes of the nucleotides <code>ACGT</code>, indexed by ASCII character */
+	private static final byte[] NT_CODES = new byte[128];
+
+	static {
+		Arrays.fill(NT_CODES, NT_INVALID);
+		NT_CODES['A'] = 0;
+		NT_CODES['C'] = 1;
+		NT_CODES['G'] = 2;
+		NT_CODES['T'] = 3;
+		NT_CODES['N'] = NT_N;
+	}
+
+	/** one-letter amino acids, indexed by the 6-bit code of the codon */
+	private final String[] codonTable1 = new String[64];
+	/** three-letter amino acids, indexed by the 6-bit code of the codon */
+	private final String[] codonTable3 = new String[64];
+	/** long AA codes, indexed by the ASCII character of the short code */
+	private final String[] shortToLongTable = new String[128];
+
+	/**
+	 * Holder of the singleton, initialized thread-safely by the class loader on first use of {@link #getTranslator}.
+	 */
+	private static final class Holder {
+		private static final Translator TRANSLATOR = new Translator();
+	}
 
 	/**
 	 * Private constructor, initializes singleton instance. Use {@link #getTranslator} for obtaining an object.
@@ -35,15 +67,12 @@ public final class Translator {
 	}
 
 	/**
-	 * Factory method to get reference to Translator.
+	 * Factory method to get reference to Translator, safe for concurrent use.
 	 *
 	 * @return {@link Translator} singleton
 	 */
 	static public Translator getTranslator() {
-		if (Translator.translator == null) {
-			Translator.translator = new Translator();
-		}
-		return Translator.translator;
+		return Holder.TRANSLATOR;
 	}
 
 	/**
@@ -58,12 +87,36 @@ public final class Translator {
 	 * @return corresonding aminoacid sequence
 	 */
 	public String translateDNA(String dnaseq) {
-		return translateDNA(dnaseq, this.codon1);
+		return translateDNA(dnaseq, 0, dnaseq.length(), false, this.codonTable1);
 	}
 
 	// same as above but returning 3-letter AA codes
 	public String translateDNA3(String dnaseq) {
-		return translateDNA(dnaseq, this.codon3);
+		return translateDNA(dnaseq, 0, dnaseq.length(), false, this.codonTable3);
+	}
+
+	/**
+	 * Translates the range <code>[begin, end)</code> of a DNA sequence, see {@link #translateDNA(String)}.
+	 *
+	 * @param dnaseq
+	 *            the DNA sequence to translate a part of, e.g., a {@link String} or a packed transcript sequence
+	 * @param begin
+	 *            0-based begin position of the first codon
+	 * @param end
+	 *            0-based end position, an incomplete last codon is ignored
+	 * @param stopAtStopCodon
+	 *            whether or not to stop translation after the first stop codon (included in the result)
+	 * @return corresponding amino acid sequence (one-letter code)
+	 */
+	public String translateDNA(CharSequence dnaseq, int begin, int end, boolean stopAtStopCodon) {
+		return translateDNA(dnaseq, begin, end, stopAtStopCodon, this.codonTable1);
+	}
+
+	/**
+	 * Same as {@link #translateDNA(CharSequence, int, int, boolean)} but returning 3-letter AA codes.
+	 */
+	public String translateDNA3(CharSequence dnaseq, int begin, int end, boolean stopAtStopCodon) {
+		return translateDNA(dnaseq, begin, end, stopAtStopCodon, this.codonTable3);
 	}
 
 	/**
@@ -72,9 +125,9 @@ public final class Translator {
 	 * @return String with long versions of short AA seqs.
 	 */
 	public String toLong(String shortAASeq) {
-		StringBuilder result = new StringBuilder();
+		StringBuilder result = new StringBuilder(3 * shortAASeq.length());
 		for (int i = 0; i < shortAASeq.length(); ++i)
-			result.append(shortToLong.get(shortAASeq.substring(i, i + 1)));
+			result.append(toLong(shortAASeq.charAt(i)));
 		return result.toString();
 	}
 
@@ -84,38 +137,65 @@ public final class Translator {
 	 * @return String with long versions of short AA char.
 	 */
 	public String toLong(char c) {
-		return shortToLong.get("" + c);
+		return (c < shortToLongTable.length) ? shortToLongTable[c] : null;
 	}
 
-	private String translateDNA(String dnaseq, ImmutableMap<String, String> codonTable) {
-		StringBuilder aminoAcidSeq = new StringBuilder();
-		int len = dnaseq.length();
-		if (!(len % 3 == 0)) {
-			len = len - (len % 3);
-			/* this forces len to be a multiple of 3. */
-			// String err =
-			// String.format("Attempt to translate sequence [%s] with length %d (should be 3n)",dnaseq,len);
-			// throw new AnnotationException(err);
+	private static String translateDNA(CharSequence dnaseq, int begin, int end, boolean stopAtStopCodon,
+			String[] codonTable) {
+		if (begin < 0 || end > dnaseq.length() || begin > end)
+			throw new IndexOutOfBoundsException("Invalid range [" + begin + ", " + end + ") for sequence of length "
+					+ dnaseq.length());
+		/* this forces the length to be a multiple of 3. */
+		final int last = end - (end - begin) % 3;
+
+		// single codons are translated without copying
+		if (last - begin == 3) {
+			final String aa = translateCodon(dnaseq, begin, codonTable);
+			return (aa == null) ? "" : aa;
 		}
-		for (int i = 0; i < len; i += 3) {
-			String nt3 = dnaseq.substring(i, i + 3);
-			String aa = codonTable.get(nt3);
-			if (aa == null) {
-				if (nt3.contains("N")) {
-					aa = "X";
-				} else {
-					/*
-					 * String err = String.format("Could not find translation for codon:\"%s\" in sequence:\"%s\"", nt3,
-					 * dnaseq); throw new AnnotationException(err);
-					 */
-					break; /* stop translation */
-				}
-			}
+
+		StringBuilder aminoAcidSeq = new StringBuilder((last - begin) / 3 * codonTable[0].length());
+		for (int i = begin; i < last; i += 3) {
+			final String aa = translateCodon(dnaseq, i, codonTable);
+			if (aa == null)
+				break; /* stop translation */
 			aminoAcidSeq.append(aa);
+			if (stopAtStopCodon && "*".equals(aa))
+				break;
 		}
 		return aminoAcidSeq.toString();
 	}
 
+	/**
+	 * @return amino acid for the codon starting at <code>pos</code>, <code>"X"</code> if it contains an
+	 *         <code>N</code>, <code>null</code> if it contains other characters
+	 */
+	private static String translateCodon(CharSequence dnaseq, int pos, String[] codonTable) {
+		final int c1 = ntCode(dnaseq.charAt(pos));
+		final int c2 = ntCode(dnaseq.charAt(pos + 1));
+		final int c3 = ntCode(dnaseq.charAt(pos + 2));
+		if (c1 >= 0 && c1 < NT_N && c2 >= 0 && c2 < NT_N && c3 >= 0 && c3 < NT_N)
+			return codonTable[(c1 << 4) | (c2 << 2) | c3];
+		else if (c1 == NT_N || c2 == NT_N || c3 == NT_N)
+			return "X";
+		else
+			return null;
+	}
+
+	/**
+	 * @return code of <code>c</code> in {@link #NT_CODES}
+	 */
+	private static int ntCode(char c) {
+		return (c < NT_CODES.length) ? NT_CODES[c] : NT_INVALID;
+	}
+
+	/**
+	 * @return 6-bit code of the codon <code>nt3</code> made of <code>ACGT</code>
+	 */
+	private static int codonCode(String nt3) {
+		return (ntCode(nt3.charAt(0)) << 4) | (ntCode(nt3.charAt(1)) << 2) | ntCode(nt3.charAt(2));
+	}
+
 	/**
 	 * Initializes a set of maps that represent the gene code with various aminoacid codes. Also initializes map of
 	 * IUPAC codes.
@@ -307,5 +387,12 @@ public final class Translator {
 		this.codon3 = codon3.build();
 		this.iupac = iupac.build();
 		this.shortToLong = shortToLong.build();
+
+		for (Map.Entry<String, String> entry : this.codon1.entrySet())
+			codonTable1[codonCode(entry.getKey())] = entry.getValue();
+		for (Map.Entry<String, String> entry : this.codon3.entrySet())
+			codonTable3[codonCode(entry.getKey())] = entry.getValue();
+		for (Map.Entry<String, String> entry : this.shortToLong.entrySet())
+			shortToLongTable[entry.getKey().charAt(0)] = entry.getValue();
 	}
 }
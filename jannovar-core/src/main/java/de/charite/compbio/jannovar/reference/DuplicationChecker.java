@@ -17,17 +17,27 @@ public final class DuplicationChecker {
 	 *
 	 * @return <code>true</code> if the described insertion is a duplication
 	 */
-	public static boolean isDuplication(String ref, String insertion, int pos) {
+	public static boolean isDuplication(CharSequence ref, String insertion, int pos) {
 		if (pos + insertion.length() <= ref.length()) {
 			// can be duplication with string after pos
-			if (ref.substring(pos, pos + insertion.length()).equals(insertion))
+			if (regionMatches(ref, pos, insertion))
 				return true;
 		}
 		if (pos >= insertion.length()) {
 			// can be duplication with string before pos
-			if (ref.substring(pos - insertion.length(), pos).equals(insertion))
+			if (regionMatches(ref, pos - insertion.length(), insertion))
 				return true;
 		}
 		return false;
 	}
+
+	/**
+	 * @return <code>true</code> if <code>ref</code> contains <code>other</code> at position <code>offset</code>
+	 */
+	private static boolean regionMatches(CharSequence ref, int offset, String other) {
+		for (int i = 0; i < other.length(); ++i)
+			if (ref.charAt(offset + i) != other.charAt(i))
+				return false;
+		return true;
+	}
 }
@@ -57,17 +57,19 @@ public final class GenomeVariantNormalizer {
 		if (change.getGenomePos().getStrand() != transcript.getStrand()) // ensure that we have the correct strand
 			change = change.withStrand(transcript.getStrand());
 
-		// Insert the ALT bases at the position indicated by txPos.
+		// Insert the ALT bases at the position indicated by txPos, the characters of the resulting sequence are
+		// only decoded when compared.
 		int pos = txPos.getPos();
-		StringBuilder builder = new StringBuilder(transcript.getSequence());
-		builder.insert(pos, change.getAlt());
+		final String alt = change.getAlt();
+		final PackedNucleotideSequence txSeq = transcript.getPackedSequence();
 
 		// Execute algorithm and compute the shift.
 		int shift = 0;
-		final int LEN = change.getAlt().length();
-		final String seq = builder.toString();
-		final int maxPos = Math.min(seq.length(), transcript.transcriptLength());
-		while ((pos + LEN < maxPos) && (seq.charAt(pos) == seq.charAt(pos + LEN))) {
+		final int LEN = alt.length();
+		final int maxPos = Math.min(txSeq.length() + LEN, transcript.transcriptLength());
+		while ((pos + LEN < maxPos)
+				&& (charWithInsertion(txSeq, txPos.getPos(), alt, pos) == charWithInsertion(txSeq, txPos.getPos(),
+						alt, pos + LEN))) {
 			++shift;
 			++pos;
 		}
@@ -84,8 +86,24 @@ public final class GenomeVariantNormalizer {
 
 		if (shift == 0) // only rebuild if shift > 0
 			return change;
+
+		StringBuilder shiftedAlt = new StringBuilder(LEN);
+		for (int i = pos; i < pos + LEN; ++i)
+			shiftedAlt.append(charWithInsertion(txSeq, txPos.getPos(), alt, i));
+		return new GenomeVariant(shiftedPos, "", shiftedAlt.toString());
+	}
+
+	/**
+	 * @return character at position <code>i</code> of <code>seq</code> after inserting <code>insertion</code> at
+	 *         <code>insertPos</code>
+	 */
+	private static char charWithInsertion(CharSequence seq, int insertPos, String insertion, int i) {
+		if (i < insertPos)
+			return seq.charAt(i);
+		else if (i < insertPos + insertion.length())
+			return insertion.charAt(i - insertPos);
 		else
-			return new GenomeVariant(shiftedPos, "", seq.substring(pos, pos + LEN));
+			return seq.charAt(i - insertion.length());
 	}
 
 	/**
@@ -115,7 +133,7 @@ public final class GenomeVariantNormalizer {
 		// Shift the deletion to the 3' (right) end of the transcript.
 		int pos = txPos.getPos();
 		final int LEN = change.getRef().length(); // length of the deletion
-		final String seq = transcript.getSequence();
+		final PackedNucleotideSequence seq = transcript.getPackedSequence();
 		int shift = 0;
 
 		while ((pos + LEN < seq.length()) && (seq.charAt(pos) == seq.charAt(pos + LEN))) {
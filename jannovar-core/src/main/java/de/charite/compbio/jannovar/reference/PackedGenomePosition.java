@@ -0,0 +1,141 @@
+package de.charite.compbio.jannovar.reference;
+
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+
+/**
+ * Static helpers for {@link GenomePosition}s packed into a primitive <code>long</code>.
+ *
+ * The annotation hot path queries many positions next to the variant, e.g., the base left of an insertion point, on
+ * the strand of a transcript. Building a {@link GenomePosition} for each of them allocates an object that holds a
+ * reference to the {@link ReferenceDictionary}, and each strand conversion allocates another one. The packed
+ * representation stores the strand in the highest bit, the chromosome ID in the following 31 bits, and the zero-based
+ * position as <code>int</code> in the lower 32 bits, such that shifting a packed position does not allocate anything.
+ *
+ * The {@link ReferenceDictionary} is not part of the packed value, it has to be given when converting back into a
+ * {@link GenomePosition} or to the other strand. Use {@link TranscriptFeatureIndex} for queries with packed positions
+ * against a {@link TranscriptModel}, it caches the chromosome length for strand conversions.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public final class PackedGenomePosition {
+
+	/** bit for the reverse strand */
+	private static final long REVERSE_BIT = 1L << 63;
+	/** mask for the chromosome ID after shifting by 32 bits */
+	private static final long CHR_MASK = 0x7FFFFFFFL;
+	/** mask for the position */
+	private static final long POS_MASK = 0xFFFFFFFFL;
+
+	/** no instances */
+	private PackedGenomePosition() {
+	}
+
+	/**
+	 * @param strand
+	 *            the strand of the position
+	 * @param chr
+	 *            the chromosome ID, must not be negative
+	 * @param pos
+	 *            the zero-based position on the chromosome
+	 * @return the packed position
+	 */
+	public static long pack(Strand strand, int chr, int pos) {
+		if (chr < 0)
+			throw new InvalidCoordinateException("Invalid chromosome ID " + chr);
+		return (strand.isReverse() ? REVERSE_BIT : 0) | ((long) chr << 32) | (pos & POS_MASK);
+	}
+
+	/**
+	 * @param pos
+	 *            the {@link GenomePosition} to pack
+	 * @return the packed <code>pos</code>
+	 */
+	public static long of(GenomePosition pos) {
+		return pack(pos.getStrand(), pos.getChr(), pos.getPos());
+	}
+
+	/**
+	 * @param packed
+	 *            packed position
+	 * @param refDict
+	 *            the {@link ReferenceDictionary} to use for the {@link GenomePosition}
+	 * @return the {@link GenomePosition} described by <code>packed</code>
+	 */
+	public static GenomePosition toGenomePosition(long packed, ReferenceDictionary refDict) {
+		return new GenomePosition(refDict, getStrand(packed), getChr(packed), getPos(packed), PositionType.ZERO_BASED);
+	}
+
+	/** @return the strand of <code>packed</code> */
+	public static Strand getStrand(long packed) {
+		return ((packed & REVERSE_BIT) != 0) ? Strand.REV : Strand.FWD;
+	}
+
+	/** @return the chromosome ID of <code>packed</code> */
+	public static int getChr(long packed) {
+		return (int) ((packed >>> 32) & CHR_MASK);
+	}
+
+	/** @return the zero-based position of <code>packed</code> */
+	public static int getPos(long packed) {
+		return (int) packed;
+	}
+
+	/**
+	 * Return shifted packed position, in the sense of {@link GenomePosition#shifted(int)}.
+	 *
+	 * @param packed
+	 *            packed position
+	 * @param delta
+	 *            the value to add to the position
+	 * @return the position shifted by <code>delta</code>
+	 */
+	public static long shifted(long packed, int delta) {
+		return (packed & ~POS_MASK) | ((getPos(packed) + delta) & POS_MASK);
+	}
+
+	/**
+	 * Convert into a packed position on the given strand, in the sense of {@link GenomePosition#withStrand(Strand)}.
+	 *
+	 * @param packed
+	 *            packed position
+	 * @param strand
+	 *            the strand to convert to
+	 * @param chrLength
+	 *            length of the chromosome of <code>packed</code>
+	 * @return the packed position on <code>strand</code>
+	 */
+	public static long withStrand(long packed, Strand strand, int chrLength) {
+		if (getStrand(packed) == strand)
+			return packed;
+		return pack(strand, getChr(packed), chrLength - getPos(packed) - 1);
+	}
+
+	/**
+	 * Convert into a packed position on the given strand, in the sense of {@link GenomePosition#withStrand(Strand)}.
+	 *
+	 * @param packed
+	 *            packed position
+	 * @param strand
+	 *            the strand to convert to
+	 * @param refDict
+	 *            the {@link ReferenceDictionary} to take the chromosome length from
+	 * @return the packed position on <code>strand</code>
+	 */
+	public static long withStrand(long packed, Strand strand, ReferenceDictionary refDict) {
+		if (getStrand(packed) == strand)
+			return packed;
+		return withStrand(packed, strand, refDict.getContigIDToLength().get(getChr(packed)));
+	}
+
+	/**
+	 * @param packed
+	 *            packed position
+	 * @param refDict
+	 *            the {@link ReferenceDictionary} to use for the chromosome name
+	 * @return string representation as for {@link GenomePosition#toString()}
+	 */
+	public static String toString(long packed, ReferenceDictionary refDict) {
+		return toGenomePosition(packed, refDict).toString();
+	}
+
+}
@@ -0,0 +1,243 @@
+package de.charite.compbio.jannovar.reference;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import de.charite.compbio.jannovar.Immutable;
+
+/**
+ * Compact representation of a nucleotide sequence.
+ *
+ * The characters <code>A</code>, <code>C</code>, <code>G</code>, and <code>T</code> are stored with two bits each.
+ * All other characters (e.g., <code>N</code> or IUPAC codes) are stored in a sorted exception list. Characters are
+ * decoded on demand, e.g., through {@link #charAt(int)} or {@link #substring(int, int)}, so a transcript sequence
+ * takes about an eighth of the memory of the equivalent {@link String}.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+@Immutable
+public final class PackedNucleotideSequence implements CharSequence, Serializable {
+
+	/** Class version (for serialization). */
+	private static final long serialVersionUID = 1L;
+
+	/** characters for the 2-bit codes */
+	private static final char[] CODE_TO_CHAR = { 'A', 'C', 'G', 'T' };
+
+	/** number of characters in the sequence */
+	private final int length;
+
+	/** 2-bit packed characters, four per byte, starting at the least significant bits */
+	private final byte[] packed;
+
+	/** sorted positions of characters that cannot be represented with 2 bits */
+	private final int[] exceptionPositions;
+
+	/** characters at the positions in {@link #exceptionPositions} */
+	private final char[] exceptionChars;
+
+	/**
+	 * Initialize object from already packed data, as written by {@link #getPackedData()} and friends.
+	 *
+	 * @param length
+	 *            number of characters in the sequence
+	 * @param packed
+	 *            2-bit packed characters, four per byte
+	 * @param exceptionPositions
+	 *            sorted positions of characters stored in <code>exceptionChars</code>
+	 * @param exceptionChars
+	 *            characters at the positions from <code>exceptionPositions</code>
+	 */
+	public PackedNucleotideSequence(int length, byte[] packed, int[] exceptionPositions, char[] exceptionChars) {
+		if (packed.length != packedLength(length) || exceptionPositions.length != exceptionChars.length)
+			throw new IllegalArgumentException("Inconsistent packed sequence data");
+		this.length = length;
+		this.packed = packed;
+		this.exceptionPositions = exceptionPositions;
+		this.exceptionChars = exceptionChars;
+	}
+
+	/**
+	 * Pack the given sequence.
+	 *
+	 * @param seq
+	 *            the sequence to pack
+	 * @return packed representation of <code>seq</code>, <code>seq</code> itself if it already is a
+	 *         {@link PackedNucleotideSequence}
+	 */
+	public static PackedNucleotideSequence valueOf(CharSequence seq) {
+		if (seq instanceof PackedNucleotideSequence)
+			return (PackedNucleotideSequence) seq;
+
+		final int length = seq.length();
+		final byte[] packed = new byte[packedLength(length)];
+		ArrayList<Integer> positions = new ArrayList<>();
+		StringBuilder chars = new StringBuilder();
+		for (int i = 0; i < length; ++i) {
+			final char c = seq.charAt(i);
+			final int code = charToCode(c);
+			if (code < 0) {
+				positions.add(i);
+				chars.append(c);
+			} else {
+				packed[i >> 2] |= code << ((i & 3) << 1);
+			}
+		}
+
+		final int[] exceptionPositions = new int[positions.size()];
+		for (int i = 0; i < exceptionPositions.length; ++i)
+			exceptionPositions[i] = positions.get(i);
+		return new PackedNucleotideSequence(length, packed, exceptionPositions, chars.toString().toCharArray());
+	}
+
+	/**
+	 * @return number of bytes needed for packing <code>length</code> characters
+	 */
+	public static int packedLength(int length) {
+		return (length + 3) >> 2;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length)
+			throw new StringIndexOutOfBoundsException(index);
+		if (exceptionPositions.length > 0) {
+			final int idx = Arrays.binarySearch(exceptionPositions, index);
+			if (idx >= 0)
+				return exceptionChars[idx];
+		}
+		return CODE_TO_CHAR[(packed[index >> 2] >> ((index & 3) << 1)) & 3];
+	}
+
+	/**
+	 * Decode the characters in <code>[beginIndex, endIndex)</code>.
+	 *
+	 * @param beginIndex
+	 *            0-based begin position, inclusive
+	 * @param endIndex
+	 *            0-based end position, exclusive
+	 * @return the decoded characters
+	 */
+	public String substring(int beginIndex, int endIndex) {
+		return appendTo(new StringBuilder(Math.max(0, endIndex - beginIndex)), beginIndex, endIndex).toString();
+	}
+
+	/**
+	 * Decode the characters starting at <code>beginIndex</code> to the end of the sequence.
+	 *
+	 * @param beginIndex
+	 *            0-based begin position, inclusive
+	 * @return the decoded characters
+	 */
+	public String substring(int beginIndex) {
+		return substring(beginIndex, length);
+	}
+
+	/**
+	 * Decode the characters in <code>[beginIndex, endIndex)</code> and append them to <code>builder</code>.
+	 *
+	 * @param builder
+	 *            the {@link StringBuilder} to append to
+	 * @param beginIndex
+	 *            0-based begin position, inclusive
+	 * @param endIndex
+	 *            0-based end position, exclusive
+	 * @return <code>builder</code>
+	 */
+	public StringBuilder appendTo(StringBuilder builder, int beginIndex, int endIndex) {
+		if (beginIndex < 0 || endIndex > length || beginIndex > endIndex)
+			throw new StringIndexOutOfBoundsException(
+					"Invalid range [" + beginIndex + ", " + endIndex + ") for length " + length);
+
+		int exIdx = Arrays.binarySearch(exceptionPositions, beginIndex);
+		if (exIdx < 0)
+			exIdx = -exIdx - 1;
+		for (int i = beginIndex; i < endIndex; ++i) {
+			if (exIdx < exceptionPositions.length && exceptionPositions[exIdx] == i)
+				builder.append(exceptionChars[exIdx++]);
+			else
+				builder.append(CODE_TO_CHAR[(packed[i >> 2] >> ((i & 3) << 1)) & 3]);
+		}
+		return builder;
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+
+	/** @return copy of the 2-bit packed characters */
+	public byte[] getPackedData() {
+		return Arrays.copyOf(packed, packed.length);
+	}
+
+	/** @return copy of the sorted positions of characters that are not stored in the packed data */
+	public int[] getExceptionPositions() {
+		return Arrays.copyOf(exceptionPositions, exceptionPositions.length);
+	}
+
+	/** @return copy of the characters at the positions returned by {@link #getExceptionPositions()} */
+	public char[] getExceptionChars() {
+		return Arrays.copyOf(exceptionChars, exceptionChars.length);
+	}
+
+	/** @return number of characters that are not stored in the packed data */
+	public int getExceptionCount() {
+		return exceptionPositions.length;
+	}
+
+	/**
+	 * @return 2-bit code for <code>c</code>, <code>-1</code> if <code>c</code> needs to be stored as exception
+	 */
+	private static int charToCode(char c) {
+		switch (c) {
+		case 'A':
+			return 0;
+		case 'C':
+			return 1;
+		case 'G':
+			return 2;
+		case 'T':
+			return 3;
+		default:
+			return -1;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return substring(0, length);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + length;
+		result = prime * result + Arrays.hashCode(packed);
+		result = prime * result + Arrays.hashCode(exceptionPositions);
+		result = prime * result + Arrays.hashCode(exceptionChars);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PackedNucleotideSequence other = (PackedNucleotideSequence) obj;
+		return length == other.length && Arrays.equals(packed, other.packed)
+				&& Arrays.equals(exceptionPositions, other.exceptionPositions)
+				&& Arrays.equals(exceptionChars, other.exceptionChars);
+	}
+
+}
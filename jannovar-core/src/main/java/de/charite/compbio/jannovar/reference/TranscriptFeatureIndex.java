@@ -0,0 +1,766 @@
+package de.charite.compbio.jannovar.reference;
+
+import java.util.List;
+
+import de.charite.compbio.jannovar.Immutable;
+
+/**
+ * Sorted boundaries of the exons, introns, and splice sites of a {@link TranscriptModel}.
+ *
+ * All coordinates are stored as <code>int</code> arrays on the strand of the transcript, such that the overlap and
+ * containment queries of {@link TranscriptSequenceOntologyDecorator} can be answered by binary search in
+ * <code>O(log n)</code> for <code>n</code> exons, without building {@link GenomeInterval} objects. The results are the
+ * same as for the linear scans over {@link TranscriptModel#getExonRegions()}.
+ *
+ * Further, the index stores the prefix sums of the exon lengths, i.e., the transcript position of each exon begin,
+ * which {@link TranscriptProjectionDecorator} uses for the projections between genome, transcript, and CDS positions.
+ *
+ * The binary searches require the begin and end positions of the exons to be sorted. Should this not be the case for
+ * a transcript, the queries fall back to linear scans over the arrays.
+ *
+ * Use {@link TranscriptModel#getFeatureIndex()} for obtaining the index, it is built only once for each transcript.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+@Immutable
+public final class TranscriptFeatureIndex {
+
+	/** length of the upstream and downstream regions */
+	private static final int FLANK_LENGTH = 1000;
+	/** length of the splice donor and acceptor sites */
+	private static final int SPLICE_SITE_LENGTH = 2;
+	/** number of exonic bases in the splice region */
+	private static final int SPLICE_REGION_EXONIC = 3;
+	/** number of intronic bases in the splice region */
+	private static final int SPLICE_REGION_INTRONIC = 8;
+
+	/** chromosome of the transcript */
+	private final int chr;
+	/** strand of the transcript, all coordinates are on this strand */
+	private final Strand strand;
+
+	/** begin position of the transcript */
+	private final int txBegin;
+	/** end position of the transcript */
+	private final int txEnd;
+	/** begin position of the CDS */
+	private final int cdsBegin;
+	/** end position of the CDS */
+	private final int cdsEnd;
+
+	/** begin positions of the exons */
+	private final int[] exonBegins;
+	/** end positions of the exons */
+	private final int[] exonEnds;
+	/** transcript position of the begin of each exon, the last entry is the transcript length */
+	private final int[] exonTranscriptBegins;
+	/** whether or not {@link #exonBegins} and {@link #exonEnds} are both sorted, allowing for binary search */
+	private final boolean sorted;
+
+	/** transcript position of the CDS begin, see {@link TranscriptProjectionDecorator#cdsToTranscriptPos} */
+	private final int cdsTranscriptBegin;
+	/** whether or not the CDS begin position lies in an exon */
+	private final boolean cdsBeginInExon;
+
+	/** index of the first exon that overlaps with the CDS */
+	private final int cdsExonsBegin;
+	/** index after the last exon that overlaps with the CDS */
+	private final int cdsExonsEnd;
+	/** index of the first intron that overlaps with the CDS */
+	private final int cdsIntronsBegin;
+	/** index after the last intron that overlaps with the CDS */
+	private final int cdsIntronsEnd;
+
+	/**
+	 * Build the index for the given {@link TranscriptModel}.
+	 *
+	 * @param transcript
+	 *            the {@link TranscriptModel} to build the index for
+	 */
+	public TranscriptFeatureIndex(TranscriptModel transcript) {
+		this.chr = transcript.getChr();
+		this.strand = transcript.getStrand();
+		this.txBegin = transcript.getTXRegion().getBeginPos();
+		this.txEnd = transcript.getTXRegion().getEndPos();
+		this.cdsBegin = transcript.getCDSRegion().getBeginPos();
+		this.cdsEnd = transcript.getCDSRegion().getEndPos();
+
+		final List<GenomeInterval> exons = transcript.getExonRegions();
+		this.exonBegins = new int[exons.size()];
+		this.exonEnds = new int[exons.size()];
+		this.exonTranscriptBegins = new int[exons.size() + 1];
+		boolean sorted = true;
+		for (int i = 0; i < exons.size(); ++i) {
+			exonBegins[i] = exons.get(i).getBeginPos();
+			exonEnds[i] = exons.get(i).getEndPos();
+			exonTranscriptBegins[i + 1] = exonTranscriptBegins[i] + exons.get(i).length();
+			if (i > 0 && (exonBegins[i] < exonBegins[i - 1] || exonEnds[i] < exonEnds[i - 1]))
+				sorted = false;
+		}
+		this.sorted = sorted;
+
+		// the CDS begins in the first exon ending right of the CDS begin position
+		int cdsTranscriptBegin = exonTranscriptBegins[exons.size()];
+		for (int i = 0; i < exons.size(); ++i)
+			if (exonEnds[i] > cdsBegin) {
+				cdsTranscriptBegin = exonTranscriptBegins[i] + cdsBegin - exonBegins[i];
+				break;
+			}
+		this.cdsTranscriptBegin = cdsTranscriptBegin;
+		this.cdsBeginInExon = (locateExon(cdsBegin) != TranscriptProjectionDecorator.INVALID_EXON_ID);
+
+		// the exons and introns overlapping with the CDS form a contiguous range if sorted, otherwise the linear scans
+		// check for the overlap with the CDS themselves
+		if (sorted) {
+			int i = 0;
+			while (i < exonBegins.length && !overlaps(exonBegins[i], exonEnds[i], cdsBegin, cdsEnd))
+				++i;
+			this.cdsExonsBegin = i;
+			while (i < exonBegins.length && overlaps(exonBegins[i], exonEnds[i], cdsBegin, cdsEnd))
+				++i;
+			this.cdsExonsEnd = i;
+
+			i = 0;
+			while (i + 1 < exonBegins.length && !overlaps(exonEnds[i], exonBegins[i + 1], cdsBegin, cdsEnd))
+				++i;
+			this.cdsIntronsBegin = i;
+			while (i + 1 < exonBegins.length && overlaps(exonEnds[i], exonBegins[i + 1], cdsBegin, cdsEnd))
+				++i;
+			this.cdsIntronsEnd = i;
+		} else {
+			this.cdsExonsBegin = 0;
+			this.cdsExonsEnd = exonBegins.length;
+			this.cdsIntronsBegin = 0;
+			this.cdsIntronsEnd = Math.max(0, exonBegins.length - 1);
+		}
+	}
+
+	/** @return number of exons of the transcript */
+	public int getExonCount() {
+		return exonBegins.length;
+	}
+
+	/** @return begin position of the exon with index <code>i</code> on the transcript strand */
+	public int getExonBegin(int i) {
+		return exonBegins[i];
+	}
+
+	/** @return end position of the exon with index <code>i</code> on the transcript strand */
+	public int getExonEnd(int i) {
+		return exonEnds[i];
+	}
+
+	/** @return transcript position of the first base of the exon with index <code>i</code> */
+	public int getExonTranscriptBegin(int i) {
+		return exonTranscriptBegins[i];
+	}
+
+	/** @return sum of the exon lengths */
+	public int getTranscriptLength() {
+		return exonTranscriptBegins[exonBegins.length];
+	}
+
+	/**
+	 * For a CDS begin position in an intron, this is the transcript position of the following exon's begin shifted by
+	 * the (negative) distance, as in {@link TranscriptProjectionDecorator#cdsToTranscriptPos(CDSPosition)}.
+	 *
+	 * @return transcript position of the CDS begin position
+	 */
+	public int getCDSTranscriptBegin() {
+		return cdsTranscriptBegin;
+	}
+
+	/** @return whether or not the CDS begin position lies in an exon of the transcript */
+	public boolean isCDSBeginInExon() {
+		return cdsBeginInExon;
+	}
+
+	/**
+	 * @return (0-based) transcript position of the exonic position <code>pos</code>, or <code>-1</code> if
+	 *         <code>pos</code> does not lie in an exon
+	 */
+	public int genomeToTranscriptPos(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return -1;
+		final int p = posOnStrand(pos);
+		final int exonNo = locateExon(p);
+		if (exonNo == TranscriptProjectionDecorator.INVALID_EXON_ID)
+			return -1;
+		return exonTranscriptBegins[exonNo] + p - exonBegins[exonNo];
+	}
+
+	/**
+	 * @param txPos
+	 *            0-based transcript position
+	 * @return index of the exon containing the transcript position <code>txPos</code>, {@link #getExonCount()} if
+	 *         <code>txPos</code> lies right of the last exon, or {@link TranscriptProjectionDecorator#INVALID_EXON_ID}
+	 *         if <code>txPos</code> is negative
+	 */
+	public int locateExonByTranscriptPos(int txPos) {
+		if (txPos < 0)
+			return TranscriptProjectionDecorator.INVALID_EXON_ID;
+		// the prefix sums are sorted as the lengths are non-negative
+		return upperBound(exonTranscriptBegins, 1, exonTranscriptBegins.length, txPos) - 1;
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> contains a full exon
+	 */
+	public boolean containsExon(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		final int begin = beginOnStrand(interval);
+		final int end = endOnStrand(interval);
+		if (!sorted) {
+			for (int i = 0; i < exonBegins.length; ++i)
+				if (begin <= exonBegins[i] && exonEnds[i] <= end)
+					return true;
+			return false;
+		}
+		// the first exon beginning at or right of begin has the smallest end position of all candidates
+		final int i = lowerBound(exonBegins, 0, exonBegins.length, begin);
+		return (i < exonBegins.length && exonEnds[i] <= end);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with an exon
+	 */
+	public boolean overlapsWithExon(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return anyExonOverlaps(0, exonBegins.length, beginOnStrand(interval), endOnStrand(interval), false);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with an exon that overlaps with the CDS
+	 */
+	public boolean overlapsWithCDSExon(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return anyExonOverlaps(cdsExonsBegin, cdsExonsEnd, beginOnStrand(interval), endOnStrand(interval), true);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with an intron
+	 */
+	public boolean overlapsWithIntron(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return anyIntronOverlaps(0, exonBegins.length - 1, beginOnStrand(interval), endOnStrand(interval), false);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in an intron
+	 */
+	public boolean liesInIntron(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return anyIntronOverlaps(0, exonBegins.length - 1, p, p + 1, false);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with an intron that overlaps with the CDS
+	 */
+	public boolean overlapsWithCDSIntron(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return anyIntronOverlaps(cdsIntronsBegin, cdsIntronsEnd, beginOnStrand(interval), endOnStrand(interval), true);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in an intron that overlaps with the CDS
+	 */
+	public boolean liesInCDSIntron(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return anyIntronOverlaps(cdsIntronsBegin, cdsIntronsEnd, p, p + 1, true);
+	}
+
+	/**
+	 * The splice region consists of the 3 exonic and 8 intronic bases at each exon-intron boundary.
+	 *
+	 * @return <code>true</code> if <code>interval</code> overlaps with a splice region
+	 */
+	public boolean overlapsWithSpliceRegion(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlapsWithSpliceRegion(beginOnStrand(interval), endOnStrand(interval));
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in a splice region
+	 */
+	public boolean liesInSpliceRegion(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return overlapsWithSpliceRegion(p, p + 1);
+	}
+
+	/**
+	 * The splice donor site consists of the first two intronic bases after each exon but the last.
+	 *
+	 * @return <code>true</code> if <code>interval</code> overlaps with a splice donor site
+	 */
+	public boolean overlapsWithSpliceDonorSite(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlapsWithDonor(beginOnStrand(interval), endOnStrand(interval), 0, SPLICE_SITE_LENGTH);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in a splice donor site
+	 */
+	public boolean liesInSpliceDonorSite(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return overlapsWithDonor(p, p + 1, 0, SPLICE_SITE_LENGTH);
+	}
+
+	/**
+	 * The splice acceptor site consists of the last two intronic bases before each exon but the first.
+	 *
+	 * @return <code>true</code> if <code>interval</code> overlaps with a splice acceptor site
+	 */
+	public boolean overlapsWithSpliceAcceptorSite(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlapsWithAcceptor(beginOnStrand(interval), endOnStrand(interval), SPLICE_SITE_LENGTH, 0);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in a splice acceptor site
+	 */
+	public boolean liesInSpliceAcceptorSite(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return overlapsWithAcceptor(p, p + 1, SPLICE_SITE_LENGTH, 0);
+	}
+
+	/**
+	 * Equivalent to {@link TranscriptProjectionDecorator#locateExon(GenomePosition)}.
+	 *
+	 * @return (0-based) index of the exon containing <code>pos</code>, or
+	 *         {@link TranscriptProjectionDecorator#INVALID_EXON_ID}
+	 */
+	public int locateExon(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return TranscriptProjectionDecorator.INVALID_EXON_ID;
+		return locateExon(posOnStrand(pos));
+	}
+
+	/**
+	 * Equivalent to {@link TranscriptProjectionDecorator#locateIntron(GenomePosition)}.
+	 *
+	 * @return (0-based) index of the intron containing <code>pos</code>, or
+	 *         {@link TranscriptProjectionDecorator#INVALID_INTRON_ID}
+	 */
+	public int locateIntron(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+		return locateIntron(posOnStrand(pos));
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in an exon
+	 */
+	public boolean liesInExon(GenomePosition pos) {
+		return (locateExon(pos) != TranscriptProjectionDecorator.INVALID_EXON_ID);
+	}
+
+	/**
+	 * The exon is located using the first base of <code>interval</code> on its own strand.
+	 *
+	 * @return <code>true</code> if <code>interval</code> lies fully in an exon
+	 */
+	public boolean liesInExon(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		final int exonNo = locateExon(firstPosOnStrand(interval));
+		if (exonNo == TranscriptProjectionDecorator.INVALID_EXON_ID)
+			return false;
+		return (exonBegins[exonNo] <= beginOnStrand(interval) && endOnStrand(interval) <= exonEnds[exonNo]);
+	}
+
+	/**
+	 * The intron is located using the first base of <code>interval</code> on its own strand, the interval lies in the
+	 * intron if its last base does not lie in the following exon.
+	 *
+	 * @return <code>true</code> if <code>interval</code> lies fully in an intron
+	 */
+	public boolean liesInIntron(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		final int intronNo = locateIntron(firstPosOnStrand(interval));
+		if (intronNo == TranscriptProjectionDecorator.INVALID_INTRON_ID)
+			return false;
+		final int last = lastPosOnStrand(interval);
+		return !(exonBegins[intronNo + 1] <= last && last < exonEnds[intronNo + 1]);
+	}
+
+	/**
+	 * Query whether <code>interval</code> lies in the interior of one exon or intron of the transcript.
+	 *
+	 * This is the case if neither any exon begin or end position nor the CDS begin or end position lies within
+	 * <code>margin</code> bases of <code>interval</code>, such that the interval cannot touch any splice site or
+	 * region or the translational start and stop sites and lies either completely inside or outside of the CDS.
+	 *
+	 * @param interval
+	 *            the {@link GenomeInterval} to query for
+	 * @param margin
+	 *            number of bases to require to the exon and CDS boundaries
+	 * @return <code>true</code> if <code>interval</code> lies in the interior of an exon or intron
+	 */
+	public boolean liesInFeatureInterior(GenomeInterval interval, int margin) {
+		if (interval.getChr() != chr)
+			return false;
+		final int begin = beginOnStrand(interval) - margin;
+		final int end = endOnStrand(interval) + margin;
+		if (begin <= txBegin || end >= txEnd)
+			return false;
+		if ((begin <= cdsBegin && cdsBegin <= end) || (begin <= cdsEnd && cdsEnd <= end))
+			return false;
+
+		if (sorted) {
+			final int beginIdx = lowerBound(exonBegins, 0, exonBegins.length, begin);
+			if (beginIdx < exonBegins.length && exonBegins[beginIdx] <= end)
+				return false;
+			final int endIdx = lowerBound(exonEnds, 0, exonEnds.length, begin);
+			return !(endIdx < exonEnds.length && exonEnds[endIdx] <= end);
+		} else {
+			for (int i = 0; i < exonBegins.length; ++i)
+				if ((begin <= exonBegins[i] && exonBegins[i] <= end) || (begin <= exonEnds[i] && exonEnds[i] <= end))
+					return false;
+			return true;
+		}
+	}
+
+	/**
+	 * @return index of the exon containing <code>p</code> on the transcript strand, or
+	 *         {@link TranscriptProjectionDecorator#INVALID_EXON_ID}
+	 */
+	private int locateExon(int p) {
+		if (p >= txEnd || p < txBegin)
+			return TranscriptProjectionDecorator.INVALID_EXON_ID;
+
+		if (!sorted) {
+			for (int i = 0; i < exonBegins.length; ++i)
+				if (exonBegins[i] <= p && p < exonEnds[i])
+					return i;
+			return TranscriptProjectionDecorator.INVALID_EXON_ID;
+		}
+		final int i = upperBound(exonEnds, 0, exonEnds.length, p);
+		if (i < exonBegins.length && exonBegins[i] <= p)
+			return i;
+		return TranscriptProjectionDecorator.INVALID_EXON_ID;
+	}
+
+	/**
+	 * @return index of the intron containing <code>p</code> on the transcript strand, or
+	 *         {@link TranscriptProjectionDecorator#INVALID_INTRON_ID}
+	 */
+	private int locateIntron(int p) {
+		if (p >= txEnd || p < txBegin)
+			return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+
+		if (!sorted) {
+			for (int i = 0; i < exonBegins.length; ++i) {
+				if (p < exonBegins[i])
+					return i - 1;
+				if (p < exonEnds[i])
+					return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+			}
+			return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+		}
+		// all exons before i end left of or at p and can neither contain p nor lie right of it
+		final int i = upperBound(exonEnds, 0, exonEnds.length, p);
+		if (i < exonBegins.length && p < exonBegins[i])
+			return i - 1;
+		return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+	}
+
+	/**
+	 * The upstream region consists of the 1000 bases before the transcript.
+	 *
+	 * @return <code>true</code> if <code>interval</code> overlaps with the upstream region
+	 */
+	public boolean overlapsWithUpstreamRegion(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlaps(beginOnStrand(interval), endOnStrand(interval), txBegin - FLANK_LENGTH, txBegin);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in the upstream region
+	 */
+	public boolean liesInUpstreamRegion(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return (p >= txBegin - FLANK_LENGTH && p < txBegin);
+	}
+
+	/**
+	 * The downstream region consists of the 1000 bases after the transcript.
+	 *
+	 * @return <code>true</code> if <code>interval</code> overlaps with the downstream region
+	 */
+	public boolean overlapsWithDownstreamRegion(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlaps(beginOnStrand(interval), endOnStrand(interval), txEnd, txEnd + FLANK_LENGTH);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in the downstream region
+	 */
+	public boolean liesInDownstreamRegion(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return (p >= txEnd && p < txEnd + FLANK_LENGTH);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with the start codon
+	 */
+	public boolean overlapsWithTranslationalStartSite(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlaps(beginOnStrand(interval), endOnStrand(interval), cdsBegin, cdsBegin + 3);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in the start codon
+	 */
+	public boolean liesInTranslationalStartSite(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return (p >= cdsBegin && p < cdsBegin + 3);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with the stop codon
+	 */
+	public boolean overlapsWithTranslationalStopSite(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlaps(beginOnStrand(interval), endOnStrand(interval), cdsEnd - 3, cdsEnd);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in the stop codon
+	 */
+	public boolean liesInTranslationalStopSite(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return (p >= cdsEnd - 3 && p < cdsEnd);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with the 5' UTR
+	 */
+	public boolean overlapsWithFivePrimeUTR(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlaps(beginOnStrand(interval), endOnStrand(interval), txBegin, cdsBegin);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in the 5' UTR
+	 */
+	public boolean liesInFivePrimeUTR(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return (p >= txBegin && p < cdsBegin);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>interval</code> overlaps with the 3' UTR
+	 */
+	public boolean overlapsWithThreePrimeUTR(GenomeInterval interval) {
+		if (interval.getChr() != chr)
+			return false;
+		return overlaps(beginOnStrand(interval), endOnStrand(interval), cdsEnd, txEnd);
+	}
+
+	/**
+	 * @return <code>true</code> if <code>pos</code> lies in the 3' UTR
+	 */
+	public boolean liesInThreePrimeUTR(GenomePosition pos) {
+		if (pos.getChr() != chr)
+			return false;
+		final int p = posOnStrand(pos);
+		return (p >= cdsEnd && p < txEnd);
+	}
+
+	/**
+	 * @return whether <code>[begin, end)</code> overlaps with a splice region
+	 */
+	private boolean overlapsWithSpliceRegion(int begin, int end) {
+		return overlapsWithDonor(begin, end, -SPLICE_REGION_EXONIC, SPLICE_REGION_INTRONIC)
+				|| overlapsWithAcceptor(begin, end, SPLICE_REGION_INTRONIC, -SPLICE_REGION_EXONIC);
+	}
+
+	/**
+	 * @return whether <code>[begin, end)</code> overlaps with <code>[exonEnd + from, exonEnd + to)</code> for any exon
+	 *         but the last
+	 */
+	private boolean overlapsWithDonor(int begin, int end, int from, int to) {
+		final int n = exonBegins.length - 1;
+		if (!sorted) {
+			for (int i = 0; i < n; ++i)
+				if (overlaps(begin, end, exonEnds[i] + from, exonEnds[i] + to))
+					return true;
+			return false;
+		}
+		// find first region with exonEnd + to > begin
+		final int i = upperBound(exonEnds, 0, n, begin - to);
+		return (i < n && exonEnds[i] + from < end);
+	}
+
+	/**
+	 * @return whether <code>[begin, end)</code> overlaps with <code>[exonBegin - before, exonBegin - after)</code> for
+	 *         any exon but the first
+	 */
+	private boolean overlapsWithAcceptor(int begin, int end, int before, int after) {
+		if (!sorted) {
+			for (int i = 1; i < exonBegins.length; ++i)
+				if (overlaps(begin, end, exonBegins[i] - before, exonBegins[i] - after))
+					return true;
+			return false;
+		}
+		// find first region with exonBegin - after > begin
+		final int i = upperBound(exonBegins, 1, exonBegins.length, begin + after);
+		return (i < exonBegins.length && exonBegins[i] - before < end);
+	}
+
+	/**
+	 * @return whether <code>[begin, end)</code> overlaps with one of the exons with index in
+	 *         <code>[fromIdx, toIdx)</code>, limited to the exons overlapping with the CDS if <code>cdsOnly</code>
+	 */
+	private boolean anyExonOverlaps(int fromIdx, int toIdx, int begin, int end, boolean cdsOnly) {
+		if (!sorted) {
+			for (int i = fromIdx; i < toIdx; ++i)
+				if ((!cdsOnly || overlaps(exonBegins[i], exonEnds[i], cdsBegin, cdsEnd))
+						&& overlaps(begin, end, exonBegins[i], exonEnds[i]))
+					return true;
+			return false;
+		}
+		final int i = upperBound(exonEnds, fromIdx, toIdx, begin);
+		return (i < toIdx && exonBegins[i] < end);
+	}
+
+	/**
+	 * @return whether <code>[begin, end)</code> overlaps with one of the introns with index in
+	 *         <code>[fromIdx, toIdx)</code>, limited to the introns overlapping with the CDS if <code>cdsOnly</code>;
+	 *         intron <code>i</code> lies between exon <code>i</code> and <code>i + 1</code>
+	 */
+	private boolean anyIntronOverlaps(int fromIdx, int toIdx, int begin, int end, boolean cdsOnly) {
+		if (!sorted) {
+			for (int i = fromIdx; i < toIdx; ++i)
+				if ((!cdsOnly || overlaps(exonEnds[i], exonBegins[i + 1], cdsBegin, cdsEnd))
+						&& overlaps(begin, end, exonEnds[i], exonBegins[i + 1]))
+					return true;
+			return false;
+		}
+		// intron begins are exonEnds[i], intron ends are exonBegins[i + 1]
+		final int i = upperBound(exonBegins, fromIdx + 1, toIdx + 1, begin) - 1;
+		return (i < toIdx && exonEnds[i] < end);
+	}
+
+	/**
+	 * @return whether <code>[b1, e1)</code> and <code>[b2, e2)</code> overlap, in the sense of
+	 *         {@link GenomeInterval#overlapsWith(GenomeInterval)}
+	 */
+	private static boolean overlaps(int b1, int e1, int b2, int e2) {
+		return (b2 < e1 && b1 < e2);
+	}
+
+	/**
+	 * @return first index <code>i</code> in <code>[fromIdx, toIdx)</code> with <code>arr[i] &gt;= value</code>, or
+	 *         <code>toIdx</code>
+	 */
+	private static int lowerBound(int[] arr, int fromIdx, int toIdx, int value) {
+		int low = fromIdx;
+		int high = toIdx;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (arr[mid] < value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * @return first index <code>i</code> in <code>[fromIdx, toIdx)</code> with <code>arr[i] &gt; value</code>, or
+	 *         <code>toIdx</code>
+	 */
+	private static int upperBound(int[] arr, int fromIdx, int toIdx, int value) {
+		int low = fromIdx;
+		int high = toIdx;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (arr[mid] <= value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * @return begin position of <code>interval</code> on the strand of the transcript
+	 */
+	private int beginOnStrand(GenomeInterval interval) {
+		if (interval.getStrand() == strand)
+			return interval.getBeginPos();
+		return interval.getRefDict().getContigIDToLength().get(chr) - interval.getEndPos();
+	}
+
+	/**
+	 * @return end position of <code>interval</code> on the strand of the transcript
+	 */
+	private int endOnStrand(GenomeInterval interval) {
+		if (interval.getStrand() == strand)
+			return interval.getEndPos();
+		return interval.getRefDict().getContigIDToLength().get(chr) - interval.getBeginPos();
+	}
+
+	/**
+	 * @return first base of <code>interval</code> on its own strand, projected to the strand of the transcript
+	 */
+	private int firstPosOnStrand(GenomeInterval interval) {
+		if (interval.getStrand() == strand)
+			return interval.getBeginPos();
+		return interval.getRefDict().getContigIDToLength().get(chr) - interval.getBeginPos() - 1;
+	}
+
+	/**
+	 * @return last base of <code>interval</code> on its own strand, projected to the strand of the transcript
+	 */
+	private int lastPosOnStrand(GenomeInterval interval) {
+		if (interval.getStrand() == strand)
+			return interval.getEndPos() - 1;
+		return interval.getRefDict().getContigIDToLength().get(chr) - interval.getEndPos();
+	}
+
+	/**
+	 * @return <code>pos</code> on the strand of the transcript
+	 */
+	private int posOnStrand(GenomePosition pos) {
+		if (pos.getStrand() == strand)
+			return pos.getPos();
+		return pos.getRefDict().getContigIDToLength().get(chr) - pos.getPos() - 1;
+	}
+
+}
@@ -42,8 +42,13 @@ public final class TranscriptModel implements Serializable, Comparable<Transcrip
 	/** Genomic intervals with the exons, order is dictated by strand of transcript. */
 	private final ImmutableList<GenomeInterval> exonRegions;
 
-	/** cDNA sequence of the spliced RNA of this known gene transcript. */
-	private final String sequence;
+	/**
+	 * cDNA sequence of the spliced RNA of this known gene transcript, stored as {@link PackedNucleotideSequence}.
+	 *
+	 * The field is declared as {@link CharSequence} such that files written by older versions (with a {@link String})
+	 * can still be deserialized, {@link #readResolve()} then packs the sequence.
+	 */
+	private final CharSequence sequence;
 
 	/**
 	 * The gene ID, from Ensembl (<code>"ENS[MUS]*G0+([0-9]+)"</code>), Entrez ("<code>ENTREZ([0-9]+)</code>
@@ -68,14 +73,20 @@ public final class TranscriptModel implements Serializable, Comparable<Transcrip
 	 */
 	private final int transcriptSupportLevel;
 
+	/** {@link TranscriptFeatureIndex} for this transcript, built on first use and not serialized. */
+	private transient volatile TranscriptFeatureIndex featureIndex;
+
 	/** Class version (for serialization). */
 	private static final long serialVersionUID = 3L;
 
 	/**
 	 * Initialize the {@link TranscriptModel} object from the given parameters.
+	 *
+	 * The <code>sequence</code> is converted into a {@link PackedNucleotideSequence} unless it already is one.
 	 */
 	public TranscriptModel(String accession, String geneSymbol, GenomeInterval txRegion, GenomeInterval cdsRegion,
-			ImmutableList<GenomeInterval> exonRegions, String sequence, String geneID, int transcriptSupportLevel) {
+			ImmutableList<GenomeInterval> exonRegions, CharSequence sequence, String geneID,
+			int transcriptSupportLevel) {
 		this(accession, geneSymbol, txRegion, cdsRegion, exonRegions, sequence, geneID, transcriptSupportLevel,
 				ImmutableMap.<String, String> of());
 	}
@@ -84,14 +95,14 @@ public final class TranscriptModel implements Serializable, Comparable<Transcrip
 	 * Initialize the {@link TranscriptModel} object from the given parameters.
 	 */
 	public TranscriptModel(String accession, String geneSymbol, GenomeInterval txRegion, GenomeInterval cdsRegion,
-			ImmutableList<GenomeInterval> exonRegions, String sequence, String geneID, int transcriptSupportLevel,
+			ImmutableList<GenomeInterval> exonRegions, CharSequence sequence, String geneID, int transcriptSupportLevel,
 			Map<String, String> altGeneIDs) {
 		this.accession = accession;
 		this.geneSymbol = geneSymbol;
 		this.txRegion = txRegion;
 		this.cdsRegion = cdsRegion;
 		this.exonRegions = exonRegions;
-		this.sequence = sequence;
+		this.sequence = (sequence == null) ? null : PackedNucleotideSequence.valueOf(sequence);
 		this.geneID = geneID;
 		this.transcriptSupportLevel = transcriptSupportLevel;
 		this.altGeneIDs = ImmutableSortedMap.copyOf(altGeneIDs);
@@ -123,9 +134,18 @@ public final class TranscriptModel implements Serializable, Comparable<Transcrip
 		return exonRegions;
 	}
 
-	/** @return mDNA sequence of the spliced RNA of this known gene transcript. */
+	/**
+	 * Note that this decodes the whole sequence, use {@link #getPackedSequence()} for accessing parts of it.
+	 *
+	 * @return mDNA sequence of the spliced RNA of this known gene transcript.
+	 */
 	public String getSequence() {
-		return sequence;
+		return (sequence == null) ? null : sequence.toString();
+	}
+
+	/** @return mDNA sequence of the spliced RNA of this known gene transcript, decoded on access. */
+	public PackedNucleotideSequence getPackedSequence() {
+		return (PackedNucleotideSequence) sequence;
 	}
 
 	/**
@@ -205,6 +225,19 @@ public final class TranscriptModel implements Serializable, Comparable<Transcrip
 				exonRegionL.getEndPos(), exonRegionR.getBeginPos(), PositionType.ZERO_BASED);
 	}
 
+	/**
+	 * The index is built on the first call and then shared by all callers, e.g., all
+	 * {@link TranscriptSequenceOntologyDecorator}s for this transcript.
+	 *
+	 * @return {@link TranscriptFeatureIndex} for querying the exons, introns, and splice sites of this transcript
+	 */
+	public TranscriptFeatureIndex getFeatureIndex() {
+		TranscriptFeatureIndex result = featureIndex;
+		if (result == null)
+			featureIndex = result = new TranscriptFeatureIndex(this);
+		return result;
+	}
+
 	/**
 	 * Ensures that the strands are consistent.
 	 */
@@ -216,6 +249,16 @@ public final class TranscriptModel implements Serializable, Comparable<Transcrip
 			assert (region.getStrand() == strand);
 	}
 
+	/**
+	 * Pack the sequence of objects that have been deserialized from files written by older versions.
+	 */
+	private Object readResolve() {
+		if (sequence == null || sequence instanceof PackedNucleotideSequence)
+			return this;
+		return new TranscriptModel(accession, geneSymbol, txRegion, cdsRegion, exonRegions, sequence, geneID,
+				transcriptSupportLevel, altGeneIDs);
+	}
+
 	@Override
 	public String toString() {
 		return accession + "(" + txRegion + ")";
@@ -5,6 +5,9 @@ import de.charite.compbio.jannovar.Immutable;
 /**
  * Wraps a {@link TranscriptModel} object and allow the coordinate conversion.
  *
+ * The conversions are binary searches in the exon boundaries and exon length prefix sums of the transcript's
+ * {@link TranscriptFeatureIndex}.
+ *
  * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
  */
 @Immutable
@@ -42,7 +45,7 @@ public final class TranscriptProjectionDecorator {
 		try {
 			TranscriptPosition tBeginPos = genomeToTranscriptPos(transcript.getCDSRegion().getGenomeBeginPos());
 			TranscriptPosition tEndPos = genomeToTranscriptPos(transcript.getCDSRegion().getGenomeEndPos());
-			return transcript.getSequence().substring(tBeginPos.getPos(), tEndPos.getPos());
+			return transcript.getPackedSequence().substring(tBeginPos.getPos(), tEndPos.getPos());
 		} catch (ProjectionException e) {
 			throw new Error("Bug: CDS begin/end must be translatable into transcript positions");
 		}
@@ -54,7 +57,7 @@ public final class TranscriptProjectionDecorator {
 	public String getTranscriptStartingAtCDS() {
 		try {
 			TranscriptPosition tBeginPos = genomeToTranscriptPos(transcript.getCDSRegion().getGenomeBeginPos());
-			return transcript.getSequence().substring(tBeginPos.getPos(), transcript.getSequence().length());
+			return transcript.getPackedSequence().substring(tBeginPos.getPos());
 		} catch (ProjectionException e) {
 			throw new Error("Bug: CDS begin must be translatable into transcript positions");
 		}
@@ -70,26 +73,15 @@ public final class TranscriptProjectionDecorator {
 	 *             if the genome position was not valid
 	 */
 	public TranscriptPosition genomeToTranscriptPos(GenomePosition pos) throws ProjectionException {
-		if (!transcript.getTXRegion().contains(pos)) // guard against incorrect position
-			throw new ProjectionException("Position " + pos + " is not in the transcript region "
-					+ transcript.getTXRegion());
-		pos = pos.withStrand(transcript.getStrand());
-
-		// Look through all exons, find containing one, and compute the position.
-		int tOffset = 0; // offset in transcript
-		for (GenomeInterval region : transcript.getExonRegions()) {
-			if (region.contains(pos)) {
-				// Note that we have to use *the region's position* as the base object for the difference operation so
-				// the case of the transcript on the reverse strand but position on forward strand is handled correctly.
-				// Consequently, we have to *subtract* this difference from transcriptPos.
-				int posInExon = pos.differenceTo(region.getGenomeBeginPos());
-				int transcriptPos = tOffset + posInExon;
-				return new TranscriptPosition(transcript, transcriptPos, PositionType.ZERO_BASED);
-			}
-			tOffset += region.length();
+		final int txPos = transcript.getFeatureIndex().genomeToTranscriptPos(pos);
+		if (txPos == -1) {
+			if (!transcript.getTXRegion().contains(pos))
+				throw new ProjectionException("Position " + pos + " is not in the transcript region "
+						+ transcript.getTXRegion());
+			throw new ProjectionException("Position " + pos.withStrand(transcript.getStrand())
+					+ " does not lie in an exon.");
 		}
-
-		throw new ProjectionException("Position " + pos + " does not lie in an exon.");
+		return new TranscriptPosition(transcript, txPos, PositionType.ZERO_BASED);
 	}
 
 	/**
@@ -106,13 +98,14 @@ public final class TranscriptProjectionDecorator {
 	public CDSPosition genomeToCDSPos(GenomePosition pos) throws ProjectionException {
 		if (!transcript.getCDSRegion().contains(pos)) // guard against incorrect position
 			throw new ProjectionException("Position " + pos + " is not in the CDS region " + transcript.getCDSRegion());
-		pos = pos.withStrand(transcript.getStrand());
 
 		// first convert from genome to transcript position
 		TranscriptPosition txPos = genomeToTranscriptPos(pos);
-		// now, compute offset of CDS start in transcript and shift txPos by this to obtain CDS position
-		TranscriptPosition cdsStartPos = genomeToTranscriptPos(transcript.getCDSRegion().getGenomeBeginPos());
-		return new CDSPosition(txPos.getTranscript(), txPos.getPos() - cdsStartPos.getPos(), PositionType.ZERO_BASED);
+		// now, shift txPos by the offset of CDS start in transcript to obtain CDS position
+		final TranscriptFeatureIndex index = transcript.getFeatureIndex();
+		if (!index.isCDSBeginInExon()) // the CDS start must be projectable as well, raises the appropriate exception
+			genomeToTranscriptPos(transcript.getCDSRegion().getGenomeBeginPos());
+		return new CDSPosition(transcript, txPos.getPos() - index.getCDSTranscriptBegin(), PositionType.ZERO_BASED);
 	}
 
 	/**
@@ -123,19 +116,7 @@ public final class TranscriptProjectionDecorator {
 	 * @return the corresponding genome position for pos, will be on the same strand as the transcript
 	 */
 	public TranscriptPosition cdsToTranscriptPos(CDSPosition pos) {
-		final GenomePosition cdsBeginPos = transcript.getCDSRegion().getGenomeBeginPos();
-
-		int currPos = 0; // current transcript position
-		for (GenomeInterval region : transcript.getExonRegions()) {
-			if (region.getGenomeEndPos().isLeq(cdsBeginPos)) {
-				currPos += region.length();
-			} else {
-				currPos += cdsBeginPos.differenceTo(region.getGenomeBeginPos());
-				break;
-			}
-		}
-
-		return new TranscriptPosition(transcript, currPos + pos.getPos());
+		return new TranscriptPosition(transcript, transcript.getFeatureIndex().getCDSTranscriptBegin() + pos.getPos());
 	}
 
 	/**
@@ -167,18 +148,19 @@ public final class TranscriptProjectionDecorator {
 		if (targetPos < 0)
 			throw new ProjectionException("Invalid transcript position " + targetPos);
 
-		int currPos = 0; // relative begin position of current exon
-		for (GenomeInterval region : transcript.getExonRegions()) {
-			if (targetPos < currPos + region.length())
-				return region.getGenomeBeginPos().shifted(targetPos - currPos);
-			currPos += region.length();
-		}
+		final TranscriptFeatureIndex index = transcript.getFeatureIndex();
+		final int exonNo = index.locateExonByTranscriptPos(targetPos);
+		final GenomeInterval txRegion = transcript.getTXRegion();
+		if (exonNo < index.getExonCount())
+			return new GenomePosition(txRegion.getRefDict(), txRegion.getStrand(), txRegion.getChr(),
+					index.getExonBegin(exonNo) + targetPos - index.getExonTranscriptBegin(exonNo),
+					PositionType.ZERO_BASED);
 
 		// handling case of transcript end position
 		// TODO(holtgrewe): add test for this
-		GenomeInterval lastRegion = transcript.getExonRegions().get(transcript.getExonRegions().size() - 1);
-		if (targetPos == currPos)
-			return lastRegion.getGenomeEndPos();
+		if (targetPos == index.getTranscriptLength())
+			return new GenomePosition(txRegion.getRefDict(), txRegion.getStrand(), txRegion.getChr(),
+					index.getExonEnd(index.getExonCount() - 1), PositionType.ZERO_BASED);
 
 		throw new ProjectionException("Invalid transcript position " + targetPos);
 	}
@@ -207,26 +189,7 @@ public final class TranscriptProjectionDecorator {
 	 *         region but in transcript interval
 	 */
 	public int locateIntron(GenomePosition pos) {
-		if (pos.getChr() != transcript.getChr()) // guard against different chromosomes
-			return INVALID_INTRON_ID;
-		if (pos.getStrand() != transcript.getStrand()) // ensure pos is on the same strand
-			pos = pos.withStrand(transcript.getStrand());
-
-		// handle the case that the position is outside the transcript region
-		if (transcript.getTXRegion().isLeftOf(pos) || transcript.getTXRegion().isRightOf(pos))
-			return INVALID_INTRON_ID;
-
-		// find exon containing pos or return null
-		int i = 0;
-		for (GenomeInterval region : transcript.getExonRegions()) {
-			if (region.isRightOf(pos))
-				return i - 1;
-			if (region.contains(pos))
-				return INVALID_INTRON_ID; // not in intron
-			++i;
-		}
-
-		return INVALID_INTRON_ID;
+		return transcript.getFeatureIndex().locateIntron(pos);
 	}
 
 	/**
@@ -238,25 +201,7 @@ public final class TranscriptProjectionDecorator {
 	 *         but in transcript interval
 	 */
 	public int locateExon(GenomePosition pos) {
-		if (pos.getChr() != transcript.getChr()) // guard against different chromosomes
-			return INVALID_EXON_ID;
-		if (pos.getStrand() != transcript.getStrand()) // ensure pos is on the same strand
-			pos = pos.withStrand(transcript.getStrand());
-
-		// handle the case that the position is outside the transcript region
-		if (transcript.getTXRegion().isLeftOf(pos) || transcript.getTXRegion().isRightOf(pos))
-			return INVALID_EXON_ID;
-
-		// find exon containing pos or return null
-		GenomeInterval posBase = new GenomeInterval(pos, 1); // region of referenced base
-		int i = 0;
-		for (GenomeInterval region : transcript.getExonRegions()) {
-			if (region.contains(posBase))
-				return i;
-			++i;
-		}
-
-		return INVALID_EXON_ID;
+		return transcript.getFeatureIndex().locateExon(pos);
 	}
 
 	/**
@@ -274,15 +219,10 @@ public final class TranscriptProjectionDecorator {
 		if (pos.getPos() < 0)
 			throw new ProjectionException("Problem with transcript position " + pos + " (< 0)");
 
-		// find exon containing pos or return null
-		int currEndPos = 0; // current end position of exon in transcript
-		int i = 0;
-		for (GenomeInterval region : transcript.getExonRegions()) {
-			if (pos.getPos() < currEndPos + region.length())
-				return i;
-			++i;
-			currEndPos += region.length();
-		}
+		final TranscriptFeatureIndex index = transcript.getFeatureIndex();
+		final int exonNo = index.locateExonByTranscriptPos(pos.getPos());
+		if (exonNo < index.getExonCount())
+			return exonNo;
 
 		// if pos was a valid transcript position then we should not reach here
 		throw new ProjectionException("Problem with transcript position " + pos + " (after last exon)");
@@ -300,8 +240,7 @@ public final class TranscriptProjectionDecorator {
 	 */
 	public CDSPosition projectGenomeToCDSPosition(GenomePosition pos) {
 		// TODO(holtgrem): Test me!
-		TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(transcript);
-		TranscriptSequenceOntologyDecorator soDecorator = new TranscriptSequenceOntologyDecorator(transcript);
+		final TranscriptFeatureIndex index = transcript.getFeatureIndex();
 
 		try {
 			// Get transcript begin position.
@@ -311,11 +250,11 @@ public final class TranscriptProjectionDecorator {
 			} else if (transcript.getCDSRegion().isLeftOf(pos)) {
 				// Deletion begins right of CDS, project to end of CDS.
 				return new CDSPosition(transcript, transcript.cdsTranscriptLength());
-			} else if (soDecorator.liesInExon(pos)) {
-				return projector.genomeToCDSPos(pos);
+			} else if (index.liesInExon(pos)) {
+				return genomeToCDSPos(pos);
 			} else { // lies in intron, project to begin position of next exon
-				int intronNum = projector.locateIntron(pos);
-				return projector.genomeToCDSPos(transcript.getExonRegions().get(intronNum + 1).getGenomeBeginPos());
+				int intronNum = index.locateIntron(pos);
+				return genomeToCDSPos(transcript.getExonRegions().get(intronNum + 1).getGenomeBeginPos());
 			}
 		} catch (ProjectionException e) {
 			throw new Error("Bug: must be able to convert CDS exon position! " + e.getMessage());
@@ -350,8 +289,7 @@ public final class TranscriptProjectionDecorator {
 	 */
 	public TranscriptPosition projectGenomeToTXPosition(GenomePosition pos) {
 		// TODO(holtgrem): Test me!
-		TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(transcript);
-		TranscriptSequenceOntologyDecorator soDecorator = new TranscriptSequenceOntologyDecorator(transcript);
+		final TranscriptFeatureIndex index = transcript.getFeatureIndex();
 
 		try {
 			// Get transcript begin position.
@@ -361,11 +299,11 @@ public final class TranscriptProjectionDecorator {
 			} else if (transcript.getTXRegion().isLeftOf(pos)) {
 				// Deletion begins right of CDS, project to end of CDS.
 				return new TranscriptPosition(transcript, transcript.transcriptLength(), PositionType.ZERO_BASED);
-			} else if (soDecorator.liesInExon(pos)) {
-				return projector.genomeToTranscriptPos(pos);
+			} else if (index.liesInExon(pos)) {
+				return genomeToTranscriptPos(pos);
 			} else { // lies in intron, project to begin position of next exon
-				int intronNum = projector.locateIntron(pos);
-				return projector.genomeToTranscriptPos(transcript.getExonRegions().get(intronNum + 1)
+				int intronNum = index.locateIntron(pos);
+				return genomeToTranscriptPos(transcript.getExonRegions().get(intronNum + 1)
 						.getGenomeBeginPos());
 			}
 		} catch (ProjectionException e) {
@@ -62,7 +62,7 @@ public final class TranscriptSequenceChangeHelper {
 		}
 
 		// Update base in string using StringBuilder.
-		StringBuilder builder = new StringBuilder(transcript.getSequence());
+		StringBuilder builder = decodeTranscript(change.getAlt().length());
 		if (change.getType() == GenomeVariantType.SNV)
 			builder.setCharAt(tPos.getPos(), change.getAlt().charAt(0));
 		else
@@ -94,12 +94,22 @@ public final class TranscriptSequenceChangeHelper {
 		}
 
 		// Build resulting transcript string.
-		StringBuilder builder = new StringBuilder(transcript.getSequence());
+		StringBuilder builder = decodeTranscript(change.getAlt().length());
 		builder.delete(tBeginPos.getPos(), tEndPos.getPos());
 		builder.insert(tBeginPos.getPos(), change.getAlt());
 		return builder.toString();
 	}
 
+	/**
+	 * @param extraCapacity
+	 *            number of characters to reserve in addition to the transcript length
+	 * @return {@link StringBuilder} with the decoded transcript sequence
+	 */
+	private StringBuilder decodeTranscript(int extraCapacity) {
+		final PackedNucleotideSequence seq = transcript.getPackedSequence();
+		return seq.appendTo(new StringBuilder(seq.length() + extraCapacity), 0, seq.length());
+	}
+
 	/**
 	 * Translate {@link GenomePosition} to {@link TranscriptPosition} for {@link #transcript}.
 	 *
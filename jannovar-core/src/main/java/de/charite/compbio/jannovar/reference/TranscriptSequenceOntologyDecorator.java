@@ -5,6 +5,8 @@ import de.charite.compbio.jannovar.Immutable;
 /**
  * Functionality for finding out about certain points/regions of {@link TranscriptModel} using <b>genomic</b> positions.
  *
+ * The queries are answered using the {@link TranscriptFeatureIndex} of the transcript.
+ *
  * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
  */
 @Immutable
@@ -73,10 +75,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if <code>interval</code> contains a full exon (coding or non-coding).
 	 */
 	public boolean containsExon(GenomeInterval interval) {
-		for (GenomeInterval region : transcript.getExonRegions())
-			if (interval.contains(region))
-				return true;
-		return false;
+		return transcript.getFeatureIndex().containsExon(interval);
 	}
 
 	/**
@@ -85,10 +84,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if <code>interval</code> overlaps with a CDS-overlapping exon
 	 */
 	public boolean overlapsWithCDSExon(GenomeInterval interval) {
-		for (GenomeInterval region : transcript.getExonRegions())
-			if (transcript.getCDSRegion().overlapsWith(region) && interval.overlapsWith(region))
-				return true;
-		return false;
+		return transcript.getFeatureIndex().overlapsWithCDSExon(interval);
 	}
 
 	/**
@@ -131,26 +127,14 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if <code>changeInterval</code> overlaps with an intron of {@link #transcript}
 	 */
 	public boolean overlapsWithIntron(GenomeInterval changeInterval) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i + 1 < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval intronRegion = transcript.intronRegion(i);
-			if (changeInterval.overlapsWith(intronRegion))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().overlapsWithIntron(changeInterval);
 	}
 
 	/**
 	 * @return <code>true</code> if <code>pos</code> lies within an intron of {@link #transcript}
 	 */
 	public boolean liesInIntron(GenomePosition pos) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i + 1 < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval intronRegion = transcript.intronRegion(i);
-			if (intronRegion.contains(pos))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().liesInIntron(pos);
 	}
 
 	/**
@@ -160,13 +144,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 *         overlaps with the CDS
 	 */
 	public boolean overlapsWithCDSIntron(GenomeInterval changeInterval) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i + 1 < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval intronRegion = transcript.intronRegion(i);
-			if (transcript.getCDSRegion().overlapsWith(intronRegion) && changeInterval.overlapsWith(intronRegion))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().overlapsWithCDSIntron(changeInterval);
 	}
 
 	/**
@@ -174,13 +152,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 *         overlaps with the CDS
 	 */
 	public boolean liesInCDSIntron(GenomePosition pos) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i + 1 < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval intronRegion = transcript.intronRegion(i);
-			if (transcript.getCDSRegion().overlapsWith(intronRegion) && intronRegion.contains(pos))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().liesInCDSIntron(pos);
 	}
 
 	/**
@@ -189,14 +161,14 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with the translational start site
 	 */
 	public boolean overlapsWithTranslationalStartSite(GenomeInterval interval) {
-		return interval.overlapsWith(getStartCodonInterval());
+		return transcript.getFeatureIndex().overlapsWithTranslationalStartSite(interval);
 	}
 
 	/**
 	 * @return <code>true</code> if the {@link GenomePosition} lies within the translational start site
 	 */
 	public boolean liesInTranslationalStartSite(GenomePosition pos) {
-		return getStartCodonInterval().contains(pos);
+		return transcript.getFeatureIndex().liesInTranslationalStartSite(pos);
 	}
 
 	/**
@@ -205,14 +177,14 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with the translational stop site
 	 */
 	public boolean overlapsWithTranslationalStopSite(GenomeInterval interval) {
-		return interval.overlapsWith(getStopCodonInterval());
+		return transcript.getFeatureIndex().overlapsWithTranslationalStopSite(interval);
 	}
 
 	/**
 	 * @return <code>true</code> if the {@link GenomePosition} lies within the translational stop site
 	 */
 	public boolean liesInTranslationalStopSite(GenomePosition pos) {
-		return getStopCodonInterval().contains(pos);
+		return transcript.getFeatureIndex().liesInTranslationalStopSite(pos);
 	}
 
 	/**
@@ -226,24 +198,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with a splice region.
 	 */
 	public boolean overlapsWithSpliceRegion(GenomeInterval interval) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval exonInterval = transcript.getExonRegions().get(i);
-			if (i + 1 < transcript.getExonRegions().size()) {
-				// check for donor region
-				GenomeInterval spliceRegionInterval = new GenomeInterval(exonInterval.getGenomeEndPos().shifted(-3), 11);
-				if (interval.overlapsWith(spliceRegionInterval))
-					return true;
-			}
-			if (i > 0) {
-				// check for acceptor region
-				GenomeInterval spliceRegionInterval = new GenomeInterval(exonInterval.getGenomeBeginPos().shifted(-8),
-						11);
-				if (interval.overlapsWith(spliceRegionInterval))
-					return true;
-			}
-		}
-		return false;
+		return transcript.getFeatureIndex().overlapsWithSpliceRegion(interval);
 	}
 
 	/**
@@ -257,24 +212,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} lies within a splice donor site.
 	 */
 	public boolean liesInSpliceRegion(GenomePosition pos) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval exonInterval = transcript.getExonRegions().get(i);
-			if (i + 1 < transcript.getExonRegions().size()) {
-				// check for donor region
-				GenomeInterval spliceRegionInterval = new GenomeInterval(exonInterval.getGenomeEndPos().shifted(-3), 11);
-				if (spliceRegionInterval.contains(pos))
-					return true;
-			}
-			if (i > 0) {
-				// check for acceptor region
-				GenomeInterval spliceRegionInterval = new GenomeInterval(exonInterval.getGenomeBeginPos().shifted(-8),
-						11);
-				if (spliceRegionInterval.contains(pos))
-					return true;
-			}
-		}
-		return false;
+		return transcript.getFeatureIndex().liesInSpliceRegion(pos);
 	}
 
 	/**
@@ -287,14 +225,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with a splice donor site.
 	 */
 	public boolean overlapsWithSpliceDonorSite(GenomeInterval interval) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i + 1 < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval exonInterval = transcript.getExonRegions().get(i);
-			GenomeInterval donorInterval = new GenomeInterval(exonInterval.getGenomeEndPos(), 2);
-			if (interval.overlapsWith(donorInterval))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().overlapsWithSpliceDonorSite(interval);
 	}
 
 	/**
@@ -307,14 +238,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} lies within a splice donor site.
 	 */
 	public boolean liesInSpliceDonorSite(GenomePosition pos) {
-		// TODO(holtgrem): Test me!
-		for (int i = 0; i + 1 < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval exonInterval = transcript.getExonRegions().get(i);
-			GenomeInterval donorInterval = new GenomeInterval(exonInterval.getGenomeEndPos(), 2);
-			if (donorInterval.contains(pos))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().liesInSpliceDonorSite(pos);
 	}
 
 	/**
@@ -327,14 +251,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with a splice acceptor site.
 	 */
 	public boolean overlapsWithSpliceAcceptorSite(GenomeInterval interval) {
-		// TODO(holtgrem): Test me!
-		for (int i = 1; i < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval exonInterval = transcript.getExonRegions().get(i);
-			GenomeInterval acceptorInterval = new GenomeInterval(exonInterval.getGenomeBeginPos().shifted(-2), 2);
-			if (interval.overlapsWith(acceptorInterval))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().overlapsWithSpliceAcceptorSite(interval);
 	}
 
 	/**
@@ -347,14 +264,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} lies within a splice acceptor site.
 	 */
 	public boolean liesInSpliceAcceptorSite(GenomePosition pos) {
-		// TODO(holtgrem): Test me!
-		for (int i = 1; i < transcript.getExonRegions().size(); ++i) {
-			GenomeInterval exonInterval = transcript.getExonRegions().get(i);
-			GenomeInterval acceptorInterval = new GenomeInterval(exonInterval.getGenomeBeginPos().shifted(-2), 2);
-			if (acceptorInterval.contains(pos))
-				return true;
-		}
-		return false;
+		return transcript.getFeatureIndex().liesInSpliceAcceptorSite(pos);
 	}
 
 	/**
@@ -374,8 +284,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with the upstream region of the transcript.
 	 */
 	public boolean overlapsWithUpstreamRegion(GenomeInterval interval) {
-		GenomeInterval upstream = getUpstreamInterval();
-		return interval.overlapsWith(upstream);
+		return transcript.getFeatureIndex().overlapsWithUpstreamRegion(interval);
 	}
 
 	/**
@@ -388,8 +297,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} lies within the upstream region of the transcript.
 	 */
 	public boolean liesInUpstreamRegion(GenomePosition pos) {
-		GenomeInterval upstream = getUpstreamInterval();
-		return upstream.contains(pos);
+		return transcript.getFeatureIndex().liesInUpstreamRegion(pos);
 	}
 
 	/**
@@ -409,8 +317,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with the downstream region of the transcript.
 	 */
 	public boolean overlapsWithDownstreamRegion(GenomeInterval interval) {
-		GenomeInterval downstream = getDownstreamInterval();
-		return interval.overlapsWith(downstream);
+		return transcript.getFeatureIndex().overlapsWithDownstreamRegion(interval);
 	}
 
 	/**
@@ -423,8 +330,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} lies within the downstream region of the transcript.
 	 */
 	public boolean liesInDownstreamRegion(GenomePosition pos) {
-		GenomeInterval downstream = getDownstreamInterval();
-		return downstream.contains(pos);
+		return transcript.getFeatureIndex().liesInDownstreamRegion(pos);
 	}
 
 	/**
@@ -433,7 +339,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with the 5' UTR
 	 */
 	public boolean overlapsWithFivePrimeUTR(GenomeInterval interval) {
-		return interval.overlapsWith(getFivePrimeUTRInterval());
+		return transcript.getFeatureIndex().overlapsWithFivePrimeUTR(interval);
 	}
 
 	/**
@@ -442,7 +348,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} lies in the 5' UTR
 	 */
 	public boolean liesInFivePrimeUTR(GenomePosition pos) {
-		return getFivePrimeUTRInterval().contains(pos);
+		return transcript.getFeatureIndex().liesInFivePrimeUTR(pos);
 	}
 
 	/**
@@ -451,7 +357,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} overlaps with the 3' UTR
 	 */
 	public boolean overlapsWithThreePrimeUTR(GenomeInterval interval) {
-		return interval.overlapsWith(getThreePrimeUTRInterval());
+		return transcript.getFeatureIndex().overlapsWithThreePrimeUTR(interval);
 	}
 
 	/**
@@ -460,7 +366,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} lies in the 3' UTR
 	 */
 	public boolean liesInThreePrimeUTR(GenomePosition pos) {
-		return getThreePrimeUTRInterval().contains(pos);
+		return transcript.getFeatureIndex().liesInThreePrimeUTR(pos);
 	}
 
 	/**
@@ -469,14 +375,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} falls fully into an intron
 	 */
 	public boolean liesInIntron(GenomeInterval interval) {
-		TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(transcript);
-
-		// locate intron, return false on any errors
-		final int intronNo = projector.locateIntron(interval.getGenomeBeginPos());
-		if (intronNo == TranscriptProjectionDecorator.INVALID_INTRON_ID)
-			return false;
-
-		return !transcript.getExonRegions().get(intronNo + 1).contains(interval.getGenomeEndPos().shifted(-1));
+		return transcript.getFeatureIndex().liesInIntron(interval);
 	}
 
 	/**
@@ -485,14 +384,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomeInterval} falls fully into an exon
 	 */
 	public boolean liesInExon(GenomeInterval interval) {
-		TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(transcript);
-
-		// locate exon, return false on any errors
-		final int exonNo = projector.locateExon(interval.getGenomeBeginPos());
-		if (exonNo == TranscriptProjectionDecorator.INVALID_EXON_ID)
-			return false;
-
-		return transcript.getExonRegions().get(exonNo).contains(interval);
+		return transcript.getFeatureIndex().liesInExon(interval);
 	}
 
 	/**
@@ -501,15 +393,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the {@link GenomePosition} points to a base an exon
 	 */
 	public boolean liesInExon(GenomePosition pos) {
-		// TODO(holtgrem): Test me!
-		TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(transcript);
-
-		// locate exon, return false on any errors
-		final int exonNo = projector.locateExon(pos);
-		if (exonNo == TranscriptProjectionDecorator.INVALID_EXON_ID)
-			return false;
-
-		return transcript.getExonRegions().get(exonNo).contains(pos);
+		return transcript.getFeatureIndex().liesInExon(pos);
 	}
 
 	/**
@@ -518,10 +402,7 @@ public final class TranscriptSequenceOntologyDecorator {
 	 * @return <code>true</code> if the interval overlaps with an exon
 	 */
 	public boolean overlapsWithExon(GenomeInterval interval) {
-		for (int i = 0; i < transcript.getExonRegions().size(); ++i)
-			if (interval.overlapsWith(transcript.getExonRegions().get(i)))
-				return true;
-		return false;
+		return transcript.getFeatureIndex().overlapsWithExon(interval);
 	}
 
 }
@@ -0,0 +1,67 @@
+package de.charite.compbio.jannovar.annotation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableSortedSet;
+
+public class VCFAnnotationDataTest {
+
+	VCFAnnotationData data;
+
+	@Before
+	public void setUp() {
+		data = new VCFAnnotationData();
+		data.effects = ImmutableSortedSet.of(VariantEffect.MISSENSE_VARIANT, VariantEffect.SPLICE_REGION_VARIANT);
+		data.impact = PutativeImpact.MODERATE;
+		data.geneSymbol = "GENE 1;X=Y";
+		data.geneID = "ENTREZ%1";
+		data.featureType = "transcript";
+		data.featureID = "NM_000001.1";
+		data.featureBioType = "Coding";
+		data.rank = 2;
+		data.totalRank = 10;
+		data.txPos = 122;
+		data.txLength = 1500;
+		data.cdsPos = 100;
+		data.cdsLength = 900;
+		data.messages = ImmutableSortedSet.of(AnnotationMessage.WARNING_REF_DOES_NOT_MATCH_GENOME,
+				AnnotationMessage.INFO_REALIGN_3_PRIME);
+	}
+
+	/** @return annotation string built by joining {@link VCFAnnotationData#toArray} */
+	private String joinArray(String allele) {
+		return Joiner.on('|').useForNull("").join(data.toArray(allele));
+	}
+
+	@Test
+	public void testUnescapedMatchesArray() {
+		Assert.assertEquals(joinArray("A"), data.toUnescapedString("A"));
+		Assert.assertEquals(
+				"A|missense_variant&splice_region_variant|MODERATE|GENE 1;X=Y|ENTREZ%1|transcript|NM_000001.1|Coding"
+						+ "|3/10|||123/1500|101/900|34/300||WARNING_REF_DOES_NOT_MATCH_GENOME&INFO_REALIGN_3_PRIME",
+				data.toUnescapedString("A"));
+	}
+
+	@Test
+	public void testEscaped() {
+		Assert.assertEquals(joinArray("A").replace("%", "%25").replace(";", "%3B").replace("=", "%3D").replace(" ",
+				"%20"), data.toString("A"));
+	}
+
+	@Test
+	public void testEmpty() {
+		VCFAnnotationData empty = new VCFAnnotationData();
+		Assert.assertEquals("C|||||||||||||||", empty.toString("C"));
+	}
+
+	@Test
+	public void testAppendTo() {
+		StringBuilder builder = new StringBuilder("X,");
+		data.appendTo(builder, "A", true);
+		Assert.assertEquals("X," + data.toString("A"), builder.toString());
+	}
+
+}
@@ -0,0 +1,201 @@
+package de.charite.compbio.jannovar.annotation;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import de.charite.compbio.jannovar.annotation.builders.AnnotationBuilderDispatcher;
+import de.charite.compbio.jannovar.annotation.builders.AnnotationBuilderOptions;
+import de.charite.compbio.jannovar.data.Chromosome;
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.reference.GenomePosition;
+import de.charite.compbio.jannovar.reference.GenomeVariant;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import de.charite.compbio.jannovar.reference.PositionType;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptIntervalEndExtractor;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import de.charite.compbio.jannovar.reference.TranscriptModelFactory;
+
+public class VariantAnnotatorTest {
+
+	/** this test uses this static hg19 reference dictionary */
+	static final ReferenceDictionary refDict = HG19RefDictBuilder.build();
+
+	/** chromosome map with one transcript on chr1 */
+	ImmutableMap<Integer, Chromosome> chromosomeMap;
+
+	@Before
+	public void setUp() {
+		TranscriptModelBuilder builder = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc001anx.3\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+						+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+						+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+						+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\tuc001anx.3");
+		builder.setGeneSymbol("ZBTB48");
+		TranscriptModel tm = builder.build();
+		IntervalArray<TranscriptModel> tree = new IntervalArray<TranscriptModel>(ImmutableList.of(tm),
+				new TranscriptIntervalEndExtractor());
+		chromosomeMap = ImmutableMap.of(1, new Chromosome(refDict, 1, tree));
+	}
+
+	/** @return intergenic SNV on chr1, not requiring the transcript sequence */
+	private GenomeVariant buildVariant() {
+		return new GenomeVariant(new GenomePosition(refDict, Strand.FWD, 1, 6600000, PositionType.ZERO_BASED), "A",
+				"C");
+	}
+
+	/** @return {@link TranscriptModel} from known genes <code>line</code> with a random sequence */
+	private TranscriptModel buildTranscript(String line, String geneSymbol, Random rng) {
+		TranscriptModelBuilder builder = TranscriptModelFactory.parseKnownGenesLine(refDict, line);
+		builder.setGeneSymbol(geneSymbol);
+		StringBuilder seq = new StringBuilder();
+		for (int i = 0; i < builder.build().transcriptLength(); ++i)
+			seq.append("ACGT".charAt(rng.nextInt(4)));
+		builder.setSequence(seq.toString());
+		return builder.build();
+	}
+
+	@Test
+	public void testBestAnnotationMatchesFirstAnnotation() throws AnnotationException {
+		Random rng = new Random(42);
+		ImmutableList<TranscriptModel> tms = ImmutableList.of(
+				buildTranscript("uc001anx.3\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+						+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+						+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+						+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\tuc001anx.3", "ZBTB48",
+						rng),
+				buildTranscript("uc001any.1\tchr1\t+\t6640062\t6649340\t6642200\t6648400\t9"
+						+ "\t6640062,6640600,6642117,6645978,6646754,6647537,"
+						+ "6648119,6648337,6648975,\t6640196,6641359,6642359,"
+						+ "6646090,6646847,6647692,6648256,6648502,6649340,\tP10074\tuc001any.1", "ZBTB48", rng),
+				buildTranscript("uc001anz.1\tchr1\t-\t6641000\t6648000\t6641000\t6641000\t3"
+						+ "\t6641000,6644000,6647500,\t6641500,6644300,6648000,\t\tuc001anz.1", "ANTISENSE", rng));
+		IntervalArray<TranscriptModel> tree = new IntervalArray<TranscriptModel>(tms,
+				new TranscriptIntervalEndExtractor());
+		VariantAnnotator annotator = new VariantAnnotator(refDict,
+				ImmutableMap.of(1, new Chromosome(refDict, 1, tree)), new AnnotationBuilderOptions());
+
+		for (int pos = 6638000; pos < 6651000; pos += 7) {
+			GenomePosition gPos = new GenomePosition(refDict, Strand.FWD, 1, pos, PositionType.ZERO_BASED);
+			for (GenomeVariant change : ImmutableList.of(new GenomeVariant(gPos, "A", "C"),
+					new GenomeVariant(gPos, "", "TT"), new GenomeVariant(gPos, "AC", ""))) {
+				VariantAnnotations all = annotator.buildAnnotations(change);
+				VariantAnnotations best = annotator.buildBestAnnotation(change, null);
+				Assert.assertEquals(1, best.getAnnotations().size());
+				Assert.assertEquals(all.getHighestImpactAnnotation().toVCFAnnoString("X"),
+						best.getHighestImpactAnnotation().toVCFAnnoString("X"));
+				Assert.assertEquals(all.getHighestImpactAnnotation().getTranscript(),
+						best.getHighestImpactAnnotation().getTranscript());
+			}
+		}
+	}
+
+	@Test
+	public void testMultiAlleleMatchesSingleAllele() throws AnnotationException {
+		Random rng = new Random(42);
+		ImmutableList<TranscriptModel> tms = ImmutableList.of(
+				buildTranscript("uc001anx.3\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+						+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+						+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+						+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\tuc001anx.3", "ZBTB48",
+						rng),
+				buildTranscript("uc001anz.1\tchr1\t-\t6641000\t6648000\t6641000\t6641000\t3"
+						+ "\t6641000,6644000,6647500,\t6641500,6644300,6648000,\t\tuc001anz.1", "ANTISENSE", rng));
+		IntervalArray<TranscriptModel> tree = new IntervalArray<TranscriptModel>(tms,
+				new TranscriptIntervalEndExtractor());
+		VariantAnnotator annotator = new VariantAnnotator(refDict,
+				ImmutableMap.of(1, new Chromosome(refDict, 1, tree)), new AnnotationBuilderOptions());
+
+		// alleles of a VCF record with a long reference, reaching from outside into the transcripts
+		for (int pos = 6638000; pos < 6651000; pos += 11) {
+			GenomePosition gPos = new GenomePosition(refDict, Strand.FWD, 1, pos, PositionType.ZERO_BASED);
+			String ref = "ACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGT";
+			ImmutableList<GenomeVariant> changes = ImmutableList.of(new GenomeVariant(gPos, ref, "A"),
+					new GenomeVariant(gPos, ref, ref.substring(0, ref.length() - 1) + "A"),
+					new GenomeVariant(gPos, ref, ref + "TT"), new GenomeVariant(gPos, ref, "<DEL>"));
+			ImmutableList<VariantAnnotations> all = annotator.buildAnnotations(changes, null);
+			ImmutableList<VariantAnnotations> best = annotator.buildBestAnnotations(changes, null);
+			Assert.assertEquals(changes.size(), all.size());
+			Assert.assertEquals(changes.size(), best.size());
+			for (int i = 0; i < changes.size(); ++i) {
+				Assert.assertEquals(toVCFAnnoStrings(annotator.buildAnnotations(changes.get(i))),
+						toVCFAnnoStrings(all.get(i)));
+				Assert.assertEquals(toVCFAnnoStrings(annotator.buildBestAnnotation(changes.get(i), null)),
+						toVCFAnnoStrings(best.get(i)));
+			}
+		}
+	}
+
+	@Test
+	public void testEquivalentTranscriptsAreRelabeled() throws AnnotationException {
+		final String line = "%s\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+				+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+				+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+				+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\t%s";
+		TranscriptModel original = buildTranscript(String.format(line, "uc001anx.3", "uc001anx.3"), "ZBTB48",
+				new Random(42));
+		TranscriptModel copy = buildTranscript(String.format(line, "uc001anx.4", "uc001anx.4"), "ZBTB48-COPY",
+				new Random(42));
+		ImmutableList<TranscriptModel> tms = ImmutableList.of(original, copy);
+		IntervalArray<TranscriptModel> tree = new IntervalArray<TranscriptModel>(tms,
+				new TranscriptIntervalEndExtractor());
+		AnnotationBuilderOptions options = new AnnotationBuilderOptions();
+		VariantAnnotator annotator = new VariantAnnotator(refDict,
+				ImmutableMap.of(1, new Chromosome(refDict, 1, tree)), options);
+
+		for (int pos = 6640070; pos < 6649300; pos += 13) {
+			GenomePosition gPos = new GenomePosition(refDict, Strand.FWD, 1, pos, PositionType.ZERO_BASED);
+			for (GenomeVariant change : ImmutableList.of(new GenomeVariant(gPos, "A", "C"),
+					new GenomeVariant(gPos, "", "TT"), new GenomeVariant(gPos, "AC", ""))) {
+				ImmutableList.Builder<String> expected = new ImmutableList.Builder<>();
+				for (Annotation anno : annotator.buildAnnotations(change).getAnnotations())
+					expected.add(new AnnotationBuilderDispatcher(anno.getTranscript(), change, options).build()
+							.toVCFAnnoString("X"));
+				Assert.assertEquals(expected.build(), toVCFAnnoStrings(annotator.buildAnnotations(change)));
+				Assert.assertEquals(2, annotator.buildAnnotations(change).getAnnotations().size());
+			}
+		}
+	}
+
+	/** @return the VCF ANN strings of all annotations in <code>annos</code> */
+	private static ImmutableList<String> toVCFAnnoStrings(VariantAnnotations annos) {
+		ImmutableList.Builder<String> builder = new ImmutableList.Builder<>();
+		for (Annotation anno : annos.getAnnotations())
+			builder.add(anno.toVCFAnnoString("X"));
+		return builder.build();
+	}
+
+	@Test
+	public void testAnnotationCache() throws AnnotationException {
+		VariantAnnotator annotator = new VariantAnnotator(refDict, chromosomeMap, new AnnotationBuilderOptions(), 10);
+
+		VariantAnnotations first = annotator.buildAnnotations(buildVariant());
+		VariantAnnotations second = annotator.buildAnnotations(buildVariant());
+
+		Assert.assertSame(first, second);
+		Assert.assertEquals(1, annotator.getAnnotationCacheHitCount());
+		Assert.assertEquals(1, annotator.getAnnotationCacheMissCount());
+	}
+
+	@Test
+	public void testWithoutAnnotationCache() throws AnnotationException {
+		VariantAnnotator annotator = new VariantAnnotator(refDict, chromosomeMap, new AnnotationBuilderOptions());
+
+		VariantAnnotations first = annotator.buildAnnotations(buildVariant());
+		VariantAnnotations second = annotator.buildAnnotations(buildVariant());
+
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(first.getHighestImpactEffect(), second.getHighestImpactEffect());
+		Assert.assertEquals(0, annotator.getAnnotationCacheHitCount());
+		Assert.assertEquals(0, annotator.getAnnotationCacheMissCount());
+	}
+
+}
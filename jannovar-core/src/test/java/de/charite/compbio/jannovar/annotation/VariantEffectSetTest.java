@@ -0,0 +1,91 @@
+package de.charite.compbio.jannovar.annotation;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Compare the bit mask-based operations of {@link VariantEffectSet} to the ones on sorted sets of
+ * {@link VariantEffect}s.
+ */
+public class VariantEffectSetTest {
+
+	/** @return random subsets of all {@link VariantEffect}s, including the empty set and all single effects */
+	private static ArrayList<ImmutableSortedSet<VariantEffect>> randomSets() {
+		ArrayList<ImmutableSortedSet<VariantEffect>> result = new ArrayList<>();
+		result.add(ImmutableSortedSet.<VariantEffect> of());
+		for (VariantEffect effect : VariantEffect.values())
+			result.add(ImmutableSortedSet.of(effect));
+		Random rng = new Random(42);
+		for (int i = 0; i < 1000; ++i) {
+			ImmutableSortedSet.Builder<VariantEffect> builder = ImmutableSortedSet.naturalOrder();
+			for (VariantEffect effect : VariantEffect.values())
+				if (rng.nextInt(10) == 0)
+					builder.add(effect);
+			result.add(builder.build());
+		}
+		return result;
+	}
+
+	@Test
+	public void testSortedSetView() {
+		for (ImmutableSortedSet<VariantEffect> effects : randomSets()) {
+			VariantEffectSet set = VariantEffectSet.copyOf(Lists.reverse(ImmutableList.copyOf(effects)));
+			Assert.assertEquals(effects, set.asSortedSet());
+			Assert.assertEquals(ImmutableList.copyOf(effects), ImmutableList.copyOf(set));
+			Assert.assertEquals(effects.size(), set.size());
+			Assert.assertEquals(effects.isEmpty(), set.isEmpty());
+			Assert.assertSame(set, VariantEffectSet.ofMask(set.getMask()));
+			for (VariantEffect effect : VariantEffect.values())
+				Assert.assertEquals(effects.contains(effect), set.contains(effect));
+		}
+		Assert.assertSame(VariantEffectSet.of(), VariantEffectSet.copyOf(null));
+	}
+
+	@Test
+	public void testMostPathogenicAndImpact() {
+		for (ImmutableSortedSet<VariantEffect> effects : randomSets()) {
+			VariantEffectSet set = VariantEffectSet.copyOf(effects);
+			if (effects.isEmpty()) {
+				Assert.assertNull(set.getMostPathogenic());
+				Assert.assertNull(set.getPutativeImpact());
+			} else {
+				Assert.assertEquals(effects.first(), set.getMostPathogenic());
+				PutativeImpact impact = effects.first().getImpact();
+				for (VariantEffect effect : effects)
+					if (effect.getImpact().compareTo(impact) < 0)
+						impact = effect.getImpact();
+				Assert.assertEquals(impact, set.getPutativeImpact());
+			}
+		}
+	}
+
+	@Test
+	public void testIsOffExome() {
+		for (ImmutableSortedSet<VariantEffect> effects : randomSets()) {
+			VariantEffectSet set = VariantEffectSet.copyOf(effects);
+			for (boolean utr : new boolean[] { false, true })
+				for (boolean splice : new boolean[] { false, true })
+					Assert.assertEquals(effects.stream().allMatch(e -> e.isOffExome(utr, splice)),
+							set.isOffExome(utr, splice));
+		}
+	}
+
+	@Test
+	public void testMasks() {
+		long mask = VariantEffectSet.maskOf(VariantEffect.INTRON_VARIANT, VariantEffect.UPSTREAM_GENE_VARIANT);
+		VariantEffectSet set = VariantEffectSet.copyOf(ImmutableList.of(VariantEffect.MISSENSE_VARIANT,
+				VariantEffect.UPSTREAM_GENE_VARIANT, VariantEffect.INTERGENIC_VARIANT));
+		Assert.assertTrue(set.containsAny(mask));
+		Assert.assertEquals(VariantEffect.UPSTREAM_GENE_VARIANT, set.getMostPathogenic(mask));
+		Assert.assertFalse(set.containsAny(VariantEffectSet.maskOf(VariantEffect.INTRON_VARIANT)));
+		Assert.assertNull(set.getMostPathogenic(VariantEffectSet.maskOf(VariantEffect.INTRON_VARIANT)));
+	}
+
+}
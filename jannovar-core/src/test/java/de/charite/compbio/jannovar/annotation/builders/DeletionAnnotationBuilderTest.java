@@ -217,6 +217,21 @@ public class DeletionAnnotationBuilderTest {
 		Assert.assertEquals(ImmutableSortedSet.of(VariantEffect.START_LOST), annotation4.getEffects());
 	}
 
+	@Test
+	public void testForwardStopLossEffectsOnly() throws InvalidGenomeVariant {
+		GenomeVariant change = new GenomeVariant(new GenomePosition(refDict, Strand.FWD, 1, 6649271,
+				PositionType.ZERO_BASED), "A", "");
+		Annotation annotation = new DeletionAnnotationBuilder(infoForward, change,
+				new AnnotationBuilderOptions(true, false, true)).build();
+		Assert.assertEquals(infoForward.getAccession(), annotation.getTranscript().getAccession());
+		Assert.assertEquals(10, annotation.getAnnoLoc().getRank());
+		Assert.assertEquals(null, annotation.getGenomicNTChange());
+		Assert.assertEquals(null, annotation.getCDSNTChange());
+		Assert.assertEquals(null, annotation.getProteinChange());
+		Assert.assertEquals(ImmutableSortedSet.of(VariantEffect.FRAMESHIFT_VARIANT, VariantEffect.STOP_LOST),
+				annotation.getEffects());
+	}
+
 	@Test
 	public void testForwardStopLoss() throws InvalidGenomeVariant {
 		// Note that Mutalyzer has a different transcript sequence such that it does not report full loss for the cases
@@ -178,6 +178,20 @@ public class SNVAnnotationBuilderTest {
 		Assert.assertEquals(ImmutableSortedSet.of(VariantEffect.STOP_LOST), anno.getEffects());
 	}
 
+	@Test
+	public void testForwardStopLossEffectsOnly() throws InvalidGenomeVariant {
+		GenomeVariant change = new GenomeVariant(new GenomePosition(refDict, Strand.FWD, 1, 6649271,
+				PositionType.ZERO_BASED), "G", "C");
+		Annotation anno = new SNVAnnotationBuilder(infoForward, change, new AnnotationBuilderOptions(true, false, true))
+				.build();
+		Assert.assertEquals(infoForward.getAccession(), anno.getTranscript().getAccession());
+		Assert.assertEquals(10, anno.getAnnoLoc().getRank());
+		Assert.assertEquals(null, anno.getGenomicNTChange());
+		Assert.assertEquals(null, anno.getCDSNTChange());
+		Assert.assertEquals(null, anno.getProteinChange());
+		Assert.assertEquals(ImmutableSortedSet.of(VariantEffect.STOP_LOST), anno.getEffects());
+	}
+
 	@Test
 	public void testForwardStopGained() throws InvalidGenomeVariant {
 		GenomeVariant change = new GenomeVariant(new GenomePosition(refDict, Strand.FWD, 1, 6649262,
@@ -0,0 +1,142 @@
+package de.charite.compbio.jannovar.annotation.builders;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+import de.charite.compbio.jannovar.annotation.Annotation;
+import de.charite.compbio.jannovar.annotation.InvalidGenomeVariant;
+import de.charite.compbio.jannovar.data.JannovarData;
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.data.SerializationException;
+import de.charite.compbio.jannovar.reference.CDSPosition;
+import de.charite.compbio.jannovar.reference.GenomePosition;
+import de.charite.compbio.jannovar.reference.GenomeVariant;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import de.charite.compbio.jannovar.reference.ProjectionException;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import de.charite.compbio.jannovar.reference.TranscriptModelFactory;
+import de.charite.compbio.jannovar.reference.TranscriptProjectionDecorator;
+
+/**
+ * Compare the annotations of coding SNVs with and without {@link SNVEffectTable}.
+ */
+public class SNVEffectTableTest {
+
+	/** this test uses this static hg19 reference dictionary */
+	static final ReferenceDictionary refDict = HG19RefDictBuilder.build();
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	/** transcripts with random sequences, including ambiguous bases */
+	ImmutableList<TranscriptModel> transcripts;
+
+	/** the table built for {@link #transcripts} */
+	SNVEffectTable table;
+
+	@Before
+	public void setUp() throws IOException, SerializationException {
+		Random rng = new Random(42);
+		transcripts = ImmutableList.of(
+				buildTranscript("uc001anx.3\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+						+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+						+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+						+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\tuc001anx.3", "ZBTB48",
+						rng),
+				buildTranscript("uc001bgu.3\tchr1\t-\t23685940\t23696357\t23688461\t23694498\t4"
+						+ "\t23685940,23693534,23694465,23695858,\t23689714,23693661,23694558,"
+						+ "23696357,\tQ9C0F3\tuc001bgu.3", "ZNF436", rng));
+
+		final String path = new File(tmpFolder.getRoot(), "small.snv-effects").toString();
+		new SNVEffectTableBuilder(new JannovarData(refDict, transcripts)).save(path);
+		table = new SNVEffectTable(path);
+	}
+
+	/** @return {@link TranscriptModel} from known genes <code>line</code> with a random sequence */
+	private TranscriptModel buildTranscript(String line, String geneSymbol, Random rng) {
+		TranscriptModelBuilder builder = TranscriptModelFactory.parseKnownGenesLine(refDict, line);
+		builder.setGeneSymbol(geneSymbol);
+		StringBuilder seq = new StringBuilder();
+		for (int i = 0; i < builder.build().transcriptLength(); ++i)
+			seq.append((rng.nextInt(200) == 0) ? 'N' : "ACGT".charAt(rng.nextInt(4)));
+		builder.setSequence(seq.toString());
+		return builder.build();
+	}
+
+	@Test
+	public void testTranscriptCount() {
+		Assert.assertEquals(2, table.getTranscriptCount());
+		for (TranscriptModel tm : transcripts)
+			Assert.assertTrue(table.hasTranscript(tm));
+	}
+
+	@Test
+	public void testMostEntriesAvailable() {
+		int numEntries = 0;
+		int numAvailable = 0;
+		for (TranscriptModel tm : transcripts) {
+			final TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(tm);
+			for (int cdsPos = 0; cdsPos < tm.cdsTranscriptLength(); ++cdsPos) {
+				final char wtNT = tm.getPackedSequence()
+						.charAt(projector.cdsToTranscriptPos(new CDSPosition(tm, cdsPos)).getPos());
+				for (char varNT : "ACGT".toCharArray()) {
+					if (varNT == wtNT)
+						continue;
+					++numEntries;
+					if (table.lookup(tm, cdsPos, wtNT, varNT) != SNVEffectTable.NOT_AVAILABLE)
+						++numAvailable;
+				}
+			}
+		}
+		Assert.assertTrue(numAvailable + " of " + numEntries, numAvailable > 0.9 * numEntries);
+	}
+
+	@Test
+	public void testSameAnnotations() throws ProjectionException, InvalidGenomeVariant {
+		checkSameAnnotations(false);
+	}
+
+	@Test
+	public void testSameAnnotationsEffectsOnly() throws ProjectionException, InvalidGenomeVariant {
+		checkSameAnnotations(true);
+	}
+
+	/** Compare annotations for all CDS positions, reference bases, and alternative bases */
+	private void checkSameAnnotations(boolean effectsOnly) throws ProjectionException, InvalidGenomeVariant {
+		final AnnotationBuilderOptions withoutTable = new AnnotationBuilderOptions(true, false, effectsOnly);
+		final AnnotationBuilderOptions withTable = new AnnotationBuilderOptions(true, false, effectsOnly, table);
+		for (TranscriptModel tm : transcripts) {
+			final TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(tm);
+			for (int cdsPos = 0; cdsPos < tm.cdsTranscriptLength(); ++cdsPos) {
+				final GenomePosition pos = projector.cdsToGenomePos(new CDSPosition(tm, cdsPos));
+				for (char ref : "ACGT".toCharArray()) {
+					for (char alt : "ACGT".toCharArray()) {
+						if (ref == alt)
+							continue;
+						final GenomeVariant change = new GenomeVariant(pos, Character.toString(ref),
+								Character.toString(alt));
+						Annotation expected = new SNVAnnotationBuilder(tm, change, withoutTable).build();
+						Annotation actual = new SNVAnnotationBuilder(tm, change, withTable).build();
+						final String msg = tm.getAccession() + " c." + (cdsPos + 1) + ref + ">" + alt;
+						Assert.assertEquals(msg, expected.toVCFAnnoString(Character.toString(alt)),
+								actual.toVCFAnnoString(Character.toString(alt)));
+						Assert.assertEquals(msg, expected.getEffects(), actual.getEffects());
+						Assert.assertEquals(msg, expected.getProteinChange(), actual.getProteinChange());
+						Assert.assertEquals(msg, expected.getMessages(), actual.getMessages());
+					}
+				}
+			}
+		}
+	}
+
+}
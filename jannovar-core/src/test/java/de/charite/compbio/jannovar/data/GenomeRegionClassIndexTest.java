@@ -0,0 +1,124 @@
+package de.charite.compbio.jannovar.data;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.charite.compbio.jannovar.reference.GenomeInterval;
+import de.charite.compbio.jannovar.reference.GenomePosition;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import de.charite.compbio.jannovar.reference.PositionType;
+import de.charite.compbio.jannovar.reference.Strand;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import de.charite.compbio.jannovar.reference.TranscriptModelFactory;
+import de.charite.compbio.jannovar.reference.TranscriptSequenceOntologyDecorator;
+
+/**
+ * Compare the results of {@link GenomeRegionClassIndex} to the classification through
+ * {@link TranscriptSequenceOntologyDecorator}.
+ */
+public class GenomeRegionClassIndexTest {
+
+	/** this test uses this static hg19 reference dictionary */
+	static final ReferenceDictionary refDict = HG19RefDictBuilder.build();
+
+	/** the transcripts to build the index for */
+	ImmutableList<TranscriptModel> transcripts;
+	/** the index to test */
+	GenomeRegionClassIndex index;
+
+	@Before
+	public void setUp() {
+		TranscriptModelBuilder builderForward = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc001anx.3\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+						+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+						+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+						+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\tuc001anx.3");
+		builderForward.setGeneSymbol("ZBTB48");
+
+		TranscriptModelBuilder builderNonCoding = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc001any.1\tchr1\t-\t6641000\t6648000\t6641000\t6641000\t3"
+						+ "\t6641000,6644000,6647500,\t6641500,6644300,6648000,\t\tuc001any.1");
+		builderNonCoding.setGeneSymbol("ANTISENSE");
+
+		TranscriptModelBuilder builderReverse = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc001bgu.3\tchr1\t-\t23685940\t23696357\t23688461\t23694498\t4"
+						+ "\t23685940,23693534,23694465,23695858,\t23689714,23693661,23694558,"
+						+ "23696357,\tQ9C0F3\tuc001bgu.3");
+		builderReverse.setGeneSymbol("ZNF436");
+
+		transcripts = ImmutableList.of(builderForward.build(), builderNonCoding.build(), builderReverse.build());
+		index = new GenomeRegionClassIndex(new JannovarData(refDict, transcripts));
+	}
+
+	/** @return class of the base at <code>pos</code> through {@link TranscriptSequenceOntologyDecorator} */
+	private GenomeRegionClass classifyWithDecorator(GenomePosition pos) {
+		GenomeRegionClass result = GenomeRegionClass.INTERGENIC;
+		for (TranscriptModel tm : transcripts) {
+			TranscriptSequenceOntologyDecorator so = new TranscriptSequenceOntologyDecorator(tm);
+			if (tm.isCoding() && so.liesInCDSExon(pos))
+				result = result.max(GenomeRegionClass.CODING_EXON);
+			if (!tm.isCoding() && so.liesInExon(pos))
+				result = result.max(GenomeRegionClass.NON_CODING_EXON);
+			if (so.liesInSpliceDonorSite(pos) || so.liesInSpliceAcceptorSite(pos))
+				result = result.max(GenomeRegionClass.SPLICE_SITE);
+			if (so.liesInSpliceRegion(pos))
+				result = result.max(GenomeRegionClass.SPLICE_REGION);
+			if (tm.isCoding() && so.liesInExon(pos))
+				result = result.max(GenomeRegionClass.UTR);
+			if (tm.getTXRegion().contains(pos))
+				result = result.max(GenomeRegionClass.INTRON);
+			if (so.liesInUpstreamRegion(pos) || so.liesInDownstreamRegion(pos))
+				result = result.max(GenomeRegionClass.UPSTREAM_DOWNSTREAM);
+		}
+		return result;
+	}
+
+	/** Compare the classification of each base in [begin, end) on both strands */
+	private void checkRange(int begin, int end) {
+		for (int i = begin; i < end; ++i) {
+			GenomePosition pos = new GenomePosition(refDict, Strand.FWD, 1, i, PositionType.ZERO_BASED);
+			GenomeRegionClass expected = classifyWithDecorator(pos);
+			Assert.assertEquals("position " + i, expected, index.classify(pos));
+			Assert.assertEquals("position " + i, expected, index.classify(pos.withStrand(Strand.REV)));
+			Assert.assertEquals("position " + i, expected, index.classify(new GenomeInterval(pos, 1)));
+		}
+	}
+
+	@Test
+	public void testForwardAndNonCoding() {
+		checkRange(6638000, 6651500);
+	}
+
+	@Test
+	public void testReverse() {
+		checkRange(23684000, 23698500);
+	}
+
+	@Test
+	public void testInterval() {
+		// from the intron into the first CDS base of exon 3
+		Assert.assertEquals(GenomeRegionClass.CODING_EXON, index.classify(new GenomeInterval(refDict, Strand.FWD, 1,
+				6642000, 6642118, PositionType.ZERO_BASED)));
+		// insertion point between the splice acceptor site and the first exonic base
+		Assert.assertEquals(GenomeRegionClass.CODING_EXON, index.classify(new GenomeInterval(refDict, Strand.FWD, 1,
+				6642117, 6642117, PositionType.ZERO_BASED)));
+		// deep in an intron of both transcripts
+		Assert.assertEquals(GenomeRegionClass.INTRON, index.classify(new GenomeInterval(refDict, Strand.FWD, 1,
+				6642800, 6642900, PositionType.ZERO_BASED)));
+		Assert.assertEquals(GenomeRegionClass.INTERGENIC, index.classify(new GenomeInterval(refDict, Strand.FWD, 1,
+				100000, 200000, PositionType.ZERO_BASED)));
+		Assert.assertEquals(GenomeRegionClass.INTERGENIC, index.classify(new GenomeInterval(refDict, Strand.FWD, 2,
+				6642000, 6642118, PositionType.ZERO_BASED)));
+	}
+
+	@Test
+	public void testRunCount() {
+		Assert.assertTrue(index.getRunCount(1) > 1);
+		Assert.assertEquals(1, index.getRunCount(2));
+	}
+
+}
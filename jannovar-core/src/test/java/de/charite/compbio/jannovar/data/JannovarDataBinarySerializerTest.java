@@ -0,0 +1,160 @@
+package de.charite.compbio.jannovar.data;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import de.charite.compbio.jannovar.reference.TranscriptModelFactory;
+
+/**
+ * Tests for the {@link JannovarDataBinarySerializer} and {@link JannovarDataMappedFile} classes.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public class JannovarDataBinarySerializerTest {
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	/** this test uses this static hg19 reference dictionary */
+	static final ReferenceDictionary refDict = HG19RefDictBuilder.build();
+
+	/** transcript on the forward strand */
+	TranscriptModel infoForward;
+	/** transcript on the reverse strand */
+	TranscriptModel infoReverse;
+	/** transcript on chr2 */
+	TranscriptModel infoOther;
+
+	/** data to write */
+	JannovarData data;
+
+	@Before
+	public void setUp() {
+		TranscriptModelBuilder builderForward = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc009vmz.1\tchr1\t+\t11539294\t11541938\t11539294\t11539294\t2\t"
+						+ "11539294,11541314,\t11539429,11541938,\tuc009vmz.1");
+		builderForward.setGeneSymbol("FWD");
+		builderForward.setGeneID("ENTREZ1");
+		builderForward.getAltGeneIDs().put("HGNC_ID", "HGNC:1");
+		builderForward.setSequence("ACGTNRacgT");
+		this.infoForward = builderForward.build();
+
+		TranscriptModelBuilder builderReverse = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc009vjr.2\tchr1\t-\t893648\t894679\t894010\t894620\t2\t"
+						+ "893648,894594,\t894461,894679,\tuc009vjr.2");
+		builderReverse.setGeneSymbol("REV");
+		builderReverse.setSequence("CAGTCAGT");
+		this.infoReverse = builderReverse.build();
+
+		TranscriptModelBuilder builderOther = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc002qsd.4\tchr2\t+\t10000\t20000\t11000\t19000\t1\t10000,\t20000,\tuc002qsd.4");
+		builderOther.setGeneSymbol("OTHER");
+		this.infoOther = builderOther.build();
+
+		this.data = new JannovarData(refDict, ImmutableList.of(infoForward, infoReverse, infoOther));
+	}
+
+	private String writeData() throws IOException, SerializationException {
+		final File file = tmpFolder.newFile("data.bin");
+		new JannovarDataBinarySerializer(file.getAbsolutePath()).save(data);
+		return file.getAbsolutePath();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, SerializationException {
+		final String path = writeData();
+		Assert.assertTrue(JannovarDataMappedFile.isMappedFile(path));
+
+		JannovarData loaded = new JannovarDataBinarySerializer(path).load();
+		Assert.assertEquals(refDict.getContigNameToID(), loaded.getRefDict().getContigNameToID());
+		Assert.assertEquals(refDict.getContigIDToName(), loaded.getRefDict().getContigIDToName());
+		Assert.assertEquals(refDict.getContigIDToLength(), loaded.getRefDict().getContigIDToLength());
+		Assert.assertEquals(data.getTmByAccession(), loaded.getTmByAccession());
+
+		TranscriptModel tm = loaded.getTmByAccession().get("uc009vmz.1");
+		Assert.assertEquals("ENTREZ1", tm.getGeneID());
+		Assert.assertEquals("HGNC:1", tm.getAltGeneIDs().get("HGNC_ID"));
+		Assert.assertEquals(infoForward.getExonRegions(), tm.getExonRegions());
+		Assert.assertEquals(infoReverse.getExonRegions(),
+				loaded.getTmByAccession().get("uc009vjr.2").getExonRegions());
+		Assert.assertNull(loaded.getTmByAccession().get("uc002qsd.4").getGeneID());
+	}
+
+	@Test
+	public void testLoadThroughSerializer() throws IOException, SerializationException {
+		final String path = writeData();
+		JannovarData loaded = new JannovarDataSerializer(path).load();
+		Assert.assertEquals(data.getTmByAccession(), loaded.getTmByAccession());
+	}
+
+	@Test
+	public void testLazyLoading() throws IOException, SerializationException {
+		JannovarData loaded = new JannovarDataBinarySerializer(writeData()).loadLazily();
+		final int chr1 = refDict.getContigNameToID().get("1");
+		final int chr2 = refDict.getContigNameToID().get("2");
+
+		for (Chromosome chrom : loaded.getChromosomes().values())
+			Assert.assertFalse(chrom.isLoaded());
+
+		Assert.assertEquals(2, loaded.getChromosomes().get(chr1).getTMIntervalTree().size());
+		Assert.assertTrue(loaded.getChromosomes().get(chr1).isLoaded());
+		Assert.assertFalse(loaded.getChromosomes().get(chr2).isLoaded());
+
+		Assert.assertEquals(data.getTmByAccession(), loaded.getTmByAccession());
+		Assert.assertEquals(ImmutableList.of(infoReverse),
+				ImmutableList.copyOf(loaded.getTmByGeneSymbol().get("REV")));
+		Assert.assertTrue(loaded.getChromosomes().get(chr2).isLoaded());
+	}
+
+	@Test
+	public void testSerializeLazilyLoaded() throws IOException, SerializationException {
+		JannovarData loaded = new JannovarDataBinarySerializer(writeData()).loadLazily();
+		final File file = tmpFolder.newFile("data.ser");
+		new JannovarDataSerializer(file.getAbsolutePath()).save(loaded);
+		JannovarData reloaded = new JannovarDataSerializer(file.getAbsolutePath()).load();
+		Assert.assertEquals(data.getTmByAccession(), reloaded.getTmByAccession());
+		Assert.assertEquals(data.getTmByGeneSymbol(), reloaded.getTmByGeneSymbol());
+	}
+
+	@Test
+	public void testMappedFileQueries() throws IOException, SerializationException {
+		JannovarDataMappedFile file = new JannovarDataBinarySerializer(writeData()).open();
+		final int chr1 = refDict.getContigNameToID().get("1");
+		final int chr2 = refDict.getContigNameToID().get("2");
+
+		Assert.assertEquals(3, file.getTranscriptCount());
+		Assert.assertEquals(2, file.getTranscriptCount(chr1));
+		Assert.assertEquals(1, file.getTranscriptCount(chr2));
+		Assert.assertEquals("uc009vjr.2", file.getTranscriptAccession(chr1, 0));
+		Assert.assertEquals("REV", file.getTranscriptGeneSymbol(chr1, 0));
+		Assert.assertEquals(893648, file.getTranscriptBeginPos(chr1, 0));
+		Assert.assertEquals(894679, file.getTranscriptEndPos(chr1, 0));
+		Assert.assertEquals(infoForward, file.readTranscript(chr1, 1));
+
+		Assert.assertEquals(ImmutableList.of(infoReverse), file.readTranscriptsOverlapping(chr1, 894000, 894001));
+		Assert.assertEquals(ImmutableList.of(infoReverse, infoForward),
+				file.readTranscriptsOverlapping(chr1, 894000, 11539300));
+		Assert.assertEquals(ImmutableList.of(), file.readTranscriptsOverlapping(chr1, 1000000, 1000100));
+		Assert.assertEquals(ImmutableList.of(infoOther), file.readTranscripts(chr2));
+	}
+
+	@Test(expected = SerializationException.class)
+	public void testRejectsOtherFile() throws IOException, SerializationException {
+		final File file = tmpFolder.newFile("data.ser");
+		new JannovarDataSerializer(file.getAbsolutePath()).save(data);
+		Assert.assertFalse(JannovarDataMappedFile.isMappedFile(file.getAbsolutePath()));
+		new JannovarDataMappedFile(file.getAbsolutePath());
+	}
+
+}
@@ -0,0 +1,76 @@
+package de.charite.compbio.jannovar.data;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.reference.HG19RefDictBuilder;
+import de.charite.compbio.jannovar.reference.TranscriptIntervalEndExtractor;
+import de.charite.compbio.jannovar.reference.TranscriptModel;
+import de.charite.compbio.jannovar.reference.TranscriptModelBuilder;
+import de.charite.compbio.jannovar.reference.TranscriptModelFactory;
+
+public class TranscriptEquivalenceClassesTest {
+
+	/** this test uses this static hg19 reference dictionary */
+	static final ReferenceDictionary refDict = HG19RefDictBuilder.build();
+
+	/** known genes line of ZBTB48, with the accession to be filled in */
+	static final String LINE = "%s\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+			+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+			+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+			+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\t%s";
+
+	TranscriptModel first;
+	TranscriptModel sameStructure;
+	TranscriptModel otherSequence;
+	TranscriptModel otherCDS;
+
+	TranscriptEquivalenceClasses classes;
+
+	@Before
+	public void setUp() {
+		first = buildTranscript(String.format(LINE, "uc001anx.3", "uc001anx.3"), "ZBTB48", "ACGT");
+		sameStructure = buildTranscript(String.format(LINE, "uc001anx.4", "uc001anx.4"), "ZBTB48-AS", "ACGT");
+		otherSequence = buildTranscript(String.format(LINE, "uc001anx.5", "uc001anx.5"), "ZBTB48", "TGCA");
+		otherCDS = buildTranscript(String.format(LINE, "uc001anx.6", "uc001anx.6").replace("6640669", "6640672"),
+				"ZBTB48", "ACGT");
+
+		IntervalArray<TranscriptModel> iTree = new IntervalArray<TranscriptModel>(
+				ImmutableList.of(first, sameStructure, otherSequence, otherCDS), new TranscriptIntervalEndExtractor());
+		classes = new TranscriptEquivalenceClasses(iTree);
+	}
+
+	/** @return {@link TranscriptModel} from known genes <code>line</code> with repeated <code>motif</code> */
+	private TranscriptModel buildTranscript(String line, String geneSymbol, String motif) {
+		TranscriptModelBuilder builder = TranscriptModelFactory.parseKnownGenesLine(refDict, line);
+		builder.setGeneSymbol(geneSymbol);
+		StringBuilder seq = new StringBuilder();
+		for (int i = 0; i < builder.build().transcriptLength(); ++i)
+			seq.append(motif.charAt(i % motif.length()));
+		builder.setSequence(seq.toString());
+		return builder.build();
+	}
+
+	@Test
+	public void testCounts() {
+		Assert.assertEquals(4, classes.getTranscriptCount());
+		Assert.assertEquals(3, classes.getClassCount());
+	}
+
+	@Test
+	public void testRepresentatives() {
+		Assert.assertTrue(classes.hasEquivalents(first));
+		Assert.assertTrue(classes.hasEquivalents(sameStructure));
+		Assert.assertFalse(classes.hasEquivalents(otherSequence));
+		Assert.assertFalse(classes.hasEquivalents(otherCDS));
+
+		Assert.assertSame(classes.getRepresentative(first), classes.getRepresentative(sameStructure));
+		Assert.assertSame(otherSequence, classes.getRepresentative(otherSequence));
+		Assert.assertSame(otherCDS, classes.getRepresentative(otherCDS));
+	}
+
+}
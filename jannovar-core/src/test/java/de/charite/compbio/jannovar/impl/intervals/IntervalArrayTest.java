@@ -253,4 +253,55 @@ public class IntervalArrayTest {
 		Assert.assertEquals(new Triple(15, 36, "b"), res.getEntries().get(0));
 	}
 
-}
\ No newline at end of file
+	// Tests visitor-based query, stopping after the first result
+	@Test
+	public void testVisitOverlappingWithInterval() {
+		IntervalArray<Triple> tree = new IntervalArray<Triple>(getList1(), new TripleEndExtractor());
+		ArrayList<Triple> visited = new ArrayList<Triple>();
+		Assert.assertEquals(3, tree.visitOverlappingWithInterval(6, 8, (begin, end, value) -> visited.add(value)));
+		Assert.assertEquals(tree.findOverlappingWithInterval(6, 8).getEntries(), visited);
+
+		visited.clear();
+		Assert.assertEquals(1, tree.visitOverlappingWithInterval(6, 8, (begin, end, value) -> {
+			visited.add(value);
+			return false;
+		}));
+		Assert.assertEquals(new Triple(4, 8, "c"), visited.get(0));
+	}
+
+	// Tests visitor-based point query against the QueryResult-based one
+	@Test
+	public void testVisitOverlappingWithPoint() {
+		IntervalArray<Triple> tree = new IntervalArray<Triple>(getList3(), new TripleEndExtractor());
+		for (int point = 0; point < 40; ++point) {
+			ArrayList<Triple> visited = new ArrayList<Triple>();
+			tree.visitOverlappingWithPoint(point, (begin, end, value) -> visited.add(value));
+			Assert.assertEquals(tree.findOverlappingWithPoint(point).getEntries(), visited);
+		}
+	}
+
+	// Tests neighbor search
+	@Test
+	public void testNeighbors() {
+		IntervalArray<Triple> tree = new IntervalArray<Triple>(getList1(), new TripleEndExtractor());
+		Assert.assertEquals(new Triple(16, 20, "e"), tree.findLeftNeighbor(20));
+		Assert.assertEquals(new Triple(30, 67, "g"), tree.findRightNeighbor(20));
+		Assert.assertNull(tree.findLeftNeighbor(0));
+		Assert.assertNull(tree.findRightNeighbor(68));
+	}
+
+	// Tests index-based access
+	@Test
+	public void testIndexAccess() {
+		IntervalArray<Triple> tree = new IntervalArray<Triple>(getList1(), new TripleEndExtractor());
+		Assert.assertEquals(7, tree.size());
+		for (int i = 0; i < tree.size(); ++i) {
+			Assert.assertEquals(tree.getIntervals().get(i).getBegin(), tree.getBegin(i));
+			Assert.assertEquals(tree.getIntervals().get(i).getEnd(), tree.getEnd(i));
+			Assert.assertEquals(tree.getIntervals().get(i).getValue(), tree.getValue(i));
+		}
+		Assert.assertEquals(new Triple(1, 4, "a"), tree.getValue(0));
+		Assert.assertEquals(new Triple(30, 67, "g"), tree.getValue(6));
+	}
+
+}
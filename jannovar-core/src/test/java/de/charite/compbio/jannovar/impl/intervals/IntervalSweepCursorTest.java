@@ -0,0 +1,89 @@
+package de.charite.compbio.jannovar.impl.intervals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntervalSweepCursorTest {
+
+	class IntPairEndExtractor implements IntervalEndExtractor<int[]> {
+
+		public int getBegin(int[] pair) {
+			return pair[0];
+		}
+
+		public int getEnd(int[] pair) {
+			return pair[1];
+		}
+
+	}
+
+	IntervalArray<int[]> array;
+
+	@Before
+	public void setUp() {
+		Random rng = new Random(42);
+		ArrayList<int[]> lst = new ArrayList<int[]>();
+		for (int i = 0; i < 200; ++i) {
+			final int begin = rng.nextInt(10000);
+			lst.add(new int[] { begin, begin + 1 + rng.nextInt(i % 10 == 0 ? 2000 : 100) });
+		}
+		array = new IntervalArray<int[]>(lst, new IntPairEndExtractor());
+	}
+
+	ArrayList<int[]> queryTree(int begin, int end) {
+		ArrayList<int[]> result = new ArrayList<int[]>();
+		array.visitOverlappingWithInterval(begin, end, (b, e, value) -> result.add(value));
+		return result;
+	}
+
+	ArrayList<int[]> queryCursor(IntervalSweepCursor<int[]> cursor, int begin, int end) {
+		ArrayList<int[]> result = new ArrayList<int[]>();
+		cursor.visitOverlappingWithInterval(begin, end, (b, e, value) -> result.add(value));
+		return result;
+	}
+
+	@Test
+	public void testSortedQueries() {
+		IntervalSweepCursor<int[]> cursor = new IntervalSweepCursor<int[]>(array);
+		Random rng = new Random(13);
+		for (int begin = 0; begin < 13000; begin += rng.nextInt(50)) {
+			final int end = begin + rng.nextInt(3) * rng.nextInt(300);
+			Assert.assertEquals(queryTree(begin, end), queryCursor(cursor, begin, end));
+		}
+		Assert.assertEquals(0, cursor.getFallbackCount());
+	}
+
+	@Test
+	public void testPointQueries() {
+		IntervalSweepCursor<int[]> cursor = new IntervalSweepCursor<int[]>(array);
+		for (int point = 0; point < 12000; point += 7) {
+			ArrayList<int[]> result = new ArrayList<int[]>();
+			cursor.visitOverlappingWithPoint(point, (b, e, value) -> result.add(value));
+			Assert.assertEquals(queryTree(point, point + 1), result);
+		}
+	}
+
+	@Test
+	public void testBackwardJumps() {
+		IntervalSweepCursor<int[]> cursor = new IntervalSweepCursor<int[]>(array);
+		Random rng = new Random(7);
+		for (int i = 0; i < 1000; ++i) {
+			final int begin = rng.nextInt(12000);
+			final int end = begin + rng.nextInt(500);
+			Assert.assertEquals(queryTree(begin, end), queryCursor(cursor, begin, end));
+		}
+		Assert.assertTrue(cursor.getFallbackCount() > 0);
+	}
+
+	@Test
+	public void testStopVisiting() {
+		IntervalSweepCursor<int[]> cursor = new IntervalSweepCursor<int[]>(array);
+		final int point = array.getBegin(array.size() / 2);
+		Assert.assertEquals(1, cursor.visitOverlappingWithPoint(point, (b, e, value) -> false));
+	}
+
+}
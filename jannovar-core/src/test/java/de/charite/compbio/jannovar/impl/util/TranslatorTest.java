@@ -45,4 +45,38 @@ public class TranslatorTest {
 	public void testTranslateDna_tooLonger() throws AnnotationException {
 		Assert.assertEquals("T", translator.translateDNA("ACTG"));
 	}
+
+	/** Test for translateDNA() with codons containing N or other characters */
+	@Test
+	public void testTranslateDna_ambiguous() throws AnnotationException {
+		Assert.assertEquals("MXS", translator.translateDNA("ATGANGAGT"));
+		Assert.assertEquals("M", translator.translateDNA("ATGARGAGT"));
+		Assert.assertEquals("", translator.translateDNA("atg"));
+	}
+
+	/** Test for translateDNA3() */
+	@Test
+	public void testTranslateDna3() throws AnnotationException {
+		Assert.assertEquals("Met*Ser", translator.translateDNA3("ATGTAGAGT"));
+	}
+
+	/** Test for translateDNA() with a range of a CharSequence */
+	@Test
+	public void testTranslateDna_range() throws AnnotationException {
+		StringBuilder seq = new StringBuilder("CCATGTAGAGTGGC");
+		Assert.assertEquals("M*S", translator.translateDNA(seq, 2, 11, false));
+		Assert.assertEquals("M*SG", translator.translateDNA(seq, 2, 14, false));
+		Assert.assertEquals("M*", translator.translateDNA(seq, 2, 13, true));
+		Assert.assertEquals("Met*", translator.translateDNA3(seq, 2, 13, true));
+		Assert.assertEquals("", translator.translateDNA(seq, 2, 2, false));
+	}
+
+	/** Test for toLong() */
+	@Test
+	public void testToLong() {
+		Assert.assertEquals("MetSer*", translator.toLong("MS*"));
+		Assert.assertEquals("Trp", translator.toLong('W'));
+		Assert.assertNull(translator.toLong('#'));
+	}
+
 }
@@ -0,0 +1,84 @@
+package de.charite.compbio.jannovar.reference;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link PackedNucleotideSequence} class.
+ *
+ * @author <a href="mailto:manuel.holtgrewe@charite.de">Manuel Holtgrewe</a>
+ */
+public class PackedNucleotideSequenceTest {
+
+	@Test
+	public void testRoundTripACGT() {
+		final String seq = "ACGTTGCAAACCGGTTA";
+		PackedNucleotideSequence packed = PackedNucleotideSequence.valueOf(seq);
+		Assert.assertEquals(seq.length(), packed.length());
+		Assert.assertEquals(0, packed.getExceptionCount());
+		Assert.assertEquals(seq, packed.toString());
+		for (int i = 0; i < seq.length(); ++i)
+			Assert.assertEquals(seq.charAt(i), packed.charAt(i));
+	}
+
+	@Test
+	public void testRoundTripWithExceptions() {
+		final String seq = "NNACGTRYacgtNACGTN";
+		PackedNucleotideSequence packed = PackedNucleotideSequence.valueOf(seq);
+		Assert.assertEquals(10, packed.getExceptionCount());
+		Assert.assertEquals(seq, packed.toString());
+		for (int i = 0; i < seq.length(); ++i)
+			Assert.assertEquals(seq.charAt(i), packed.charAt(i));
+		for (int i = 0; i <= seq.length(); ++i)
+			for (int j = i; j <= seq.length(); ++j)
+				Assert.assertEquals(seq.substring(i, j), packed.substring(i, j));
+	}
+
+	@Test
+	public void testEmpty() {
+		PackedNucleotideSequence packed = PackedNucleotideSequence.valueOf("");
+		Assert.assertEquals(0, packed.length());
+		Assert.assertEquals("", packed.toString());
+	}
+
+	@Test
+	public void testAppendTo() {
+		PackedNucleotideSequence packed = PackedNucleotideSequence.valueOf("ACGTNACGT");
+		StringBuilder builder = new StringBuilder("xx");
+		Assert.assertEquals("xxTNA", packed.appendTo(builder, 3, 6).toString());
+	}
+
+	@Test
+	public void testFromPackedData() {
+		PackedNucleotideSequence packed = PackedNucleotideSequence.valueOf("ACGTNACGT");
+		PackedNucleotideSequence copy = new PackedNucleotideSequence(packed.length(), packed.getPackedData(),
+				packed.getExceptionPositions(), packed.getExceptionChars());
+		Assert.assertEquals(packed, copy);
+		Assert.assertEquals(packed.hashCode(), copy.hashCode());
+		Assert.assertNotEquals(packed, PackedNucleotideSequence.valueOf("ACGTAACGT"));
+	}
+
+	@Test(expected = StringIndexOutOfBoundsException.class)
+	public void testCharAtOutOfBounds() {
+		PackedNucleotideSequence.valueOf("ACGT").charAt(4);
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+		PackedNucleotideSequence packed = PackedNucleotideSequence.valueOf("ACGTNACGT");
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+			oos.writeObject(packed);
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+			Assert.assertEquals(packed, ois.readObject());
+		}
+	}
+
+}
@@ -0,0 +1,255 @@
+package de.charite.compbio.jannovar.reference;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.charite.compbio.jannovar.data.ReferenceDictionary;
+
+/**
+ * Compare the results of {@link TranscriptFeatureIndex} to linear scans over {@link GenomeInterval}s.
+ */
+public class TranscriptFeatureIndexTest {
+
+	/** this test uses this static hg19 reference dictionary */
+	static final ReferenceDictionary refDict = HG19RefDictBuilder.build();
+
+	/** transcript info for the forward strand */
+	TranscriptModel infoForward;
+	/** transcript info for the reverse strand */
+	TranscriptModel infoReverse;
+
+	@Before
+	public void setUp() {
+		TranscriptModelBuilder builderForward = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc001anx.3\tchr1\t+\t6640062\t6649340\t6640669\t6649272\t11"
+						+ "\t6640062,6640600,6642117,6645978,6646754,6647264,6647537,"
+						+ "6648119,6648337,6648815,6648975,\t6640196,6641359,6642359,"
+						+ "6646090,6646847,6647351,6647692,6648256,6648502,6648904,6649340,\tP10074\tuc001anx.3");
+		builderForward.setGeneSymbol("ZBTB48");
+		this.infoForward = builderForward.build();
+
+		TranscriptModelBuilder builderReverse = TranscriptModelFactory.parseKnownGenesLine(refDict,
+				"uc001bgu.3\tchr1\t-\t23685940\t23696357\t23688461\t23694498\t4"
+						+ "\t23685940,23693534,23694465,23695858,\t23689714,23693661,23694558,"
+						+ "23696357,\tQ9C0F3\tuc001bgu.3");
+		builderReverse.setGeneSymbol("ZNF436");
+		this.infoReverse = builderReverse.build();
+	}
+
+	@Test
+	public void testForward() {
+		checkAroundBoundaries(infoForward);
+	}
+
+	@Test
+	public void testReverse() {
+		checkAroundBoundaries(infoReverse);
+	}
+
+	@Test
+	public void testProjectionRoundTripForward() throws ProjectionException {
+		checkProjectionRoundTrip(infoForward);
+	}
+
+	@Test
+	public void testProjectionRoundTripReverse() throws ProjectionException {
+		checkProjectionRoundTrip(infoReverse);
+	}
+
+	@Test
+	public void testOtherChromosome() {
+		TranscriptFeatureIndex index = infoForward.getFeatureIndex();
+		GenomePosition pos = new GenomePosition(refDict, Strand.FWD, 2, 6640100, PositionType.ZERO_BASED);
+		Assert.assertFalse(index.liesInExon(pos));
+		Assert.assertFalse(index.overlapsWithExon(new GenomeInterval(pos, 10)));
+		Assert.assertEquals(TranscriptProjectionDecorator.INVALID_EXON_ID, index.locateExon(pos));
+	}
+
+	@Test
+	public void testIndexIsShared() {
+		Assert.assertSame(infoForward.getFeatureIndex(), infoForward.getFeatureIndex());
+		Assert.assertEquals(11, infoForward.getFeatureIndex().getExonCount());
+	}
+
+	/**
+	 * Check positions and intervals of several lengths around all exon boundaries, on both strands.
+	 */
+	private void checkAroundBoundaries(TranscriptModel tx) {
+		TranscriptFeatureIndex index = tx.getFeatureIndex();
+		final int[] lengths = { 0, 1, 2, 5, 12, 200 };
+		for (GenomeInterval exon : tx.getExonRegions()) {
+			for (int boundary : new int[] { exon.getBeginPos(), exon.getEndPos() }) {
+				for (int offset = -15; offset <= 15; ++offset) {
+					GenomePosition pos = new GenomePosition(refDict, tx.getStrand(), tx.getChr(), boundary + offset,
+							PositionType.ZERO_BASED);
+					for (Strand strand : new Strand[] { Strand.FWD, Strand.REV }) {
+						GenomePosition p = pos.withStrand(strand);
+						Assert.assertEquals(locateExon(tx, p), index.locateExon(p));
+						Assert.assertEquals(locateIntron(tx, p), index.locateIntron(p));
+						Assert.assertEquals(liesInIntron(tx, p), index.liesInIntron(p));
+						Assert.assertEquals(liesInCDSIntron(tx, p), index.liesInCDSIntron(p));
+						Assert.assertEquals(liesInSpliceRegion(tx, p), index.liesInSpliceRegion(p));
+						Assert.assertEquals(liesInDonor(tx, p), index.liesInSpliceDonorSite(p));
+						Assert.assertEquals(liesInAcceptor(tx, p), index.liesInSpliceAcceptorSite(p));
+
+						for (int length : lengths) {
+							GenomeInterval itv = new GenomeInterval(pos, length).withStrand(strand);
+							Assert.assertEquals(containsExon(tx, itv), index.containsExon(itv));
+							Assert.assertEquals(overlapsWithExon(tx, itv, false), index.overlapsWithExon(itv));
+							Assert.assertEquals(overlapsWithExon(tx, itv, true), index.overlapsWithCDSExon(itv));
+							Assert.assertEquals(overlapsWithIntron(tx, itv, false), index.overlapsWithIntron(itv));
+							Assert.assertEquals(overlapsWithIntron(tx, itv, true), index.overlapsWithCDSIntron(itv));
+							Assert.assertEquals(overlapsWithSpliceRegion(tx, itv), index.overlapsWithSpliceRegion(itv));
+							Assert.assertEquals(overlapsWithDonor(tx, itv), index.overlapsWithSpliceDonorSite(itv));
+							Assert.assertEquals(overlapsWithAcceptor(tx, itv),
+									index.overlapsWithSpliceAcceptorSite(itv));
+							Assert.assertEquals(liesInExon(tx, itv), index.liesInExon(itv));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Project all transcript positions to the genome and back, comparing to the exon-wise computation.
+	 */
+	private void checkProjectionRoundTrip(TranscriptModel tx) throws ProjectionException {
+		TranscriptProjectionDecorator projector = new TranscriptProjectionDecorator(tx);
+		int txPos = 0;
+		for (GenomeInterval exon : tx.getExonRegions()) {
+			for (int i = 0; i < exon.length(); ++i, ++txPos) {
+				GenomePosition expected = exon.getGenomeBeginPos().shifted(i);
+				GenomePosition pos = projector.transcriptToGenomePos(new TranscriptPosition(tx, txPos));
+				Assert.assertEquals(expected, pos);
+				Assert.assertEquals(txPos, projector.genomeToTranscriptPos(pos).getPos());
+				Assert.assertEquals(txPos, projector.genomeToTranscriptPos(pos.withStrand(Strand.FWD)).getPos());
+				Assert.assertEquals(txPos, tx.getFeatureIndex().genomeToTranscriptPos(pos));
+			}
+		}
+		Assert.assertEquals(tx.transcriptLength(), txPos);
+		Assert.assertEquals(tx.getTXRegion().getGenomeEndPos(),
+				projector.transcriptToGenomePos(new TranscriptPosition(tx, txPos)));
+		Assert.assertEquals(tx.getExonRegions().size() - 1,
+				projector.locateExon(new TranscriptPosition(tx, txPos - 1)));
+	}
+
+	private static boolean containsExon(TranscriptModel tx, GenomeInterval itv) {
+		for (GenomeInterval region : tx.getExonRegions())
+			if (itv.contains(region))
+				return true;
+		return false;
+	}
+
+	private static boolean overlapsWithExon(TranscriptModel tx, GenomeInterval itv, boolean cdsOnly) {
+		for (GenomeInterval region : tx.getExonRegions())
+			if ((!cdsOnly || tx.getCDSRegion().overlapsWith(region)) && itv.overlapsWith(region))
+				return true;
+		return false;
+	}
+
+	private static boolean overlapsWithIntron(TranscriptModel tx, GenomeInterval itv, boolean cdsOnly) {
+		for (int i = 0; i + 1 < tx.getExonRegions().size(); ++i)
+			if ((!cdsOnly || tx.getCDSRegion().overlapsWith(tx.intronRegion(i)))
+					&& itv.overlapsWith(tx.intronRegion(i)))
+				return true;
+		return false;
+	}
+
+	private static boolean liesInIntron(TranscriptModel tx, GenomePosition pos) {
+		for (int i = 0; i + 1 < tx.getExonRegions().size(); ++i)
+			if (tx.intronRegion(i).contains(pos))
+				return true;
+		return false;
+	}
+
+	private static boolean liesInCDSIntron(TranscriptModel tx, GenomePosition pos) {
+		for (int i = 0; i + 1 < tx.getExonRegions().size(); ++i)
+			if (tx.getCDSRegion().overlapsWith(tx.intronRegion(i)) && tx.intronRegion(i).contains(pos))
+				return true;
+		return false;
+	}
+
+	private static int locateExon(TranscriptModel tx, GenomePosition pos) {
+		if (pos.getChr() != tx.getChr() || !tx.getTXRegion().contains(pos))
+			return TranscriptProjectionDecorator.INVALID_EXON_ID;
+		for (int i = 0; i < tx.getExonRegions().size(); ++i)
+			if (tx.getExonRegions().get(i).contains(new GenomeInterval(pos, 1)))
+				return i;
+		return TranscriptProjectionDecorator.INVALID_EXON_ID;
+	}
+
+	private static int locateIntron(TranscriptModel tx, GenomePosition pos) {
+		if (pos.getChr() != tx.getChr() || !tx.getTXRegion().contains(pos))
+			return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+		pos = pos.withStrand(tx.getStrand());
+		for (int i = 0; i < tx.getExonRegions().size(); ++i) {
+			if (tx.getExonRegions().get(i).isRightOf(pos))
+				return i - 1;
+			if (tx.getExonRegions().get(i).contains(pos))
+				return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+		}
+		return TranscriptProjectionDecorator.INVALID_INTRON_ID;
+	}
+
+	private static boolean liesInExon(TranscriptModel tx, GenomeInterval itv) {
+		final int exonNo = locateExon(tx, itv.getGenomeBeginPos());
+		if (exonNo == TranscriptProjectionDecorator.INVALID_EXON_ID)
+			return false;
+		return tx.getExonRegions().get(exonNo).contains(itv);
+	}
+
+	private static boolean overlapsWithSpliceRegion(TranscriptModel tx, GenomeInterval itv) {
+		final int n = tx.getExonRegions().size();
+		for (int i = 0; i < n; ++i) {
+			GenomeInterval exon = tx.getExonRegions().get(i);
+			if (i + 1 < n && itv.overlapsWith(new GenomeInterval(exon.getGenomeEndPos().shifted(-3), 11)))
+				return true;
+			if (i > 0 && itv.overlapsWith(new GenomeInterval(exon.getGenomeBeginPos().shifted(-8), 11)))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean liesInSpliceRegion(TranscriptModel tx, GenomePosition pos) {
+		final int n = tx.getExonRegions().size();
+		for (int i = 0; i < n; ++i) {
+			GenomeInterval exon = tx.getExonRegions().get(i);
+			if (i + 1 < n && new GenomeInterval(exon.getGenomeEndPos().shifted(-3), 11).contains(pos))
+				return true;
+			if (i > 0 && new GenomeInterval(exon.getGenomeBeginPos().shifted(-8), 11).contains(pos))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean overlapsWithDonor(TranscriptModel tx, GenomeInterval itv) {
+		for (int i = 0; i + 1 < tx.getExonRegions().size(); ++i)
+			if (itv.overlapsWith(new GenomeInterval(tx.getExonRegions().get(i).getGenomeEndPos(), 2)))
+				return true;
+		return false;
+	}
+
+	private static boolean liesInDonor(TranscriptModel tx, GenomePosition pos) {
+		for (int i = 0; i + 1 < tx.getExonRegions().size(); ++i)
+			if (new GenomeInterval(tx.getExonRegions().get(i).getGenomeEndPos(), 2).contains(pos))
+				return true;
+		return false;
+	}
+
+	private static boolean overlapsWithAcceptor(TranscriptModel tx, GenomeInterval itv) {
+		for (int i = 1; i < tx.getExonRegions().size(); ++i)
+			if (itv.overlapsWith(new GenomeInterval(tx.getExonRegions().get(i).getGenomeBeginPos().shifted(-2), 2)))
+				return true;
+		return false;
+	}
+
+	private static boolean liesInAcceptor(TranscriptModel tx, GenomePosition pos) {
+		for (int i = 1; i < tx.getExonRegions().size(); ++i)
+			if (new GenomeInterval(tx.getExonRegions().get(i).getGenomeBeginPos().shifted(-2), 2).contains(pos))
+				return true;
+		return false;
+	}
+
+}
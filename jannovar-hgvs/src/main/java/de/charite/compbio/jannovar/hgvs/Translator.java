@@ -24,8 +24,15 @@ public final class Translator {
 	private ImmutableMap<String, String> shortToLong = null;
 	/** Map of long AA codes to short ones */
 	private ImmutableMap<String, String> longToShort = null;
+	/** long AA codes, indexed by the ASCII character of the short code */
+	private final String[] shortToLongTable = new String[128];
 
-	private static Translator translator = null;
+	/**
+	 * Holder of the singleton, initialized thread-safely by the class loader on first use of {@link #getTranslator}.
+	 */
+	private static final class Holder {
+		private static final Translator TRANSLATOR = new Translator();
+	}
 
 	/**
 	 * Private constructor, initializes singleton instance. Use {@link #getTranslator} for obtaining an object.
@@ -35,15 +42,12 @@ public final class Translator {
 	}
 
 	/**
-	 * Factory method to get reference to Translator.
+	 * Factory method to get reference to Translator, safe for concurrent use.
 	 *
 	 * @return {@link Translator} singleton
 	 */
 	static public Translator getTranslator() {
-		if (Translator.translator == null) {
-			Translator.translator = new Translator();
-		}
-		return Translator.translator;
+		return Holder.TRANSLATOR;
 	}
 
 	/**
@@ -72,9 +76,9 @@ public final class Translator {
 	 * @return String with long versions of short AA seqs.
 	 */
 	public String toLong(String shortAASeq) {
-		StringBuilder result = new StringBuilder();
+		StringBuilder result = new StringBuilder(3 * shortAASeq.length());
 		for (int i = 0; i < shortAASeq.length(); ++i)
-			result.append(shortToLong.get(shortAASeq.substring(i, i + 1)));
+			result.append(toLong(shortAASeq.charAt(i)));
 		return result.toString();
 	}
 
@@ -84,7 +88,7 @@ public final class Translator {
 	 * @return String with long versions of short AA char.
 	 */
 	public String toLong(char c) {
-		return shortToLong.get("" + c);
+		return (c < shortToLongTable.length) ? shortToLongTable[c] : null;
 	}
 
 	private String translateDNA(String dnaseq, ImmutableMap<String, String> codonTable) {
@@ -307,5 +311,8 @@ public final class Translator {
 		this.codon3 = codon3.build();
 		this.iupac = iupac.build();
 		this.shortToLong = shortToLong.build();
+
+		for (Map.Entry<String, String> entry : this.shortToLong.entrySet())
+			shortToLongTable[entry.getKey().charAt(0)] = entry.getValue();
 	}
 }
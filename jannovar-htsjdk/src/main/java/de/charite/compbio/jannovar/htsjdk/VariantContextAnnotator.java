@@ -1,6 +1,5 @@
 package de.charite.compbio.jannovar.htsjdk;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -20,11 +19,17 @@ import de.charite.compbio.jannovar.annotation.AnnotationMessage;
 import de.charite.compbio.jannovar.annotation.VariantAnnotations;
 import de.charite.compbio.jannovar.annotation.VariantAnnotator;
 import de.charite.compbio.jannovar.annotation.builders.AnnotationBuilderOptions;
+import de.charite.compbio.jannovar.annotation.builders.SNVEffectTable;
 import de.charite.compbio.jannovar.data.Chromosome;
+import de.charite.compbio.jannovar.data.GenomeRegionClass;
+import de.charite.compbio.jannovar.data.GenomeRegionClassIndex;
 import de.charite.compbio.jannovar.data.JannovarData;
 import de.charite.compbio.jannovar.data.ReferenceDictionary;
+import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.impl.intervals.IntervalSweepCursor;
 import de.charite.compbio.jannovar.reference.GenomePosition;
 import de.charite.compbio.jannovar.reference.GenomeVariant;
+import de.charite.compbio.jannovar.reference.GenomeVariantType;
 import de.charite.compbio.jannovar.reference.PositionType;
 import de.charite.compbio.jannovar.reference.Strand;
 import de.charite.compbio.jannovar.reference.TranscriptModel;
@@ -71,6 +76,15 @@ public final class VariantContextAnnotator {
 		/** Whether or not non-consensus splice region counts as off-target */
 		private boolean offTargetFilterIntronicSpliceIsOffTarget;
 
+		/** Number of variants to cache the annotations for, <code>0</code> to disable caching */
+		private final int annotationCacheSize;
+
+		/** Whether or not to only compute the variant effects, omitting the HGVS descriptions */
+		private final boolean effectsOnly;
+
+		/** Precomputed effects of SNVs in the CDS, <code>null</code> for computing all effects */
+		private final SNVEffectTable snvEffectTable;
+
 		/**
 		 * Constructor
 		 */
@@ -81,6 +95,9 @@ public final class VariantContextAnnotator {
 			offTargetFilterEnabled = false;
 			offTargetFilterUtrIsOffTarget = false;
 			offTargetFilterIntronicSpliceIsOffTarget = false;
+			annotationCacheSize = 0;
+			effectsOnly = false;
+			snvEffectTable = null;
 		}
 
 		/**
@@ -105,12 +122,107 @@ public final class VariantContextAnnotator {
 		public Options(boolean oneAnnotationOnly, boolean escapeAnnField, boolean nt3PrimeShifting,
 				boolean offTargetFilterEnabled, boolean offTargetFilterUtrIsOffTarget,
 				boolean offTargetFilterIntronicSpliceIsOffTarget) {
+			this(oneAnnotationOnly, escapeAnnField, nt3PrimeShifting, offTargetFilterEnabled,
+					offTargetFilterUtrIsOffTarget, offTargetFilterIntronicSpliceIsOffTarget, 0);
+		}
+
+		/**
+		 * 
+		 * constructor using fields
+		 * 
+		 * @param oneAnnotationOnly
+		 *            Whether or not to trim each annotation list to the first (one with highest putative impact),
+		 *            defaults to <code>true</code>
+		 * @param escapeAnnField
+		 *            whether or not to escape values in the ANN field (defaults to <code>true</code>)
+		 * @param nt3PrimeShifting
+		 *            whether or not to perform shifting towards the 3' end of the transcript (defaults to
+		 *            <code>true</code>)
+		 * @param offTargetFilterEnabled
+		 *            whether or not off target filter application is abled
+		 * @param offTargetFilterUtrIsOffTarget
+		 *            whether or not to count UTR as off-target
+		 * @param offTargetFilterIntronicSpliceIsOffTarget
+		 *            whether or not to to count non-consensus intronic splicing as off-target
+		 * @param annotationCacheSize
+		 *            number of variants to cache the annotations for, <code>0</code> to disable caching
+		 */
+		public Options(boolean oneAnnotationOnly, boolean escapeAnnField, boolean nt3PrimeShifting,
+				boolean offTargetFilterEnabled, boolean offTargetFilterUtrIsOffTarget,
+				boolean offTargetFilterIntronicSpliceIsOffTarget, int annotationCacheSize) {
+			this(oneAnnotationOnly, escapeAnnField, nt3PrimeShifting, offTargetFilterEnabled,
+					offTargetFilterUtrIsOffTarget, offTargetFilterIntronicSpliceIsOffTarget, annotationCacheSize, false);
+		}
+
+		/**
+		 * 
+		 * constructor using fields
+		 * 
+		 * @param oneAnnotationOnly
+		 *            Whether or not to trim each annotation list to the first (one with highest putative impact),
+		 *            defaults to <code>true</code>
+		 * @param escapeAnnField
+		 *            whether or not to escape values in the ANN field (defaults to <code>true</code>)
+		 * @param nt3PrimeShifting
+		 *            whether or not to perform shifting towards the 3' end of the transcript (defaults to
+		 *            <code>true</code>)
+		 * @param offTargetFilterEnabled
+		 *            whether or not off target filter application is abled
+		 * @param offTargetFilterUtrIsOffTarget
+		 *            whether or not to count UTR as off-target
+		 * @param offTargetFilterIntronicSpliceIsOffTarget
+		 *            whether or not to to count non-consensus intronic splicing as off-target
+		 * @param annotationCacheSize
+		 *            number of variants to cache the annotations for, <code>0</code> to disable caching
+		 * @param effectsOnly
+		 *            whether or not to only compute the variant effects, omitting the HGVS descriptions
+		 */
+		public Options(boolean oneAnnotationOnly, boolean escapeAnnField, boolean nt3PrimeShifting,
+				boolean offTargetFilterEnabled, boolean offTargetFilterUtrIsOffTarget,
+				boolean offTargetFilterIntronicSpliceIsOffTarget, int annotationCacheSize, boolean effectsOnly) {
+			this(oneAnnotationOnly, escapeAnnField, nt3PrimeShifting, offTargetFilterEnabled,
+					offTargetFilterUtrIsOffTarget, offTargetFilterIntronicSpliceIsOffTarget, annotationCacheSize,
+					effectsOnly, null);
+		}
+
+		/**
+		 * 
+		 * constructor using fields
+		 * 
+		 * @param oneAnnotationOnly
+		 *            Whether or not to trim each annotation list to the first (one with highest putative impact),
+		 *            defaults to <code>true</code>
+		 * @param escapeAnnField
+		 *            whether or not to escape values in the ANN field (defaults to <code>true</code>)
+		 * @param nt3PrimeShifting
+		 *            whether or not to perform shifting towards the 3' end of the transcript (defaults to
+		 *            <code>true</code>)
+		 * @param offTargetFilterEnabled
+		 *            whether or not off target filter application is abled
+		 * @param offTargetFilterUtrIsOffTarget
+		 *            whether or not to count UTR as off-target
+		 * @param offTargetFilterIntronicSpliceIsOffTarget
+		 *            whether or not to to count non-consensus intronic splicing as off-target
+		 * @param annotationCacheSize
+		 *            number of variants to cache the annotations for, <code>0</code> to disable caching
+		 * @param effectsOnly
+		 *            whether or not to only compute the variant effects, omitting the HGVS descriptions
+		 * @param snvEffectTable
+		 *            precomputed effects of SNVs in the CDS, <code>null</code> for computing all effects
+		 */
+		public Options(boolean oneAnnotationOnly, boolean escapeAnnField, boolean nt3PrimeShifting,
+				boolean offTargetFilterEnabled, boolean offTargetFilterUtrIsOffTarget,
+				boolean offTargetFilterIntronicSpliceIsOffTarget, int annotationCacheSize, boolean effectsOnly,
+				SNVEffectTable snvEffectTable) {
 			this.oneAnnotationOnly = oneAnnotationOnly;
 			this.escapeAnnField = escapeAnnField;
 			this.nt3PrimeShifting = nt3PrimeShifting;
 			this.offTargetFilterEnabled = offTargetFilterEnabled;
 			this.offTargetFilterUtrIsOffTarget = offTargetFilterUtrIsOffTarget;
 			this.offTargetFilterIntronicSpliceIsOffTarget = offTargetFilterIntronicSpliceIsOffTarget;
+			this.annotationCacheSize = annotationCacheSize;
+			this.effectsOnly = effectsOnly;
+			this.snvEffectTable = snvEffectTable;
 		}
 
 		/**
@@ -146,6 +258,27 @@ public final class VariantContextAnnotator {
 			return offTargetFilterIntronicSpliceIsOffTarget;
 		}
 
+		/**
+		 * @return number of variants to cache the annotations for, <code>0</code> if caching is disabled
+		 */
+		public int getAnnotationCacheSize() {
+			return annotationCacheSize;
+		}
+
+		/**
+		 * @return whether or not to only compute the variant effects, omitting the HGVS descriptions
+		 */
+		public boolean isEffectsOnly() {
+			return effectsOnly;
+		}
+
+		/**
+		 * @return precomputed effects of SNVs in the CDS, <code>null</code> for computing all effects
+		 */
+		public SNVEffectTable getSNVEffectTable() {
+			return snvEffectTable;
+		}
+
 	}
 
 	/** the {@link ReferenceDictionary} to use */
@@ -158,6 +291,37 @@ public final class VariantContextAnnotator {
 	/** implementation of the actual variant annotation */
 	private final VariantAnnotator annotator;
 
+	/**
+	 * region classes for deciding about off-target variants without building all annotations, only built if the
+	 * off-target filter is used when writing one annotation without the annotation cache, <code>null</code> otherwise
+	 */
+	private final GenomeRegionClassIndex regionClassIndex;
+
+	/**
+	 * State for using {@link IntervalSweepCursor}s on sorted input.
+	 *
+	 * There is one state for each thread, such that threads working on consecutive batches of sorted records can
+	 * sweep independently.
+	 */
+	private static final class SweepState {
+		/** whether or not the input seen so far is sorted, such that {@link #sweepCursor} can be used */
+		private boolean inputSorted = true;
+		/** IDs of the chromosomes seen so far */
+		private final Set<Integer> seenChromosomes = new HashSet<>();
+		/** chromosome of the previous {@link VariantContext} */
+		private int lastChr = -1;
+		/** position of the previous {@link VariantContext} */
+		private int lastPos = -1;
+		/** cursor over the transcripts of chromosome {@link #lastChr} while the input is sorted */
+		private IntervalSweepCursor<TranscriptModel> sweepCursor = null;
+	}
+
+	/** the {@link SweepState} of each thread */
+	private final ThreadLocal<SweepState> sweepState = ThreadLocal.withInitial(SweepState::new);
+
+	/** buffer of each thread for building the value of the ANN field in {@link #applyAnnotations} */
+	private final ThreadLocal<StringBuilder> annotationBuffer = ThreadLocal.withInitial(StringBuilder::new);
+
 	/**
 	 * Construct annotator with default options.
 	 * 
@@ -186,7 +350,13 @@ public final class VariantContextAnnotator {
 		this.chromosomeMap = chromosomeMap;
 		this.options = options;
 		this.annotator = new VariantAnnotator(refDict, chromosomeMap,
-				new AnnotationBuilderOptions(options.nt3PrimeShifting, false));
+				new AnnotationBuilderOptions(options.nt3PrimeShifting, false, options.effectsOnly,
+						options.snvEffectTable),
+				options.annotationCacheSize);
+		if (options.offTargetFilterEnabled && options.oneAnnotationOnly && options.annotationCacheSize == 0)
+			this.regionClassIndex = new GenomeRegionClassIndex(refDict, chromosomeMap);
+		else
+			this.regionClassIndex = null;
 	}
 
 	/**
@@ -276,7 +446,12 @@ public final class VariantContextAnnotator {
 	 */
 	public VariantContext annotateVariantContext(VariantContext vc) {
 		try {
-			vc = applyAnnotations(vc, buildAnnotations(vc));
+			// The annotation cache needs the full annotation lists, as does the off-target filter unless the region
+			// classes of the variant are decisive.
+			final Boolean offTarget = (regionClassIndex == null) ? null : classifyOffTarget(vc);
+			final boolean bestOnly = options.oneAnnotationOnly && options.annotationCacheSize == 0
+					&& (!options.offTargetFilterEnabled || offTarget != null);
+			vc = applyAnnotations(vc, buildAnnotations(vc, bestOnly), offTarget);
 		} catch (InvalidCoordinatesException e) {
 			putErrorAnnotation(vc, ImmutableSet.of(e.getAnnotationMessage()));
 		}
@@ -284,6 +459,44 @@ public final class VariantContextAnnotator {
 		return vc;
 	}
 
+	/**
+	 * Decide whether <code>vc</code> is off-target from the {@link GenomeRegionClass}es of its alleles alone.
+	 *
+	 * Alleles in introns and intergenic or flanking regions are off-target. SNVs in exons and splice sites are
+	 * on-target, as are SNVs in splice regions and UTRs unless these are considered off-target. All other cases are
+	 * not decisive and need the full annotation.
+	 *
+	 * @param vc
+	 *            the VCF record to classify
+	 * @return whether or not <code>vc</code> is off-target, <code>null</code> if this cannot be decided from the region
+	 *         classes
+	 * @throws InvalidCoordinatesException
+	 *             in the case of problems with resolving coordinates of the alleles
+	 */
+	private Boolean classifyOffTarget(VariantContext vc) throws InvalidCoordinatesException {
+		for (int alleleID = 0; alleleID < vc.getAlternateAlleles().size(); ++alleleID) {
+			final GenomeVariant change = buildGenomeVariant(vc, alleleID);
+			if (change.isSymbolic() || change.getRef().length() >= 1000 || change.getAlt().length() >= 1000)
+				return null; // structural variants are annotated differently
+			final boolean isSNV = (change.getType() == GenomeVariantType.SNV);
+			switch (regionClassIndex.classify(change.getGenomeInterval())) {
+			case INTRON:
+			case UPSTREAM_DOWNSTREAM:
+			case INTERGENIC:
+				break;
+			case CODING_EXON:
+			case NON_CODING_EXON:
+			case SPLICE_SITE:
+				return isSNV ? false : null;
+			case SPLICE_REGION:
+				return (isSNV && !options.offTargetFilterIntronicSpliceIsOffTarget) ? false : null;
+			case UTR:
+				return (isSNV && !options.offTargetFilterUtrIsOffTarget) ? false : null;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Given a {@link VariantContext}, generate one {@link VariantAnnotations} for each alternative allele.
 	 *
@@ -299,15 +512,43 @@ public final class VariantContextAnnotator {
 	 *             {@link GenomeVariant} object one one of the returned {@link VariantAnnotations}s.
 	 */
 	public ImmutableList<VariantAnnotations> buildAnnotations(VariantContext vc) throws InvalidCoordinatesException {
+		return buildAnnotations(vc, false);
+	}
+
+	/**
+	 * Implementation of {@link #buildAnnotations(VariantContext)}, building only the highest-impact annotation for each
+	 * allele if <code>bestOnly</code> is set.
+	 */
+	private ImmutableList<VariantAnnotations> buildAnnotations(VariantContext vc, boolean bestOnly)
+			throws InvalidCoordinatesException {
 		LOGGER.trace("building annotation lists for {}", new Object[] { vc });
 
-		ImmutableList.Builder<VariantAnnotations> builder = new ImmutableList.Builder<VariantAnnotations>();
-		for (int alleleID = 0; alleleID < vc.getAlternateAlleles().size(); ++alleleID) {
-			GenomeVariant change = buildGenomeVariant(vc, alleleID);
+		final Integer chr = refDict.getContigNameToID().get(vc.getContig());
+		final IntervalSweepCursor<TranscriptModel> cursor = (chr == null) ? null : getSweepCursor(chr, vc.getStart());
+
+		ImmutableList.Builder<GenomeVariant> changesBuilder = new ImmutableList.Builder<GenomeVariant>();
+		for (int alleleID = 0; alleleID < vc.getAlternateAlleles().size(); ++alleleID)
+			changesBuilder.add(buildGenomeVariant(vc, alleleID));
+		final ImmutableList<GenomeVariant> changes = changesBuilder.build();
+
+		// Annotate all alleles with one transcript query, falling back to annotating each allele on its own such that
+		// problems with one allele do not affect the others.
+		try {
+			final ImmutableList<VariantAnnotations> result = bestOnly
+					? annotator.buildBestAnnotations(changes, cursor)
+					: annotator.buildAnnotations(changes, cursor);
+			LOGGER.trace("adding annotation lists {}", new Object[] { result });
+			return result;
+		} catch (Exception e) {
+			LOGGER.trace("annotating alleles separately after {}", new Object[] { e });
+		}
 
+		ImmutableList.Builder<VariantAnnotations> builder = new ImmutableList.Builder<VariantAnnotations>();
+		for (GenomeVariant change : changes) {
 			// Build AnnotationList object for this allele.
 			try {
-				final VariantAnnotations lst = annotator.buildAnnotations(change);
+				final VariantAnnotations lst = bestOnly ? annotator.buildBestAnnotation(change, cursor)
+						: annotator.buildAnnotations(change, cursor);
 				builder.add(lst);
 				LOGGER.trace("adding annotation list {}", new Object[] { lst });
 			} catch (Exception e) {
@@ -320,6 +561,52 @@ public final class VariantContextAnnotator {
 		return builder.build();
 	}
 
+	/**
+	 * Update the sortedness state with the given position and return the {@link IntervalSweepCursor} to use.
+	 *
+	 * As long as the {@link VariantContext}s passed to the current thread come sorted by chromosome and position, the
+	 * overlapping transcripts are found by sweeping over the transcripts of each chromosome. The tree search is used
+	 * once unsorted input is detected.
+	 *
+	 * @param chr
+	 *            numeric chromosome ID of the {@link VariantContext}
+	 * @param pos
+	 *            start position of the {@link VariantContext}
+	 * @return the {@link IntervalSweepCursor} to use, <code>null</code> for using the tree search
+	 */
+	private IntervalSweepCursor<TranscriptModel> getSweepCursor(int chr, int pos) {
+		final SweepState state = sweepState.get();
+		if (!state.inputSorted)
+			return null;
+
+		if (chr != state.lastChr) {
+			if (!state.seenChromosomes.add(chr)) {
+				LOGGER.debug("Input is not sorted, chromosome {} seen before", new Object[] { chr });
+				return disableSweep(state);
+			}
+			final IntervalArray<TranscriptModel> iTree = annotator.getIntervalArray(chr);
+			state.sweepCursor = (iTree == null) ? null : new IntervalSweepCursor<>(iTree);
+		} else if (pos < state.lastPos) {
+			LOGGER.debug("Input is not sorted, position {} follows {}", new Object[] { pos, state.lastPos });
+			return disableSweep(state);
+		}
+		state.lastChr = chr;
+		state.lastPos = pos;
+		return state.sweepCursor;
+	}
+
+	/**
+	 * Switch to tree search for all following {@link VariantContext}s of the current thread.
+	 *
+	 * @return <code>null</code>
+	 */
+	private static IntervalSweepCursor<TranscriptModel> disableSweep(SweepState state) {
+		state.inputSorted = false;
+		state.sweepCursor = null;
+		state.seenChromosomes.clear();
+		return null;
+	}
+
 	/**
 	 * Write annotations from <code>annos</code> to <code>vc</code> l
 	 * 
@@ -330,27 +617,41 @@ public final class VariantContextAnnotator {
 	 * @return modified <code>vc</code>
 	 */
 	public VariantContext applyAnnotations(VariantContext vc, List<VariantAnnotations> annos) {
+		return applyAnnotations(vc, annos, null);
+	}
+
+	/**
+	 * Implementation of {@link #applyAnnotations(VariantContext, List)}, using <code>offTarget</code> for the off-target
+	 * filter if not <code>null</code>.
+	 */
+	private VariantContext applyAnnotations(VariantContext vc, List<VariantAnnotations> annos, Boolean offTarget) {
 		// Whether or not variant is off-target in all annotations
 		boolean offTargetInAll = true;
 
-		ArrayList<String> annotations = new ArrayList<String>();
+		// The ANN value is written into one buffer per thread that is reused for all records.
+		final StringBuilder annotations = annotationBuffer.get();
+		annotations.setLength(0);
+		int annotationCount = 0;
 		for (int alleleID = 0; alleleID < vc.getAlternateAlleles().size(); ++alleleID) {
 			if (!annos.get(alleleID).getAnnotations().isEmpty()) {
 				for (Annotation ann : annos.get(alleleID).getAnnotations()) {
-					boolean offTargetInThis = ann.getEffects().stream()
-							.allMatch(e -> e.isOffExome(options.offTargetFilterUtrIsOffTarget,
-									options.offTargetFilterIntronicSpliceIsOffTarget));
+					boolean offTargetInThis = ann.getEffectSet().isOffExome(options.offTargetFilterUtrIsOffTarget,
+							options.offTargetFilterIntronicSpliceIsOffTarget);
 					offTargetInAll = offTargetInAll && offTargetInThis;
 
-					if (!options.oneAnnotationOnly || annotations.isEmpty()) {
+					if (!options.oneAnnotationOnly || annotationCount == 0) {
 						final String alt = vc.getAlternateAllele(alleleID).getBaseString();
-						annotations.add(ann.toVCFAnnoString(alt));
+						if (annotationCount++ > 0)
+							annotations.append(',');
+						ann.appendVCFAnnoString(annotations, alt, true);
 					}
 				}
 			}
 		}
 
-		if (options.isOffTargetFilterEnabled() && (offTargetInAll && !annotations.isEmpty())) {
+		if (offTarget != null)
+			offTargetInAll = offTarget;
+		if (options.isOffTargetFilterEnabled() && (offTargetInAll && annotationCount > 0)) {
 			Set<String> filters = new HashSet<>(vc.getFilters());
 			filters.add(VariantEffectHeaderExtender.FILTER_EFFECT_OFF_EXOME);
 			vc = new VariantContextBuilder(vc).filters(filters).make();
@@ -358,8 +659,8 @@ public final class VariantContextAnnotator {
 
 		// If a VC builder is used before the attributes can be unmodifiable.
 		Map<String, Object> attributes = new HashMap<>(vc.getAttributes());
-		if (!annotations.isEmpty())
-			attributes.put("ANN", Joiner.on(',').join(annotations));
+		if (annotationCount > 0)
+			attributes.put("ANN", annotations.toString());
 		vc.getCommonInfo().setAttributes(attributes);
 
 		return vc;
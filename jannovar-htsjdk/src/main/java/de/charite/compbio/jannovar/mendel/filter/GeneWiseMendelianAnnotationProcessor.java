@@ -21,8 +21,8 @@ import de.charite.compbio.jannovar.UncheckedJannovarException;
 import de.charite.compbio.jannovar.data.Chromosome;
 import de.charite.compbio.jannovar.data.JannovarData;
 import de.charite.compbio.jannovar.data.ReferenceDictionary;
-import de.charite.compbio.jannovar.impl.intervals.Interval;
 import de.charite.compbio.jannovar.impl.intervals.IntervalArray;
+import de.charite.compbio.jannovar.impl.intervals.IntervalVisitor;
 import de.charite.compbio.jannovar.mendel.IncompatiblePedigreeException;
 import de.charite.compbio.jannovar.mendel.SubModeOfInheritance;
 import de.charite.compbio.jannovar.mendel.bridge.CannotAnnotateMendelianInheritance;
@@ -130,25 +130,21 @@ public class GeneWiseMendelianAnnotationProcessor implements VariantContextProce
 		}
 
 		// Consider this variant for each affected gene
-		Optional<GenomeInterval> changeInterval = contigID
-				.map(x -> new GenomeInterval(refDict, Strand.FWD, x, vc.getStart() - 1, vc.getEnd()));
-		Optional<IntervalArray<Gene>.QueryResult> qr = Optional.empty();
-		if (changeInterval.isPresent()) {
-			if (changeInterval.get().length() == 0)
-				qr = iTree.map(x -> x.findOverlappingWithPoint(changeInterval.get().getBeginPos()));
-			else
-				qr = iTree.map(x -> x.findOverlappingWithInterval(changeInterval.get().getBeginPos(),
-						changeInterval.get().getEndPos()));
-		}
+		final int changeBeginPos = vc.getStart() - 1;
+		final int changeEndPos = vc.getEnd();
+		final ArrayList<Gene> genes = new ArrayList<>();
+		final IntervalVisitor<Gene> collector = (begin, end, gene) -> genes.add(gene);
+		if (changeEndPos == changeBeginPos)
+			iTree.get().visitOverlappingWithPoint(changeBeginPos, collector);
+		else
+			iTree.get().visitOverlappingWithInterval(changeBeginPos, changeEndPos, collector);
 
-		if (qr.isPresent()) {
-			if (qr.get().getEntries().isEmpty()) {
-				putVariantForGene(vc, null);
-			} else {
-				for (Gene gene : qr.get().getEntries())
-					if (isGeneAffectedByChange(gene, vc))
-						putVariantForGene(vc, gene);
-			}
+		if (genes.isEmpty()) {
+			putVariantForGene(vc, null);
+		} else {
+			for (Gene gene : genes)
+				if (isGeneAffectedByChange(gene, vc))
+					putVariantForGene(vc, gene);
 		}
 
 		// Write out all variants left of variant. If contig ID not known then write out everything currently in cache
@@ -206,8 +202,8 @@ public class GeneWiseMendelianAnnotationProcessor implements VariantContextProce
 		// create one GeneBuilder for each gene, collect all transcripts for the gene
 		HashMap<String, GeneBuilder> geneMap = new HashMap<String, GeneBuilder>();
 		for (Chromosome chrom : jannovarDB.getChromosomes().values())
-			for (Interval<TranscriptModel> itv : chrom.getTMIntervalTree().getIntervals()) {
-				TranscriptModel tm = itv.getValue();
+			for (int i = 0; i < chrom.getTMIntervalTree().size(); ++i) {
+				TranscriptModel tm = chrom.getTMIntervalTree().getValue(i);
 				if (!geneMap.containsKey(tm.getGeneSymbol()))
 					geneMap.put(tm.getGeneSymbol(), new GeneBuilder(jannovarDB.getRefDict(), tm.getGeneSymbol()));
 				geneMap.get(tm.getGeneSymbol()).addTranscriptModel(tm);
@@ -6,13 +6,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSortedSet;
 
 import de.charite.compbio.jannovar.annotation.VariantAnnotations;
 import de.charite.compbio.jannovar.annotation.VariantEffect;
+import de.charite.compbio.jannovar.annotation.VariantEffectSet;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
@@ -25,6 +24,37 @@ import htsjdk.variant.variantcontext.VariantContext;
  */
 public class StatisticsCollector {
 
+	/** Bit mask of the {@link VariantEffect}s counted as {@link GenomeRegion#EXONIC} */
+	private static final long CODING_MASK = VariantEffectSet.maskOf(VariantEffect.FRAMESHIFT_ELONGATION,
+			VariantEffect.FRAMESHIFT_TRUNCATION, VariantEffect.FRAMESHIFT_VARIANT,
+			VariantEffect.INTERNAL_FEATURE_ELONGATION, VariantEffect.FEATURE_TRUNCATION, VariantEffect.MNV,
+			VariantEffect.COMPLEX_SUBSTITUTION, VariantEffect.STOP_GAINED, VariantEffect.STOP_LOST,
+			VariantEffect.START_LOST, VariantEffect.MISSENSE_VARIANT, VariantEffect.INFRAME_DELETION,
+			VariantEffect.DISRUPTIVE_INFRAME_INSERTION, VariantEffect.STOP_RETAINED_VARIANT,
+			VariantEffect.INITIATOR_CODON_VARIANT, VariantEffect.SYNONYMOUS_VARIANT,
+			VariantEffect.NON_CODING_TRANSCRIPT_EXON_VARIANT, VariantEffect.EXON_VARIANT);
+	/** Bit mask of the {@link VariantEffect}s counted as {@link GenomeRegion#INTRONIC} */
+	private static final long INTRONIC_MASK = VariantEffectSet.maskOf(VariantEffect.SPLICE_ACCEPTOR_VARIANT,
+			VariantEffect.SPLICE_DONOR_VARIANT, VariantEffect.SPLICE_REGION_VARIANT,
+			VariantEffect.FIVE_PRIME_UTR_INTRON_VARIANT, VariantEffect.THREE_PRIME_UTR_INTRON_VARIANT,
+			VariantEffect.INTRON_VARIANT, VariantEffect.CODING_TRANSCRIPT_INTRON_VARIANT,
+			VariantEffect.NON_CODING_TRANSCRIPT_INTRON_VARIANT);
+	/** Bit mask of the {@link VariantEffect}s counted as {@link GenomeRegion#UTR5} */
+	private static final long UTR5_MASK = VariantEffectSet.maskOf(VariantEffect.FIVE_PRIME_UTR_EXON_VARIANT,
+			VariantEffect.FIVE_PRIME_UTR_TRUNCATION, VariantEffect.FIVE_PRIME_UTR_PREMATURE_START_CODON_GAIN_VARIANT);
+	/** Bit mask of the {@link VariantEffect}s counted as {@link GenomeRegion#UTR3} */
+	private static final long UTR3_MASK = VariantEffectSet.maskOf(VariantEffect.THREE_PRIME_UTR_EXON_VARIANT,
+			VariantEffect.THREE_PRIME_UTR_TRUNCATION);
+	/** Bit mask of the {@link VariantEffect}s counted as {@link GenomeRegion#UPSTREAM} */
+	private static final long UPSTREAM_MASK = VariantEffectSet.maskOf(VariantEffect.UPSTREAM_GENE_VARIANT);
+	/** Bit mask of the {@link VariantEffect}s counted as {@link GenomeRegion#DOWNSTREAM} */
+	private static final long DOWNSTREAM_MASK = VariantEffectSet.maskOf(VariantEffect.DOWNSTREAM_GENE_VARIANT);
+	/** Bit mask of the {@link VariantEffect}s counted as {@link GenomeRegion#INTERGENIC} */
+	private static final long INTERGENIC_MASK = VariantEffectSet.maskOf(VariantEffect.INTERGENIC_VARIANT);
+	/** Union of all region bit masks */
+	private static final long ALL_REGIONS_MASK = CODING_MASK | INTRONIC_MASK | UTR5_MASK | UTR3_MASK
+			| UPSTREAM_MASK | DOWNSTREAM_MASK | INTERGENIC_MASK;
+
 	/** Sample names */
 	ImmutableList<String> sampleNames;
 
@@ -139,62 +169,29 @@ public class StatisticsCollector {
 
 	private void putGenomeRegion(String sampleName, VariantAnnotations alleleAnno) {
 		final Statistics stats = perSampleStats.get(sampleName);
-		if (alleleAnno.getHighestImpactAnnotation() == null
-				|| alleleAnno.getHighestImpactAnnotation().getEffects() == null)
+		if (alleleAnno.getHighestImpactAnnotation() == null)
 			return;
-		final SortedSet<VariantEffect> effects = alleleAnno.getHighestImpactAnnotation().getEffects();
-		final ImmutableSortedSet<VariantEffect> codingEffects = ImmutableSortedSet.of(
-				VariantEffect.FRAMESHIFT_ELONGATION, VariantEffect.FRAMESHIFT_TRUNCATION,
-				VariantEffect.FRAMESHIFT_VARIANT, VariantEffect.INTERNAL_FEATURE_ELONGATION,
-				VariantEffect.FEATURE_TRUNCATION, VariantEffect.MNV, VariantEffect.COMPLEX_SUBSTITUTION,
-				VariantEffect.STOP_GAINED, VariantEffect.STOP_LOST, VariantEffect.START_LOST,
-				VariantEffect.MISSENSE_VARIANT, VariantEffect.INFRAME_DELETION, VariantEffect.INFRAME_DELETION,
-				VariantEffect.DISRUPTIVE_INFRAME_INSERTION, VariantEffect.DISRUPTIVE_INFRAME_INSERTION,
-				VariantEffect.STOP_RETAINED_VARIANT, VariantEffect.INITIATOR_CODON_VARIANT,
-				VariantEffect.SYNONYMOUS_VARIANT, VariantEffect.NON_CODING_TRANSCRIPT_EXON_VARIANT,
-				VariantEffect.EXON_VARIANT);
-		final ImmutableSortedSet<VariantEffect> intronicEffects = ImmutableSortedSet.of(
-				VariantEffect.SPLICE_ACCEPTOR_VARIANT, VariantEffect.SPLICE_DONOR_VARIANT,
-				VariantEffect.SPLICE_REGION_VARIANT, VariantEffect.FIVE_PRIME_UTR_INTRON_VARIANT,
-				VariantEffect.THREE_PRIME_UTR_INTRON_VARIANT, VariantEffect.INTRON_VARIANT,
-				VariantEffect.CODING_TRANSCRIPT_INTRON_VARIANT, VariantEffect.NON_CODING_TRANSCRIPT_INTRON_VARIANT,
-				VariantEffect.INTRON_VARIANT);
-		final ImmutableSortedSet<VariantEffect> utr5Effects = ImmutableSortedSet.of(
-				VariantEffect.FIVE_PRIME_UTR_EXON_VARIANT, VariantEffect.FIVE_PRIME_UTR_TRUNCATION,
-				VariantEffect.FIVE_PRIME_UTR_PREMATURE_START_CODON_GAIN_VARIANT);
-		final ImmutableSortedSet<VariantEffect> utr3Effects = ImmutableSortedSet
-				.of(VariantEffect.THREE_PRIME_UTR_EXON_VARIANT, VariantEffect.THREE_PRIME_UTR_TRUNCATION);
-		final ImmutableSortedSet<VariantEffect> upstreamEffects = ImmutableSortedSet
-				.of(VariantEffect.UPSTREAM_GENE_VARIANT);
-		final ImmutableSortedSet<VariantEffect> downstreamEffects = ImmutableSortedSet
-				.of(VariantEffect.DOWNSTREAM_GENE_VARIANT);
-		final ImmutableSortedSet<VariantEffect> intergenicEffects = ImmutableSortedSet
-				.of(VariantEffect.INTERGENIC_VARIANT);
+		final VariantEffectSet effects = alleleAnno.getHighestImpactAnnotation().getEffectSet();
 
-		for (VariantEffect effect : effects) {
-			if (codingEffects.contains(effect)) {
-				stats.putGenomeRegion(GenomeRegion.EXONIC);
-				break;
-			} else if (intronicEffects.contains(effect)) {
-				stats.putGenomeRegion(GenomeRegion.INTRONIC);
-				break;
-			} else if (utr5Effects.contains(effect)) {
-				stats.putGenomeRegion(GenomeRegion.UTR5);
-				break;
-			} else if (utr3Effects.contains(effect)) {
-				stats.putGenomeRegion(GenomeRegion.UTR3);
-				break;
-			} else if (upstreamEffects.contains(effect)) {
-				stats.putGenomeRegion(GenomeRegion.UPSTREAM);
-				break;
-			} else if (downstreamEffects.contains(effect)) {
-				stats.putGenomeRegion(GenomeRegion.DOWNSTREAM);
-				break;
-			} else if (intergenicEffects.contains(effect)) {
-				stats.putGenomeRegion(GenomeRegion.INTERGENIC);
-				break;
-			}
-		}
+		// the region is given by the most pathogenic effect that is in any of the region masks
+		final VariantEffect effect = effects.getMostPathogenic(ALL_REGIONS_MASK);
+		if (effect == null)
+			return;
+		final long bit = VariantEffectSet.maskOf(effect);
+		if ((CODING_MASK & bit) != 0)
+			stats.putGenomeRegion(GenomeRegion.EXONIC);
+		else if ((INTRONIC_MASK & bit) != 0)
+			stats.putGenomeRegion(GenomeRegion.INTRONIC);
+		else if ((UTR5_MASK & bit) != 0)
+			stats.putGenomeRegion(GenomeRegion.UTR5);
+		else if ((UTR3_MASK & bit) != 0)
+			stats.putGenomeRegion(GenomeRegion.UTR3);
+		else if ((UPSTREAM_MASK & bit) != 0)
+			stats.putGenomeRegion(GenomeRegion.UPSTREAM);
+		else if ((DOWNSTREAM_MASK & bit) != 0)
+			stats.putGenomeRegion(GenomeRegion.DOWNSTREAM);
+		else
+			stats.putGenomeRegion(GenomeRegion.INTERGENIC);
 	}
 
 	private void putTsTv(VariantContext vc, String sampleName, int alleleIdx) {
@@ -1,6 +1,5 @@
 package de.charite.compbio.jannovar.vardbs.base;
 
-import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.variant.variantcontext.VariantContext;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -48,36 +47,33 @@ public abstract class AbstractDBAnnotationDriver<RecordType> implements DBAnnota
 
 	@Override
 	public VariantContext annotateVariantContext(VariantContext obsVC) {
-		try (CloseableIterator<VariantContext> iter = variantProvider.query(obsVC.getContig(), obsVC.getStart() - 1,
+		// Fetch all overlapping and matching genotypes from database and pair them with the
+		// correct allele from vc.
+		List<GenotypeMatch> genotypeMatches = new ArrayList<>();
+		List<GenotypeMatch> positionOverlaps = new ArrayList<>();
+		for (VariantContext dbVC : variantProvider.fetch(obsVC.getContig(), obsVC.getStart() - 1,
 				obsVC.getEnd())) {
-			// Fetch all overlapping and matching genotypes from database and pair them with the
-			// correct allele from vc.
-			List<GenotypeMatch> genotypeMatches = new ArrayList<>();
-			List<GenotypeMatch> positionOverlaps = new ArrayList<>();
-			while (iter.hasNext()) {
-				final VariantContext dbVC = iter.next();
-				if (!options.isReportOverlappingAsMatching()) // unnecessary in this case
-					genotypeMatches.addAll(matcher.matchGenotypes(obsVC, dbVC));
-				if (options.isReportOverlapping() || options.isReportOverlappingAsMatching())
-					positionOverlaps.addAll(matcher.positionOverlaps(obsVC, dbVC));
-			}
+			if (!options.isReportOverlappingAsMatching()) // unnecessary in this case
+				genotypeMatches.addAll(matcher.matchGenotypes(obsVC, dbVC));
+			if (options.isReportOverlapping() || options.isReportOverlappingAsMatching())
+				positionOverlaps.addAll(matcher.positionOverlaps(obsVC, dbVC));
+		}
 
-			// Pick best record for each alternative allele
-			HashMap<Integer, AnnotatingRecord<RecordType>> dbRecordsMatch = buildAnnotatingDBRecordsWrapper(
-					genotypeMatches, true);
-			HashMap<Integer, AnnotatingRecord<RecordType>> dbRecordsOverlap = buildAnnotatingDBRecordsWrapper(
-					positionOverlaps, false);
-			HashMap<Integer, AnnotatingRecord<RecordType>> emptyMap = new HashMap<>();
+		// Pick best record for each alternative allele
+		HashMap<Integer, AnnotatingRecord<RecordType>> dbRecordsMatch = buildAnnotatingDBRecordsWrapper(
+				genotypeMatches, true);
+		HashMap<Integer, AnnotatingRecord<RecordType>> dbRecordsOverlap = buildAnnotatingDBRecordsWrapper(
+				positionOverlaps, false);
+		HashMap<Integer, AnnotatingRecord<RecordType>> emptyMap = new HashMap<>();
 
-			// Use these records to annotate the variant call in obsVC (record-wise but also per
-			// alternative allele)
-			if (options.isReportOverlappingAsMatching())
-				return annotateWithDBRecords(obsVC, dbRecordsOverlap, emptyMap);
-			else if (options.isReportOverlapping())
-				return annotateWithDBRecords(obsVC, dbRecordsMatch, dbRecordsOverlap);
-			else
-				return annotateWithDBRecords(obsVC, dbRecordsMatch, emptyMap);
-		}
+		// Use these records to annotate the variant call in obsVC (record-wise but also per
+		// alternative allele)
+		if (options.isReportOverlappingAsMatching())
+			return annotateWithDBRecords(obsVC, dbRecordsOverlap, emptyMap);
+		else if (options.isReportOverlapping())
+			return annotateWithDBRecords(obsVC, dbRecordsMatch, dbRecordsOverlap);
+		else
+			return annotateWithDBRecords(obsVC, dbRecordsMatch, emptyMap);
 	}
 
 	/**
@@ -2,6 +2,8 @@ package de.charite.compbio.jannovar.vardbs.base;
 
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.variant.variantcontext.VariantContext;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Allow to query database with contig, (1-based) begin, and end position to produce a
@@ -25,4 +27,31 @@ public interface DatabaseVariantContextProvider {
 	 */
 	CloseableIterator<VariantContext> query(String contig, int beginPos, int endPos);
 
+	/**
+	 * Collect the {@link VariantContext}s returned by {@link #query} into a list.
+	 * 
+	 * <p>
+	 * The readers behind the providers do not support concurrent queries, so the query is performed while holding the
+	 * lock of the provider. This makes it safe to share one provider between multiple annotation threads.
+	 * </p>
+	 * 
+	 * @param contig
+	 *            Name of the contig to perform query on.
+	 * @param beginPos
+	 *            1-based start position
+	 * @param endPos
+	 *            end position
+	 * @return {@link List} of {@link VariantContext} objects for annotation.
+	 */
+	default List<VariantContext> fetch(String contig, int beginPos, int endPos) {
+		List<VariantContext> result = new ArrayList<>();
+		synchronized (this) {
+			try (CloseableIterator<VariantContext> iter = query(contig, beginPos, endPos)) {
+				while (iter.hasNext())
+					result.add(iter.next());
+			}
+		}
+		return result;
+	}
+
 }
@@ -79,7 +79,10 @@ public final class VariantNormalizer {
 			}
 			// Extend alleles to the left if there is an empty allele
 			if (ref.length() == 0 || alt.length() == 0) {
-				char extension = (char) fai.getSubsequenceAt(desc.getChrom(), pos, pos).getBases()[0];
+				char extension;
+				synchronized (fai) { // IndexedFastaSequenceFile does not support concurrent access
+					extension = (char) fai.getSubsequenceAt(desc.getChrom(), pos, pos).getBases()[0];
+				}
 				ref = extension + ref;
 				alt = extension + alt;
 				pos -= 1;
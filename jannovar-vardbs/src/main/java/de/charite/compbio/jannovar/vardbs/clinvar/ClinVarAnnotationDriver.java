@@ -69,29 +69,35 @@ public class ClinVarAnnotationDriver implements DBAnnotationDriver {
 
 	@Override
 	public VariantContext annotateVariantContext(VariantContext obsVC) {
-		try (CloseableIterator<VariantContext> iter = vcfReader.query(obsVC.getContig(), obsVC.getStart(),
-				obsVC.getEnd())) {
-			// Fetch all overlapping and matching genotypes from database and pair them with the correct allele from vc.
-			List<GenotypeMatch> genotypeMatches = new ArrayList<>();
-			List<GenotypeMatch> positionOverlaps = new ArrayList<>();
-			while (iter.hasNext()) {
-				final VariantContext dbVC = iter.next();
-				genotypeMatches.addAll(matcher.matchGenotypes(obsVC, dbVC));
-				// TODO: what to do about non-reference/non-alt ClinVar annotation "-1"?
-				if (options.isReportOverlapping() || options.isReportOverlappingAsMatching())
-					positionOverlaps.addAll(matcher.positionOverlaps(obsVC, dbVC));
+		// The VCFFileReader does not support concurrent queries, collect the records while holding its lock.
+		List<VariantContext> dbVCs = new ArrayList<>();
+		synchronized (vcfReader) {
+			try (CloseableIterator<VariantContext> iter = vcfReader.query(obsVC.getContig(), obsVC.getStart(),
+					obsVC.getEnd())) {
+				while (iter.hasNext())
+					dbVCs.add(iter.next());
 			}
+		}
 
-			List<GenotypeMatch> emptyList = new ArrayList<>();
-
-			// Use these records to annotate the variant call in obsVC (record-wise but also per alternative allele)
-			if (options.isReportOverlappingAsMatching())
-				return annotateWithDBRecords(obsVC, positionOverlaps, emptyList);
-			else if (options.isReportOverlapping())
-				return annotateWithDBRecords(obsVC, genotypeMatches, positionOverlaps);
-			else
-				return annotateWithDBRecords(obsVC, genotypeMatches, emptyList);
+		// Fetch all overlapping and matching genotypes from database and pair them with the correct allele from vc.
+		List<GenotypeMatch> genotypeMatches = new ArrayList<>();
+		List<GenotypeMatch> positionOverlaps = new ArrayList<>();
+		for (VariantContext dbVC : dbVCs) {
+			genotypeMatches.addAll(matcher.matchGenotypes(obsVC, dbVC));
+			// TODO: what to do about non-reference/non-alt ClinVar annotation "-1"?
+			if (options.isReportOverlapping() || options.isReportOverlappingAsMatching())
+				positionOverlaps.addAll(matcher.positionOverlaps(obsVC, dbVC));
 		}
+
+		List<GenotypeMatch> emptyList = new ArrayList<>();
+
+		// Use these records to annotate the variant call in obsVC (record-wise but also per alternative allele)
+		if (options.isReportOverlappingAsMatching())
+			return annotateWithDBRecords(obsVC, positionOverlaps, emptyList);
+		else if (options.isReportOverlapping())
+			return annotateWithDBRecords(obsVC, genotypeMatches, positionOverlaps);
+		else
+			return annotateWithDBRecords(obsVC, genotypeMatches, emptyList);
 	}
 
 	/**
@@ -6,7 +6,6 @@ import de.charite.compbio.jannovar.vardbs.base.DatabaseVariantContextProvider;
 import de.charite.compbio.jannovar.vardbs.base.GenotypeMatch;
 import de.charite.compbio.jannovar.vardbs.base.JannovarVarDBException;
 import de.charite.compbio.jannovar.vardbs.base.VCFHeaderExtender;
-import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import java.util.ArrayList;
@@ -94,20 +93,17 @@ public final class GenericTSVAnnotationDriver implements DBAnnotationDriver {
 			result.put(i, new ArrayList<>());
 		}
 
-		try (CloseableIterator<VariantContext> it = variantProvider.query(vc.getContig(),
-				vc.getStart() - 1, vc.getEnd())) {
-			while (it.hasNext()) {
-				final VariantContext dbVC = it.next();
-				for (int i = 0; i < vc.getNAlleles(); ++i) {
-					final Collection<GenotypeMatch> matches;
-					if (requireGenotypeMatch) {
-						matches = matcher.matchGenotypes(vc, dbVC);
-					} else {
-						matches = matcher.positionOverlaps(vc, dbVC);
-					}
-					for (GenotypeMatch match : matches) {
-						result.get(match.getObservedAllele()).add(dbVC);
-					}
+		for (VariantContext dbVC : variantProvider.fetch(vc.getContig(), vc.getStart() - 1,
+				vc.getEnd())) {
+			for (int i = 0; i < vc.getNAlleles(); ++i) {
+				final Collection<GenotypeMatch> matches;
+				if (requireGenotypeMatch) {
+					matches = matcher.matchGenotypes(vc, dbVC);
+				} else {
+					matches = matcher.positionOverlaps(vc, dbVC);
+				}
+				for (GenotypeMatch match : matches) {
+					result.get(match.getObservedAllele()).add(dbVC);
 				}
 			}
 		}